@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseItemStack;
+import com.sk89q.worldedit.bukkit.adapter.BukkitImplAdapter;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.extension.input.InputParseException;
 import com.sk89q.worldedit.extension.input.ParserContext;
@@ -46,8 +47,6 @@
 import com.sk89q.worldedit.world.gamemode.GameModes;
 import com.sk89q.worldedit.world.item.ItemType;
 import com.sk89q.worldedit.world.item.ItemTypes;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.block.Biome;
@@ -57,10 +56,12 @@
 import org.bukkit.inventory.ItemStack;
 
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nullable;
 
@@ -406,8 +407,14 @@ public static ItemType asItemType(Material material) {
         return materialItemTypeCache.computeIfAbsent(material, input -> ItemTypes.get(material.getKey().toString()));
     }
 
-    private static Int2ObjectMap<BlockState> blockStateCache = new Int2ObjectOpenHashMap<>();
-    private static Map<String, BlockState> blockStateStringCache = new HashMap<>();
+    /*
+     * Conversions are looked up from async edit threads as well as the main
+     * thread, so the caches must be safe to share. Block states are looked up
+     * by internal ID where possible, which needs no string work.
+     */
+    private static final Map<BlockData, BlockState> blockStateCache = new ConcurrentHashMap<>();
+    private static volatile AtomicReferenceArray<BlockData> blockDataById = new AtomicReferenceArray<>(0);
+    private static final Map<BlockState, BlockData> blockDataCache = new ConcurrentHashMap<>();
 
     /**
      * Create a WorldEdit BlockState from a Bukkit BlockData
@@ -418,31 +425,48 @@ public static ItemType asItemType(Material material) {
     public static BlockState adapt(BlockData blockData) {
         checkNotNull(blockData);
 
-        if (WorldEditPlugin.getInstance().getBukkitImplAdapter() == null) {
-            return blockStateStringCache.computeIfAbsent(blockData.getAsString(), input -> {
-                try {
-                    return WorldEdit.getInstance().getBlockFactory().parseFromInput(input, TO_BLOCK_CONTEXT).toImmutableState();
-                } catch (InputParseException e) {
-                    e.printStackTrace();
-                    return null;
+        BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
+        if (adapter != null) {
+            OptionalInt id = adapter.getInternalBlockStateId(blockData);
+            if (id.isPresent()) {
+                BlockState state = BlockStateIdAccess.getBlockStateById(id.getAsInt());
+                if (state != null) {
+                    return state;
                 }
-            });
-        } else {
-            return blockStateCache.computeIfAbsent(
-                    WorldEditPlugin.getInstance().getBukkitImplAdapter().getInternalBlockStateId(blockData).orElseGet(
-                            () -> blockData.getAsString().hashCode()
-                    ), input -> {
-                        try {
-                            return WorldEdit.getInstance().getBlockFactory().parseFromInput(blockData.getAsString(), TO_BLOCK_CONTEXT).toImmutableState();
-                        } catch (InputParseException e) {
-                            e.printStackTrace();
-                            return null;
-                        }
-                    });
+            }
+        }
+
+        BlockState state = blockStateCache.get(blockData);
+        if (state == null) {
+            try {
+                state = WorldEdit.getInstance().getBlockFactory().parseFromInput(blockData.getAsString(), TO_BLOCK_CONTEXT).toImmutableState();
+            } catch (InputParseException e) {
+                e.printStackTrace();
+                return null;
+            }
+            // the key is cloned, since block data is mutable
+            blockStateCache.putIfAbsent(blockData.clone(), state);
         }
+        return state;
     }
 
-    private static Int2ObjectMap<BlockData> blockDataCache = new Int2ObjectOpenHashMap<>();
+    private static AtomicReferenceArray<BlockData> getBlockDataTable(int id) {
+        AtomicReferenceArray<BlockData> table = blockDataById;
+        if (id < table.length()) {
+            return table;
+        }
+        synchronized (BukkitAdapter.class) {
+            table = blockDataById;
+            if (id >= table.length()) {
+                AtomicReferenceArray<BlockData> grown = new AtomicReferenceArray<>(Math.max(id + 1, table.length() * 2));
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                blockDataById = table = grown;
+            }
+            return table;
+        }
+    }
 
     /**
      * Create a Bukkit BlockData from a WorldEdit BlockStateHolder
@@ -453,11 +477,19 @@ public static BlockState adapt(BlockData blockData) {
     public static <B extends BlockStateHolder<B>> BlockData adapt(B block) {
         checkNotNull(block);
         // Should never not have an ID for this BlockState.
-        int cacheKey = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
-        if (cacheKey == BlockStateIdAccess.invalidId()) {
-            cacheKey = block.hashCode();
+        BlockState state = block.toImmutableState();
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (!BlockStateIdAccess.isValidInternalId(id) || id < 0) {
+            return blockDataCache.computeIfAbsent(state, input -> Bukkit.createBlockData(input.getAsString())).clone();
+        }
+        AtomicReferenceArray<BlockData> table = getBlockDataTable(id);
+        BlockData blockData = table.get(id);
+        if (blockData == null) {
+            // racing threads create equal data, so whichever is published first wins
+            table.compareAndSet(id, null, Bukkit.createBlockData(block.getAsString()));
+            blockData = table.get(id);
         }
-        return blockDataCache.computeIfAbsent(cacheKey, input -> Bukkit.createBlockData(block.getAsString())).clone();
+        return blockData.clone();
     }
 
     /**
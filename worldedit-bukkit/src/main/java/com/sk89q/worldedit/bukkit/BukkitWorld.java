@@ -37,12 +37,15 @@
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
 import com.sk89q.worldedit.util.TreeGenerator;
+import com.sk89q.worldedit.util.collection.SectionBlockBatch;
 import com.sk89q.worldedit.world.AbstractWorld;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.weather.WeatherType;
 import com.sk89q.worldedit.world.weather.WeatherTypes;
+import io.papermc.lib.PaperLib;
+import org.bukkit.Chunk;
 import org.bukkit.Effect;
 import org.bukkit.TreeType;
 import org.bukkit.World;
@@ -53,14 +56,20 @@
 import org.bukkit.inventory.DoubleChestInventory;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.plugin.Plugin;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -72,6 +81,28 @@ public class BukkitWorld extends AbstractWorld {
 
     private static final Logger logger = WorldEdit.logger;
 
+    /**
+     * The most chunks to load up front on servers that can't load them in
+     * the background, to keep the pause before an edit short.
+     */
+    private static final int MAX_SYNC_PRELOADED_CHUNKS = 64;
+
+    /**
+     * The most chunks to have loading in the background at once, so that
+     * a large edit does not queue every chunk it touches at the same time.
+     */
+    private static final int MAX_ASYNC_PRELOADED_CHUNKS = 64;
+
+    /**
+     * World#addPluginChunkTicket and World#removePluginChunkTicket, which keep
+     * preloaded chunks from unloading before they are changed, or null on
+     * versions before 1.14 that don't have them.
+     */
+    @Nullable
+    private static final Method addChunkTicket = findChunkTicketMethod("addPluginChunkTicket");
+    @Nullable
+    private static final Method removeChunkTicket = findChunkTicketMethod("removePluginChunkTicket");
+
     private static final Map<Integer, Effect> effects = new HashMap<>();
     static {
         for (Effect effect : Effect.values()) {
@@ -81,6 +112,15 @@ public class BukkitWorld extends AbstractWorld {
 
     private final WeakReference<World> worldRef;
     private final WorldNativeAccess<?, ?, ?> worldNativeAccess;
+    private final Set<BlockVector2> pendingPreloads = new LinkedHashSet<>();
+    private final Set<BlockVector2> ticketedChunks = new HashSet<>();
+    private int activePreloads;
+    private boolean pumpingPreloads;
+    /**
+     * Counts the calls to {@link #releasePreloadedChunks()}, so that a load
+     * started before one doesn't keep its chunk loaded.
+     */
+    private int preloadGeneration;
 
     /**
      * Construct the object.
@@ -299,9 +339,119 @@ public void dropItem(Vector3 pt, BaseItemStack item) {
     public void checkLoadedChunk(BlockVector3 pt) {
         World world = getWorld();
 
+        synchronized (pendingPreloads) {
+            // the edit has caught up with this chunk, so it's loaded now
+            pendingPreloads.remove(BlockVector2.at(pt.getBlockX() >> 4, pt.getBlockZ() >> 4));
+        }
         world.getChunkAt(pt.getBlockX() >> 4, pt.getBlockZ() >> 4);
     }
 
+    @Override
+    public void preloadChunks(Collection<BlockVector2> chunks) {
+        World world = getWorld();
+        if (PaperLib.isPaper()) {
+            synchronized (pendingPreloads) {
+                pendingPreloads.addAll(chunks);
+            }
+            startPreloads(world);
+            return;
+        }
+        int syncBudget = MAX_SYNC_PRELOADED_CHUNKS;
+        for (BlockVector2 chunk : chunks) {
+            if (world.isChunkLoaded(chunk.getBlockX(), chunk.getBlockZ())) {
+                continue;
+            }
+            if (syncBudget-- > 0) {
+                world.getChunkAt(chunk.getBlockX(), chunk.getBlockZ());
+            } else {
+                // the rest are loaded as they are reached
+                break;
+            }
+        }
+    }
+
+    /**
+     * Start background loads of pending chunks, until
+     * {@link #MAX_ASYNC_PRELOADED_CHUNKS} are loading. Each finished load
+     * starts the next one.
+     *
+     * @param world the world
+     */
+    private void startPreloads(World world) {
+        synchronized (pendingPreloads) {
+            if (pumpingPreloads) {
+                // a load finished while starting others, which will carry on
+                return;
+            }
+            pumpingPreloads = true;
+        }
+        while (true) {
+            BlockVector2 chunk;
+            int generation;
+            synchronized (pendingPreloads) {
+                Iterator<BlockVector2> it = pendingPreloads.iterator();
+                if (activePreloads >= MAX_ASYNC_PRELOADED_CHUNKS || !it.hasNext()) {
+                    pumpingPreloads = false;
+                    return;
+                }
+                chunk = it.next();
+                it.remove();
+                if (world.isChunkLoaded(chunk.getBlockX(), chunk.getBlockZ())) {
+                    continue;
+                }
+                activePreloads++;
+                generation = preloadGeneration;
+            }
+            PaperLib.getChunkAtAsync(world, chunk.getBlockX(), chunk.getBlockZ()).whenComplete((loaded, error) -> {
+                if (error != null) {
+                    logger.debug("Failed to preload chunk " + chunk, error);
+                }
+                synchronized (pendingPreloads) {
+                    activePreloads--;
+                    if (error == null && generation == preloadGeneration && ticketedChunks.add(chunk)) {
+                        setChunkTicket(addChunkTicket, world, chunk);
+                    }
+                }
+                startPreloads(world);
+            });
+        }
+    }
+
+    @Override
+    public void releasePreloadedChunks() {
+        World world = worldRef.get();
+        synchronized (pendingPreloads) {
+            preloadGeneration++;
+            pendingPreloads.clear();
+            if (world != null) {
+                for (BlockVector2 chunk : ticketedChunks) {
+                    setChunkTicket(removeChunkTicket, world, chunk);
+                }
+            }
+            ticketedChunks.clear();
+        }
+    }
+
+    @Nullable
+    private static Method findChunkTicketMethod(String name) {
+        try {
+            return World.class.getMethod(name, int.class, int.class, Plugin.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static void setChunkTicket(@Nullable Method method, World world, BlockVector2 chunk) {
+        if (method == null) {
+            return;
+        }
+        try {
+            method.invoke(world, chunk.getBlockX(), chunk.getBlockZ(), WorldEditPlugin.getInstance());
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Failed to change the ticket of chunk " + chunk, e);
+        }
+    }
+
     @Override
     public boolean equals(Object other) {
         final World ref = worldRef.get();
@@ -425,6 +575,17 @@ public com.sk89q.worldedit.world.block.BlockState getBlock(BlockVector3 position
         return BukkitAdapter.adapt(bukkitBlock.getBlockData());
     }
 
+    @Override
+    public void getBlockColumn(int x, int z, int minY, int maxY, com.sk89q.worldedit.world.block.BlockState[] blocks) {
+        // look the chunk up once, rather than once per block
+        Chunk chunk = getWorld().getChunkAt(x >> 4, z >> 4);
+        int chunkX = x & 15;
+        int chunkZ = z & 15;
+        for (int y = minY; y <= maxY; y++) {
+            blocks[y - minY] = BukkitAdapter.adapt(chunk.getBlock(chunkX, y, chunkZ).getBlockData());
+        }
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects) {
         if (worldNativeAccess != null) {
@@ -444,6 +605,18 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
         return true;
     }
 
+    @Override
+    public int setBlocks(SectionBlockBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        if (worldNativeAccess != null) {
+            try {
+                return worldNativeAccess.setBlocks(batch, sideEffects);
+            } catch (Exception e) {
+                logger.warn("Failed to set blocks via adapter, falling back to setting them one by one", e);
+            }
+        }
+        return super.setBlocks(batch, sideEffects);
+    }
+
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
         BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
@@ -278,7 +278,9 @@ private void loadAdapter() {
     @Override
     public void onDisable() {
         WorldEdit worldEdit = WorldEdit.getInstance();
+        worldEdit.getOperationScheduler().unload();
         worldEdit.getSessionManager().unload();
+        worldEdit.getWorkerPool().unload();
         worldEdit.getPlatformManager().unregister(server);
         if (config != null) {
             config.unload();
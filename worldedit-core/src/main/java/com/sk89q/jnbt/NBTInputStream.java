@@ -85,6 +85,141 @@ private NamedTag readNamedTag(int depth) throws IOException {
         return new NamedTag(name, readTagPayload(type, depth));
     }
 
+    /**
+     * Reads the type of the next tag, without reading its name or payload.
+     *
+     * <p>This and the methods following it allow a stream to be read one
+     * tag at a time, so that large payloads can be consumed without first
+     * building the whole tree of tags. After the type, unless it is
+     * {@link NBTConstants#TYPE_END}, read the name with
+     * {@link #readTagName()} and then the payload.</p>
+     *
+     * @return the type
+     * @throws IOException if an I/O error occurs
+     */
+    public int readTagType() throws IOException {
+        return is.readByte() & 0xFF;
+    }
+
+    /**
+     * Reads the name of a tag whose type has just been read.
+     *
+     * @return the name
+     * @throws IOException if an I/O error occurs
+     */
+    public String readTagName() throws IOException {
+        int nameLength = is.readShort() & 0xFFFF;
+        byte[] nameBytes = new byte[nameLength];
+        is.readFully(nameBytes);
+        return new String(nameBytes, NBTConstants.CHARSET);
+    }
+
+    /**
+     * Reads the payload of a tag whose type and name have just been read.
+     *
+     * @param type the type
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public Tag readTagPayload(int type) throws IOException {
+        return readTagPayload(type, 1);
+    }
+
+    /**
+     * Reads the length of a {@code TAG_Byte_Array} payload, whose contents
+     * can then be read in parts with {@link #readBytes(byte[], int, int)}.
+     *
+     * @return the number of bytes in the array
+     * @throws IOException if an I/O error occurs
+     */
+    public int readByteArrayLength() throws IOException {
+        int length = is.readInt();
+        if (length < 0) {
+            throw new IOException("Negative byte array length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Reads exactly {@code length} bytes of a payload into a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset the offset to start at in the buffer
+     * @param length the number of bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public void readBytes(byte[] buffer, int offset, int length) throws IOException {
+        is.readFully(buffer, offset, length);
+    }
+
+    /**
+     * Skips the payload of a tag whose type and name have just been read,
+     * without creating any tags.
+     *
+     * @param type the type
+     * @throws IOException if an I/O error occurs
+     */
+    public void skipTagPayload(int type) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            break;
+        case NBTConstants.TYPE_BYTE:
+            skipFully(1);
+            break;
+        case NBTConstants.TYPE_SHORT:
+            skipFully(2);
+            break;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skipFully(4);
+            break;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skipFully(8);
+            break;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            skipFully(readByteArrayLength());
+            break;
+        case NBTConstants.TYPE_STRING:
+            skipFully(is.readShort() & 0xFFFF);
+            break;
+        case NBTConstants.TYPE_LIST:
+            int childType = is.readByte();
+            int length = is.readInt();
+            for (int i = 0; i < length; ++i) {
+                skipTagPayload(childType);
+            }
+            break;
+        case NBTConstants.TYPE_COMPOUND:
+            int childTagType;
+            while ((childTagType = readTagType()) != NBTConstants.TYPE_END) {
+                skipFully(is.readShort() & 0xFFFF);
+                skipTagPayload(childTagType);
+            }
+            break;
+        case NBTConstants.TYPE_INT_ARRAY:
+            skipFully(4L * is.readInt());
+            break;
+        case NBTConstants.TYPE_LONG_ARRAY:
+            skipFully(8L * is.readInt());
+            break;
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            int skipped = is.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped == 0) {
+                // skipBytes may give up early, readByte detects the end of the stream
+                is.readByte();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
     /**
      * Reads the payload of a tag given the type.
      * 
@@ -69,17 +69,80 @@ public void writeNamedTag(String name, Tag tag) throws IOException {
         checkNotNull(tag);
 
         int type = NBTUtils.getTypeCode(tag.getClass());
-        byte[] nameBytes = name.getBytes(NBTConstants.CHARSET);
+        writeTagHeader(type, name);
+        writeTagPayload(tag);
+    }
 
-        os.writeByte(type);
-        os.writeShort(nameBytes.length);
-        os.write(nameBytes);
+    /**
+     * Writes the type and name of a tag, leaving its payload to be written
+     * next.
+     *
+     * <p>This and the methods following it allow a stream to be written one
+     * tag at a time, so that large payloads can be produced without first
+     * building the whole tree of tags. A compound is written as its header,
+     * each of its named tags, and then {@link #writeEndTag()}.</p>
+     *
+     * @param type the type
+     * @param name the name
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTagHeader(int type, String name) throws IOException {
+        checkNotNull(name);
 
         if (type == NBTConstants.TYPE_END) {
             throw new IOException("Named TAG_End not permitted.");
         }
 
-        writeTagPayload(tag);
+        byte[] nameBytes = name.getBytes(NBTConstants.CHARSET);
+        os.writeByte(type);
+        os.writeShort(nameBytes.length);
+        os.write(nameBytes);
+    }
+
+    /**
+     * Writes the {@code TAG_End} that closes a compound.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeEndTag() throws IOException {
+        os.writeByte(NBTConstants.TYPE_END);
+    }
+
+    /**
+     * Writes the start of a {@code TAG_List} payload, to be followed by
+     * {@code size} payloads written with {@link #writeTagPayload(Tag)}.
+     *
+     * @param elementType the type of the elements
+     * @param size the number of elements
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeListHeader(int elementType, int size) throws IOException {
+        os.writeByte(elementType);
+        os.writeInt(size);
+    }
+
+    /**
+     * Writes the length of a {@code TAG_Byte_Array} payload, to be followed
+     * by exactly that many bytes written with
+     * {@link #writeBytes(byte[], int, int)}.
+     *
+     * @param length the number of bytes in the array
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeByteArrayLength(int length) throws IOException {
+        os.writeInt(length);
+    }
+
+    /**
+     * Writes part of a payload from a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset the offset to start at in the buffer
+     * @param length the number of bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeBytes(byte[] buffer, int offset, int length) throws IOException {
+        os.write(buffer, offset, length);
     }
 
     /**
@@ -90,7 +153,7 @@ public void writeNamedTag(String name, Tag tag) throws IOException {
      * @throws IOException
      *             if an I/O error occurs.
      */
-    private void writeTagPayload(Tag tag) throws IOException {
+    public void writeTagPayload(Tag tag) throws IOException {
         int type = NBTUtils.getTypeCode(tag.getClass());
         switch (type) {
         case NBTConstants.TYPE_END:
@@ -20,6 +20,10 @@
 package com.sk89q.worldedit;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
@@ -31,6 +35,7 @@
 import com.sk89q.worldedit.extent.NullExtent;
 import com.sk89q.worldedit.extent.buffer.ForgetfulExtentBuffer;
 import com.sk89q.worldedit.extent.cache.LastAccessExtentCache;
+import com.sk89q.worldedit.extent.cache.LastColumnExtentCache;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.extent.inventory.BlockBagExtent;
 import com.sk89q.worldedit.extent.reorder.ChunkBatchingExtent;
@@ -77,8 +82,10 @@
 import com.sk89q.worldedit.function.visitor.RecursiveVisitor;
 import com.sk89q.worldedit.function.visitor.RegionVisitor;
 import com.sk89q.worldedit.history.UndoContext;
-import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.PackedBlockHistory;
+import com.sk89q.worldedit.history.changeset.TieredHistory;
+import com.sk89q.worldedit.internal.expression.BoundExpression;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.internal.expression.ExpressionTimeoutException;
@@ -100,6 +107,7 @@
 import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.regions.shape.ArbitraryBiomeShape;
 import com.sk89q.worldedit.regions.shape.ArbitraryShape;
+import com.sk89q.worldedit.regions.shape.ParallelExpressionEvaluator;
 import com.sk89q.worldedit.regions.shape.RegionShape;
 import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
 import com.sk89q.worldedit.util.Countable;
@@ -108,6 +116,7 @@
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.collection.DoubleArrayList;
 import com.sk89q.worldedit.util.eventbus.EventBus;
+import com.sk89q.worldedit.util.task.Task;
 import com.sk89q.worldedit.world.NullWorld;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -118,6 +127,7 @@
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.block.BlockTypes;
 import com.sk89q.worldedit.world.registry.LegacyMapper;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -129,6 +139,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -184,11 +197,12 @@ public String getDisplayName() {
 
     @SuppressWarnings("ProtectedField")
     protected final World world;
-    private final ChangeSet changeSet = new BlockOptimizedHistory();
+    private final ChangeSet changeSet = new TieredHistory(new PackedBlockHistory());
 
     private @Nullable SideEffectExtent sideEffectExtent;
     private final SurvivalModeExtent survivalExtent;
     private @Nullable ChunkBatchingExtent chunkBatchingExtent;
+    private @Nullable ChunkLoadingExtent chunkLoadingExtent;
     private final BlockBagExtent blockBagExtent;
     private final MultiStageReorder reorderExtent;
     private final MaskingExtent maskingExtent;
@@ -203,6 +217,8 @@ public String getDisplayName() {
 
     private Mask oldMask;
 
+    private final List<ListenableFuture<?>> submittedOperations = new ArrayList<>();
+
     /**
      * Construct the object with a maximum number of blocks and a block bag.
      *
@@ -232,9 +248,9 @@ public String getDisplayName() {
                 extent = watchdogExtent;
                 watchdogExtents.add(watchdogExtent);
             }
-            extent = survivalExtent = new SurvivalModeExtent(extent, world);
-            extent = new BlockQuirkExtent(extent, world);
-            extent = new ChunkLoadingExtent(extent, world);
+            extent = survivalExtent = new SurvivalModeExtent(extent, world, sideEffectExtent);
+            extent = new BlockQuirkExtent(extent, world, sideEffectExtent);
+            extent = chunkLoadingExtent = new ChunkLoadingExtent(extent, world);
             extent = new LastAccessExtentCache(extent);
             extent = blockBagExtent = new BlockBagExtent(extent, blockBag);
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_CHANGE);
@@ -618,12 +634,27 @@ public boolean setBiome(BlockVector2 position, BiomeType biome) {
 
     @Override
     public BlockState getBlock(BlockVector3 position) {
-        return world.getBlock(position);
+        return worldReader().getBlock(position);
     }
 
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
-        return world.getFullBlock(position);
+        return worldReader().getFullBlock(position);
+    }
+
+    @Override
+    public void getBlockColumn(int x, int z, int minY, int maxY, BlockState[] blocks) {
+        worldReader().getBlockColumn(x, z, minY, maxY, blocks);
+    }
+
+    /**
+     * Get the extent to read the world through, which includes blocks that
+     * have been set but not yet passed on to the world.
+     *
+     * @return the extent
+     */
+    private Extent worldReader() {
+        return sideEffectExtent != null ? sideEffectExtent : world;
     }
 
     /**
@@ -650,11 +681,23 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
      * @return height of highest block found or 'minY'
      */
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY, Mask filter) {
+        if (filter == null) {
+            // read a chunk section at a time from the top, since the ground is usually near it
+            BlockState[] slice = new BlockState[16];
+            for (int top = maxY; top >= minY; ) {
+                int bottom = Math.max(minY, top & ~15);
+                getBlockColumn(x, z, bottom, top, slice);
+                for (int y = top; y >= bottom; --y) {
+                    if (slice[y - bottom].getBlockType().getMaterial().isMovementBlocker()) {
+                        return y;
+                    }
+                }
+                top = bottom - 1;
+            }
+            return minY;
+        }
         for (int y = maxY; y >= minY; --y) {
-            BlockVector3 pt = BlockVector3.at(x, y, z);
-            if (filter == null
-                    ? getBlock(pt).getBlockType().getMaterial().isMovementBlocker()
-                    : filter.test(pt)) {
+            if (filter.test(BlockVector3.at(x, y, z))) {
                 return y;
             }
         }
@@ -827,10 +870,107 @@ public void close() {
      */
     public void flushSession() {
         Operations.completeBlindly(commit());
+        releasePreloadedChunks();
+    }
+
+    private void releasePreloadedChunks() {
+        if (world != null) {
+            world.releasePreloadedChunks();
+        }
+    }
+
+    /**
+     * Run an operation on this session over the next server ticks, using the
+     * {@linkplain WorldEdit#getOperationScheduler() operation scheduler}.
+     *
+     * <p>The session must not be flushed until the operation has completed.
+     * Use {@link #flushSessionLater(Object)} to flush it once every submitted
+     * operation is done.</p>
+     *
+     * @param operation the operation
+     * @param name the name of the task
+     * @param owner the owner of the task, or null
+     * @return the task running the operation
+     */
+    public Task<Void> submit(Operation operation, String name, @Nullable Object owner) {
+        Task<Void> task = WorldEdit.getInstance().getOperationScheduler().submit(operation, name, owner);
+        submittedOperations.add(task);
+        return task;
+    }
+
+    /**
+     * Get whether operations have been {@linkplain #submit submitted} to
+     * this session since it was last {@linkplain #flushSessionLater flushed}.
+     *
+     * @return true if the session must be flushed later
+     */
+    public boolean hasSubmittedOperations() {
+        return !submittedOperations.isEmpty();
+    }
+
+    /**
+     * Flush this session once every operation {@linkplain #submit submitted}
+     * to it has completed. The buffered changes are applied over the next
+     * server ticks as well.
+     *
+     * <p>The session is flushed even if an operation failed or was cancelled,
+     * in which case the returned future fails in the same way.</p>
+     *
+     * @param owner the owner of the flushing task, or null
+     * @return a future that completes once the session has been flushed
+     */
+    public ListenableFuture<?> flushSessionLater(@Nullable Object owner) {
+        List<ListenableFuture<?>> operations = ImmutableList.copyOf(submittedOperations);
+        submittedOperations.clear();
+
+        SettableFuture<Object> flushed = SettableFuture.create();
+        Futures.whenAllComplete(operations).call(() -> {
+            Operation commit = commit();
+            ListenableFuture<?> committed = commit == null
+                ? Futures.immediateFuture(null)
+                : WorldEdit.getInstance().getOperationScheduler().submit(commit, "Flush edit session", owner);
+            committed.addListener(() -> {
+                releasePreloadedChunks();
+                for (ListenableFuture<?> operation : operations) {
+                    if (!succeeded(operation)) {
+                        flushed.setFuture(operation);
+                        return;
+                    }
+                }
+                flushed.setFuture(committed);
+            }, MoreExecutors.directExecutor());
+            return null;
+        }, MoreExecutors.directExecutor());
+        return flushed;
+    }
+
+    private static boolean succeeded(ListenableFuture<?> future) {
+        try {
+            Futures.getDone(future);
+            return true;
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Start loading the chunks of a region in the background, ahead of
+     * changing the blocks in it.
+     *
+     * @param region the region
+     */
+    public void preloadChunks(Region region) {
+        checkNotNull(region);
+        if (chunkLoadingExtent != null) {
+            chunkLoadingExtent.preload(region.getChunks());
+        }
     }
 
     @Override
     public @Nullable Operation commit() {
+        if (chunkLoadingExtent != null && isBatchingChunks()) {
+            chunkLoadingExtent.preload(chunkBatchingExtent.getBufferedChunks());
+        }
         return bypassNone.commit();
     }
 
@@ -1004,13 +1144,33 @@ public <B extends BlockStateHolder<B>> int setBlocks(Region region, B block) thr
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
      */
     public int setBlocks(Region region, Pattern pattern) throws MaxChangedBlocksException {
+        RegionVisitor visitor = setBlocksVisitor(region, pattern);
+        Operations.completeLegacy(visitor);
+        return visitor.getAffected();
+    }
+
+    /**
+     * Sets all the blocks inside a region to a given pattern over the next
+     * server ticks, as {@linkplain #submit submitted} operation.
+     *
+     * @param region the region
+     * @param pattern the pattern that provides the replacement block
+     * @param owner the owner of the task, or null
+     * @return a future for the number of blocks affected
+     */
+    public ListenableFuture<Integer> setBlocksLater(Region region, Pattern pattern, @Nullable Object owner) {
+        RegionVisitor visitor = setBlocksVisitor(region, pattern);
+        return Futures.transform(submit(visitor, "//set", owner),
+            result -> visitor.getAffected(), MoreExecutors.directExecutor());
+    }
+
+    private RegionVisitor setBlocksVisitor(Region region, Pattern pattern) {
         checkNotNull(region);
         checkNotNull(pattern);
 
+        preloadChunks(region);
         BlockReplace replace = new BlockReplace(this, pattern);
-        RegionVisitor visitor = new RegionVisitor(region, replace);
-        Operations.completeLegacy(visitor);
-        return visitor.getAffected();
+        return new RegionVisitor(region, replace);
     }
 
     /**
@@ -1053,15 +1213,37 @@ public int replaceBlocks(Region region, Set<BaseBlock> filter, Pattern pattern)
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
      */
     public int replaceBlocks(Region region, Mask mask, Pattern pattern) throws MaxChangedBlocksException {
+        RegionVisitor visitor = replaceBlocksVisitor(region, mask, pattern);
+        Operations.completeLegacy(visitor);
+        return visitor.getAffected();
+    }
+
+    /**
+     * Replaces all the blocks matching a given mask, within a given region,
+     * to a block returned by a given pattern over the next server ticks, as
+     * {@linkplain #submit submitted} operation.
+     *
+     * @param region the region to replace the blocks within
+     * @param mask the mask that blocks must match
+     * @param pattern the pattern that provides the new blocks
+     * @param owner the owner of the task, or null
+     * @return a future for the number of blocks affected
+     */
+    public ListenableFuture<Integer> replaceBlocksLater(Region region, Mask mask, Pattern pattern, @Nullable Object owner) {
+        RegionVisitor visitor = replaceBlocksVisitor(region, mask, pattern);
+        return Futures.transform(submit(visitor, "//replace", owner),
+            result -> visitor.getAffected(), MoreExecutors.directExecutor());
+    }
+
+    private RegionVisitor replaceBlocksVisitor(Region region, Mask mask, Pattern pattern) {
         checkNotNull(region);
         checkNotNull(mask);
         checkNotNull(pattern);
 
+        preloadChunks(region);
         BlockReplace replace = new BlockReplace(this, pattern);
         RegionMaskingFilter filter = new RegionMaskingFilter(mask, replace);
-        RegionVisitor visitor = new RegionVisitor(region, filter);
-        Operations.completeLegacy(visitor);
-        return visitor.getAffected();
+        return new RegionVisitor(region, filter);
     }
 
     /**
@@ -1235,8 +1417,11 @@ public int overlayCuboidBlocks(Region region, Pattern pattern) throws MaxChanged
 
         BlockReplace replace = new BlockReplace(this, pattern);
         RegionOffset offset = new RegionOffset(BlockVector3.UNIT_Y, replace);
-        GroundFunction ground = new GroundFunction(new ExistingBlockMask(this), offset);
-        LayerVisitor visitor = new LayerVisitor(asFlatRegion(region), minimumBlockY(region), maximumBlockY(region), ground);
+        int minY = minimumBlockY(region);
+        int maxY = maximumBlockY(region);
+        Extent columns = new LastColumnExtentCache(this, minY, maxY + 1);
+        GroundFunction ground = new GroundFunction(new ExistingBlockMask(columns), offset);
+        LayerVisitor visitor = new LayerVisitor(asFlatRegion(region), minY, maxY, ground);
         Operations.completeLegacy(visitor);
         return ground.getAffected();
     }
@@ -1252,9 +1437,11 @@ public int overlayCuboidBlocks(Region region, Pattern pattern) throws MaxChanged
     public int naturalizeCuboidBlocks(Region region) throws MaxChangedBlocksException {
         checkNotNull(region);
 
-        Naturalizer naturalizer = new Naturalizer(this);
+        int minY = minimumBlockY(region);
+        int maxY = maximumBlockY(region);
+        Naturalizer naturalizer = new Naturalizer(this, new LastColumnExtentCache(this, minY, maxY + 1));
         FlatRegion flatRegion = Regions.asFlatRegion(region);
-        LayerVisitor visitor = new LayerVisitor(flatRegion, minimumBlockY(region), maximumBlockY(region), naturalizer);
+        LayerVisitor visitor = new LayerVisitor(flatRegion, minY, maxY, naturalizer);
         Operations.completeLegacy(visitor);
         return naturalizer.getAffected();
     }
@@ -1845,6 +2032,7 @@ public int simulateSnow(BlockVector3 position, double radius, int height)
         int minY = Math.max(getWorld().getMinY(), centerY - height);
         int maxY = Math.min(getWorld().getMaxY(), centerY + height);
 
+        BlockState[] column = new BlockState[Math.max(0, maxY - minY)];
         int ceilRadius = (int) Math.ceil(radius);
         for (int x = ox - ceilRadius; x <= ox + ceilRadius; ++x) {
             for (int z = oz - ceilRadius; z <= oz + ceilRadius; ++z) {
@@ -1852,14 +2040,18 @@ public int simulateSnow(BlockVector3 position, double radius, int height)
                     continue;
                 }
 
+                if (maxY > minY) {
+                    getBlockColumn(x, z, minY + 1, maxY, column);
+                }
                 for (int y = maxY; y > minY; --y) {
-                    BlockVector3 pt = BlockVector3.at(x, y, z);
-                    BlockType id = getBlock(pt).getBlockType();
+                    BlockType id = column[y - minY - 1].getBlockType();
 
                     if (id.getMaterial().isAir()) {
                         continue;
                     }
 
+                    BlockVector3 pt = BlockVector3.at(x, y, z);
+
                     // Ice!
                     if (id == BlockTypes.WATER) {
                         if (setBlock(pt, ice)) {
@@ -2075,6 +2267,12 @@ public int makeShape(final Region region, final Vector3 zero, final Vector3 unit
         final Expression expression = Expression.compile(expressionString, "x", "y", "z", "type", "data");
         expression.optimize();
 
+        if (!hollow && !expression.usesVariable("type") && !expression.usesVariable("data")
+                && WorldEdit.getInstance().getConfiguration().parallelExpressions
+                && ParallelExpressionEvaluator.shouldEvaluateInParallel(expression, region)) {
+            return makeShapeInParallel(region, zero, unit, pattern, expressionString, timeout);
+        }
+
         final Variable typeVariable = expression.getSlots().getVariable("type")
             .orElseThrow(IllegalStateException::new);
         final Variable dataVariable = expression.getSlots().getVariable("data")
@@ -2082,14 +2280,13 @@ public int makeShape(final Region region, final Vector3 zero, final Vector3 unit
 
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
         expression.setEnvironment(environment);
+        final BoundExpression bound = expression.bind(timeout);
 
         final int[] timedOut = {0};
         final ArbitraryShape shape = new ArbitraryShape(region) {
             @Override
             protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
-                final Vector3 current = Vector3.at(x, y, z);
-                environment.setCurrentBlock(current);
-                final Vector3 scaled = current.subtract(zero).divide(unit);
+                environment.setCurrentBlock(Vector3.at(x, y, z));
 
                 try {
                     int[] legacy = LegacyMapper.getInstance().getLegacyFromBlock(defaultMaterial.toImmutableState());
@@ -2101,7 +2298,8 @@ protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial)
                             dataVar = legacy[1];
                         }
                     }
-                    if (expression.evaluate(new double[]{scaled.getX(), scaled.getY(), scaled.getZ(), typeVar, dataVar}, timeout) <= 0) {
+                    if (bound.evaluate((x - zero.getX()) / unit.getX(), (y - zero.getY()) / unit.getY(),
+                            (z - zero.getZ()) / unit.getZ(), typeVar, dataVar) <= 0) {
                         return null;
                     }
                     int newType = (int) typeVariable.getValue();
@@ -2130,6 +2328,49 @@ protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial)
         return changed;
     }
 
+    /**
+     * Generates a solid shape whose expression only depends on the position,
+     * by evaluating it on several threads and then placing the blocks in
+     * chunk order.
+     */
+    private int makeShapeInParallel(final Region region, final Vector3 zero, final Vector3 unit,
+                                    final Pattern pattern, final String expressionString, final int timeout)
+            throws ExpressionException, MaxChangedBlocksException {
+        final AtomicInteger timedOut = new AtomicInteger();
+        final List<ParallelExpressionEvaluator.Section> sections = new ParallelExpressionEvaluator(
+                region, expressionString, new String[]{"x", "y", "z", "type", "data"},
+                () -> new WorldEditExpressionEnvironment(this, unit, zero), timeout)
+                .evaluate((bound, environment, x, y, z, index, output) -> {
+                    try {
+                        if (bound.evaluate((x - zero.getX()) / unit.getX(), (y - zero.getY()) / unit.getY(),
+                                (z - zero.getZ()) / unit.getZ(), 0, 0) > 0) {
+                            output.add(index);
+                        }
+                    } catch (ExpressionTimeoutException e) {
+                        timedOut.incrementAndGet();
+                    } catch (Exception e) {
+                        log.warn("Failed to create shape", e);
+                    }
+                });
+
+        int changed = 0;
+        for (ParallelExpressionEvaluator.Section section : sections) {
+            IntArrayList output = section.getOutput();
+            for (int i = 0; i < output.size(); i++) {
+                BlockVector3 position = section.getPosition(output.getInt(i));
+                if (setBlock(position, pattern.apply(position))) {
+                    ++changed;
+                }
+            }
+        }
+        if (timedOut.get() > 0) {
+            throw new ExpressionTimeoutException(
+                    String.format("%d blocks changed. %d blocks took too long to evaluate (increase with //timeout).",
+                            changed, timedOut.get()));
+        }
+        return changed;
+    }
+
     public int deformRegion(final Region region, final Vector3 zero, final Vector3 unit, final String expressionString)
             throws ExpressionException, MaxChangedBlocksException {
         return deformRegion(region, zero, unit, expressionString, WorldEdit.getInstance().getConfiguration().calculationTimeout);
@@ -2152,20 +2393,50 @@ public int deformRegion(final Region region, final Vector3 zero, final Vector3 u
 
         final DoubleArrayList<BlockVector3, BaseBlock> queue = new DoubleArrayList<>(false);
 
-        for (BlockVector3 position : region) {
-            // offset, scale
-            final Vector3 scaled = position.toVector3().subtract(zero).divide(unit);
+        if (WorldEdit.getInstance().getConfiguration().parallelExpressions
+                && ParallelExpressionEvaluator.shouldEvaluateInParallel(expression, region)) {
+            // find the source positions on several threads
+            final List<ParallelExpressionEvaluator.Section> sections = new ParallelExpressionEvaluator(
+                    region, expressionString, new String[]{"x", "y", "z"},
+                    () -> new WorldEditExpressionEnvironment(this, unit, zero), timeout)
+                    .evaluate((bound, sectionEnvironment, px, py, pz, index, output) -> {
+                        bound.evaluate((px - zero.getX()) / unit.getX(), (py - zero.getY()) / unit.getY(),
+                                (pz - zero.getZ()) / unit.getZ());
+                        final BlockVector3 sourcePosition = sectionEnvironment.toWorld(
+                                bound.getVariable(0).getValue(), bound.getVariable(1).getValue(),
+                                bound.getVariable(2).getValue());
+                        output.add(index);
+                        output.add(sourcePosition.getX());
+                        output.add(sourcePosition.getY());
+                        output.add(sourcePosition.getZ());
+                    });
+
+            // read blocks from world in chunk order
+            for (ParallelExpressionEvaluator.Section section : sections) {
+                final IntArrayList output = section.getOutput();
+                for (int i = 0; i < output.size(); i += 4) {
+                    final BlockVector3 sourcePosition = BlockVector3.at(
+                            output.getInt(i + 1), output.getInt(i + 2), output.getInt(i + 3));
+                    queue.put(section.getPosition(output.getInt(i)), world.getFullBlock(sourcePosition));
+                }
+            }
+        } else {
+            final BoundExpression bound = expression.bind(timeout);
 
-            // transform
-            expression.evaluate(new double[]{scaled.getX(), scaled.getY(), scaled.getZ()}, timeout);
+            for (BlockVector3 position : region) {
+                // offset, scale, transform
+                bound.evaluate((position.getX() - zero.getX()) / unit.getX(),
+                    (position.getY() - zero.getY()) / unit.getY(),
+                    (position.getZ() - zero.getZ()) / unit.getZ());
 
-            final BlockVector3 sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
+                final BlockVector3 sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
 
-            // read block from world
-            final BaseBlock material = world.getFullBlock(sourcePosition);
+                // read block from world
+                final BaseBlock material = world.getFullBlock(sourcePosition);
 
-            // queue operation
-            queue.put(position, material);
+                // queue operation
+                queue.put(position, material);
+            }
         }
 
         int affected = 0;
@@ -2480,16 +2751,16 @@ public int makeBiomeShape(final Region region, final Vector3 zero, final Vector3
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(editSession, unit, zero);
         expression.setEnvironment(environment);
 
+        final BoundExpression bound = expression.bind(timeout);
+
         final int[] timedOut = {0};
         final ArbitraryBiomeShape shape = new ArbitraryBiomeShape(region) {
             @Override
             protected BiomeType getBiome(int x, int z, BiomeType defaultBiomeType) {
-                final Vector2 current = Vector2.at(x, z);
-                environment.setCurrentBlock(current.toVector3(0));
-                final Vector2 scaled = current.subtract(zero2D).divide(unit2D);
+                environment.setCurrentBlock(Vector3.at(x, 0, z));
 
                 try {
-                    if (expression.evaluate(new double[]{scaled.getX(), scaled.getZ()}, timeout) <= 0) {
+                    if (bound.evaluate((x - zero2D.getX()) / unit2D.getX(), (z - zero2D.getZ()) / unit2D.getZ()) <= 0) {
                         return null;
                     }
 
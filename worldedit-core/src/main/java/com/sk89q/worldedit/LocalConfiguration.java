@@ -81,8 +81,11 @@ public abstract class LocalConfiguration {
     public int scriptTimeout = 3000;
     public int calculationTimeout = 100;
     public int maxCalculationTimeout = 300;
+    public int operationTickBudget = 10;
+    public boolean parallelExpressions = true;
     public Set<String> allowedDataCycleBlocks = new HashSet<>();
     public String saveDir = "schematics";
+    public int schematicCacheSize = 16 * 1024 * 1024;
     public String scriptsDir = "craftscripts";
     public boolean showHelpInfo = true; // unused
     public int butcherDefaultRadius = -1;
@@ -90,6 +93,7 @@ public abstract class LocalConfiguration {
     public boolean allowSymlinks = false;
     public boolean serverSideCUI = true;
     public boolean extendedYLimit = false;
+    public int historyMemoryBudget = -1;
     public String defaultLocaleName = "default";
     public Locale defaultLocale = Locale.getDefault();
 
@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.jchronic.Chronic;
 import com.sk89q.jchronic.Options;
 import com.sk89q.jchronic.utils.Span;
@@ -37,6 +39,9 @@
 import com.sk89q.worldedit.extension.platform.Locatable;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.TieredHistory;
 import com.sk89q.worldedit.internal.cui.CUIEvent;
 import com.sk89q.worldedit.internal.cui.CUIRegion;
 import com.sk89q.worldedit.internal.cui.SelectionShapeEvent;
@@ -56,16 +61,25 @@
 import com.sk89q.worldedit.world.item.ItemType;
 import com.sk89q.worldedit.world.item.ItemTypes;
 import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -78,6 +92,8 @@ public class LocalSession {
 
     public static transient int MAX_HISTORY_SIZE = 15;
 
+    private static final Logger log = LoggerFactory.getLogger(LocalSession.class);
+
     // Non-session related fields
     private transient LocalConfiguration config;
     private final transient AtomicBoolean dirty = new AtomicBoolean();
@@ -88,6 +104,7 @@ public class LocalSession {
     private transient boolean placeAtPos1 = false;
     private transient LinkedList<EditSession> history = new LinkedList<>();
     private transient int historyPointer = 0;
+    private transient volatile ListenableFuture<?> pendingEdit;
     private transient ClipboardHolder clipboard;
     private transient boolean superPickaxe = false;
     private transient BlockTool pickaxeMode = new SinglePickaxe();
@@ -203,6 +220,9 @@ public void setTimezone(ZoneId timezone) {
      * Clear history.
      */
     public void clearHistory() {
+        for (EditSession editSession : history) {
+            discardHistory(editSession);
+        }
         history.clear();
         historyPointer = 0;
     }
@@ -221,13 +241,113 @@ public void remember(EditSession editSession) {
 
         // Destroy any sessions after this undo point
         while (historyPointer < history.size()) {
-            history.remove(historyPointer);
+            discardHistory(history.remove(historyPointer));
         }
         history.add(editSession);
         while (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+            discardHistory(history.remove(0));
         }
         historyPointer = history.size();
+        spillHistory();
+    }
+
+    /**
+     * Remember an edit session for the undo history once its changes have
+     * been {@linkplain EditSession#flushSessionLater(Object) flushed}.
+     *
+     * <p>Until then, {@link #isEditPending()} returns true, and no other
+     * edit or undo should be made, so that the history stays in the order
+     * that the edits were applied in.</p>
+     *
+     * @param editSession the edit session
+     * @param flushed completes once the edit session has been flushed
+     */
+    public void rememberLater(EditSession editSession, ListenableFuture<?> flushed) {
+        checkNotNull(editSession);
+        checkNotNull(flushed);
+        pendingEdit = flushed;
+        flushed.addListener(() -> {
+            remember(editSession);
+            pendingEdit = null;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Get whether an edit is still being applied, and has not been
+     * remembered yet.
+     *
+     * @return true if an edit is pending
+     * @see #rememberLater(EditSession, ListenableFuture)
+     */
+    public boolean isEditPending() {
+        return pendingEdit != null;
+    }
+
+    private static void discardHistory(EditSession editSession) {
+        ChangeSet changeSet = editSession.getChangeSet();
+        if (changeSet instanceof TieredHistory) {
+            ((TieredHistory) changeSet).discard();
+        }
+    }
+
+    /**
+     * Move the oldest history to disk until the history still held in
+     * memory fits within {@link LocalConfiguration#historyMemoryBudget}.
+     * A single edit session over the budget is always moved to disk.
+     *
+     * <p>The history is written on the {@linkplain WorldEdit#getExecutorService()
+     * task executor}, and is kept in memory until then.</p>
+     */
+    private void spillHistory() {
+        if (config == null || config.historyMemoryBudget < 0) {
+            return;
+        }
+        long budget = config.historyMemoryBudget * 1024L;
+        long used = 0;
+        List<TieredHistory> overBudget = new ArrayList<>();
+        for (Iterator<EditSession> it = history.descendingIterator(); it.hasNext(); ) {
+            ChangeSet changeSet = it.next().getChangeSet();
+            if (!(changeSet instanceof TieredHistory) || ((TieredHistory) changeSet).isSpilled()) {
+                continue;
+            }
+            TieredHistory tiered = (TieredHistory) changeSet;
+            long usage = tiered.estimateMemoryUsage();
+            if (used + usage <= budget) {
+                used += usage;
+            } else {
+                overBudget.add(tiered);
+            }
+        }
+        if (overBudget.isEmpty()) {
+            return;
+        }
+
+        Path directory = new File(config.getWorkingDirectory(), "history").toPath();
+        try {
+            WorldEdit.getInstance().getExecutorService().execute(() -> spill(overBudget, directory));
+        } catch (RejectedExecutionException e) {
+            // the executor is busy, so keep the history in memory until the next edit
+        }
+    }
+
+    private static void spill(List<TieredHistory> changeSets, Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            log.warn("Failed to move history to disk, keeping it in memory", e);
+            return;
+        }
+        for (TieredHistory tiered : changeSets) {
+            // the executor has a single thread, so it can only have been spilled by an earlier task
+            if (tiered.isSpilled()) {
+                continue;
+            }
+            try {
+                tiered.spill(directory);
+            } catch (IOException e) {
+                log.warn("Failed to move history to disk, keeping it in memory", e);
+            }
+        }
     }
 
     /**
@@ -1072,10 +1192,13 @@ public Mask getMask() {
     /**
      * Set a mask.
      *
+     * <p>The mask is {@linkplain Masks#optimize(Mask) optimized} before it
+     * is stored.</p>
+     *
      * @param mask mask or null
      */
     public void setMask(Mask mask) {
-        this.mask = mask;
+        this.mask = mask == null ? null : Masks.optimize(mask);
     }
 
     /**
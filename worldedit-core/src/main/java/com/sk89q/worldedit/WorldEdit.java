@@ -39,8 +39,10 @@
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.extension.platform.PlatformManager;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardCache;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.scripting.CraftScriptContext;
@@ -50,6 +52,7 @@
 import com.sk89q.worldedit.util.Direction;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
+import com.sk89q.worldedit.util.concurrency.WorkerPool;
 import com.sk89q.worldedit.util.eventbus.EventBus;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
@@ -114,7 +117,10 @@ public final class WorldEdit {
     private final SessionManager sessions = new SessionManager(this);
     private final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(
             EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, 20, "WorldEdit Task Executor - %s"));
+    private final WorkerPool workerPool = new WorkerPool("WorldEdit Worker #%d");
     private final Supervisor supervisor = new SimpleSupervisor();
+    private final OperationScheduler operationScheduler = new OperationScheduler(this);
+    private final ClipboardCache clipboardCache = new ClipboardCache(this);
     private final TranslationManager translationManager = new TranslationManager(this);
 
     private final BlockFactory blockFactory = new BlockFactory(this);
@@ -173,6 +179,24 @@ public Supervisor getSupervisor() {
         return supervisor;
     }
 
+    /**
+     * Get the scheduler that runs operations across server ticks.
+     *
+     * @return the operation scheduler
+     */
+    public OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+
+    /**
+     * Get the cache of loaded schematics.
+     *
+     * @return the clipboard cache
+     */
+    public ClipboardCache getClipboardCache() {
+        return clipboardCache;
+    }
+
     /**
      * Get the executor service. Internal, not for API use.
      *
@@ -182,6 +206,16 @@ public ListeningExecutorService getExecutorService() {
         return executorService;
     }
 
+    /**
+     * Get the pool that spreads work over several cores. Internal, not for
+     * API use.
+     *
+     * @return the worker pool
+     */
+    public WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
     /**
      * Get the block factory from which new {@link BlockStateHolder}s can be
      * constructed.
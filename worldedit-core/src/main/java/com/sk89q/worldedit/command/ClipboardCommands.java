@@ -19,7 +19,9 @@
 
 package com.sk89q.worldedit.command;
 
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEditException;
@@ -45,7 +47,6 @@
 import com.sk89q.worldedit.regions.RegionSelector;
 import com.sk89q.worldedit.regions.selector.CuboidRegionSelector;
 import com.sk89q.worldedit.session.ClipboardHolder;
-import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
@@ -58,7 +59,7 @@
 import static com.sk89q.worldedit.command.util.Logging.LogMode.PLACEMENT;
 import static com.sk89q.worldedit.command.util.Logging.LogMode.REGION;
 
-import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Clipboard commands.
@@ -152,7 +153,6 @@ public void paste(Actor actor, World world, LocalSession session, EditSession ed
         ClipboardHolder holder = session.getClipboard();
         Clipboard clipboard = holder.getClipboard();
         Region region = clipboard.getRegion();
-        List<Component> messages = Lists.newArrayList();
 
         BlockVector3 to = atOrigin ? clipboard.getOrigin() : session.getPlacementPosition(actor);
         if (!onlySelect) {
@@ -164,8 +164,18 @@ public void paste(Actor actor, World world, LocalSession session, EditSession ed
                     .copyEntities(pasteEntities)
                     .maskSource(sourceMask)
                     .build();
-            Operations.completeLegacy(operation);
-            messages.addAll(Lists.newArrayList(operation.getStatusMessages()));
+            Futures.addCallback(editSession.submit(operation, "//paste", actor), new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(@Nullable Void result) {
+                    actor.printInfo(TranslatableComponent.of("worldedit.paste.pasted", TextComponent.of(to.toString())));
+                    operation.getStatusMessages().forEach(actor::print);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    // reported once the edit session has been flushed
+                }
+            }, MoreExecutors.directExecutor());
         }
 
         if (selectPasted || onlySelect) {
@@ -180,10 +190,7 @@ public void paste(Actor actor, World world, LocalSession session, EditSession ed
 
         if (onlySelect) {
             actor.printInfo(TranslatableComponent.of("worldedit.paste.selected"));
-        } else {
-            actor.printInfo(TranslatableComponent.of("worldedit.paste.pasted", TextComponent.of(to.toString())));
         }
-        messages.forEach(actor::print);
     }
 
     @Command(
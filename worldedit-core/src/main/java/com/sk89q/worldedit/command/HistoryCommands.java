@@ -74,6 +74,10 @@ public void undo(Player player, LocalSession session,
                 return;
             }
         }
+        if (undoSession.isEditPending()) {
+            player.printError(TranslatableComponent.of("worldedit.command.edit-pending"));
+            return;
+        }
         int timesUndone = 0;
         for (int i = 0; i < times; ++i) {
             EditSession undone = undoSession.undo(undoSession.getBlockBag(player), player);
@@ -112,6 +116,10 @@ public void redo(Player player, LocalSession session,
                 return;
             }
         }
+        if (redoSession.isEditPending()) {
+            player.printError(TranslatableComponent.of("worldedit.command.edit-pending"));
+            return;
+        }
         int timesRedone = 0;
         for (int i = 0; i < times; ++i) {
             EditSession redone = redoSession.redo(redoSession.getBlockBag(player), player);
@@ -20,7 +20,9 @@
 package com.sk89q.worldedit.command;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEditException;
@@ -30,8 +32,6 @@
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.function.GroundFunction;
-import com.sk89q.worldedit.function.RegionFunction;
-import com.sk89q.worldedit.function.block.BlockReplace;
 import com.sk89q.worldedit.function.generator.FloraGenerator;
 import com.sk89q.worldedit.function.mask.ExistingBlockMask;
 import com.sk89q.worldedit.function.mask.Mask;
@@ -40,7 +40,6 @@
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.function.visitor.LayerVisitor;
-import com.sk89q.worldedit.function.visitor.RegionVisitor;
 import com.sk89q.worldedit.internal.annotation.Direction;
 import com.sk89q.worldedit.internal.annotation.Selection;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
@@ -56,16 +55,16 @@
 import com.sk89q.worldedit.regions.RegionOperationException;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
 import com.sk89q.worldedit.world.World;
-import com.sk89q.worldedit.util.formatting.component.TextUtils;
-import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.util.formatting.text.format.TextColor;
 import org.enginehub.piston.annotation.Command;
 import org.enginehub.piston.annotation.CommandContainer;
 import org.enginehub.piston.annotation.param.Arg;
 import org.enginehub.piston.annotation.param.ArgFlag;
 import org.enginehub.piston.annotation.param.Switch;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -95,22 +94,24 @@ public RegionCommands() {
     )
     @CommandPermissions("worldedit.region.set")
     @Logging(REGION)
-    public int set(Actor actor, EditSession editSession,
-                   @Selection Region region,
-                   @Arg(desc = "The pattern of blocks to set")
-                       Pattern pattern) {
-        RegionFunction set = new BlockReplace(editSession, pattern);
-        RegionVisitor visitor = new RegionVisitor(region, set);
-
-        Operations.completeBlindly(visitor);
-        List<Component> messages = Lists.newArrayList(visitor.getStatusMessages());
-        if (messages.isEmpty()) {
-            actor.printInfo(TranslatableComponent.of("worldedit.set.done"));
-        } else {
-            actor.printInfo(TranslatableComponent.of("worldedit.set.done.verbose", TextUtils.join(messages, TextComponent.of(", "))));
-        }
+    public void set(Actor actor, EditSession editSession,
+                    @Selection Region region,
+                    @Arg(desc = "The pattern of blocks to set")
+                        Pattern pattern) {
+        Futures.addCallback(editSession.setBlocksLater(region, pattern, actor), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(@Nullable Integer affected) {
+                actor.printInfo(TranslatableComponent.of("worldedit.set.done.verbose", TranslatableComponent.of(
+                        "worldedit.operation.affected.block",
+                        TextComponent.of(affected)
+                ).color(TextColor.LIGHT_PURPLE)));
+            }
 
-        return visitor.getAffected();
+            @Override
+            public void onFailure(Throwable t) {
+                // reported once the edit session has been flushed
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     @Command(
@@ -188,17 +189,25 @@ public int curve(Actor actor, EditSession editSession,
     )
     @CommandPermissions("worldedit.region.replace")
     @Logging(REGION)
-    public int replace(Actor actor, EditSession editSession, @Selection Region region,
-                       @Arg(desc = "The mask representing blocks to replace", def = "")
-                           Mask from,
-                       @Arg(desc = "The pattern of blocks to replace with")
-                           Pattern to) throws WorldEditException {
+    public void replace(Actor actor, EditSession editSession, @Selection Region region,
+                        @Arg(desc = "The mask representing blocks to replace", def = "")
+                            Mask from,
+                        @Arg(desc = "The pattern of blocks to replace with")
+                            Pattern to) throws WorldEditException {
         if (from == null) {
             from = new ExistingBlockMask(editSession);
         }
-        int affected = editSession.replaceBlocks(region, from, to);
-        actor.printInfo(TranslatableComponent.of("worldedit.replace.replaced", TextComponent.of(affected)));
-        return affected;
+        Futures.addCallback(editSession.replaceBlocksLater(region, from, to, actor), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(@Nullable Integer affected) {
+                actor.printInfo(TranslatableComponent.of("worldedit.replace.replaced", TextComponent.of(affected)));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // reported once the edit session has been flushed
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     @Command(
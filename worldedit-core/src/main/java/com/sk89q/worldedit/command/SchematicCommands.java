@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.command;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
@@ -35,9 +36,9 @@
 import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import com.sk89q.worldedit.extent.clipboard.io.BuiltInClipboardFormat;
+import com.sk89q.worldedit.extent.clipboard.io.ClipboardCache;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardWriter;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.math.transform.Transform;
@@ -64,10 +65,8 @@
 import org.slf4j.LoggerFactory;
 import org.enginehub.piston.exception.StopExecutionException;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -221,6 +220,10 @@ public void delete(Actor actor,
             actor.printError(TranslatableComponent.of("worldedit.schematic.delete.failed", TextComponent.of(filename)));
             return;
         }
+        try {
+            worldEdit.getClipboardCache().invalidate(f);
+        } catch (IOException ignored) {
+        }
 
         actor.printInfo(TranslatableComponent.of("worldedit.schematic.delete.deleted", TextComponent.of(filename)));
         try {
@@ -255,6 +258,25 @@ public void formats(Actor actor) {
         }
     }
 
+    @Command(
+        name = "cache",
+        desc = "Show how often loaded schematics are found in the cache"
+    )
+    @CommandPermissions("worldedit.schematic.cache")
+    public void cache(Actor actor) {
+        ClipboardCache cache = worldEdit.getClipboardCache();
+        CacheStats stats = cache.getStats();
+        actor.printInfo(TranslatableComponent.of("worldedit.schematic.cache.size",
+                TextComponent.of(cache.getSize()),
+                TextComponent.of(cache.getBlockCount()),
+                TextComponent.of(worldEdit.getConfiguration().schematicCacheSize)));
+        actor.printInfo(TranslatableComponent.of("worldedit.schematic.cache.stats",
+                TextComponent.of(stats.hitCount()),
+                TextComponent.of(stats.missCount()),
+                TextComponent.of(String.format("%.1f", stats.hitRate() * 100)),
+                TextComponent.of(stats.evictionCount())));
+    }
+
     @Command(
         name = "list",
         aliases = {"all", "ls"},
@@ -295,15 +317,9 @@ private static class SchematicLoadTask implements Callable<ClipboardHolder> {
 
         @Override
         public ClipboardHolder call() throws Exception {
-            try (Closer closer = Closer.create()) {
-                FileInputStream fis = closer.register(new FileInputStream(file));
-                BufferedInputStream bis = closer.register(new BufferedInputStream(fis));
-                ClipboardReader reader = closer.register(format.getReader(bis));
-
-                Clipboard clipboard = reader.read();
-                log.info(actor.getName() + " loaded " + file.getCanonicalPath());
-                return new ClipboardHolder(clipboard);
-            }
+            Clipboard clipboard = WorldEdit.getInstance().getClipboardCache().load(file, format);
+            log.info(actor.getName() + " loaded " + file.getCanonicalPath());
+            return new ClipboardHolder(clipboard);
         }
     }
 
@@ -348,6 +364,12 @@ public Void call() throws Exception {
             } catch (IOException e) {
                 file.delete();
                 throw new CommandException(TextComponent.of(e.getMessage()), e, ImmutableList.of());
+            } finally {
+                // the file has changed, so a cached copy of the old one must not be loaded
+                try {
+                    WorldEdit.getInstance().getClipboardCache().invalidate(file);
+                } catch (IOException ignored) {
+                }
             }
             return null;
         }
@@ -257,9 +257,10 @@ void before(Actor actor, World world, LocalSession session,
 
         Snapshot snapshot;
         try (Stream<Snapshot> snapshotStream =
-                 config.snapshotDatabase.getSnapshotsNewestFirst(world.getName())) {
+                 config.snapshotDatabase.getSnapshotsBefore(world.getName(), date)) {
+            // sorted oldest first, so the nearest is last
             snapshot = snapshotStream
-                .findFirst().orElse(null);
+                .reduce((older, newer) -> newer).orElse(null);
         }
 
         if (snapshot == null) {
@@ -297,9 +298,10 @@ void after(Actor actor, World world, LocalSession session,
 
         Snapshot snapshot;
         try (Stream<Snapshot> snapshotStream =
-                 config.snapshotDatabase.getSnapshotsNewestFirst(world.getName())) {
+                 config.snapshotDatabase.getSnapshotsAfter(world.getName(), date)) {
+            // sorted newest first, so the nearest is last
             snapshot = snapshotStream
-                .findFirst().orElse(null);
+                .reduce((newer, older) -> older).orElse(null);
         }
         if (snapshot == null) {
             actor.printError(TranslatableComponent.of(
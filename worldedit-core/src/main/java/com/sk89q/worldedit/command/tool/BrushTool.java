@@ -33,6 +33,7 @@
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.Masks;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
@@ -80,11 +81,14 @@ public Mask getMask() {
 
     /**
      * Set the block filter used for identifying blocks to replace.
+     *
+     * <p>The filter is {@linkplain Masks#optimize(Mask) optimized} before it
+     * is stored.</p>
      * 
      * @param filter the filter to set
      */
     public void setMask(Mask filter) {
-        this.mask = filter;
+        this.mask = filter == null ? null : Masks.optimize(filter);
     }
 
     /**
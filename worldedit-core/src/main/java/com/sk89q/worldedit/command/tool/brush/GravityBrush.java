@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.util.LocatedBlock;
 import com.sk89q.worldedit.util.collection.LocatedBlockList;
 import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockTypes;
 
 import java.util.LinkedHashSet;
@@ -46,6 +47,10 @@ public void build(EditSession editSession, BlockVector3 position, Pattern patter
         double sizeOffset = overrideHeight ? heightOffset : size;
         double yMax = Math.min(position.getY() + sizeOffset, editSession.getWorld().getMaxY());
         double yMin = Math.max(position.getY() - sizeOffset, editSession.getWorld().getMinY());
+        // the Y coordinates visited are the same as stepping by 1 from yMin to yMax
+        int minY = (int) Math.floor(yMin);
+        int maxY = minY + (int) Math.floor(yMax - yMin);
+        BlockState[] blocks = new BlockState[Math.max(0, maxY - minY + 1)];
         LocatedBlockList column = new LocatedBlockList();
         Set<BlockVector3> removedBlocks = new LinkedHashSet<>();
         for (double x = position.getX() - size; x <= position.getX() + size; x++) {
@@ -58,16 +63,18 @@ public void build(EditSession editSession, BlockVector3 position, Pattern patter
                  * 4. If more blocks above current position, repeat from 2
                  */
 
-                BlockVector3 lowestAir = null;
-                for (double y = yMin; y <= yMax; y++) {
-                    BlockVector3 pt = BlockVector3.at(x, y, z);
-
-                    BaseBlock block = editSession.getFullBlock(pt);
+                int blockX = (int) Math.floor(x);
+                int blockZ = (int) Math.floor(z);
+                if (minY <= maxY) {
+                    editSession.getBlockColumn(blockX, blockZ, minY, maxY, blocks);
+                }
 
-                    if (block.getBlockType().getMaterial().isAir()) {
+                BlockVector3 lowestAir = null;
+                for (int y = minY; y <= maxY; y++) {
+                    if (blocks[y - minY].getBlockType().getMaterial().isAir()) {
                         if (lowestAir == null) {
                             // we found the lowest air block
-                            lowestAir = pt;
+                            lowestAir = BlockVector3.at(blockX, y, blockZ);
                         }
                         continue;
                     }
@@ -77,6 +84,10 @@ public void build(EditSession editSession, BlockVector3 position, Pattern patter
                         continue;
                     }
 
+                    BlockVector3 pt = BlockVector3.at(blockX, y, blockZ);
+                    // only blocks that move need their NBT data
+                    BaseBlock block = editSession.getFullBlock(pt);
+
                     BlockVector3 newPos = lowestAir;
                     // we know the block above must be air,
                     // since either this block is being moved into it,
@@ -19,6 +19,9 @@
 
 package com.sk89q.worldedit.extension.factory.parser;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.NotABlockException;
@@ -54,6 +57,7 @@
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Stream;
 
 /**
@@ -61,6 +65,16 @@
  */
 public class DefaultBlockParser extends InputParser<BaseBlock> {
 
+    /**
+     * States parsed from inputs that don't depend on the actor's hand or
+     * selection. Only immutable states are kept, so that callers never share
+     * a block they could change. Whether a block is allowed is still checked
+     * on every use.
+     */
+    private final Cache<CacheKey, BlockState> parsed = CacheBuilder.newBuilder()
+        .maximumSize(1024)
+        .build();
+
     public DefaultBlockParser(WorldEdit worldEdit) {
         super(worldEdit);
     }
@@ -79,9 +93,86 @@ private static BaseBlock getBlockInHand(Actor actor, HandSide handSide) throws I
         }
     }
 
+    /**
+     * The input and the parser context fields that parsing depends on.
+     */
+    @VisibleForTesting
+    static final class CacheKey {
+        private final String input;
+        private final boolean preferringWildcard;
+        private final boolean tryingLegacy;
+        private final boolean hasActor;
+
+        CacheKey(String input, ParserContext context) {
+            this.input = input;
+            this.preferringWildcard = context.isPreferringWildcard();
+            this.tryingLegacy = context.isTryingLegacy();
+            this.hasActor = context.getActor() != null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return preferringWildcard == other.preferringWildcard
+                && tryingLegacy == other.tryingLegacy
+                && hasActor == other.hasActor
+                && input.equals(other.input);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(input, preferringWildcard, tryingLegacy, hasActor);
+        }
+    }
+
+    /**
+     * Check whether an input refers to a block that depends on the actor's
+     * state, such as the block in their hand.
+     *
+     * @param input the input
+     * @return true if the block can't be cached
+     */
+    private static boolean isContextual(String input) {
+        String typeString = input.trim();
+        for (int i = 0; i < typeString.length(); i++) {
+            char c = typeString.charAt(i);
+            if (c == '[' || c == '|' || c == ';') {
+                typeString = typeString.substring(0, i);
+                break;
+            }
+        }
+        return "hand".equalsIgnoreCase(typeString)
+            || "offhand".equalsIgnoreCase(typeString)
+            || "pos1".equalsIgnoreCase(typeString);
+    }
+
     @Override
     public BaseBlock parseFromInput(String input, ParserContext context)
             throws InputParseException {
+        CacheKey key = isContextual(input) ? null : new CacheKey(input, context);
+        if (key != null) {
+            BlockState cached = parsed.getIfPresent(key);
+            if (cached != null) {
+                checkAllowed(input, cached.getBlockType(), context);
+                return cached.toBaseBlock();
+            }
+        }
+
+        BaseBlock block = parseUncached(input, context);
+        // blocks with extra data, such as signs, may be modified by the caller
+        if (key != null && block != null && block.getClass() == BaseBlock.class && !block.hasNbtData()) {
+            parsed.put(key, block.toImmutableState());
+        }
+        return block;
+    }
+
+    private BaseBlock parseUncached(String input, ParserContext context) throws InputParseException {
         String originalInput = input;
         input = input.replace(";", "|");
         Exception suppressed = null;
@@ -221,6 +312,28 @@ public Stream<String> getSuggestions(String input) {
         return SuggestionHelper.getBlockPropertySuggestions(blockType, props);
     }
 
+    private void checkAllowed(String input, BlockType blockType, ParserContext context) throws InputParseException {
+        // Check if the item is allowed
+        if (context.isRestricted()) {
+            Actor actor = context.requireActor();
+            if (actor != null && !actor.hasPermission("worldedit.anyblock")
+                    && worldEdit.getConfiguration().disallowedBlocks.contains(blockType.getId())) {
+                throw new DisallowedUsageException("You are not allowed to use '" + input + "'");
+            }
+        }
+
+        // TFM start
+        if (context.isRestricted()) {
+            Actor actor = context.requireActor();
+            if (actor instanceof Player
+                    && worldEdit.getConfiguration().disallowedBlocks.contains(blockType.getId())
+                    && !WorldEditHandler.isSuperAdmin((Player) actor)) {
+                throw new DisallowedUsageException("You are not allowed to use '" + input + "'");
+            }
+        }
+        // TFM end
+    }
+
     private BaseBlock parseLogic(String input, ParserContext context) throws InputParseException {
         BlockType blockType = null;
         Map<Property<?>, Object> blockStates = new HashMap<>();
@@ -338,25 +451,7 @@ private BaseBlock parseLogic(String input, ParserContext context) throws InputPa
             throw new NoMatchException("Does not match a valid block type: '" + input + "'");
         }
 
-        // Check if the item is allowed
-        if (context.isRestricted()) {
-            Actor actor = context.requireActor();
-            if (actor != null && !actor.hasPermission("worldedit.anyblock")
-                    && worldEdit.getConfiguration().disallowedBlocks.contains(blockType.getId())) {
-                throw new DisallowedUsageException("You are not allowed to use '" + input + "'");
-            }
-        }
-
-        // TFM start
-        if (context.isRestricted()) {
-            Actor actor = context.requireActor();
-            if (actor instanceof Player
-                    && worldEdit.getConfiguration().disallowedBlocks.contains(blockType.getId())
-                    && !WorldEditHandler.isSuperAdmin((Player) actor)) {
-                throw new DisallowedUsageException("You are not allowed to use '" + input + "'");
-            }
-        }
-        // TFM end
+        checkAllowed(input, blockType, context);
 
         if (!context.isTryingLegacy()) {
             return state.toBaseBlock();
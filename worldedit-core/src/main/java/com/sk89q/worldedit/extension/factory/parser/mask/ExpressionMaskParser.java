@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit.extension.factory.parser.mask;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extension.input.InputParseException;
 import com.sk89q.worldedit.extension.input.ParserContext;
@@ -36,6 +38,13 @@
 
 public class ExpressionMaskParser extends InputParser<Mask> {
 
+    /**
+     * Compiled expressions by source, which are copied for each mask.
+     */
+    private final Cache<String, Expression> expressions = CacheBuilder.newBuilder()
+        .maximumSize(256)
+        .build();
+
     public ExpressionMaskParser(WorldEdit worldEdit) {
         super(worldEdit);
     }
@@ -55,7 +64,13 @@ public Mask parseFromInput(String input, ParserContext context) throws InputPars
         }
 
         try {
-            Expression exp = Expression.compile(input.substring(1), "x", "y", "z");
+            String source = input.substring(1);
+            Expression compiled = expressions.getIfPresent(source);
+            if (compiled == null) {
+                compiled = Expression.compile(source, "x", "y", "z");
+                expressions.put(source, compiled);
+            }
+            Expression exp = compiled.copy();
             WorldEditExpressionEnvironment env = new WorldEditExpressionEnvironment(
                     context.getExtent(), Vector3.ONE, Vector3.ZERO);
             exp.setEnvironment(env);
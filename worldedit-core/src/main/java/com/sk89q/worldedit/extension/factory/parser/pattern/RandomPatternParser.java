@@ -32,6 +32,8 @@
 
 public class RandomPatternParser extends InputParser<Pattern> {
 
+    private static final java.util.regex.Pattern CHANCE_PREFIX = java.util.regex.Pattern.compile("[0-9]+(\\.[0-9]*)?%.*");
+
     public RandomPatternParser(WorldEdit worldEdit) {
         super(worldEdit);
     }
@@ -46,7 +48,7 @@ public Stream<String> getSuggestions(String input) {
         // get suggestions for the last token only
         String token = patterns.get(patterns.size() - 1);
         String previous = String.join(",", patterns.subList(0, patterns.size() - 1));
-        if (token.matches("[0-9]+(\\.[0-9]*)?%.*")) {
+        if (CHANCE_PREFIX.matcher(token).matches()) {
             String[] p = token.split("%");
 
             if (p.length < 2) {
@@ -73,7 +75,7 @@ public Pattern parseFromInput(String input, ParserContext context) throws InputP
             Pattern innerPattern;
 
             // Parse special percentage syntax
-            if (token.matches("[0-9]+(\\.[0-9]*)?%.*")) {
+            if (CHANCE_PREFIX.matcher(token).matches()) {
                 String[] p = token.split("%");
 
                 if (p.length < 2) {
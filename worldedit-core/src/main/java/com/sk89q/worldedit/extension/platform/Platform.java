@@ -86,6 +86,14 @@ public interface Platform {
      */
     int schedule(long delay, long period, Runnable task);
 
+    /**
+     * Cancels a task scheduled with {@link #schedule(long, long, Runnable)}.
+     *
+     * @param taskId Task id number returned when the task was scheduled
+     */
+    default void cancelTask(int taskId) {
+    }
+
     /**
      * Get the watchdog service.
      *
@@ -22,6 +22,9 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.LocalConfiguration;
@@ -133,6 +136,8 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
@@ -244,6 +249,9 @@ private void registerAlwaysInjectedValues() {
                             .orElseThrow(() -> new IllegalStateException("No LocalSession"));
                     return context.injectedValue(Key.of(Actor.class))
                             .map(actor -> {
+                                if (localSession.isEditPending()) {
+                                    throw new CommandException(TranslatableComponent.of("worldedit.command.edit-pending"), ImmutableList.of());
+                                }
                                 EditSession editSession = localSession.createEditSession(actor);
                                 editSession.enableStandardMode();
                                 return editSession;
@@ -532,23 +540,19 @@ public void handleCommand(CommandEvent event) {
 
             if (editSessionOpt.isPresent()) {
                 EditSession editSession = editSessionOpt.get();
-                session.remember(editSession);
-                editSession.flushSession();
-
-                if (config.profile) {
-                    long time = System.currentTimeMillis() - start;
-                    double timeS = (time / 1000.0);
-                    int changed = editSession.getBlockChangeCount();
-                    double throughput = timeS == 0 ? changed : changed / timeS;
-                    actor.printDebug(TranslatableComponent.of(
-                            "worldedit.command.time-elapsed",
-                            TextComponent.of(timeS),
-                            TextComponent.of(changed),
-                            TextComponent.of(Math.round(throughput))
-                    ));
+                if (editSession.hasSubmittedOperations()) {
+                    // the operations submitted by the command are still running
+                    ListenableFuture<?> flushed = editSession.flushSessionLater(actor);
+                    session.rememberLater(editSession, flushed);
+                    flushed.addListener(() -> {
+                        reportFailure(actor, flushed);
+                        finishEdit(actor, editSession, config, start);
+                    }, MoreExecutors.directExecutor());
+                } else {
+                    session.remember(editSession);
+                    editSession.flushSession();
+                    finishEdit(actor, editSession, config, start);
                 }
-
-                worldEdit.flushBlockBag(actor, editSession);
             }
             Request.reset();
         }
@@ -556,6 +560,46 @@ public void handleCommand(CommandEvent event) {
         event.setCancelled(true);
     }
 
+    private void finishEdit(Actor actor, EditSession editSession, LocalConfiguration config, long start) {
+        if (config.profile) {
+            long time = System.currentTimeMillis() - start;
+            double timeS = (time / 1000.0);
+            int changed = editSession.getBlockChangeCount();
+            double throughput = timeS == 0 ? changed : changed / timeS;
+            actor.printDebug(TranslatableComponent.of(
+                    "worldedit.command.time-elapsed",
+                    TextComponent.of(timeS),
+                    TextComponent.of(changed),
+                    TextComponent.of(Math.round(throughput))
+            ));
+        }
+
+        worldEdit.flushBlockBag(actor, editSession);
+    }
+
+    private void reportFailure(Actor actor, ListenableFuture<?> future) {
+        try {
+            Futures.getDone(future);
+        } catch (CancellationException ignored) {
+            // cancelled by the actor, or because the platform is unloading
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            try {
+                Throwable next = t;
+                do {
+                    exceptionConverter.convert(next);
+                    next = next.getCause();
+                } while (next != null);
+                handleUnknownException(actor, t);
+            } catch (CommandException converted) {
+                actor.print(TextComponent.builder("")
+                        .color(TextColor.RED)
+                        .append(converted.getRichMessage())
+                        .build());
+            }
+        }
+    }
+
     private MemoizingValueAccess initializeInjectedValues(Arguments arguments, Actor actor) {
         InjectedValueStore store = MapBackedValueStore.create();
         store.injectValue(Key.of(Actor.class), ValueProvider.constant(actor));
@@ -55,6 +55,28 @@ public interface InputExtent {
      */
     BaseBlock getFullBlock(BlockVector3 position);
 
+    /**
+     * Get snapshots of the blocks in a column, from {@code minY} to
+     * {@code maxY} inclusive.
+     *
+     * <p>The default implementation calls {@link #getBlock(BlockVector3)}
+     * for each block. Extents that can read a whole column more cheaply,
+     * such as worlds that only need to look up the chunk once, should
+     * override it.</p>
+     *
+     * @param x the X coordinate of the column
+     * @param z the Z coordinate of the column
+     * @param minY the lowest Y coordinate to read
+     * @param maxY the highest Y coordinate to read
+     * @param blocks the array to fill, where {@code minY} goes at index 0;
+     *     it must hold at least {@code maxY - minY + 1} blocks
+     */
+    default void getBlockColumn(int x, int z, int minY, int maxY, BlockState[] blocks) {
+        for (int y = minY; y <= maxY; y++) {
+            blocks[y - minY] = getBlock(BlockVector3.at(x, y, z));
+        }
+    }
+
     /**
      * Get the biome at the given location.
      *
@@ -0,0 +1,114 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reads blocks sixteen at a time down a column with
+ * {@link Extent#getBlockColumn(int, int, int, int, BlockState[])}, and returns
+ * blocks from the last column read for calls to
+ * {@link #getBlock(BlockVector3)} in the same column.
+ *
+ * <p>This suits operations that walk down columns one at a time, such as
+ * a {@link com.sk89q.worldedit.function.visitor.LayerVisitor}. Blocks set
+ * through this extent update the cached column.</p>
+ */
+public class LastColumnExtentCache extends AbstractDelegateExtent {
+
+    private static final int SECTION_HEIGHT = 16;
+
+    private final int minY;
+    private final int maxY;
+    private final BlockState[] column;
+    private final BlockState[] section = new BlockState[SECTION_HEIGHT];
+    private final boolean[] loadedSections;
+    private boolean loaded;
+    private int columnX;
+    private int columnZ;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param minY the lowest Y coordinate of the columns to cache
+     * @param maxY the highest Y coordinate of the columns to cache
+     */
+    public LastColumnExtentCache(Extent extent, int minY, int maxY) {
+        super(extent);
+        checkArgument(minY <= maxY, "minY <= maxY required");
+        this.minY = minY;
+        this.maxY = maxY;
+        this.column = new BlockState[maxY - minY + 1];
+        this.loadedSections = new boolean[(column.length + SECTION_HEIGHT - 1) / SECTION_HEIGHT];
+    }
+
+    private boolean isCached(BlockVector3 position) {
+        return loaded && position.getBlockX() == columnX && position.getBlockZ() == columnZ;
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        int y = position.getBlockY();
+        if (y < minY || y > maxY) {
+            return super.getBlock(position);
+        }
+        if (!isCached(position)) {
+            columnX = position.getBlockX();
+            columnZ = position.getBlockZ();
+            Arrays.fill(loadedSections, false);
+            loaded = true;
+        }
+        int index = y - minY;
+        int sectionIndex = index / SECTION_HEIGHT;
+        if (!loadedSections[sectionIndex]) {
+            int start = sectionIndex * SECTION_HEIGHT;
+            int end = Math.min(column.length, start + SECTION_HEIGHT) - 1;
+            getExtent().getBlockColumn(columnX, columnZ, minY + start, minY + end, section);
+            System.arraycopy(section, 0, column, start, end - start + 1);
+            loadedSections[sectionIndex] = true;
+        }
+        return column[index];
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+        if (super.setBlock(location, block)) {
+            int y = location.getBlockY();
+            if (isCached(location) && y >= minY && y <= maxY
+                    && loadedSections[(y - minY) / SECTION_HEIGHT]) {
+                column[y - minY] = block.toImmutableState();
+            }
+            return true;
+        }
+        return false;
+    }
+
+}
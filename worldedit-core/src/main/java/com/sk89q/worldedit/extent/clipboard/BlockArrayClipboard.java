@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.extent.clipboard;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.WorldEditException;
@@ -29,6 +30,7 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.collection.PalettedBlockArray;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.biome.BiomeTypes;
 import com.sk89q.worldedit.world.block.BaseBlock;
@@ -43,14 +45,14 @@
 import javax.annotation.Nullable;
 
 /**
- * Stores block data as a multi-dimensional array of {@link BaseBlock}s and
+ * Stores block data as a palette-compressed {@link PalettedBlockArray} and
  * other data as lists or maps.
  */
 public class BlockArrayClipboard implements Clipboard {
 
     private final Region region;
     private BlockVector3 origin;
-    private final BaseBlock[][][] blocks;
+    private final PalettedBlockArray blocks;
     private BiomeType[][] biomes = null;
     private final List<ClipboardEntity> entities = new ArrayList<>();
 
@@ -67,7 +69,30 @@ public BlockArrayClipboard(Region region) {
         this.origin = region.getMinimumPoint();
 
         BlockVector3 dimensions = getDimensions();
-        blocks = new BaseBlock[dimensions.getBlockX()][dimensions.getBlockY()][dimensions.getBlockZ()];
+        blocks = new PalettedBlockArray(dimensions.getBlockX(), dimensions.getBlockY(), dimensions.getBlockZ());
+    }
+
+    /**
+     * Create a new instance around an array of blocks that has already been
+     * filled, such as one read from a file.
+     *
+     * <p>The origin will be placed at the region's lowest minimum point.</p>
+     *
+     * @param region the bounding region
+     * @param blocks the blocks, with the same dimensions as the region
+     */
+    public BlockArrayClipboard(Region region, PalettedBlockArray blocks) {
+        checkNotNull(region);
+        checkNotNull(blocks);
+        this.region = region.clone();
+        this.origin = region.getMinimumPoint();
+
+        BlockVector3 dimensions = getDimensions();
+        checkArgument(blocks.getSizeX() == dimensions.getBlockX()
+                && blocks.getSizeY() == dimensions.getBlockY()
+                && blocks.getSizeZ() == dimensions.getBlockZ(),
+                "Block array does not match the dimensions of the region");
+        this.blocks = blocks;
     }
 
     @Override
@@ -128,9 +153,9 @@ public Entity createEntity(Location location, BaseEntity entity) {
     public BlockState getBlock(BlockVector3 position) {
         if (region.contains(position)) {
             BlockVector3 v = position.subtract(region.getMinimumPoint());
-            BaseBlock block = blocks[v.getBlockX()][v.getBlockY()][v.getBlockZ()];
+            BlockState block = blocks.getBlock(v.getBlockX(), v.getBlockY(), v.getBlockZ());
             if (block != null) {
-                return block.toImmutableState();
+                return block;
             }
         }
 
@@ -141,7 +166,7 @@ public BlockState getBlock(BlockVector3 position) {
     public BaseBlock getFullBlock(BlockVector3 position) {
         if (region.contains(position)) {
             BlockVector3 v = position.subtract(region.getMinimumPoint());
-            BaseBlock block = blocks[v.getBlockX()][v.getBlockY()][v.getBlockZ()];
+            BaseBlock block = blocks.getFullBlock(v.getBlockX(), v.getBlockY(), v.getBlockZ());
             if (block != null) {
                 return block;
             }
@@ -154,7 +179,7 @@ public BaseBlock getFullBlock(BlockVector3 position) {
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
         if (region.contains(position)) {
             BlockVector3 v = position.subtract(region.getMinimumPoint());
-            blocks[v.getBlockX()][v.getBlockY()][v.getBlockZ()] = block.toBaseBlock();
+            blocks.setBlock(v.getBlockX(), v.getBlockY(), v.getBlockZ(), block);
             return true;
         } else {
             return false;
@@ -0,0 +1,268 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A clipboard that reads from a clipboard shared with others, and makes its
+ * own copy the first time it is changed.
+ *
+ * <p>The origin is kept separately, so it can be changed without copying.
+ * The shared clipboard must not be changed while it is in use. Entities of
+ * the shared clipboard are returned as detached views, which make the copy
+ * when they are moved or removed.</p>
+ */
+public class CopyOnWriteClipboard implements Clipboard {
+
+    private final Clipboard shared;
+    @Nullable
+    private BlockArrayClipboard copy;
+    private final Map<Entity, Entity> copiedEntities = new IdentityHashMap<>();
+    private BlockVector3 origin;
+
+    /**
+     * Create a new instance.
+     *
+     * @param shared the shared clipboard
+     */
+    public CopyOnWriteClipboard(Clipboard shared) {
+        checkNotNull(shared);
+        this.shared = shared;
+        this.origin = shared.getOrigin();
+    }
+
+    /**
+     * Get whether this clipboard has made its own copy of the shared one.
+     *
+     * @return true if copied
+     */
+    public boolean isCopied() {
+        return copy != null;
+    }
+
+    private Clipboard current() {
+        return copy != null ? copy : shared;
+    }
+
+    private Clipboard copy() throws WorldEditException {
+        if (copy == null) {
+            BlockArrayClipboard target = new BlockArrayClipboard(shared.getRegion());
+            for (BlockVector3 position : shared.getRegion()) {
+                target.setBlock(position, shared.getFullBlock(position));
+            }
+            if (shared.hasBiomes()) {
+                BlockVector3 min = shared.getMinimumPoint();
+                BlockVector3 max = shared.getMaximumPoint();
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                        BlockVector2 position = BlockVector2.at(x, z);
+                        target.setBiome(position, shared.getBiome(position));
+                    }
+                }
+            }
+            for (Entity entity : shared.getEntities()) {
+                BaseEntity state = entity.getState();
+                if (state != null) {
+                    copiedEntities.put(entity, target.createEntity(entity.getLocation(), state));
+                }
+            }
+            copy = target;
+        }
+        return copy;
+    }
+
+    private Clipboard copyUnchecked() {
+        try {
+            return copy();
+        } catch (WorldEditException e) {
+            throw new IllegalStateException("Failed to copy the shared clipboard", e);
+        }
+    }
+
+    @Override
+    public Region getRegion() {
+        return current().getRegion();
+    }
+
+    @Override
+    public BlockVector3 getDimensions() {
+        return current().getDimensions();
+    }
+
+    @Override
+    public BlockVector3 getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(BlockVector3 origin) {
+        checkNotNull(origin);
+        this.origin = origin;
+    }
+
+    @Override
+    public boolean hasBiomes() {
+        return current().hasBiomes();
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return current().getMinimumPoint();
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return current().getMaximumPoint();
+    }
+
+    private List<? extends Entity> detach(List<? extends Entity> entities) {
+        if (copy != null) {
+            return entities;
+        }
+        List<Entity> detached = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            detached.add(new SharedEntity(entity));
+        }
+        return detached;
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        return detach(current().getEntities(region));
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return detach(current().getEntities());
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        return copyUnchecked().createEntity(location, entity);
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        return current().getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        return current().getFullBlock(position);
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector2 position) {
+        return current().getBiome(position);
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block) throws WorldEditException {
+        return copy().setBlock(position, block);
+    }
+
+    @Override
+    public boolean setBiome(BlockVector2 position, BiomeType biome) {
+        return copyUnchecked().setBiome(position, biome);
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    /**
+     * An entity of the shared clipboard, which is moved or removed in the
+     * copy of this clipboard instead.
+     */
+    private final class SharedEntity implements Entity {
+
+        private final Entity entity;
+
+        private SharedEntity(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Nullable
+        private Entity copied() {
+            copyUnchecked();
+            return copiedEntities.get(entity);
+        }
+
+        @Nullable
+        @Override
+        public BaseEntity getState() {
+            return entity.getState();
+        }
+
+        @Override
+        public Location getLocation() {
+            return entity.getLocation();
+        }
+
+        @Override
+        public boolean setLocation(Location location) {
+            Entity copied = copied();
+            return copied != null && copied.setLocation(location);
+        }
+
+        @Override
+        public Extent getExtent() {
+            return entity.getExtent();
+        }
+
+        @Override
+        public boolean remove() {
+            Entity copied = copied();
+            return copied != null && copied.remove();
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return null;
+        }
+    }
+
+}
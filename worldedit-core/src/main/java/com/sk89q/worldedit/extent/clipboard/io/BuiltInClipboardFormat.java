@@ -21,6 +21,7 @@
 
 import com.google.common.collect.ImmutableSet;
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTInputStream;
 import com.sk89q.jnbt.NBTOutputStream;
 import com.sk89q.jnbt.NamedTag;
@@ -104,22 +105,23 @@ public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
         @Override
         public boolean isFormat(File file) {
             try (NBTInputStream str = new NBTInputStream(new GZIPInputStream(new FileInputStream(file)))) {
-                NamedTag rootTag = str.readNamedTag();
-                if (!rootTag.getName().equals("Schematic")) {
+                if (str.readTagType() != NBTConstants.TYPE_COMPOUND || !str.readTagName().equals("Schematic")) {
                     return false;
                 }
-                CompoundTag schematicTag = (CompoundTag) rootTag.getTag();
 
-                // Check
-                Map<String, Tag> schematic = schematicTag.getValue();
-                if (!schematic.containsKey("Version")) {
-                    return false;
+                // Check, skipping over the payloads instead of reading the whole schematic
+                int type;
+                while ((type = str.readTagType()) != NBTConstants.TYPE_END) {
+                    if (str.readTagName().equals("Version")) {
+                        return true;
+                    }
+                    str.skipTagPayload(type);
                 }
             } catch (Exception e) {
                 return false;
             }
 
-            return true;
+            return false;
         }
     };
 
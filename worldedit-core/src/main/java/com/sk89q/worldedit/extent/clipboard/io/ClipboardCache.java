@@ -0,0 +1,227 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.CopyOnWriteClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.io.Closer;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps recently loaded schematics decoded in memory, so that loading the
+ * same file again does not read and decode it again.
+ *
+ * <p>Files are identified by their path, size and modification time, so a
+ * file that is saved over is loaded afresh. Cached clipboards are shared, and
+ * each load hands out a {@link CopyOnWriteClipboard} around them. The cache
+ * holds up to {@link com.sk89q.worldedit.LocalConfiguration#schematicCacheSize}
+ * blocks, dropping the least recently used schematics first.</p>
+ */
+public class ClipboardCache {
+
+    private final WorldEdit worldEdit;
+    @Nullable
+    private Cache<Key, Clipboard> cache;
+    private int cacheSize = -1;
+
+    /**
+     * Create a new instance.
+     *
+     * @param worldEdit the WorldEdit instance
+     */
+    public ClipboardCache(WorldEdit worldEdit) {
+        checkNotNull(worldEdit);
+        this.worldEdit = worldEdit;
+    }
+
+    /**
+     * Get the cache, rebuilding it if the configured size has changed.
+     *
+     * @return the cache, or null if caching is disabled
+     */
+    @Nullable
+    private synchronized Cache<Key, Clipboard> getCache() {
+        int size = worldEdit.getConfiguration().schematicCacheSize;
+        if (size != cacheSize) {
+            cacheSize = size;
+            cache = size <= 0 ? null : CacheBuilder.newBuilder()
+                    .maximumWeight(size)
+                    .weigher((Key key, Clipboard clipboard) -> getVolume(clipboard))
+                    .recordStats()
+                    .build();
+        }
+        return cache;
+    }
+
+    private static int getVolume(Clipboard clipboard) {
+        BlockVector3 dimensions = clipboard.getDimensions();
+        long volume = (long) dimensions.getBlockX() * dimensions.getBlockY() * dimensions.getBlockZ();
+        return (int) Math.min(volume, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Load a clipboard from a file, or take it from the cache.
+     *
+     * @param file the file
+     * @param format the format of the file
+     * @return a clipboard that may be changed freely
+     * @throws IOException if the file could not be read
+     */
+    public Clipboard load(File file, ClipboardFormat format) throws IOException {
+        checkNotNull(file);
+        checkNotNull(format);
+
+        Cache<Key, Clipboard> cache = getCache();
+        if (cache == null) {
+            return read(file, format);
+        }
+
+        Key key = new Key(file.getCanonicalPath(), file.length(), file.lastModified(), format);
+        Clipboard shared;
+        try {
+            shared = cache.get(key, () -> read(file, format));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (ExecutionError e) {
+            throw (Error) e.getCause();
+        }
+        // forget older versions of the file
+        cache.asMap().keySet().removeIf(other -> other.path.equals(key.path) && !other.equals(key));
+        return new CopyOnWriteClipboard(shared);
+    }
+
+    private static Clipboard read(File file, ClipboardFormat format) throws IOException {
+        try (Closer closer = Closer.create()) {
+            FileInputStream fis = closer.register(new FileInputStream(file));
+            BufferedInputStream bis = closer.register(new BufferedInputStream(fis));
+            ClipboardReader reader = closer.register(format.getReader(bis));
+            return reader.read();
+        }
+    }
+
+    /**
+     * Remove any cached copy of a file.
+     *
+     * @param file the file
+     * @throws IOException if the path of the file could not be resolved
+     */
+    public void invalidate(File file) throws IOException {
+        Cache<Key, Clipboard> cache = getCache();
+        if (cache != null) {
+            String path = file.getCanonicalPath();
+            cache.asMap().keySet().removeIf(key -> key.path.equals(path));
+        }
+    }
+
+    /**
+     * Get the hit, miss and eviction counts of the cache.
+     *
+     * <p>The counts start over when the configured size changes.</p>
+     *
+     * @return the statistics
+     */
+    public CacheStats getStats() {
+        Cache<Key, Clipboard> cache = getCache();
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * Get the number of schematics in the cache.
+     *
+     * @return the number of schematics
+     */
+    public long getSize() {
+        Cache<Key, Clipboard> cache = getCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * Get the number of blocks held by the schematics in the cache.
+     *
+     * @return the number of blocks
+     */
+    public long getBlockCount() {
+        Cache<Key, Clipboard> cache = getCache();
+        if (cache == null) {
+            return 0;
+        }
+        long blocks = 0;
+        for (Clipboard clipboard : cache.asMap().values()) {
+            blocks += getVolume(clipboard);
+        }
+        return blocks;
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final ClipboardFormat format;
+
+        private Key(String path, long length, long lastModified, ClipboardFormat format) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return length == key.length
+                    && lastModified == key.lastModified
+                    && path.equals(key.path)
+                    && format.equals(key.format);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, length, lastModified, format);
+        }
+    }
+
+}
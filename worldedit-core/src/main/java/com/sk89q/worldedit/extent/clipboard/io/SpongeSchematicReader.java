@@ -25,13 +25,12 @@
 import com.sk89q.jnbt.IntArrayTag;
 import com.sk89q.jnbt.IntTag;
 import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTInputStream;
-import com.sk89q.jnbt.NamedTag;
 import com.sk89q.jnbt.ShortTag;
 import com.sk89q.jnbt.StringTag;
 import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.WorldEdit;
-import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.extension.input.InputParseException;
 import com.sk89q.worldedit.extension.input.ParserContext;
@@ -44,6 +43,7 @@
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.collection.PalettedBlockArray;
 import com.sk89q.worldedit.world.DataFixer;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.biome.BiomeTypes;
@@ -52,6 +52,8 @@
 import com.sk89q.worldedit.world.entity.EntityType;
 import com.sk89q.worldedit.world.entity.EntityTypes;
 import com.sk89q.worldedit.world.storage.NBTConversions;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,10 +69,16 @@
 
 /**
  * Reads schematic files using the Sponge Schematic Specification.
+ *
+ * <p>The file is read one tag at a time. When the tags needed to decode the
+ * block data come before it, as in files written by
+ * {@link SpongeSchematicWriter}, the block data is decoded straight from the
+ * stream into the clipboard, without holding the encoded array.</p>
  */
 public class SpongeSchematicReader extends NBTSchematicReader {
 
     private static final Logger log = LoggerFactory.getLogger(SpongeSchematicReader.class);
+    private static final int BUFFER_SIZE = 8192;
     private final NBTInputStream inputStream;
     private DataFixer fixer = null;
     private int schematicVersion = -1;
@@ -88,8 +96,106 @@ public SpongeSchematicReader(NBTInputStream inputStream) {
 
     @Override
     public Clipboard read() throws IOException {
-        CompoundTag schematicTag = getBaseTag();
-        Map<String, Tag> schematic = schematicTag.getValue();
+        Map<String, Tag> schematic = new HashMap<>();
+        PalettedBlockArray blocks = null;
+
+        readRootHeader();
+        int type;
+        while ((type = inputStream.readTagType()) != NBTConstants.TYPE_END) {
+            String name = inputStream.readTagName();
+            if (name.equals("BlockData") && type == NBTConstants.TYPE_BYTE_ARRAY && canReadBlocks(schematic)) {
+                // decode straight from the stream, instead of holding the encoded array
+                BlockDecoder decoder = createBlockDecoder(schematic);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int remaining = inputStream.readByteArrayLength();
+                while (remaining > 0) {
+                    int length = Math.min(remaining, buffer.length);
+                    inputStream.readBytes(buffer, 0, length);
+                    decoder.decode(buffer, length);
+                    remaining -= length;
+                }
+                blocks = decoder.finish();
+            } else {
+                schematic.put(name, inputStream.readTagPayload(type));
+            }
+        }
+
+        if (blocks == null) {
+            // the block data came before the tags needed to decode it
+            BlockDecoder decoder = createBlockDecoder(schematic);
+            byte[] blockData = requireTag(schematic, "BlockData", ByteArrayTag.class).getValue();
+            decoder.decode(blockData, blockData.length);
+            blocks = decoder.finish();
+        }
+
+        BlockArrayClipboard clipboard = readVersion1(schematic, blocks);
+        if (schematicVersion == 2) {
+            return readVersion2(clipboard, schematic);
+        }
+        return clipboard;
+    }
+
+    @Override
+    public OptionalInt getDataVersion() {
+        try {
+            readRootHeader();
+            Map<String, Tag> schematic = new HashMap<>();
+            int type;
+            while ((type = inputStream.readTagType()) != NBTConstants.TYPE_END) {
+                String name = inputStream.readTagName();
+                if (name.equals("Version") || name.equals("DataVersion")) {
+                    schematic.put(name, inputStream.readTagPayload(type));
+                    if (schematic.containsKey("Version") && hasDataVersion(schematic)) {
+                        break;
+                    }
+                } else {
+                    inputStream.skipTagPayload(type);
+                }
+            }
+
+            schematicVersion = requireTag(schematic, "Version", IntTag.class).getValue();
+            if (schematicVersion == 1) {
+                return OptionalInt.of(1631);
+            } else if (schematicVersion == 2) {
+                return OptionalInt.of(requireTag(schematic, "DataVersion", IntTag.class).getValue());
+            }
+            return OptionalInt.empty();
+        } catch (IOException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    private void readRootHeader() throws IOException {
+        int type = inputStream.readTagType();
+        String name = type == NBTConstants.TYPE_END ? "" : inputStream.readTagName();
+        if (!name.equals("Schematic")) {
+            throw new IOException("Tag 'Schematic' does not exist or is not first");
+        }
+        if (type != NBTConstants.TYPE_COMPOUND) {
+            throw new IOException("Tag 'Schematic' is not a compound");
+        }
+    }
+
+    private static boolean hasDataVersion(Map<String, Tag> schematic) {
+        Tag version = schematic.get("Version");
+        return !(version instanceof IntTag) || ((IntTag) version).getValue() != 2
+                || schematic.containsKey("DataVersion");
+    }
+
+    /**
+     * Check whether every tag needed to decode the block data has been read.
+     *
+     * @param schematic the tags read so far
+     * @return true if the block data can be decoded
+     */
+    private static boolean canReadBlocks(Map<String, Tag> schematic) {
+        return schematic.containsKey("Version") && hasDataVersion(schematic)
+                && schematic.containsKey("Width") && schematic.containsKey("Height")
+                && schematic.containsKey("Length") && schematic.containsKey("Palette");
+    }
+
+    private void readDataVersion(Map<String, Tag> schematic) throws IOException {
+        schematicVersion = requireTag(schematic, "Version", IntTag.class).getValue();
 
         final Platform platform = WorldEdit.getInstance().getPlatformManager()
                 .queryCapability(Capability.WORLD_EDITING);
@@ -98,7 +204,6 @@ public Clipboard read() throws IOException {
         if (schematicVersion == 1) {
             dataVersion = 1631; // this is a relatively safe assumption unless someone imports a schematic from 1.12, e.g. sponge 7.1-
             fixer = platform.getDataFixer();
-            return readVersion1(schematicTag);
         } else if (schematicVersion == 2) {
             dataVersion = requireTag(schematic, "DataVersion", IntTag.class).getValue();
             if (dataVersion > liveDataVersion) {
@@ -114,51 +219,56 @@ public Clipboard read() throws IOException {
                             dataVersion, liveDataVersion);
                 }
             }
-
-            BlockArrayClipboard clip = readVersion1(schematicTag);
-            return readVersion2(clip, schematicTag);
+        } else {
+            throw new IOException("This schematic version is currently not supported");
         }
-        throw new IOException("This schematic version is currently not supported");
     }
 
-    @Override
-    public OptionalInt getDataVersion() {
-        try {
-            CompoundTag schematicTag = getBaseTag();
-            Map<String, Tag> schematic = schematicTag.getValue();
-            if (schematicVersion == 1) {
-                return OptionalInt.of(1631);
-            } else if (schematicVersion == 2) {
-                return OptionalInt.of(requireTag(schematic, "DataVersion", IntTag.class).getValue());
-            }
-            return OptionalInt.empty();
-        } catch (IOException e) {
-            return OptionalInt.empty();
-        }
-    }
+    private BlockDecoder createBlockDecoder(Map<String, Tag> schematic) throws IOException {
+        readDataVersion(schematic);
 
-    private CompoundTag getBaseTag() throws IOException {
-        NamedTag rootTag = inputStream.readNamedTag();
-        if (!rootTag.getName().equals("Schematic")) {
-            throw new IOException("Tag 'Schematic' does not exist or is not first");
+        int width = requireTag(schematic, "Width", ShortTag.class).getValue();
+        int height = requireTag(schematic, "Height", ShortTag.class).getValue();
+        int length = requireTag(schematic, "Length", ShortTag.class).getValue();
+
+        IntTag paletteMaxTag = getTag(schematic, "PaletteMax", IntTag.class);
+        Map<String, Tag> paletteObject = requireTag(schematic, "Palette", CompoundTag.class).getValue();
+        if (paletteMaxTag != null && paletteObject.size() != paletteMaxTag.getValue()) {
+            throw new IOException("Block palette size does not match expected size.");
         }
-        CompoundTag schematicTag = (CompoundTag) rootTag.getTag();
 
-        // Check
-        Map<String, Tag> schematic = schematicTag.getValue();
+        Int2ObjectMap<BlockState> palette = new Int2ObjectOpenHashMap<>();
 
-        schematicVersion = requireTag(schematic, "Version", IntTag.class).getValue();
-        return schematicTag;
+        ParserContext parserContext = new ParserContext();
+        parserContext.setRestricted(false);
+        parserContext.setTryLegacy(false);
+        parserContext.setPreferringWildcard(false);
+
+        for (String palettePart : paletteObject.keySet()) {
+            int id = requireTag(paletteObject, palettePart, IntTag.class).getValue();
+            if (fixer != null) {
+                palettePart = fixer.fixUp(DataFixer.FixTypes.BLOCK_STATE, palettePart, dataVersion);
+            }
+            BlockState state;
+            try {
+                state = WorldEdit.getInstance().getBlockFactory().parseFromInput(palettePart, parserContext).toImmutableState();
+            } catch (InputParseException e) {
+                log.warn("Invalid BlockState in palette: " + palettePart + ". Block will be replaced with air.");
+                state = BlockTypes.AIR.getDefaultState();
+            }
+            palette.put(id, state);
+        }
+
+        return new BlockDecoder(new PalettedBlockArray(width, height, length), palette);
     }
 
-    private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOException {
+    private BlockArrayClipboard readVersion1(Map<String, Tag> schematic, PalettedBlockArray blocks) throws IOException {
         BlockVector3 origin;
         Region region;
-        Map<String, Tag> schematic = schematicTag.getValue();
 
-        int width = requireTag(schematic, "Width", ShortTag.class).getValue();
-        int height = requireTag(schematic, "Height", ShortTag.class).getValue();
-        int length = requireTag(schematic, "Length", ShortTag.class).getValue();
+        int width = blocks.getSizeX();
+        int height = blocks.getSizeY();
+        int length = blocks.getSizeZ();
 
         IntArrayTag offsetTag = getTag(schematic, "Offset", IntArrayTag.class);
         int[] offsetParts;
@@ -188,37 +298,6 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
             region = new CuboidRegion(origin, origin.add(width, height, length).subtract(BlockVector3.ONE));
         }
 
-        IntTag paletteMaxTag = getTag(schematic, "PaletteMax", IntTag.class);
-        Map<String, Tag> paletteObject = requireTag(schematic, "Palette", CompoundTag.class).getValue();
-        if (paletteMaxTag != null && paletteObject.size() != paletteMaxTag.getValue()) {
-            throw new IOException("Block palette size does not match expected size.");
-        }
-
-        Map<Integer, BlockState> palette = new HashMap<>();
-
-        ParserContext parserContext = new ParserContext();
-        parserContext.setRestricted(false);
-        parserContext.setTryLegacy(false);
-        parserContext.setPreferringWildcard(false);
-
-        for (String palettePart : paletteObject.keySet()) {
-            int id = requireTag(paletteObject, palettePart, IntTag.class).getValue();
-            if (fixer != null) {
-                palettePart = fixer.fixUp(DataFixer.FixTypes.BLOCK_STATE, palettePart, dataVersion);
-            }
-            BlockState state;
-            try {
-                state = WorldEdit.getInstance().getBlockFactory().parseFromInput(palettePart, parserContext).toImmutableState();
-            } catch (InputParseException e) {
-                log.warn("Invalid BlockState in palette: " + palettePart + ". Block will be replaced with air.");
-                state = BlockTypes.AIR.getDefaultState();
-            }
-            palette.put(id, state);
-        }
-
-        byte[] blocks = requireTag(schematic, "BlockData", ByteArrayTag.class).getValue();
-
-        Map<BlockVector3, Map<String, Tag>> tileEntitiesMap = new HashMap<>();
         ListTag tileEntities = getTag(schematic, "BlockEntities", ListTag.class);
         if (tileEntities == null) {
             tileEntities = getTag(schematic, "TileEntities", ListTag.class);
@@ -232,6 +311,14 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
             for (Map<String, Tag> tileEntity : tileEntityTags) {
                 int[] pos = requireTag(tileEntity, "Pos", IntArrayTag.class).getValue();
                 final BlockVector3 pt = BlockVector3.at(pos[0], pos[1], pos[2]);
+                if (pt.getX() < 0 || pt.getX() >= width || pt.getY() < 0 || pt.getY() >= height
+                        || pt.getZ() < 0 || pt.getZ() >= length) {
+                    continue;
+                }
+                BlockState state = blocks.getBlock(pt.getX(), pt.getY(), pt.getZ());
+                if (state == null) {
+                    continue;
+                }
                 Map<String, Tag> values = Maps.newHashMap(tileEntity);
                 values.put("x", new IntTag(pt.getBlockX()));
                 values.put("y", new IntTag(pt.getBlockY()));
@@ -244,56 +331,16 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
                 } else {
                     tileEntity = values;
                 }
-                tileEntitiesMap.put(pt, tileEntity);
+                blocks.setBlock(pt.getX(), pt.getY(), pt.getZ(), state.toBaseBlock(new CompoundTag(tileEntity)));
             }
         }
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region, blocks);
         clipboard.setOrigin(origin);
-
-        int index = 0;
-        int i = 0;
-        int value;
-        int varintLength;
-        while (i < blocks.length) {
-            value = 0;
-            varintLength = 0;
-
-            while (true) {
-                value |= (blocks[i] & 127) << (varintLength++ * 7);
-                if (varintLength > 5) {
-                    throw new IOException("VarInt too big (probably corrupted data)");
-                }
-                if ((blocks[i] & 128) != 128) {
-                    i++;
-                    break;
-                }
-                i++;
-            }
-            // index = (y * length * width) + (z * width) + x
-            int y = index / (width * length);
-            int z = (index % (width * length)) / width;
-            int x = (index % (width * length)) % width;
-            BlockState state = palette.get(value);
-            BlockVector3 pt = BlockVector3.at(x, y, z);
-            try {
-                if (tileEntitiesMap.containsKey(pt)) {
-                    clipboard.setBlock(clipboard.getMinimumPoint().add(pt), state.toBaseBlock(new CompoundTag(tileEntitiesMap.get(pt))));
-                } else {
-                    clipboard.setBlock(clipboard.getMinimumPoint().add(pt), state);
-                }
-            } catch (WorldEditException e) {
-                throw new IOException("Failed to load a block in the schematic");
-            }
-
-            index++;
-        }
-
         return clipboard;
     }
 
-    private Clipboard readVersion2(BlockArrayClipboard version1, CompoundTag schematicTag) throws IOException {
-        Map<String, Tag> schematic = schematicTag.getValue();
+    private Clipboard readVersion2(BlockArrayClipboard version1, Map<String, Tag> schematic) throws IOException {
         if (schematic.containsKey("BiomeData")) {
             readBiomes(version1, schematic);
         }
@@ -392,6 +439,73 @@ private void readEntities(BlockArrayClipboard clipboard, Map<String, Tag> schema
         }
     }
 
+    /**
+     * Decodes varint palette IDs into an array of blocks, from data that may
+     * arrive in several parts.
+     */
+    private static final class BlockDecoder {
+
+        private final PalettedBlockArray blocks;
+        private final Int2ObjectMap<BlockState> palette;
+        private final int width;
+        private final int height;
+        private final int length;
+        private int x;
+        private int y;
+        private int z;
+        private int value;
+        private int varintLength;
+
+        private BlockDecoder(PalettedBlockArray blocks, Int2ObjectMap<BlockState> palette) {
+            this.blocks = blocks;
+            this.palette = palette;
+            this.width = blocks.getSizeX();
+            this.height = blocks.getSizeY();
+            this.length = blocks.getSizeZ();
+        }
+
+        private void decode(byte[] data, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                byte b = data[i];
+                value |= (b & 127) << (varintLength++ * 7);
+                if (varintLength > 5) {
+                    throw new IOException("VarInt too big (probably corrupted data)");
+                }
+                if ((b & 128) != 128) {
+                    set(value);
+                    value = 0;
+                    varintLength = 0;
+                }
+            }
+        }
+
+        private void set(int id) throws IOException {
+            // index = (y * length * width) + (z * width) + x
+            if (y >= height) {
+                return;
+            }
+            BlockState state = palette.get(id);
+            if (state == null) {
+                throw new IOException("Block data refers to palette ID " + id + ", which is not in the palette");
+            }
+            blocks.setBlock(x, y, z, state);
+            if (++x == width) {
+                x = 0;
+                if (++z == length) {
+                    z = 0;
+                    y++;
+                }
+            }
+        }
+
+        private PalettedBlockArray finish() throws IOException {
+            if (varintLength != 0) {
+                throw new IOException("Block data ends in the middle of a VarInt (probably corrupted data)");
+            }
+            return blocks;
+        }
+    }
+
     @Override
     public void close() throws IOException {
         inputStream.close();
@@ -29,6 +29,7 @@
 import com.sk89q.jnbt.IntArrayTag;
 import com.sk89q.jnbt.IntTag;
 import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTOutputStream;
 import com.sk89q.jnbt.ShortTag;
 import com.sk89q.jnbt.StringTag;
@@ -44,11 +45,15 @@
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -62,6 +67,7 @@ public class SpongeSchematicWriter implements ClipboardWriter {
     private static final int CURRENT_VERSION = 2;
 
     private static final int MAX_SIZE = Short.MAX_VALUE - Short.MIN_VALUE;
+    private static final int BUFFER_SIZE = 8192;
     private final NBTOutputStream outputStream;
 
     /**
@@ -77,16 +83,20 @@ public SpongeSchematicWriter(NBTOutputStream outputStream) {
     @Override
     public void write(Clipboard clipboard) throws IOException {
         // For now always write the latest version. Maybe provide support for earlier if more appear.
-        outputStream.writeNamedTag("Schematic", new CompoundTag(write2(clipboard)));
+        write2(clipboard);
     }
 
     /**
      * Writes a version 2 schematic file.
      *
+     * <p>The tags are written straight to the stream in the order that lets
+     * {@link SpongeSchematicReader} decode the block data as it arrives, and
+     * the block data is encoded straight from the clipboard.</p>
+     *
      * @param clipboard The clipboard
-     * @return The schematic map
+     * @throws IOException if an I/O error occurs
      */
-    private Map<String, Tag> write2(Clipboard clipboard) {
+    private void write2(Clipboard clipboard) throws IOException {
         Region region = clipboard.getRegion();
         BlockVector3 origin = clipboard.getOrigin();
         BlockVector3 min = region.getMinimumPoint();
@@ -105,35 +115,11 @@ private Map<String, Tag> write2(Clipboard clipboard) {
             throw new IllegalArgumentException("Length of region too large for a .schematic");
         }
 
-        Map<String, Tag> schematic = new HashMap<>();
-        schematic.put("Version", new IntTag(CURRENT_VERSION));
-        schematic.put("DataVersion", new IntTag(
-                WorldEdit.getInstance().getPlatformManager().queryCapability(Capability.WORLD_EDITING).getDataVersion()));
-
-        Map<String, Tag> metadata = new HashMap<>();
-        metadata.put("WEOffsetX", new IntTag(offset.getBlockX()));
-        metadata.put("WEOffsetY", new IntTag(offset.getBlockY()));
-        metadata.put("WEOffsetZ", new IntTag(offset.getBlockZ()));
-
-        schematic.put("Metadata", new CompoundTag(metadata));
-
-        schematic.put("Width", new ShortTag((short) width));
-        schematic.put("Height", new ShortTag((short) height));
-        schematic.put("Length", new ShortTag((short) length));
-
-        // The Sponge format Offset refers to the 'min' points location in the world. That's our 'Origin'
-        schematic.put("Offset", new IntArrayTag(new int[]{
-                min.getBlockX(),
-                min.getBlockY(),
-                min.getBlockZ(),
-        }));
-
-        int paletteMax = 0;
-        Map<String, Integer> palette = new HashMap<>();
-
+        // The first pass over the blocks builds the palette and sizes the block data
+        Reference2IntMap<BlockState> palette = new Reference2IntOpenHashMap<>();
+        palette.defaultReturnValue(-1);
         List<CompoundTag> tileEntities = new ArrayList<>();
-
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream(width * height * length);
+        long dataLength = 0;
 
         for (int y = 0; y < height; y++) {
             int y0 = min.getBlockY() + y;
@@ -163,35 +149,92 @@ private Map<String, Tag> write2(Clipboard clipboard) {
                         tileEntities.add(new CompoundTag(values));
                     }
 
-                    String blockKey = block.toImmutableState().getAsString();
-                    int blockId;
-                    if (palette.containsKey(blockKey)) {
-                        blockId = palette.get(blockKey);
-                    } else {
-                        blockId = paletteMax;
-                        palette.put(blockKey, blockId);
-                        paletteMax++;
+                    BlockState state = block.toImmutableState();
+                    int blockId = palette.getInt(state);
+                    if (blockId == -1) {
+                        blockId = palette.size();
+                        palette.put(state, blockId);
                     }
+                    dataLength += varIntSize(blockId);
+                }
+            }
+        }
+
+        if (dataLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many blocks for a .schematic");
+        }
+
+        outputStream.writeTagHeader(NBTConstants.TYPE_COMPOUND, "Schematic");
+        outputStream.writeNamedTag("Version", new IntTag(CURRENT_VERSION));
+        outputStream.writeNamedTag("DataVersion", new IntTag(
+                WorldEdit.getInstance().getPlatformManager().queryCapability(Capability.WORLD_EDITING).getDataVersion()));
+
+        Map<String, Tag> metadata = new HashMap<>();
+        metadata.put("WEOffsetX", new IntTag(offset.getBlockX()));
+        metadata.put("WEOffsetY", new IntTag(offset.getBlockY()));
+        metadata.put("WEOffsetZ", new IntTag(offset.getBlockZ()));
 
+        outputStream.writeNamedTag("Metadata", new CompoundTag(metadata));
+
+        outputStream.writeNamedTag("Width", new ShortTag((short) width));
+        outputStream.writeNamedTag("Height", new ShortTag((short) height));
+        outputStream.writeNamedTag("Length", new ShortTag((short) length));
+
+        // The Sponge format Offset refers to the 'min' points location in the world. That's our 'Origin'
+        outputStream.writeNamedTag("Offset", new IntArrayTag(new int[]{
+                min.getBlockX(),
+                min.getBlockY(),
+                min.getBlockZ(),
+        }));
+
+        outputStream.writeNamedTag("PaletteMax", new IntTag(palette.size()));
+
+        Map<String, Tag> paletteTag = new HashMap<>();
+        palette.forEach((key, value) -> paletteTag.put(key.getAsString(), new IntTag(value)));
+
+        outputStream.writeNamedTag("Palette", new CompoundTag(paletteTag));
+
+        // The second pass encodes the block data
+        outputStream.writeTagHeader(NBTConstants.TYPE_BYTE_ARRAY, "BlockData");
+        outputStream.writeByteArrayLength((int) dataLength);
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int position = 0;
+        long written = 0;
+        for (int y = 0; y < height; y++) {
+            int y0 = min.getBlockY() + y;
+            for (int z = 0; z < length; z++) {
+                int z0 = min.getBlockZ() + z;
+                for (int x = 0; x < width; x++) {
+                    int x0 = min.getBlockX() + x;
+                    int blockId = palette.getInt(clipboard.getBlock(BlockVector3.at(x0, y0, z0)).toImmutableState());
+                    if (blockId == -1) {
+                        throw new IllegalStateException("Clipboard was changed while it was being written");
+                    }
+
+                    if (position > buffer.length - 5) {
+                        outputStream.writeBytes(buffer, 0, position);
+                        written += position;
+                        position = 0;
+                    }
                     while ((blockId & -128) != 0) {
-                        buffer.write(blockId & 127 | 128);
+                        buffer[position++] = (byte) (blockId & 127 | 128);
                         blockId >>>= 7;
                     }
-                    buffer.write(blockId);
+                    buffer[position++] = (byte) blockId;
                 }
             }
         }
+        outputStream.writeBytes(buffer, 0, position);
+        written += position;
+        if (written != dataLength) {
+            throw new IllegalStateException("Clipboard was changed while it was being written");
+        }
 
-        schematic.put("PaletteMax", new IntTag(paletteMax));
-
-        Map<String, Tag> paletteTag = new HashMap<>();
-        palette.forEach((key, value) -> paletteTag.put(key, new IntTag(value)));
-
-        schematic.put("Palette", new CompoundTag(paletteTag));
-        schematic.put("BlockData", new ByteArrayTag(buffer.toByteArray()));
-        schematic.put("BlockEntities", new ListTag(CompoundTag.class, tileEntities));
+        outputStream.writeNamedTag("BlockEntities", new ListTag(CompoundTag.class, tileEntities));
 
         // version 2 stuff
+        Map<String, Tag> schematic = new LinkedHashMap<>();
         if (clipboard.hasBiomes()) {
             writeBiomes(clipboard, schematic);
         }
@@ -200,7 +243,19 @@ private Map<String, Tag> write2(Clipboard clipboard) {
             writeEntities(clipboard, schematic);
         }
 
-        return schematic;
+        for (Map.Entry<String, Tag> entry : schematic.entrySet()) {
+            outputStream.writeNamedTag(entry.getKey(), entry.getValue());
+        }
+        outputStream.writeEndTag();
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & -128) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
     }
 
     private void writeBiomes(Clipboard clipboard, Map<String, Tag> schematic) {
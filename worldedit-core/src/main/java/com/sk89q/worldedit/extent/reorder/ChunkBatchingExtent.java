@@ -23,15 +23,14 @@
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.operation.Operation;
-import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter;
+import com.sk89q.worldedit.function.operation.SetBlockBuffer;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.util.collection.ChunkBlockBuffer;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -39,10 +38,14 @@
  * improve the speed of setting the blocks, since chunks do not need to be
  * loaded repeatedly, however it does take more memory due to caching the
  * blocks.
+ *
+ * <p>Blocks are passed on a chunk section at a time, so that a
+ * {@link com.sk89q.worldedit.extent.world.SideEffectExtent} further down can
+ * set each section as one batch.</p>
  */
 public class ChunkBatchingExtent extends AbstractBufferingExtent {
 
-    private final BlockMap<BaseBlock> blockMap = BlockMap.createForBaseBlock();
+    private final ChunkBlockBuffer blockBuffer = new ChunkBlockBuffer();
     private boolean enabled;
 
     public ChunkBatchingExtent(Extent extent) {
@@ -66,18 +69,33 @@ public boolean commitRequired() {
         return enabled;
     }
 
+    /**
+     * Get the chunks that have blocks waiting to be set, in the order they
+     * will be set.
+     *
+     * @return the chunk coordinates
+     */
+    public List<BlockVector2> getBufferedChunks() {
+        long[] keys = blockBuffer.getChunkOrder();
+        List<BlockVector2> chunks = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            chunks.add(BlockVector2.at((int) (key >> 32), (int) key));
+        }
+        return chunks;
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         if (!enabled) {
             return setDelegateBlock(location, block);
         }
-        blockMap.put(location, block.toBaseBlock());
+        blockBuffer.put(location, block.toBaseBlock());
         return true;
     }
 
     @Override
     protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
-        return blockMap.get(position);
+        return blockBuffer.get(position);
     }
 
     @Override
@@ -85,31 +103,7 @@ protected Operation commitBefore() {
         if (!commitRequired()) {
             return null;
         }
-        return new Operation() {
-
-            // we get modified between create/resume -- only create this on resume to prevent CME
-            private Iterator<BlockVector3> iterator;
-
-            @Override
-            public Operation resume(RunContext run) throws WorldEditException {
-                if (iterator == null) {
-                    List<BlockVector3> blockVectors = new ArrayList<>(blockMap.keySet());
-                    RegionOptimizedVectorSorter.sort(blockVectors);
-                    iterator = blockVectors.iterator();
-                }
-                while (iterator.hasNext()) {
-                    BlockVector3 position = iterator.next();
-                    BaseBlock block = blockMap.get(position);
-                    getExtent().setBlock(position, block);
-                }
-                blockMap.clear();
-                return null;
-            }
-
-            @Override
-            public void cancel() {
-            }
-        };
+        return new SetBlockBuffer(getExtent(), blockBuffer);
     }
 
 }
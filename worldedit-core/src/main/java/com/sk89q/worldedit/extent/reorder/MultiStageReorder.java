@@ -24,10 +24,9 @@
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
-import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.function.operation.SetBlockMap;
+import com.sk89q.worldedit.function.operation.SetBlockBuffer;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.util.collection.ChunkBlockBuffer;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockCategories;
 import com.sk89q.worldedit.world.block.BlockState;
@@ -140,7 +139,7 @@ public class MultiStageReorder extends AbstractBufferingExtent implements Reorde
         priorityMap.put(BlockTypes.MOVING_PISTON, PlacementPriority.FINAL);
     }
 
-    private Map<PlacementPriority, BlockMap<BaseBlock>> stages = new HashMap<>();
+    private Map<PlacementPriority, ChunkBlockBuffer> stages = new HashMap<>();
 
     private boolean enabled;
 
@@ -174,7 +173,7 @@ public MultiStageReorder(Extent extent, boolean enabled) {
         this.enabled = enabled;
 
         for (PlacementPriority priority : PlacementPriority.values()) {
-            stages.put(priority, BlockMap.createForBaseBlock());
+            stages.put(priority, new ChunkBlockBuffer());
         }
     }
 
@@ -246,7 +245,7 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
 
     @Override
     protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
-        for (BlockMap<BaseBlock> blocks : stages.values()) {
+        for (ChunkBlockBuffer blocks : stages.values()) {
             BaseBlock baseBlock = blocks.get(position);
             if (baseBlock != null) {
                 return baseBlock;
@@ -262,17 +261,7 @@ public Operation commitBefore() {
         }
         List<Operation> operations = new ArrayList<>();
         for (PlacementPriority priority : PlacementPriority.values()) {
-            BlockMap<BaseBlock> blocks = stages.get(priority);
-            operations.add(new SetBlockMap(getExtent(), blocks) {
-                @Override
-                public Operation resume(RunContext run) throws WorldEditException {
-                    Operation operation = super.resume(run);
-                    if (operation == null) {
-                        blocks.clear();
-                    }
-                    return operation;
-                }
-            });
+            operations.add(new SetBlockBuffer(getExtent(), stages.get(priority)));
         }
 
         return new OperationQueue(operations);
@@ -0,0 +1,178 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.transform;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Remembers what a transform turns each block state into, so that the
+ * properties of a state are only worked out once per transform.
+ *
+ * <p>Entries are indexed by internal state ID and filled in as states are
+ * seen. Tables are shared by every user of an equal {@link AffineTransform},
+ * so repeated pastes with the same rotation reuse the same table.</p>
+ */
+final class BlockStateTransformTable {
+
+    private static final int MAX_TABLES = 32;
+
+    private static final LoadingCache<TransformKey, BlockStateTransformTable> TABLES = CacheBuilder.newBuilder()
+        .maximumSize(MAX_TABLES)
+        .build(CacheLoader.from(key -> new BlockStateTransformTable(key.transform)));
+
+    /**
+     * The transform looked up last and its table, so that callers that
+     * transform block after block with the same transform, through
+     * {@link BlockTransformExtent#transform(BlockStateHolder, Transform)},
+     * don't build a key and go through the cache for every block.
+     */
+    @Nullable
+    private static volatile LastLookup lastLookup;
+
+    /**
+     * Get the table for a transform.
+     *
+     * @param transform the transform
+     * @return the table, or null if the transform can't be shared
+     */
+    @Nullable
+    static BlockStateTransformTable get(Transform transform) {
+        if (!(transform instanceof AffineTransform)) {
+            return null;
+        }
+        LastLookup last = lastLookup;
+        if (last != null && last.transform == transform) {
+            return last.table;
+        }
+        BlockStateTransformTable table = TABLES.getUnchecked(new TransformKey((AffineTransform) transform));
+        lastLookup = new LastLookup(transform, table);
+        return table;
+    }
+
+    private final Transform transform;
+    /**
+     * Pairs of (state, transformed state) at {@code 2 * id}, so that an entry
+     * left over from an earlier ID assignment is never used.
+     */
+    private volatile BlockState[] entries = new BlockState[0];
+
+    private BlockStateTransformTable(Transform transform) {
+        this.transform = transform;
+    }
+
+    /**
+     * Transform a block, in the same way as
+     * {@link BlockTransformExtent#transform(BlockStateHolder, Transform)}.
+     *
+     * @param block the block
+     * @return the transformed block
+     */
+    @SuppressWarnings("unchecked")
+    <B extends BlockStateHolder<B>> B apply(B block) {
+        if (block.getClass() == BlockState.class) {
+            return (B) apply((BlockState) block);
+        }
+        if (block.getClass() == BaseBlock.class) {
+            BaseBlock baseBlock = (BaseBlock) block;
+            BlockState state = baseBlock.toImmutableState();
+            BlockState transformed = apply(state);
+            return transformed == state ? block : (B) transformed.toBaseBlock(baseBlock.getNbtData());
+        }
+        return BlockTransformExtent.transformProperties(block, transform);
+    }
+
+    private BlockState apply(BlockState state) {
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (!BlockStateIdAccess.isValidInternalId(id)) {
+            return BlockTransformExtent.transformProperties(state, transform);
+        }
+        BlockState[] entries = this.entries;
+        int index = id * 2;
+        if (index < entries.length && entries[index] == state) {
+            BlockState transformed = entries[index + 1];
+            if (transformed != null) {
+                return transformed;
+            }
+        }
+        BlockState transformed = BlockTransformExtent.transformProperties(state, transform);
+        store(index, state, transformed);
+        return transformed;
+    }
+
+    private synchronized void store(int index, BlockState state, BlockState transformed) {
+        BlockState[] entries = this.entries;
+        if (index >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(index + 2, entries.length * 2));
+        }
+        // a reader seeing the state before the result just works it out again
+        entries[index + 1] = transformed;
+        entries[index] = state;
+        this.entries = entries;
+    }
+
+    private static final class LastLookup {
+
+        private final Transform transform;
+        private final BlockStateTransformTable table;
+
+        private LastLookup(Transform transform, BlockStateTransformTable table) {
+            this.transform = transform;
+            this.table = table;
+        }
+
+    }
+
+    private static final class TransformKey {
+
+        private final AffineTransform transform;
+        private final double[] coefficients;
+        private final int hashCode;
+
+        private TransformKey(AffineTransform transform) {
+            this.transform = transform;
+            this.coefficients = transform.coefficients();
+            this.hashCode = Arrays.hashCode(coefficients);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TransformKey && Arrays.equals(coefficients, ((TransformKey) o).coefficients);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
@@ -55,6 +55,12 @@
 public class BlockTransformExtent extends AbstractDelegateExtent {
 
     private final Transform transform;
+    @Nullable
+    private final BlockStateTransformTable table;
+    @Nullable
+    private Transform inverse;
+    @Nullable
+    private BlockStateTransformTable inverseTable;
 
     /**
      * Create a new instance.
@@ -65,6 +71,7 @@ public BlockTransformExtent(Extent extent, Transform transform) {
         super(extent);
         checkNotNull(transform);
         this.transform = transform;
+        this.table = BlockStateTransformTable.get(transform);
     }
 
     /**
@@ -84,7 +91,14 @@ public Transform getTransform() {
      * @return the same block
      */
     private <T extends BlockStateHolder<T>> T transformBlock(T block, boolean reverse) {
-        return transform(block, reverse ? transform.inverse() : transform);
+        if (!reverse) {
+            return table != null ? table.apply(block) : transformProperties(block, transform);
+        }
+        if (inverse == null) {
+            inverseTable = BlockStateTransformTable.get(transform.inverse());
+            inverse = transform.inverse();
+        }
+        return inverseTable != null ? inverseTable.apply(block) : transformProperties(block, inverse);
     }
 
     @Override
@@ -117,6 +131,19 @@ public static <B extends BlockStateHolder<B>> B transform(B block, Transform tra
         checkNotNull(block);
         checkNotNull(transform);
 
+        BlockStateTransformTable table = BlockStateTransformTable.get(transform);
+        return table != null ? table.apply(block) : transformProperties(block, transform);
+    }
+
+    /**
+     * Transform the properties of the given block, without using a
+     * {@link BlockStateTransformTable}.
+     *
+     * @param block the block
+     * @param transform the transform
+     * @return the same block
+     */
+    static <B extends BlockStateHolder<B>> B transformProperties(B block, Transform transform) {
         B result = block;
         List<? extends Property<?>> properties = block.getBlockType().getProperties();
 
@@ -30,6 +30,8 @@
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.block.BlockTypes;
 
+import javax.annotation.Nullable;
+
 /**
  * Handles various quirks when setting blocks, such as ice turning
  * into water or containers dropping their contents.
@@ -37,6 +39,8 @@
 public class BlockQuirkExtent extends AbstractDelegateExtent {
 
     private final World world;
+    @Nullable
+    private final SideEffectExtent pending;
 
     /**
      * Create a new instance.
@@ -45,15 +49,31 @@ public class BlockQuirkExtent extends AbstractDelegateExtent {
      * @param world the world
      */
     public BlockQuirkExtent(Extent extent, World world) {
+        this(extent, world, null);
+    }
+
+    /**
+     * Create a new instance, which sets the blocks waiting in the given
+     * extent before it changes a block in the world directly.
+     *
+     * @param extent the extent
+     * @param world the world
+     * @param pending the extent that blocks wait in before reaching the world, or null
+     */
+    public BlockQuirkExtent(Extent extent, World world, @Nullable SideEffectExtent pending) {
         super(extent);
         checkNotNull(world);
         this.world = world;
+        this.pending = pending;
     }
 
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
         BlockType existing = getExtent().getBlock(position).getBlockType();
 
+        if (pending != null && (existing.getMaterial().hasContainer() || existing == BlockTypes.ICE)) {
+            pending.flushPending(position);
+        }
         if (existing.getMaterial().hasContainer()) {
             world.clearContainerBlockContents(position); // Clear the container block so that it doesn't drop items
         } else if (existing == BlockTypes.ICE) {
@@ -24,18 +24,32 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Automatically loads chunks when blocks are accessed.
+ *
+ * <p>Each chunk is only checked the first time one of its blocks is set
+ * after each {@linkplain #commit() commit}, since the world may unload it
+ * once the changes so far have been flushed. Chunks that are known ahead of
+ * time can be {@linkplain #preload(Collection) preloaded}, so that the check
+ * finds them already loaded.</p>
  */
 public class ChunkLoadingExtent extends AbstractDelegateExtent {
 
     private final World world;
+    private final LongSet checkedChunks = new LongOpenHashSet();
     private boolean enabled;
 
     /**
@@ -62,10 +76,47 @@ public ChunkLoadingExtent(Extent extent, World world) {
         this(extent, world, true);
     }
 
+    private static long toChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Start loading chunks that are about to be changed, if the world
+     * supports loading them in the background.
+     *
+     * @param chunks the chunks
+     */
+    public void preload(Collection<BlockVector2> chunks) {
+        if (!enabled) {
+            return;
+        }
+        List<BlockVector2> unchecked = new ArrayList<>();
+        for (BlockVector2 chunk : chunks) {
+            if (!checkedChunks.contains(toChunkKey(chunk.getBlockX(), chunk.getBlockZ()))) {
+                unchecked.add(chunk);
+            }
+        }
+        if (!unchecked.isEmpty()) {
+            world.preloadChunks(unchecked);
+        }
+    }
+
+    private void checkLoadedChunk(BlockVector3 location) {
+        if (checkedChunks.add(toChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4))) {
+            world.checkLoadedChunk(location);
+        }
+    }
+
+    @Override
+    protected Operation commitBefore() {
+        checkedChunks.clear();
+        return null;
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         if (enabled) {
-            world.checkLoadedChunk(location);
+            checkLoadedChunk(location);
         }
         return super.setBlock(location, block);
     }
@@ -73,7 +124,7 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
     @Override
     public boolean setBiome(BlockVector2 position, BiomeType biome) {
         if (enabled) {
-            world.checkLoadedChunk(position.toBlockVector3());
+            checkLoadedChunk(position.toBlockVector3());
         }
         return super.setBiome(position, biome);
     }
@@ -30,7 +30,9 @@
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
 import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.util.collection.SectionBlockBatch;
 import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
@@ -41,14 +43,28 @@
 
 /**
  * An extent that sets blocks in the world, with a {@link SideEffectSet}.
+ *
+ * <p>Consecutive blocks in the same chunk section are collected and set
+ * with {@link World#setBlocks(SectionBlockBatch, SideEffectSet)}, which
+ * defers lighting and neighbour notification to the end of the section.
+ * Blocks collected but not yet set are visible through this extent, and
+ * are set at the latest when the extent is committed.</p>
+ *
+ * <p>As the world is only changed later, {@link #setBlock(BlockVector3, BlockStateHolder)}
+ * returns true for every block it collects, without reading the block it
+ * replaces. The number of blocks that did change is counted when they are
+ * set, and is available from {@link #getChangedBlockCount()}.</p>
  */
 public class SideEffectExtent extends AbstractDelegateExtent {
 
     private final World world;
     private final Map<BlockVector3, BlockState> positions = BlockMap.create();
     private final Set<BlockVector2> dirtyChunks = new HashSet<>();
+    private final SectionBlockBatch batch = new SectionBlockBatch();
     private SideEffectSet sideEffectSet = SideEffectSet.defaults();
+    private SideEffectSet batchSideEffects = sideEffectSet;
     private boolean postEditSimulation;
+    private int changedBlocks;
 
     /**
      * Create a new instance.
@@ -83,14 +99,86 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
             dirtyChunks.add(BlockVector2.at(location.getBlockX() >> 4, location.getBlockZ() >> 4));
         }
         if (postEditSimulation) {
+            flushBatch();
             positions.put(location, world.getBlock(location));
+            boolean changed = world.setBlock(location, block, SideEffectSet.none());
+            if (changed) {
+                changedBlocks++;
+            }
+            return changed;
+        }
+
+        if (!batch.isEmpty() && (!batch.isInSection(location) || batchSideEffects != sideEffectSet)) {
+            flushBatch();
+        }
+        if (batch.isEmpty()) {
+            batch.reset(location.getBlockX() >> 4, location.getBlockY() >> 4, location.getBlockZ() >> 4);
+            batchSideEffects = sideEffectSet;
         }
+        batch.put(location, block);
+        return true;
+    }
+
+    /**
+     * Get the number of blocks that have changed in the world, which does
+     * not include blocks that are still waiting to be set.
+     *
+     * @return the number of changed blocks
+     */
+    public int getChangedBlockCount() {
+        return changedBlocks;
+    }
 
-        return world.setBlock(location, block, postEditSimulation ? SideEffectSet.none() : sideEffectSet);
+    /**
+     * Set the blocks waiting to be set, if one of them is at the given
+     * position, so that the world can be changed there directly.
+     *
+     * @param position the position
+     * @throws WorldEditException thrown on an error
+     */
+    public void flushPending(BlockVector3 position) throws WorldEditException {
+        if (batch.get(position) != null) {
+            flushBatch();
+        }
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        BaseBlock block = batch.get(position);
+        return block != null ? block.toImmutableState() : super.getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        BaseBlock block = batch.get(position);
+        return block != null ? block : super.getFullBlock(position);
+    }
+
+    @Override
+    public void getBlockColumn(int x, int z, int minY, int maxY, BlockState[] blocks) {
+        world.getBlockColumn(x, z, minY, maxY, blocks);
+        if (batch.isEmpty() || x >> 4 != batch.getSectionX() || z >> 4 != batch.getSectionZ()) {
+            return;
+        }
+        int sectionMinY = batch.getSectionY() << 4;
+        int top = Math.min(maxY, sectionMinY + 15);
+        for (int y = Math.max(minY, sectionMinY); y <= top; y++) {
+            BaseBlock block = batch.get(BlockVector3.at(x, y, z));
+            if (block != null) {
+                blocks[y - minY] = block.toImmutableState();
+            }
+        }
+    }
+
+    private void flushBatch() throws WorldEditException {
+        if (!batch.isEmpty()) {
+            changedBlocks += world.setBlocks(batch, batchSideEffects);
+            batch.clear();
+        }
     }
 
     public boolean commitRequired() {
-        return postEditSimulation || !dirtyChunks.isEmpty();
+        return postEditSimulation || !dirtyChunks.isEmpty() || !batch.isEmpty();
     }
 
     @Override
@@ -101,6 +189,7 @@ protected Operation commitBefore() {
         return new Operation() {
             @Override
             public Operation resume(RunContext run) throws WorldEditException {
+                flushBatch();
                 if (!dirtyChunks.isEmpty()) {
                     world.fixAfterFastMode(dirtyChunks);
                 }
@@ -28,6 +28,8 @@
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
+import javax.annotation.Nullable;
+
 /**
  * Makes changes to the world as if a player had done so during survival mode.
  *
@@ -39,6 +41,8 @@
 public class SurvivalModeExtent extends AbstractDelegateExtent {
 
     private final World world;
+    @Nullable
+    private final SideEffectExtent pending;
     private boolean toolUse = false;
     private boolean stripNbt = false;
 
@@ -49,9 +53,22 @@ public class SurvivalModeExtent extends AbstractDelegateExtent {
      * @param world the world
      */
     public SurvivalModeExtent(Extent extent, World world) {
+        this(extent, world, null);
+    }
+
+    /**
+     * Create a new instance, which sets the blocks waiting in the given
+     * extent before it mines a block in the world.
+     *
+     * @param extent the extent
+     * @param world the world
+     * @param pending the extent that blocks wait in before reaching the world, or null
+     */
+    public SurvivalModeExtent(Extent extent, World world, @Nullable SideEffectExtent pending) {
         super(extent);
         checkNotNull(world);
         this.world = world;
+        this.pending = pending;
     }
 
     /**
@@ -90,6 +107,9 @@ public void setStripNbt(boolean stripNbt) {
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         if (toolUse && block.getBlockType().getMaterial().isAir()) {
+            if (pending != null) {
+                pending.flushPending(location);
+            }
             world.simulateBlockMine(location);
             return true;
         } else {
@@ -23,6 +23,7 @@
 
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.LayerFunction;
 import com.sk89q.worldedit.function.mask.BlockTypeMask;
 import com.sk89q.worldedit.function.mask.Mask;
@@ -38,6 +39,7 @@
 public class Naturalizer implements LayerFunction {
 
     private final EditSession editSession;
+    private final Extent extent;
     private final Mask mask;
     private int affected = 0;
 
@@ -47,9 +49,23 @@ public class Naturalizer implements LayerFunction {
      * @param editSession an edit session
      */
     public Naturalizer(EditSession editSession) {
+        this(editSession, editSession);
+    }
+
+    /**
+     * Make a new naturalizer that reads blocks from another extent, such as
+     * a {@link com.sk89q.worldedit.extent.cache.LastColumnExtentCache} over
+     * the edit session.
+     *
+     * @param editSession an edit session to set blocks in
+     * @param extent the extent to read blocks from
+     */
+    public Naturalizer(EditSession editSession, Extent extent) {
         checkNotNull(editSession);
+        checkNotNull(extent);
         this.editSession = editSession;
-        this.mask = new BlockTypeMask(editSession, BlockTypes.GRASS_BLOCK, BlockTypes.DIRT, BlockTypes.STONE);
+        this.extent = extent;
+        this.mask = new BlockTypeMask(extent, BlockTypes.GRASS_BLOCK, BlockTypes.DIRT, BlockTypes.STONE);
     }
 
     /**
@@ -80,7 +96,7 @@ private BlockState getTargetBlock(int depth) {
     }
 
     private boolean naturalize(BlockVector3 position, int depth) throws WorldEditException {
-        BlockState block = editSession.getBlock(position);
+        BlockState block = extent.getBlock(position);
         BlockState targetBlock = getTargetBlock(depth);
 
         if (block.equalsFuzzy(targetBlock)) {
@@ -33,16 +33,18 @@
 public class BlockCategoryMask extends AbstractExtentMask {
 
     private BlockCategory category;
+    private final BlockStateIdFilter filter;
 
     public BlockCategoryMask(Extent extent, BlockCategory category) {
         super(extent);
         checkNotNull(category);
         this.category = category;
+        this.filter = new BlockStateIdFilter(category::getAll, category::contains);
     }
 
     @Override
     public boolean test(BlockVector3 vector) {
-        return category.contains(getExtent().getBlock(vector));
+        return filter.test(getExtent().getBlock(vector));
     }
 
     @Nullable
@@ -28,8 +28,8 @@
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -39,10 +39,16 @@
  *
  * <p>This mask checks for both an exact block type and state value match,
  * respecting fuzzy status of the BlockState.</p>
+ *
+ * <p>The list is compiled into the set of matching state IDs the first time
+ * it is tested with.</p>
  */
 public class BlockMask extends AbstractExtentMask {
 
-    private final Set<BaseBlock> blocks = new HashSet<>();
+    private final Set<BaseBlock> blocks = new InvalidatingSet<>(this::invalidate);
+    private final BlockStateIdFilter filter = new BlockStateIdFilter(
+        () -> blocks.stream().map(BaseBlock::getBlockType).collect(Collectors.toSet()),
+        this::matches);
 
     /**
      * Create a new block mask.
@@ -88,15 +94,24 @@ public void add(BaseBlock... block) {
     /**
      * Get the list of blocks that are tested with.
      *
+     * <p>Changes to the list are used from the next test on.</p>
+     *
      * @return a list of blocks
      */
     public Collection<BaseBlock> getBlocks() {
         return blocks;
     }
 
+    private void invalidate() {
+        filter.invalidate();
+    }
+
     @Override
     public boolean test(BlockVector3 vector) {
-        BlockState block = getExtent().getBlock(vector);
+        return filter.test(getExtent().getBlock(vector));
+    }
+
+    private boolean matches(BlockState block) {
         for (BaseBlock testBlock : blocks) {
             if (testBlock.equalsFuzzy(block)) {
                 return true;
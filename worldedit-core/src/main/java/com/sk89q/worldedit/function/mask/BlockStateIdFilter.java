@@ -0,0 +1,144 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Tests block states against a mask's criteria, which are compiled into a
+ * bitset over internal state IDs the first time they are needed.
+ *
+ * <p>The bitset covers every internal ID in use when it is compiled. Only
+ * the states of the candidate types are tested against the criteria; every
+ * other state in that range does not match. States without a valid internal
+ * ID, or with one given out after compiling, are checked against the
+ * criteria directly.</p>
+ */
+final class BlockStateIdFilter {
+
+    @Nullable
+    private final Supplier<? extends Collection<BlockType>> candidates;
+    private final Predicate<BlockState> criteria;
+    @Nullable
+    private volatile Compiled compiled;
+
+    /**
+     * Create a new filter for which any state may match.
+     *
+     * @param criteria the criteria that states must match
+     */
+    BlockStateIdFilter(Predicate<BlockState> criteria) {
+        this.candidates = null;
+        this.criteria = criteria;
+    }
+
+    /**
+     * Create a new filter.
+     *
+     * @param candidates supplies the types whose states may match
+     * @param criteria the criteria that states must match
+     */
+    BlockStateIdFilter(Supplier<? extends Collection<BlockType>> candidates, Predicate<BlockState> criteria) {
+        this.candidates = candidates;
+        this.criteria = criteria;
+    }
+
+    /**
+     * Test whether a state matches the criteria.
+     *
+     * @param state the state
+     * @return true if matched
+     */
+    boolean test(BlockState state) {
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (!BlockStateIdAccess.isValidInternalId(id)) {
+            return criteria.test(state);
+        }
+        Compiled compiled = this.compiled;
+        if (compiled == null) {
+            compiled = compile();
+        }
+        if (id >= compiled.range) {
+            return criteria.test(state);
+        }
+        return (compiled.matches[id >>> 6] & (1L << id)) != 0;
+    }
+
+    private synchronized Compiled compile() {
+        Compiled compiled = this.compiled;
+        if (compiled == null) {
+            int range = BlockStateIdAccess.getIdRange();
+            long[] matches = new long[(range + 63) >>> 6];
+            if (candidates == null) {
+                for (int id = 0; id < range; id++) {
+                    BlockState state = BlockStateIdAccess.getBlockStateById(id);
+                    if (state != null && criteria.test(state)) {
+                        matches[id >>> 6] |= 1L << id;
+                    }
+                }
+            } else {
+                for (BlockType type : candidates.get()) {
+                    for (BlockState state : type.getAllStates()) {
+                        int id = BlockStateIdAccess.getBlockStateId(state);
+                        if (BlockStateIdAccess.isValidInternalId(id) && id < range && criteria.test(state)) {
+                            matches[id >>> 6] |= 1L << id;
+                        }
+                    }
+                }
+            }
+            compiled = new Compiled(matches, range);
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Discard the compiled form, so that changed criteria are used.
+     */
+    synchronized void invalidate() {
+        compiled = null;
+    }
+
+    private static final class Compiled {
+
+        /**
+         * One bit per state ID, set if the state matches.
+         */
+        private final long[] matches;
+        /**
+         * One more than the highest internal ID in use when compiled.
+         */
+        private final int range;
+
+        private Compiled(long[] matches, int range) {
+            this.matches = matches;
+            this.range = range;
+        }
+    }
+
+}
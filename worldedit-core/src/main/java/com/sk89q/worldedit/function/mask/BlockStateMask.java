@@ -35,6 +35,7 @@ public class BlockStateMask extends AbstractExtentMask {
     private final Map<String, String> states;
     private final boolean strict;
     private Map<BlockType, Map<Property<Object>, Object>> cache = Maps.newHashMap();
+    private final BlockStateIdFilter filter = new BlockStateIdFilter(this::matches);
 
     /**
      * Creates a mask that checks if a given block has the desired properties set to the desired value.
@@ -52,7 +53,10 @@ public BlockStateMask(Extent extent, Map<String, String> states, boolean strict)
 
     @Override
     public boolean test(BlockVector3 vector) {
-        BlockState block = getExtent().getBlock(vector);
+        return filter.test(getExtent().getBlock(vector));
+    }
+
+    private synchronized boolean matches(BlockState block) {
         final Map<Property<Object>, Object> checkProps = cache
                 .computeIfAbsent(block.getBlockType(), (b -> Blocks.resolveProperties(states, b)));
         if (strict && checkProps.isEmpty()) {
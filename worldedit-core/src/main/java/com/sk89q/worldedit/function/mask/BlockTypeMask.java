@@ -27,7 +27,6 @@
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -41,7 +40,9 @@
  */
 public class BlockTypeMask extends AbstractExtentMask {
 
-    private final Set<BlockType> blocks = new HashSet<>();
+    private final Set<BlockType> blocks = new InvalidatingSet<>(this::invalidate);
+    private final BlockStateIdFilter filter = new BlockStateIdFilter(() -> blocks,
+        state -> blocks.contains(state.getBlockType()));
 
     /**
      * Create a new block mask.
@@ -87,15 +88,21 @@ public void add(BlockType... block) {
     /**
      * Get the list of blocks that are tested with.
      *
+     * <p>Changes to the list are used from the next test on.</p>
+     *
      * @return a list of blocks
      */
     public Collection<BlockType> getBlocks() {
         return blocks;
     }
 
+    private void invalidate() {
+        filter.invalidate();
+    }
+
     @Override
     public boolean test(BlockVector3 vector) {
-        return blocks.contains(getExtent().getBlock(vector).getBlockType());
+        return filter.test(getExtent().getBlock(vector));
     }
 
     @Nullable
@@ -0,0 +1,112 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.ForwardingSet;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A set that runs a callback whenever it is changed, so that a mask can
+ * hand out its criteria for changing and still know to compile them again.
+ *
+ * @param <E> the type of element
+ */
+final class InvalidatingSet<E> extends ForwardingSet<E> {
+
+    private final Set<E> delegate = new HashSet<>();
+    private final Runnable onChange;
+
+    /**
+     * Create a new, empty set.
+     *
+     * @param onChange run after each change
+     */
+    InvalidatingSet(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    @Override
+    protected Set<E> delegate() {
+        return delegate;
+    }
+
+    private boolean changed(boolean changed) {
+        if (changed) {
+            onChange.run();
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean add(E element) {
+        return changed(super.add(element));
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        return changed(super.addAll(collection));
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        return changed(super.remove(object));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        return changed(super.removeAll(collection));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        return changed(super.retainAll(collection));
+    }
+
+    @Override
+    public void clear() {
+        boolean changed = !isEmpty();
+        super.clear();
+        changed(changed);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> iterator = super.iterator();
+        return new ForwardingIterator<E>() {
+            @Override
+            protected Iterator<E> delegate() {
+                return iterator;
+            }
+
+            @Override
+            public void remove() {
+                super.remove();
+                onChange.run();
+            }
+        };
+    }
+
+}
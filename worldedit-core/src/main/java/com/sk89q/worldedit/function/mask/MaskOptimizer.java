@@ -0,0 +1,174 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites masks into equivalent masks that are cheaper to test.
+ *
+ * @see Masks#optimize(Mask)
+ */
+final class MaskOptimizer {
+
+    /*
+     * Rough costs of testing a mask once. Masks that don't read the world are
+     * cheapest, and also bound the tested region, so they go first.
+     */
+    private static final int CONSTANT_COST = 0;
+    private static final int BOUNDS_COST = 1;
+    private static final int BLOCK_COST = 10;
+    private static final int UNKNOWN_COST = 20;
+    private static final int NOISE_COST = 50;
+    private static final int EXPRESSION_COST = 100;
+
+    private MaskOptimizer() {
+    }
+
+    static Mask optimize(Mask mask) {
+        if (mask.getClass() == MaskIntersection.class) {
+            return optimizeIntersection((MaskIntersection) mask);
+        } else if (mask.getClass() == MaskUnion.class) {
+            return optimizeUnion((MaskUnion) mask);
+        } else if (mask instanceof Masks.NegatedMask) {
+            return Masks.negate(optimize(((Masks.NegatedMask) mask).getMask()));
+        } else if (mask.getClass() == OffsetMask.class) {
+            OffsetMask offsetMask = (OffsetMask) mask;
+            Mask inner = optimize(offsetMask.getMask());
+            return inner == offsetMask.getMask() ? mask : new OffsetMask(inner, offsetMask.getOffset());
+        }
+        return mask;
+    }
+
+    private static Mask optimizeIntersection(MaskIntersection intersection) {
+        if (intersection.getMasks().isEmpty()) {
+            // an empty intersection matches nothing
+            return Masks.alwaysFalse();
+        }
+        List<Mask> masks = new ArrayList<>();
+        for (Mask child : intersection.getMasks()) {
+            Mask optimized = optimize(child);
+            if (optimized == Masks.alwaysFalse()) {
+                return optimized;
+            } else if (optimized.getClass() == MaskIntersection.class) {
+                masks.addAll(((MaskIntersection) optimized).getMasks());
+            } else if (optimized != Masks.alwaysTrue()) {
+                masks.add(optimized);
+            }
+        }
+        if (masks.isEmpty()) {
+            return Masks.alwaysTrue();
+        } else if (masks.size() == 1) {
+            return masks.get(0);
+        }
+        masks.sort(Comparator.comparingInt(MaskOptimizer::estimateCost));
+        return new MaskIntersection(masks);
+    }
+
+    private static Mask optimizeUnion(MaskUnion union) {
+        List<Mask> masks = new ArrayList<>();
+        for (Mask child : union.getMasks()) {
+            Mask optimized = optimize(child);
+            if (optimized == Masks.alwaysTrue()) {
+                return optimized;
+            } else if (optimized.getClass() == MaskUnion.class) {
+                masks.addAll(((MaskUnion) optimized).getMasks());
+            } else if (optimized != Masks.alwaysFalse()) {
+                masks.add(optimized);
+            }
+        }
+        masks = mergeBlockMasks(masks);
+        if (masks.isEmpty()) {
+            return Masks.alwaysFalse();
+        } else if (masks.size() == 1) {
+            return masks.get(0);
+        }
+        masks.sort(Comparator.comparingInt(MaskOptimizer::estimateCost));
+        return new MaskUnion(masks);
+    }
+
+    /**
+     * Merge the block type and block masks of a union that test the same
+     * extent, so that each extent is only read once.
+     *
+     * @param masks the masks of the union
+     * @return the merged masks
+     */
+    private static List<Mask> mergeBlockMasks(List<Mask> masks) {
+        Map<Extent, Set<BlockType>> types = new IdentityHashMap<>();
+        Map<Extent, Set<BaseBlock>> blocks = new IdentityHashMap<>();
+        List<Mask> merged = new ArrayList<>();
+        for (Mask mask : masks) {
+            if (mask.getClass() == BlockTypeMask.class) {
+                BlockTypeMask typeMask = (BlockTypeMask) mask;
+                types.computeIfAbsent(typeMask.getExtent(), extent -> new LinkedHashSet<>())
+                    .addAll(typeMask.getBlocks());
+            } else if (mask.getClass() == BlockMask.class) {
+                BlockMask blockMask = (BlockMask) mask;
+                blocks.computeIfAbsent(blockMask.getExtent(), extent -> new LinkedHashSet<>())
+                    .addAll(blockMask.getBlocks());
+            } else {
+                merged.add(mask);
+            }
+        }
+        types.forEach((extent, typeSet) -> merged.add(new BlockTypeMask(extent, typeSet)));
+        blocks.forEach((extent, blockSet) -> merged.add(new BlockMask(extent, blockSet)));
+        return merged;
+    }
+
+    private static int estimateCost(Mask mask) {
+        if (mask == Masks.alwaysTrue() || mask == Masks.alwaysFalse()) {
+            return CONSTANT_COST;
+        } else if (mask instanceof RegionMask || mask instanceof BoundedHeightMask) {
+            return BOUNDS_COST;
+        } else if (mask instanceof Masks.NegatedMask) {
+            return estimateCost(((Masks.NegatedMask) mask).getMask());
+        } else if (mask instanceof OffsetMask) {
+            return estimateCost(((OffsetMask) mask).getMask()) + 1;
+        } else if (mask instanceof MaskIntersection) {
+            int cost = 0;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                cost += estimateCost(child);
+            }
+            return cost;
+        } else if (mask instanceof BlockMask || mask instanceof BlockTypeMask
+                || mask instanceof BlockStateMask || mask instanceof BlockCategoryMask
+                || mask instanceof ExistingBlockMask || mask instanceof SolidBlockMask) {
+            return BLOCK_COST;
+        } else if (mask instanceof NoiseFilter) {
+            return NOISE_COST;
+        } else if (mask instanceof ExpressionMask) {
+            return EXPRESSION_COST;
+        }
+        return UNKNOWN_COST;
+    }
+
+}
@@ -55,6 +55,35 @@ public static Mask2D alwaysTrue2D() {
         return ALWAYS_TRUE;
     }
 
+    /**
+     * Return a 3D mask that always returns false.
+     *
+     * @return a mask
+     */
+    static Mask alwaysFalse() {
+        return ALWAYS_FALSE;
+    }
+
+    /**
+     * Optimize a mask, so that it is cheaper to test but matches the same
+     * positions.
+     *
+     * <p>Nested intersections and unions are flattened, constant and doubly
+     * negated masks are removed, block type masks in a union are merged,
+     * and the masks in an intersection or union are ordered so that cheap,
+     * region-bounded masks are tested first.</p>
+     *
+     * <p>Intersections and unions are copied, so changing the optimized mask
+     * does not change the given one.</p>
+     *
+     * @param mask the mask
+     * @return an optimized mask, which may be the given mask
+     */
+    public static Mask optimize(Mask mask) {
+        checkNotNull(mask);
+        return MaskOptimizer.optimize(mask);
+    }
+
     /**
      * Negate the given mask.
      *
@@ -69,23 +98,10 @@ public static Mask negate(final Mask mask) {
         }
 
         checkNotNull(mask);
-        return new AbstractMask() {
-            @Override
-            public boolean test(BlockVector3 vector) {
-                return !mask.test(vector);
-            }
-
-            @Nullable
-            @Override
-            public Mask2D toMask2D() {
-                Mask2D mask2d = mask.toMask2D();
-                if (mask2d != null) {
-                    return negate(mask2d);
-                } else {
-                    return null;
-                }
-            }
-        };
+        if (mask instanceof NegatedMask) {
+            return ((NegatedMask) mask).mask;
+        }
+        return new NegatedMask(mask);
     }
 
     /**
@@ -131,6 +147,42 @@ public Mask2D toMask2D() {
         };
     }
 
+    /**
+     * A mask that matches where another mask doesn't.
+     */
+    static final class NegatedMask extends AbstractMask {
+        private final Mask mask;
+
+        private NegatedMask(Mask mask) {
+            this.mask = mask;
+        }
+
+        /**
+         * Get the mask that is negated.
+         *
+         * @return the mask
+         */
+        Mask getMask() {
+            return mask;
+        }
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            return !mask.test(vector);
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            Mask2D mask2d = mask.toMask2D();
+            if (mask2d != null) {
+                return negate(mask2d);
+            } else {
+                return null;
+            }
+        }
+    }
+
     private static class AlwaysTrue implements Mask, Mask2D {
         @Override
         public boolean test(BlockVector3 vector) {
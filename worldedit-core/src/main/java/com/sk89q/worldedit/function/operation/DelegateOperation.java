@@ -24,6 +24,8 @@
 import com.google.common.collect.Iterables;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
 
 import java.util.Collection;
 import java.util.List;
@@ -32,7 +34,7 @@
  * Executes a delegete operation, but returns to another operation upon
  * completing the delegate.
  */
-public class DelegateOperation implements Operation {
+public class DelegateOperation implements Operation, ProgressObservable {
 
     private final Operation original;
     private Operation delegate;
@@ -56,6 +58,14 @@ public Operation resume(RunContext run) throws WorldEditException {
         return delegate != null ? this : original;
     }
 
+    @Override
+    public Progress getProgress() {
+        Operation operation = delegate;
+        return operation instanceof ProgressObservable
+            ? ((ProgressObservable) operation).getProgress()
+            : Progress.indeterminate();
+    }
+
     @Override
     public void cancel() {
         delegate.cancel();
@@ -25,6 +25,8 @@
 import com.google.common.collect.Lists;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
 
 import java.util.ArrayDeque;
 import java.util.Collection;
@@ -35,7 +37,7 @@
 /**
  * Executes multiple queues in order.
  */
-public class OperationQueue implements Operation {
+public class OperationQueue implements Operation, ProgressObservable {
 
     private final List<Operation> operations = Lists.newArrayList();
     private final Deque<Operation> queue = new ArrayDeque<>();
@@ -88,19 +90,34 @@ public Operation resume(RunContext run) throws WorldEditException {
             current = queue.poll();
         }
 
-        if (current != null) {
+        while (current != null) {
             current = current.resume(run);
 
             if (current == null) {
                 current = queue.poll();
             }
+
+            if (!run.shouldContinue()) {
+                break;
+            }
         }
 
         return current != null ? this : null;
     }
 
+    @Override
+    public Progress getProgress() {
+        Operation operation = current;
+        return operation instanceof ProgressObservable
+            ? ((ProgressObservable) operation).getProgress()
+            : Progress.indeterminate();
+    }
+
     @Override
     public void cancel() {
+        if (current != null) {
+            current.cancel();
+        }
         for (Operation operation : queue) {
             operation.cancel();
         }
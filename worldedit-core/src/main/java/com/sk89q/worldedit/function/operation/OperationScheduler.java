@@ -0,0 +1,276 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.NoCapablePlatformException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.task.AbstractTask;
+import com.sk89q.worldedit.util.task.Task;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs operations a slice at a time on the server thread, so that large
+ * operations are spread over several ticks instead of stalling one.
+ *
+ * <p>Every tick, the running operations are resumed in turn with a
+ * {@link TimedRunContext} until the configured
+ * {@link com.sk89q.worldedit.LocalConfiguration#operationTickBudget} is
+ * used up. The operation that was interrupted moves to the back of the line,
+ * so that one large operation does not hold up the others.</p>
+ *
+ * <p>Operations are only spread out if they honor
+ * {@link RunContext#shouldContinue()}. Any {@code EditSession} used by an
+ * operation must be flushed by the caller once its task completes, for
+ * example with {@link com.sk89q.worldedit.EditSession#flushSessionLater(Object)}.</p>
+ *
+ * <p>If no platform can schedule a repeating task, operations are run to
+ * completion as soon as they are submitted.</p>
+ */
+public class OperationScheduler {
+
+    private final WorldEdit worldEdit;
+    private final Queue<ScheduledOperation> submitted = new ConcurrentLinkedQueue<>();
+    private final Deque<ScheduledOperation> running = new ArrayDeque<>();
+    @Nullable
+    private Platform schedulingPlatform;
+    private int taskId = -1;
+    private boolean ticking;
+    private boolean unloading;
+
+    /**
+     * Create a new instance.
+     *
+     * @param worldEdit the WorldEdit instance
+     */
+    public OperationScheduler(WorldEdit worldEdit) {
+        checkNotNull(worldEdit);
+        this.worldEdit = worldEdit;
+    }
+
+    /**
+     * Submit an operation to be run over the next ticks.
+     *
+     * <p>The returned task is monitored by the
+     * {@linkplain WorldEdit#getSupervisor() supervisor}, and completes when
+     * the operation does. Cancelling the task cancels the operation at the
+     * start of the next slice.</p>
+     *
+     * @param operation the operation
+     * @param name the name of the task
+     * @param owner the owner of the task, or null
+     * @return the task
+     */
+    public Task<Void> submit(Operation operation, String name, @Nullable Object owner) {
+        checkNotNull(operation);
+        ScheduledOperation task = new ScheduledOperation(operation, name, owner);
+        worldEdit.getSupervisor().monitor(task);
+        submitted.add(task);
+        ensureScheduled();
+        return task;
+    }
+
+    /**
+     * Stop running operations on server ticks.
+     *
+     * <p>Operations that have not completed are cancelled. Operations that are
+     * submitted while they are cancelled, such as the flushing of an edit
+     * session, are run to completion before this method returns.</p>
+     */
+    public synchronized void unload() {
+        if (taskId != -1) {
+            if (schedulingPlatform != null) {
+                schedulingPlatform.cancelTask(taskId);
+            }
+            taskId = -1;
+            schedulingPlatform = null;
+        }
+
+        unloading = true;
+        try {
+            drainSubmitted();
+            for (ScheduledOperation task : new ArrayList<>(running)) {
+                task.cancel(false);
+            }
+            tick(Long.MAX_VALUE);
+        } finally {
+            unloading = false;
+        }
+    }
+
+    private synchronized void ensureScheduled() {
+        if (taskId == -1 && !unloading) {
+            scheduleTicks();
+        }
+        if (taskId == -1) {
+            // no scheduler, so run everything straight away
+            tick(Long.MAX_VALUE);
+        }
+    }
+
+    private void scheduleTicks() {
+        Platform platform;
+        try {
+            platform = worldEdit.getPlatformManager().queryCapability(Capability.GAME_HOOKS);
+        } catch (NoCapablePlatformException e) {
+            return;
+        }
+        taskId = platform.schedule(0, 1, this::tick);
+        if (taskId != -1) {
+            schedulingPlatform = platform;
+        }
+    }
+
+    private int drainSubmitted() {
+        int count = 0;
+        ScheduledOperation next;
+        while ((next = submitted.poll()) != null) {
+            running.addLast(next);
+            count++;
+        }
+        return count;
+    }
+
+    private void tick() {
+        tick(TimeUnit.MILLISECONDS.toNanos(Math.max(1, worldEdit.getConfiguration().operationTickBudget)));
+    }
+
+    private synchronized void tick(long budgetNanos) {
+        if (ticking) {
+            // operations submitted by a running operation are picked up by the running tick
+            return;
+        }
+        ticking = true;
+        try {
+            TimedRunContext context = new TimedRunContext(budgetNanos, TimeUnit.NANOSECONDS);
+            drainSubmitted();
+            int turns = running.size();
+            while (turns-- > 0) {
+                ScheduledOperation task = running.pollFirst();
+                if (!task.resume(context)) {
+                    running.addLast(task);
+                }
+                if (context.isExpired()) {
+                    break;
+                }
+                if (turns == 0) {
+                    // give operations submitted during this tick the rest of the budget
+                    turns = drainSubmitted();
+                }
+            }
+        } finally {
+            ticking = false;
+        }
+    }
+
+    private static final class ScheduledOperation extends AbstractTask<Void> {
+
+        @Nullable
+        private volatile Operation operation;
+        private volatile boolean started;
+
+        private ScheduledOperation(Operation operation, String name, @Nullable Object owner) {
+            super(name, owner);
+            this.operation = operation;
+        }
+
+        /**
+         * Run the operation until it completes or the context runs out.
+         *
+         * @param run the run context
+         * @return true if the task is finished
+         */
+        private boolean resume(RunContext run) {
+            Operation current = operation;
+            if (isCancelled()) {
+                if (current != null) {
+                    current.cancel();
+                    operation = null;
+                }
+                return true;
+            }
+
+            started = true;
+            try {
+                do {
+                    current = current.resume(run);
+                } while (current != null && run.shouldContinue());
+            } catch (Throwable t) {
+                operation = null;
+                setException(t);
+                return true;
+            }
+
+            operation = current;
+            if (current == null) {
+                set(null);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public State getState() {
+            if (isCancelled()) {
+                return State.CANCELLED;
+            } else if (isDone()) {
+                return doneState();
+            } else if (started) {
+                return State.RUNNING;
+            } else {
+                return State.SCHEDULED;
+            }
+        }
+
+        private State doneState() {
+            try {
+                get();
+                return State.SUCCEEDED;
+            } catch (Exception e) {
+                return State.FAILED;
+            }
+        }
+
+        @Override
+        public Progress getProgress() {
+            Operation current = operation;
+            if (isDone()) {
+                return Progress.completed();
+            } else if (current instanceof ProgressObservable) {
+                return ((ProgressObservable) current).getProgress();
+            } else {
+                return Progress.indeterminate();
+            }
+        }
+    }
+
+}
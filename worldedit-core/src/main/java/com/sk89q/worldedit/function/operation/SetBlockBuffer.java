@@ -0,0 +1,73 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.util.collection.ChunkBlockBuffer;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Sets the blocks of a {@link ChunkBlockBuffer} a chunk at a time, emptying
+ * the buffer as it goes.
+ *
+ * <p>Blocks added to the buffer while the operation is running are set
+ * before it completes.</p>
+ */
+public class SetBlockBuffer implements Operation {
+
+    private final Extent extent;
+    private final ChunkBlockBuffer blocks;
+    private long[] chunkOrder;
+    private int nextChunk;
+
+    public SetBlockBuffer(Extent extent, ChunkBlockBuffer blocks) {
+        this.extent = checkNotNull(extent);
+        this.blocks = checkNotNull(blocks);
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        do {
+            if (chunkOrder == null || nextChunk == chunkOrder.length) {
+                if (blocks.isEmpty()) {
+                    return null;
+                }
+                // the order is taken on resume, since blocks may be added after creation
+                chunkOrder = blocks.getChunkOrder();
+                nextChunk = 0;
+            }
+            blocks.flushChunk(chunkOrder[nextChunk++], extent::setBlock);
+        } while (run.shouldContinue());
+        return this;
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public void addStatusMessages(List<String> messages) {
+    }
+
+}
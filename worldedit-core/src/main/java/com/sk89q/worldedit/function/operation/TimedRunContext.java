@@ -0,0 +1,66 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RunContext} that asks operations to stop once a time budget has
+ * been used up.
+ *
+ * <p>The clock is only read every few calls to {@link #shouldContinue()}, so
+ * the budget may be overrun by a small amount of work.</p>
+ */
+public class TimedRunContext extends RunContext {
+
+    private static final int CHECK_INTERVAL = 64;
+
+    private final long deadline;
+    private int calls;
+    private boolean expired;
+
+    /**
+     * Create a new context whose budget starts now.
+     *
+     * @param budget the amount of time operations may run for
+     * @param unit the unit of {@code budget}
+     */
+    public TimedRunContext(long budget, TimeUnit unit) {
+        this.deadline = System.nanoTime() + unit.toNanos(budget);
+    }
+
+    @Override
+    public boolean shouldContinue() {
+        if (!expired && ++calls % CHECK_INTERVAL == 0) {
+            expired = System.nanoTime() - deadline >= 0;
+        }
+        return !expired;
+    }
+
+    /**
+     * Get whether the budget has been found to be used up.
+     *
+     * @return true if expired
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+}
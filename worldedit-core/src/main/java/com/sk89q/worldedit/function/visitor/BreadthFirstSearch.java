@@ -28,18 +28,20 @@
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.collection.BlockPositionSet;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
-import java.util.Set;
+
+import static com.sk89q.worldedit.math.BitMath.mask;
 
 /**
  * Performs a breadth-first search starting from points added with
@@ -51,12 +53,20 @@
  * <p>As an abstract implementation, this class can be used to implement
  * functionality that starts at certain points and extends outward from
  * those points.</p>
+ *
+ * <p>Visited positions are kept in a {@link BlockPositionSet}, and queued
+ * positions are packed into {@code long}s where possible, so that large
+ * searches use little memory.</p>
  */
 public abstract class BreadthFirstSearch implements Operation {
 
     private final RegionFunction function;
-    private final Queue<BlockVector3> queue = new ArrayDeque<>();
-    private final Set<BlockVector3> visited = new HashSet<>();
+    private static final long BITS_26 = mask(26);
+    private static final long BITS_12 = mask(12);
+
+    private final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+    private final Queue<BlockVector3> unpackableQueue = new ArrayDeque<>();
+    private final BlockPositionSet visited = new BlockPositionSet();
     private final List<BlockVector3> directions = new ArrayList<>();
     private int affected = 0;
 
@@ -124,9 +134,8 @@ protected void addDiagonal() {
      * @param position the position
      */
     public void visit(BlockVector3 position) {
-        if (!visited.contains(position)) {
-            queue.add(position);
-            visited.add(position);
+        if (visited.add(position)) {
+            enqueue(position);
         }
     }
 
@@ -134,17 +143,47 @@ public void visit(BlockVector3 position) {
      * Try to visit the given 'to' location.
      *
      * @param from the origin block
-     * @param to the block under question
+     * @param dir the offset of the block under question
      */
-    private void visit(BlockVector3 from, BlockVector3 to) {
-        if (!visited.contains(to)) {
-            visited.add(to);
+    private void visit(BlockVector3 from, BlockVector3 dir) {
+        int x = from.getX() + dir.getX();
+        int y = from.getY() + dir.getY();
+        int z = from.getZ() + dir.getZ();
+        if (visited.add(x, y, z)) {
+            BlockVector3 to = BlockVector3.at(x, y, z);
             if (isVisitable(from, to)) {
-                queue.add(to);
+                enqueue(to);
             }
         }
     }
 
+    private static boolean fitsBits(int value, int bits) {
+        return -(1 << (bits - 1)) <= value && value < (1 << (bits - 1));
+    }
+
+    private void enqueue(BlockVector3 position) {
+        int x = position.getX();
+        int y = position.getY();
+        int z = position.getZ();
+        if (fitsBits(x, 26) && fitsBits(z, 26) && fitsBits(y, 12)) {
+            // same layout as BlockVector3#toLongPackedForm, but allowing negative y
+            queue.enqueue((x & BITS_26) | ((z & BITS_26) << 26) | ((y & BITS_12) << (26 + 26)));
+        } else {
+            unpackableQueue.add(position);
+        }
+    }
+
+    private BlockVector3 poll() {
+        if (!queue.isEmpty()) {
+            return BlockVector3.fromLongPackedForm(queue.dequeueLong());
+        }
+        return unpackableQueue.poll();
+    }
+
+    private boolean isQueueEmpty() {
+        return queue.isEmpty() && unpackableQueue.isEmpty();
+    }
+
     /**
      * Return whether the given 'to' block should be visited, starting from the
      * 'from' block.
@@ -167,14 +206,18 @@ public int getAffected() {
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
         BlockVector3 position;
-        
-        while ((position = queue.poll()) != null) {
+
+        while ((position = poll()) != null) {
             if (function.apply(position)) {
                 affected++;
             }
 
             for (BlockVector3 dir : directions) {
-                visit(position, position.add(dir));
+                visit(position, dir);
+            }
+
+            if (!run.shouldContinue() && !isQueueEmpty()) {
+                return this;
             }
         }
 
@@ -26,19 +26,34 @@
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.iterator.RegionIterator;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+
+import java.util.Iterator;
 
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
+ *
+ * <p>Positions are visited a row at a time using
+ * {@link Region#forEachSpan(int, int, com.sk89q.worldedit.regions.SpanConsumer)},
+ * so regions that can work out their rows directly do not test every
+ * position in their bounding box.</p>
+ *
+ * <p>The visitor stops early when {@link RunContext#shouldContinue()} returns
+ * false, and continues from the same point when resumed.</p>
  */
-public class RegionVisitor implements Operation {
+public class RegionVisitor implements Operation, ProgressObservable {
 
     private final Region region;
     private final RegionFunction function;
+    private Iterator<BlockVector3> iterator;
     private int affected = 0;
+    private long visited = 0;
 
     public RegionVisitor(Region region, RegionFunction function) {
         this.region = region;
@@ -56,15 +71,30 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (BlockVector3 pt : region) {
-            if (function.apply(pt)) {
+        if (iterator == null) {
+            iterator = new RegionIterator(region);
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+            visited++;
+
+            if (!run.shouldContinue() && iterator.hasNext()) {
+                return this;
+            }
         }
 
         return null;
     }
 
+    @Override
+    public Progress getProgress() {
+        long area = region.getArea();
+        return area > 0 ? Progress.of((double) visited / area) : Progress.indeterminate();
+    }
+
     @Override
     public void cancel() {
     }
@@ -0,0 +1,216 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.sk89q.worldedit.math.BitMath.mask;
+
+/**
+ * An extension of {@link ArrayListHistory} that stores {@link BlockChange}s
+ * as packed {@code long} positions and internal block state IDs.
+ *
+ * <p>Blocks with NBT data, or without an internal ID, are kept in a side
+ * table. Positions are packed as in {@link BlockVector3#toLongPackedForm()},
+ * but with a signed y coordinate, so that blocks below y = 0 are packed too.
+ * Positions that still cannot be packed into a {@code long} fall back to
+ * being stored as regular changes.</p>
+ *
+ * <p>The iterators return a single reused {@link BlockEntry} for every block,
+ * so callers must not hold on to the returned changes.</p>
+ */
+public class PackedBlockHistory extends ArrayListHistory {
+
+    private static final long BITS_26 = mask(26);
+    private static final long BITS_12 = mask(12);
+
+    private final LongSet previousPositions = new LongOpenHashSet();
+    private final PackedBlockList previous = new PackedBlockList();
+    private final PackedBlockList current = new PackedBlockList();
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof BlockChange) {
+            BlockChange blockChange = (BlockChange) change;
+            BlockVector3 position = blockChange.getPosition();
+            if (isPackable(position)) {
+                long packed = pack(position);
+                if (previousPositions.add(packed)) {
+                    previous.add(packed, blockChange.getPrevious());
+                }
+                current.add(packed, blockChange.getCurrent());
+                return;
+            }
+        }
+        super.add(change);
+    }
+
+    private static boolean fitsBits(int value, int bits) {
+        return -(1 << (bits - 1)) <= value && value < (1 << (bits - 1));
+    }
+
+    private static boolean isPackable(BlockVector3 position) {
+        return fitsBits(position.getX(), 26) && fitsBits(position.getZ(), 26) && fitsBits(position.getY(), 12);
+    }
+
+    private static long pack(BlockVector3 position) {
+        // same layout as BlockVector3#toLongPackedForm, but allowing negative y
+        return (position.getX() & BITS_26)
+            | ((position.getZ() & BITS_26) << 26)
+            | ((position.getY() & BITS_12) << (26 + 26));
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(
+                super.forwardIterator(),
+                current.iterator(false));
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(
+                super.backwardIterator(),
+                previous.iterator(true));
+    }
+
+    @Override
+    public int size() {
+        return super.size() + previous.size();
+    }
+
+    /**
+     * A block change read from a {@link PackedBlockHistory}, which sets the
+     * same block on both undo and redo. Instances are reused by the iterator.
+     */
+    public static final class BlockEntry implements Change {
+
+        private final PackedBlockList list;
+        private int index;
+
+        private BlockEntry(PackedBlockList list) {
+            this.list = list;
+        }
+
+        /**
+         * Get the position.
+         *
+         * @return the position
+         */
+        public BlockVector3 getPosition() {
+            return BlockVector3.fromLongPackedForm(list.positions.getLong(index));
+        }
+
+        /**
+         * Get the block to set at the position.
+         *
+         * @return the block
+         */
+        public BaseBlock getBlock() {
+            return list.getBlock(index);
+        }
+
+        @Override
+        public void undo(UndoContext context) throws WorldEditException {
+            checkNotNull(context.getExtent()).setBlock(getPosition(), getBlock());
+        }
+
+        @Override
+        public void redo(UndoContext context) throws WorldEditException {
+            checkNotNull(context.getExtent()).setBlock(getPosition(), getBlock());
+        }
+    }
+
+    private static final class PackedBlockList {
+
+        private final LongArrayList positions = new LongArrayList();
+        private final IntArrayList stateIds = new IntArrayList();
+        private final Int2ObjectMap<BaseBlock> uncommon = new Int2ObjectOpenHashMap<>(1, 0.75f);
+
+        void add(long position, BaseBlock block) {
+            int id = block.hasNbtData()
+                ? BlockStateIdAccess.invalidId()
+                : BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+            if (!BlockStateIdAccess.isValidInternalId(id)) {
+                uncommon.put(positions.size(), block);
+            }
+            positions.add(position);
+            stateIds.add(id);
+        }
+
+        BaseBlock getBlock(int index) {
+            int id = stateIds.getInt(index);
+            if (!BlockStateIdAccess.isValidInternalId(id)) {
+                return uncommon.get(index);
+            }
+            BlockState state = BlockStateIdAccess.getBlockStateById(id);
+            if (state == null) {
+                throw new IllegalStateException("No state for ID " + id);
+            }
+            return state.toBaseBlock();
+        }
+
+        int size() {
+            return positions.size();
+        }
+
+        Iterator<Change> iterator(boolean reverse) {
+            BlockEntry entry = new BlockEntry(this);
+            return new Iterator<Change>() {
+                private int index = reverse ? size() : -1;
+
+                @Override
+                public boolean hasNext() {
+                    return reverse ? index > 0 : index < size() - 1;
+                }
+
+                @Override
+                public Change next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    index += reverse ? -1 : 1;
+                    entry.index = index;
+                    return entry;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A {@link ChangeSet} that keeps its changes in an in-memory change set until
+ * it is {@link #spill(Path) spilled}, after which the block changes are kept in
+ * a compressed file and read back from it on undo and redo.
+ *
+ * <p>Block states are written as indexes into a palette that stays in memory,
+ * so a spilled file is only readable by the change set that wrote it. Changes
+ * other than {@link BlockChange}s are never spilled, and are applied before
+ * the block changes, as in {@link PackedBlockHistory}.</p>
+ *
+ * <p>A change set may be spilled on another thread than the one that uses
+ * it, as long as no changes are added to it meanwhile.</p>
+ */
+public class TieredHistory implements ChangeSet {
+
+    /**
+     * A rough estimate of the heap used by one change in a
+     * {@link PackedBlockHistory}: a position and a state ID in each of its
+     * two lists, with some room for growth, and an entry in its set of
+     * changed positions, which is kept between three eighths and three
+     * quarters full.
+     */
+    private static final int ESTIMATED_BYTES_PER_CHANGE = 48;
+    private static final Logger log = LoggerFactory.getLogger(TieredHistory.class);
+
+    private final ArrayListHistory retained = new ArrayListHistory();
+    private ChangeSet memory;
+    @Nullable
+    private Path file;
+    private List<BlockState> palette;
+    private int undoCount;
+    private int redoCount;
+    private long redoOffset;
+    private long redoLength;
+    private boolean discarded;
+
+    /**
+     * Create a new instance.
+     *
+     * @param memory the change set to record changes into until spilled
+     */
+    public TieredHistory(ChangeSet memory) {
+        checkNotNull(memory);
+        this.memory = memory;
+    }
+
+    @Override
+    public void add(Change change) {
+        memory.add(change);
+    }
+
+    @Override
+    public boolean isRecordingChanges() {
+        return memory.isRecordingChanges();
+    }
+
+    @Override
+    public void setRecordChanges(boolean recordChanges) {
+        memory.setRecordChanges(recordChanges);
+    }
+
+    @Override
+    public synchronized Iterator<Change> backwardIterator() {
+        if (file == null) {
+            return memory.backwardIterator();
+        }
+        return Iterators.concat(
+            memory.backwardIterator(),
+            retained.backwardIterator(),
+            readSection(0, redoOffset, undoCount));
+    }
+
+    @Override
+    public synchronized Iterator<Change> forwardIterator() {
+        if (file == null) {
+            return memory.forwardIterator();
+        }
+        return Iterators.concat(
+            retained.forwardIterator(),
+            readSection(redoOffset, redoLength, redoCount),
+            memory.forwardIterator());
+    }
+
+    @Override
+    public synchronized int size() {
+        return memory.size() + retained.size() + undoCount;
+    }
+
+    /**
+     * Check whether the block changes have been moved to disk.
+     *
+     * @return true if spilled
+     */
+    public synchronized boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Estimate the heap used by the changes that are still held in memory.
+     *
+     * @return the estimated size in bytes
+     */
+    public synchronized long estimateMemoryUsage() {
+        return (long) (memory.size() + retained.size()) * ESTIMATED_BYTES_PER_CHANGE;
+    }
+
+    /**
+     * Move the block changes into a new compressed file in the given directory.
+     *
+     * <p>Changes added after spilling are kept in memory again. Nothing is
+     * spilled if this change set is discarded while it is being written.</p>
+     *
+     * @param directory the directory to create the file in
+     * @throws IOException if the file could not be written
+     */
+    public void spill(Path directory) throws IOException {
+        ChangeSet memory;
+        synchronized (this) {
+            checkState(file == null, "Already spilled to %s", file);
+            if (discarded) {
+                return;
+            }
+            memory = this.memory;
+        }
+        Path target = Files.createTempFile(directory, "history-", ".gz");
+        Reference2IntMap<BlockState> paletteIndexes = new Reference2IntOpenHashMap<>();
+        paletteIndexes.defaultReturnValue(-1);
+        List<BlockState> newPalette = new ArrayList<>();
+        ArrayListHistory newRetained = new ArrayListHistory();
+        int newUndoCount;
+        int newRedoCount;
+        long newRedoOffset;
+        try (CountingOutputStream out = new CountingOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(target)))) {
+            newUndoCount = writeSection(out, memory.backwardIterator(), BlockChange::getPrevious,
+                paletteIndexes, newPalette, null);
+            newRedoOffset = out.getCount();
+            newRedoCount = writeSection(out, memory.forwardIterator(), BlockChange::getCurrent,
+                paletteIndexes, newPalette, newRetained);
+            checkState(out.getCount() - newRedoOffset <= Integer.MAX_VALUE
+                && newRedoOffset <= Integer.MAX_VALUE, "History too large to spill");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        long newRedoLength = Files.size(target) - newRedoOffset;
+
+        synchronized (this) {
+            if (discarded) {
+                Files.deleteIfExists(target);
+                return;
+            }
+            boolean recordChanges = memory.isRecordingChanges();
+            newRetained.forwardIterator().forEachRemaining(retained::add);
+            this.memory = new PackedBlockHistory();
+            this.memory.setRecordChanges(recordChanges);
+            palette = newPalette;
+            undoCount = newUndoCount;
+            redoCount = newRedoCount;
+            redoOffset = newRedoOffset;
+            redoLength = newRedoLength;
+            file = target;
+        }
+    }
+
+    /**
+     * Delete the spilled file, if any. This change set must not be used
+     * afterwards.
+     */
+    public synchronized void discard() {
+        discarded = true;
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete history file " + file, e);
+            }
+            file = null;
+        }
+    }
+
+    private static int writeSection(OutputStream out, Iterator<Change> changes,
+                                    Function<BlockChange, BaseBlock> blockGetter,
+                                    Reference2IntMap<BlockState> paletteIndexes, List<BlockState> palette,
+                                    @Nullable ArrayListHistory others) throws IOException {
+        // keep the shared stream open when the compressed section is closed
+        OutputStream shielded = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        int count = 0;
+        try (DataOutputStream data = new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(shielded)))) {
+            NBTOutputStream nbt = new NBTOutputStream(data);
+            while (changes.hasNext()) {
+                Change change = changes.next();
+                BlockVector3 position;
+                BaseBlock block;
+                if (change instanceof PackedBlockHistory.BlockEntry) {
+                    PackedBlockHistory.BlockEntry entry = (PackedBlockHistory.BlockEntry) change;
+                    position = entry.getPosition();
+                    block = entry.getBlock();
+                } else if (change instanceof BlockChange) {
+                    BlockChange blockChange = (BlockChange) change;
+                    position = blockChange.getPosition();
+                    block = blockGetter.apply(blockChange);
+                } else {
+                    if (others != null) {
+                        others.add(change);
+                    }
+                    continue;
+                }
+                BlockState state = block.toImmutableState();
+                int index = paletteIndexes.getInt(state);
+                if (index == -1) {
+                    index = palette.size();
+                    palette.add(state);
+                    paletteIndexes.put(state, index);
+                }
+                CompoundTag nbtData = block.getNbtData();
+                data.writeInt(position.getX());
+                data.writeInt(position.getY());
+                data.writeInt(position.getZ());
+                data.writeInt(index << 1 | (nbtData == null ? 0 : 1));
+                if (nbtData != null) {
+                    nbt.writeNamedTag("", nbtData);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decompress the changes of a section of the file as they are iterated
+     * over. The file is opened when the first change is read, and closed
+     * after the last.
+     *
+     * @param offset the offset of the section in the file
+     * @param length the compressed length of the section
+     * @param count the number of changes in the section
+     * @return an iterator over the changes
+     */
+    private Iterator<Change> readSection(long offset, long length, int count) {
+        if (count == 0) {
+            return Collections.emptyIterator();
+        }
+        Path source = file;
+        List<BlockState> sourcePalette = palette;
+        return new AbstractIterator<Change>() {
+            private DataInputStream data;
+            private NBTInputStream nbt;
+            private int remaining = count;
+
+            private DataInputStream open() throws IOException {
+                FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                try {
+                    InputStream section = ByteStreams.limit(Channels.newInputStream(channel.position(offset)), length);
+                    return new DataInputStream(new BufferedInputStream(new GZIPInputStream(section, 8192)));
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+
+            @Override
+            protected Change computeNext() {
+                try {
+                    if (remaining == 0) {
+                        if (data != null) {
+                            data.close();
+                        }
+                        return endOfData();
+                    }
+                    if (data == null) {
+                        data = open();
+                        nbt = new NBTInputStream(data);
+                    }
+                    remaining--;
+                    BlockVector3 position = BlockVector3.at(data.readInt(), data.readInt(), data.readInt());
+                    int entry = data.readInt();
+                    BlockState state = sourcePalette.get(entry >>> 1);
+                    BaseBlock block = (entry & 1) == 0
+                        ? state.toBaseBlock()
+                        : state.toBaseBlock((CompoundTag) nbt.readNamedTag().getTag());
+                    return new BlockChange(position, block, block);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read history from " + source, e);
+                }
+            }
+        };
+    }
+
+}
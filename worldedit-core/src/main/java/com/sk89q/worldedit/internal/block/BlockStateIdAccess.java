@@ -84,6 +84,15 @@ private static int provideUnusedWorldEditId() {
 
     private static final BitSet usedIds = new BitSet();
 
+    /**
+     * Get the range of IDs in use, so that every ID in use is less than it.
+     *
+     * @return one more than the highest ID in use, or 0 if there are none
+     */
+    public static int getIdRange() {
+        return usedIds.length();
+    }
+
     public static void register(BlockState blockState, int id) {
         int i = isValidInternalId(id) ? id : provideUnusedWorldEditId();
         BlockState existing = getBlockStateById(id);
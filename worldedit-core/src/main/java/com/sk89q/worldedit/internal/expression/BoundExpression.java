@@ -0,0 +1,116 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link Expression} bound to its provided variables, for evaluating it
+ * many times in a row.
+ *
+ * <p>The variables are resolved once, and the execution data is reused
+ * between evaluations. Like the expression itself, this is not
+ * thread-safe.</p>
+ */
+public class BoundExpression {
+
+    private final Expression expression;
+    private final LocalSlot.Variable[] variables;
+    private final ExecutionData data;
+    private final long timeoutNanos;
+
+    BoundExpression(Expression expression, LocalSlot.Variable[] variables, ExecutionData data, int timeout) {
+        this.expression = expression;
+        this.variables = variables;
+        this.data = data;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Get the expression.
+     *
+     * @return the expression
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Get one of the variables given when compiling the expression, to read
+     * values assigned to it by the expression.
+     *
+     * @param index the index of the variable name passed to
+     *     {@link Expression#compile(String, String...)}
+     * @return the variable
+     */
+    public LocalSlot.Variable getVariable(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Evaluate the expression with values for the first two variables.
+     *
+     * @param a the value of the first variable
+     * @param b the value of the second variable
+     * @return the result
+     * @throws EvaluationException if evaluation fails
+     */
+    public double evaluate(double a, double b) throws EvaluationException {
+        variables[0].setValue(a);
+        variables[1].setValue(b);
+        return execute();
+    }
+
+    /**
+     * Evaluate the expression with values for the first three variables.
+     *
+     * @param a the value of the first variable
+     * @param b the value of the second variable
+     * @param c the value of the third variable
+     * @return the result
+     * @throws EvaluationException if evaluation fails
+     */
+    public double evaluate(double a, double b, double c) throws EvaluationException {
+        variables[0].setValue(a);
+        variables[1].setValue(b);
+        variables[2].setValue(c);
+        return execute();
+    }
+
+    /**
+     * Evaluate the expression with values for the first variables.
+     *
+     * @param values the values, in the order of the variable names
+     * @return the result
+     * @throws EvaluationException if evaluation fails
+     */
+    public double evaluate(double... values) throws EvaluationException {
+        for (int i = 0; i < values.length; i++) {
+            variables[i].setValue(values[i]);
+        }
+        return execute();
+    }
+
+    private double execute() throws EvaluationException {
+        data.setTimeout(timeoutNanos);
+        return expression.execute(data);
+    }
+
+}
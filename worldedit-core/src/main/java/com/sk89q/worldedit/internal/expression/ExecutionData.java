@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.internal.expression;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import static java.util.Objects.requireNonNull;
@@ -31,14 +32,40 @@ public class ExecutionData {
      */
     public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null, Instant.MAX);
 
+    /**
+     * The clock is only read on every this many calls to {@link #checkDeadline()}.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
     private final SlotTable slots;
     private final Functions functions;
-    private final Instant deadline;
+    private boolean hasDeadline;
+    private long deadlineNanos;
+    private int deadlineChecks;
 
     public ExecutionData(SlotTable slots, Functions functions, Instant deadline) {
         this.slots = slots;
         this.functions = functions;
-        this.deadline = deadline;
+        if (!deadline.equals(Instant.MAX)) {
+            setTimeout(Duration.between(Instant.now(), deadline).toNanos());
+        }
+    }
+
+    ExecutionData(SlotTable slots, Functions functions) {
+        this.slots = slots;
+        this.functions = functions;
+    }
+
+    /**
+     * Set the deadline to the given time from now, so that this data can be
+     * reused for another evaluation.
+     *
+     * @param timeoutNanos the timeout in nanoseconds
+     */
+    void setTimeout(long timeoutNanos) {
+        hasDeadline = true;
+        deadlineNanos = System.nanoTime() + timeoutNanos;
+        deadlineChecks = 0;
     }
 
     public SlotTable getSlots() {
@@ -50,11 +77,15 @@ public Functions getFunctions() {
     }
 
     public Instant getDeadline() {
-        return deadline;
+        if (!hasDeadline) {
+            return Instant.MAX;
+        }
+        return Instant.now().plusNanos(deadlineNanos - System.nanoTime());
     }
 
     public void checkDeadline() {
-        if (Instant.now().isAfter(deadline)) {
+        if (hasDeadline && ++deadlineChecks % DEADLINE_CHECK_INTERVAL == 0
+            && System.nanoTime() - deadlineNanos > 0) {
             throw new ExpressionTimeoutException("Calculations exceeded time limit.");
         }
     }
@@ -19,7 +19,7 @@
 
 package com.sk89q.worldedit.internal.expression;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.antlr.ExpressionLexer;
 import com.sk89q.worldedit.antlr.ExpressionParser;
@@ -30,9 +30,9 @@
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
-import java.time.Instant;
-import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -65,27 +65,21 @@
 public class Expression {
 
     private final SlotTable slots = new SlotTable();
-    private final List<String> providedSlots;
+    private final String[] variableNames;
+    private final LocalSlot.Variable[] providedVariables;
     private final ExpressionParser.AllStatementsContext root;
     private final Functions functions = Functions.create();
     private final CompiledExpression compiledExpression;
+    private final Set<String> usedNames;
+    private final boolean parallelizable;
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
         return new Expression(expression, variableNames);
     }
 
     private Expression(String expression, String... variableNames) throws ExpressionException {
-        slots.putSlot("e", new LocalSlot.Constant(Math.E));
-        slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
-        slots.putSlot("true", new LocalSlot.Constant(1));
-        slots.putSlot("false", new LocalSlot.Constant(0));
-
-        for (String variableName : variableNames) {
-            slots.initVariable(variableName)
-                .orElseThrow(() -> new ExpressionException(-1,
-                    "Tried to overwrite identifier '" + variableName + "'"));
-        }
-        this.providedSlots = ImmutableList.copyOf(variableNames);
+        this.variableNames = variableNames.clone();
+        this.providedVariables = initSlots(variableNames);
 
         CharStream cs = CharStreams.fromString(expression, "<input>");
         ExpressionLexer lexer = new ExpressionLexer(cs);
@@ -101,31 +95,112 @@ private Expression(String expression, String... variableNames) throws Expression
         } catch (ParseCancellationException e) {
             throw new ParserException(parser.getState(), e);
         }
-        ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
+        ExpressionValidator validator = new ExpressionValidator(slots.keySet(), functions);
+        ParseTreeWalker.DEFAULT.walk(validator, root);
+        this.usedNames = ImmutableSet.copyOf(validator.getUsedNames());
+        this.parallelizable = validator.getCalledFunctions().stream().noneMatch(Functions::isSerial);
         this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
     }
 
+    private Expression(Expression prototype) throws ExpressionException {
+        this.variableNames = prototype.variableNames;
+        this.providedVariables = initSlots(variableNames);
+        this.root = prototype.root;
+        this.usedNames = prototype.usedNames;
+        this.parallelizable = prototype.parallelizable;
+        // compiled code caches slots and binds functions, so it can't be shared
+        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+    }
+
+    private LocalSlot.Variable[] initSlots(String[] variableNames) throws ExpressionException {
+        slots.putSlot("e", new LocalSlot.Constant(Math.E));
+        slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
+        slots.putSlot("true", new LocalSlot.Constant(1));
+        slots.putSlot("false", new LocalSlot.Constant(0));
+
+        LocalSlot.Variable[] variables = new LocalSlot.Variable[variableNames.length];
+        for (int i = 0; i < variableNames.length; i++) {
+            String variableName = variableNames[i];
+            variables[i] = slots.initVariable(variableName)
+                .orElseThrow(() -> new ExpressionException(-1,
+                    "Tried to overwrite identifier '" + variableName + "'"));
+        }
+        return variables;
+    }
+
+    /**
+     * Create a copy of this expression without parsing it again.
+     *
+     * <p>The copy has its own variables, functions and environment, as if
+     * the expression had been compiled again.</p>
+     *
+     * @return a copy
+     */
+    public Expression copy() {
+        try {
+            return new Expression(this);
+        } catch (ExpressionException e) {
+            // the variable names have been accepted once already
+            throw new IllegalStateException(e);
+        }
+    }
+
     public double evaluate(double... values) throws EvaluationException {
         return evaluate(values, WorldEdit.getInstance().getConfiguration().calculationTimeout);
     }
 
     public double evaluate(double[] values, int timeout) throws EvaluationException {
         for (int i = 0; i < values.length; ++i) {
-            String slotName = providedSlots.get(i);
-            LocalSlot.Variable slot = slots.getVariable(slotName)
-                .orElseThrow(() -> new EvaluationException(-1,
-                    "Tried to assign to non-variable " + slotName + "."));
-
-            slot.setValue(values[i]);
+            providedVariables[i].setValue(values[i]);
         }
 
-        Instant deadline = Instant.now().plusMillis(timeout);
+        ExecutionData data = new ExecutionData(slots, functions);
+        data.setTimeout(TimeUnit.MILLISECONDS.toNanos(timeout));
+        return execute(data);
+    }
+
+    double execute(ExecutionData data) {
         // evaluation exceptions are thrown out of this method
-        Double result = compiledExpression.execute(new ExecutionData(slots, functions, deadline));
+        Double result = compiledExpression.execute(data);
         checkNotNull(result, "Expression must result in a value");
         return result;
     }
 
+    /**
+     * Create an evaluator that sets the variables given when compiling
+     * without looking them up, and reuses its execution data.
+     *
+     * @param timeout the timeout of each evaluation in milliseconds
+     * @return a bound expression
+     */
+    public BoundExpression bind(int timeout) {
+        return new BoundExpression(this, providedVariables, new ExecutionData(slots, functions), timeout);
+    }
+
+    /**
+     * Check whether the expression only depends on its own variables, so
+     * that separately compiled copies of it may be evaluated on other threads.
+     *
+     * <p>Expressions calling functions that keep state between evaluations,
+     * such as {@code megabuf}, or that read the world, such as {@code query},
+     * are not parallelizable.</p>
+     *
+     * @return true if parallelizable
+     */
+    public boolean isParallelizable() {
+        return parallelizable;
+    }
+
+    /**
+     * Check whether the expression reads or assigns a variable.
+     *
+     * @param name the variable name
+     * @return true if the variable is used
+     */
+    public boolean usesVariable(String name) {
+        return usedNames.contains(name);
+    }
+
     public void optimize() {
         // TODO optimizing
     }
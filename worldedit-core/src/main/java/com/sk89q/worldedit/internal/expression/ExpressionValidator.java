@@ -32,6 +32,8 @@
 class ExpressionValidator extends ExpressionBaseListener {
 
     private final Set<String> variableNames = new HashSet<>();
+    private final Set<String> usedNames = new HashSet<>();
+    private final Set<String> calledFunctions = new HashSet<>();
     private final Functions functions;
 
     ExpressionValidator(Collection<String> variableNames,
@@ -42,6 +44,25 @@ class ExpressionValidator extends ExpressionBaseListener {
 
     private void bindVariable(String name) {
         variableNames.add(name);
+        usedNames.add(name);
+    }
+
+    /**
+     * Get the names of the variables that are read or assigned.
+     *
+     * @return the variable names
+     */
+    Set<String> getUsedNames() {
+        return usedNames;
+    }
+
+    /**
+     * Get the names of the functions that are called.
+     *
+     * @return the function names
+     */
+    Set<String> getCalledFunctions() {
+        return calledFunctions;
     }
 
     @Override
@@ -49,6 +70,16 @@ public void enterAssignment(ExpressionParser.AssignmentContext ctx) {
         bindVariable(ctx.target.getText());
     }
 
+    @Override
+    public void enterPostCrementExpr(ExpressionParser.PostCrementExprContext ctx) {
+        usedNames.add(ctx.target.getText());
+    }
+
+    @Override
+    public void enterPreCrementExpr(ExpressionParser.PreCrementExprContext ctx) {
+        usedNames.add(ctx.target.getText());
+    }
+
     @Override
     public void enterSimpleForStatement(ExpressionParser.SimpleForStatementContext ctx) {
         bindVariable(ctx.counter.getText());
@@ -59,10 +90,12 @@ public void enterIdExpr(ExpressionParser.IdExprContext ctx) {
         String text = ctx.source.getText();
         check(variableNames.contains(text), ctx,
             "Variable '" + text + "' is not bound");
+        usedNames.add(text);
     }
 
     @Override
     public void enterFunctionCall(ExpressionParser.FunctionCallContext ctx) {
         resolveFunction(functions, ctx);
+        calledFunctions.add(ctx.name.getText());
     }
 }
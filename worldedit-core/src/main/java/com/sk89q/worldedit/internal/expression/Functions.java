@@ -21,6 +21,7 @@
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
@@ -50,6 +51,18 @@ static Functions create() {
         return new Functions();
     }
 
+    /**
+     * Functions that keep state between evaluations or read the world, so
+     * that expressions calling them cannot be evaluated on several threads.
+     */
+    private static final ImmutableSet<String> SERIAL_FUNCTIONS = ImmutableSet.of(
+        "megabuf", "gmegabuf", "closest", "gclosest", "query", "queryAbs", "queryRel"
+    );
+
+    static boolean isSerial(String name) {
+        return SERIAL_FUNCTIONS.contains(name);
+    }
+
     private static final MethodHandle DOUBLE_VALUE;
 
     static {
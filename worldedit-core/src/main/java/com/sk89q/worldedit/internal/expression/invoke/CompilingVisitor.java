@@ -264,10 +264,10 @@ public MethodHandle visitExpressionStatement(ExpressionParser.ExpressionStatemen
 
     @Override
     public MethodHandle visitPostCrementExpr(ExpressionParser.PostCrementExprContext ctx) {
-        Token target = ctx.target;
+        SlotReference target = new SlotReference(ctx.target);
         int opType = ctx.op.getType();
         return ExpressionHandles.call(data -> {
-            LocalSlot.Variable variable = ExpressionHandles.getVariable(data, target);
+            LocalSlot.Variable variable = target.getVariable(data);
             double value = variable.getValue();
             double result = value;
             if (opType == INCREMENT) {
@@ -282,10 +282,10 @@ public MethodHandle visitPostCrementExpr(ExpressionParser.PostCrementExprContext
 
     @Override
     public MethodHandle visitPreCrementExpr(ExpressionParser.PreCrementExprContext ctx) {
-        Token target = ctx.target;
+        SlotReference target = new SlotReference(ctx.target);
         int opType = ctx.op.getType();
         return ExpressionHandles.call(data -> {
-            LocalSlot.Variable variable = ExpressionHandles.getVariable(data, target);
+            LocalSlot.Variable variable = target.getVariable(data);
             double value = variable.getValue();
             if (opType == INCREMENT) {
                 value++;
@@ -523,17 +523,17 @@ private static double factorial(double x) throws EvaluationException {
     @Override
     public MethodHandle visitAssignment(ExpressionParser.AssignmentContext ctx) {
         int type = extractToken(ctx.assignmentOperator()).getType();
-        Token target = ctx.target;
+        SlotReference target = new SlotReference(ctx.target);
         MethodHandle getArg = evaluateForValue(ctx.expression());
         return ExpressionHandles.call(data -> {
             double value;
             double arg = (double) ExpressionHandles.standardInvoke(getArg, data);
             LocalSlot.Variable variable;
             if (type == ASSIGN) {
-                variable = ExpressionHandles.initVariable(data, target);
+                variable = target.initVariable(data);
                 value = arg;
             } else {
-                variable = ExpressionHandles.getVariable(data, target);
+                variable = target.getVariable(data);
                 value = variable.getValue();
                 switch (type) {
                     case POWER_ASSIGN:
@@ -619,8 +619,8 @@ public MethodHandle visitConstantExpression(ExpressionParser.ConstantExpressionC
 
     @Override
     public MethodHandle visitIdExpr(ExpressionParser.IdExprContext ctx) {
-        Token source = ctx.source;
-        return ExpressionHandles.call(data -> ExpressionHandles.getSlotValue(data, source));
+        SlotReference source = new SlotReference(ctx.source);
+        return ExpressionHandles.call(source::getValue);
     }
 
     /**
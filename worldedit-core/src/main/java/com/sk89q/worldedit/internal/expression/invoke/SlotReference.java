@@ -0,0 +1,80 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.invoke;
+
+import com.sk89q.worldedit.internal.expression.ExecutionData;
+import com.sk89q.worldedit.internal.expression.LocalSlot;
+import com.sk89q.worldedit.internal.expression.SlotTable;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * A reference to a named slot from one place in an expression, which
+ * remembers the slot once it has been found.
+ *
+ * <p>Slots are never replaced in a slot table once they exist, so the slot
+ * only has to be looked up again when evaluating against another table.</p>
+ */
+class SlotReference {
+
+    private final Token nameToken;
+    private SlotTable table;
+    private LocalSlot slot;
+
+    SlotReference(Token nameToken) {
+        this.nameToken = nameToken;
+    }
+
+    private LocalSlot getCached(ExecutionData data) {
+        return table == data.getSlots() ? slot : null;
+    }
+
+    private <S extends LocalSlot> S cache(ExecutionData data, S slot) {
+        this.table = data.getSlots();
+        this.slot = slot;
+        return slot;
+    }
+
+    double getValue(ExecutionData data) {
+        LocalSlot cached = getCached(data);
+        if (cached != null) {
+            return cached.getValue();
+        }
+        double value = ExpressionHandles.getSlotValue(data, nameToken);
+        data.getSlots().getSlot(nameToken.getText()).ifPresent(found -> cache(data, found));
+        return value;
+    }
+
+    LocalSlot.Variable getVariable(ExecutionData data) {
+        LocalSlot cached = getCached(data);
+        if (cached instanceof LocalSlot.Variable) {
+            return (LocalSlot.Variable) cached;
+        }
+        return cache(data, ExpressionHandles.getVariable(data, nameToken));
+    }
+
+    LocalSlot.Variable initVariable(ExecutionData data) {
+        LocalSlot cached = getCached(data);
+        if (cached instanceof LocalSlot.Variable) {
+            return (LocalSlot.Variable) cached;
+        }
+        return cache(data, ExpressionHandles.initVariable(data, nameToken));
+    }
+
+}
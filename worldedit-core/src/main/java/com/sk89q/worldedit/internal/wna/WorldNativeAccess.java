@@ -21,13 +21,17 @@
 
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.util.collection.SectionBlockBatch;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -90,6 +94,82 @@ default <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position,
         return successful;
     }
 
+    /**
+     * Set every block of a chunk section batch, with one chunk lookup.
+     *
+     * <p>Blocks are set as by {@link #setBlock(BlockVector3, BlockStateHolder, SideEffectSet)},
+     * except that lighting and neighbour notification are deferred until
+     * every block in the batch has been set.</p>
+     *
+     * @param batch the batch
+     * @param sideEffects the side effects to apply
+     * @return the number of blocks that were set
+     */
+    default int setBlocks(SectionBlockBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        checkNotNull(batch);
+        checkNotNull(sideEffects);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        setCurrentSideEffectSet(sideEffects);
+        boolean validate = sideEffects.shouldApply(SideEffect.VALIDATION);
+
+        NC chunk = getChunk(batch.getSectionX(), batch.getSectionZ());
+        List<NP> changedPositions = new ArrayList<>(batch.size());
+        List<NBS> oldStates = new ArrayList<>(batch.size());
+        List<NBS> newStates = new ArrayList<>(batch.size());
+        int lastStateId = BlockStateIdAccess.invalidId();
+        NBS lastNative = null;
+        for (int i = 0; i < batch.size(); i++) {
+            NP pos = getPosition(batch.getX(i), batch.getY(i), batch.getZ(i));
+            NBS old = getBlockState(chunk, pos);
+            // sections are usually filled with few states, so reuse the last conversion
+            int stateId = batch.getStateId(i);
+            NBS newState;
+            if (BlockStateIdAccess.isValidInternalId(stateId) && stateId == lastStateId) {
+                newState = lastNative;
+            } else {
+                newState = toNative(batch.getState(i));
+                lastStateId = stateId;
+                lastNative = newState;
+            }
+            if (validate) {
+                newState = getValidBlockForPosition(newState, pos);
+            }
+            boolean successful = setBlockState(chunk, pos, newState) != null;
+
+            if (successful || old == newState) {
+                BaseBlock block = batch.getBlock(i);
+                CompoundTag tag = block.getNbtData();
+                if (tag != null) {
+                    tag = tag.createBuilder()
+                        .putString("id", block.getNbtId())
+                        .putInt("x", batch.getX(i))
+                        .putInt("y", batch.getY(i))
+                        .putInt("z", batch.getZ(i))
+                        .build();
+                    successful = updateTileEntity(pos, tag);
+                }
+            }
+
+            if (successful) {
+                changedPositions.add(pos);
+                oldStates.add(old);
+                newStates.add(newState);
+            }
+        }
+
+        if (sideEffects.getState(SideEffect.LIGHTING) == SideEffect.State.ON) {
+            for (NP pos : changedPositions) {
+                updateLightingForBlock(pos);
+            }
+        }
+        for (int i = 0; i < changedPositions.size(); i++) {
+            markAndNotifyBlock(changedPositions.get(i), chunk, oldStates.get(i), newStates.get(i), sideEffects);
+        }
+        return changedPositions.size();
+    }
+
     default void applySideEffects(BlockVector3 position, BlockState previousType, SideEffectSet sideEffectSet) {
         setCurrentSideEffectSet(sideEffectSet);
         NP pos = getPosition(position.getX(), position.getY(), position.getZ());
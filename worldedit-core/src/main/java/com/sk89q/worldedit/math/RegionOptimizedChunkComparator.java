@@ -28,12 +28,15 @@
  */
 public class RegionOptimizedChunkComparator {
 
-    private static final Comparator<BlockVector2> CHUNK_COMPARATOR =
+    /**
+     * Sorts chunk positions by region, then chunk.
+     */
+    public static final Comparator<BlockVector2> CHUNK_INSTANCE =
         Comparator.comparing((BlockVector2 chunkPos) -> chunkPos.shr(5), COMPARING_GRID_ARRANGEMENT)
             .thenComparing(COMPARING_GRID_ARRANGEMENT);
 
     public static final Comparator<BlockVector3> INSTANCE
-        = Comparator.comparing(blockPos -> blockPos.toBlockVector2().shr(4), CHUNK_COMPARATOR);
+        = Comparator.comparing(blockPos -> blockPos.toBlockVector2().shr(4), CHUNK_INSTANCE);
 
     private RegionOptimizedChunkComparator() {
     }
@@ -117,6 +117,7 @@ public int apply(int[] data) throws MaxChangedBlocksException {
         BlockState fillerAir = BlockTypes.AIR.getDefaultState();
 
         int blocksChanged = 0;
+        BlockState[] column = new BlockState[maxY - originY + 1];
 
         // Apply heightmap
         for (int z = 0; z < height; ++z) {
@@ -127,17 +128,24 @@ public int apply(int[] data) throws MaxChangedBlocksException {
                 // Clamp newHeight within the selection area
                 int newHeight = Math.min(maxY, data[index]);
 
+                if (newHeight == curHeight) {
+                    continue;
+                }
+
                 // Offset x,z to be 'real' coordinates
                 int xr = x + originX;
                 int zr = z + originZ;
 
+                // Blocks are only copied from within the current column, so read it in one go
+                session.getBlockColumn(xr, zr, originY, curHeight, column);
+
                 // We are keeping the topmost blocks so take that in account for the scale
                 double scale = (double) (curHeight - originY) / (double) (newHeight - originY);
 
                 // Depending on growing or shrinking we need to start at the bottom or top
                 if (newHeight > curHeight) {
                     // Set the top block of the column to be the same type (this might go wrong with rounding)
-                    BlockState existing = session.getBlock(BlockVector3.at(xr, curHeight, zr));
+                    BlockState existing = column[curHeight - originY];
 
                     // Skip water/lava
                     if (existing.getBlockType() != BlockTypes.WATER && existing.getBlockType() != BlockTypes.LAVA) {
@@ -147,21 +155,21 @@ public int apply(int[] data) throws MaxChangedBlocksException {
                         // Grow -- start from 1 below top replacing airblocks
                         for (int y = newHeight - 1 - originY; y >= 0; --y) {
                             int copyFrom = (int) (y * scale);
-                            session.setBlock(BlockVector3.at(xr, originY + y, zr), session.getBlock(BlockVector3.at(xr, originY + copyFrom, zr)));
+                            session.setBlock(BlockVector3.at(xr, originY + y, zr), column[copyFrom]);
                             ++blocksChanged;
                         }
                     }
-                } else if (curHeight > newHeight) {
+                } else {
                     // Shrink -- start from bottom
                     for (int y = 0; y < newHeight - originY; ++y) {
                         int copyFrom = (int) (y * scale);
-                        session.setBlock(BlockVector3.at(xr, originY + y, zr), session.getBlock(BlockVector3.at(xr, originY + copyFrom, zr)));
+                        session.setBlock(BlockVector3.at(xr, originY + y, zr), column[copyFrom]);
                         ++blocksChanged;
                     }
 
                     // Set the top block of the column to be the same type
                     // (this could otherwise go wrong with rounding)
-                    session.setBlock(BlockVector3.at(xr, newHeight, zr), session.getBlock(BlockVector3.at(xr, curHeight, zr)));
+                    session.setBlock(BlockVector3.at(xr, newHeight, zr), column[curHeight - originY]);
                     ++blocksChanged;
 
                     // Fill rest with air
@@ -294,6 +294,33 @@ public boolean contains(BlockVector3 position) {
         return containsRaw(position.toVector3());
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        if (!isDefined()) {
+            return;
+        }
+
+        final BlockVector3 min = getMinimumPoint();
+        final BlockVector3 max = getMaximumPoint();
+
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+
+        // A row crosses a convex region in at most one run, so only its ends need to be found
+        int start = min.getBlockX();
+        while (!containsRaw(Vector3.at(start, y, z))) {
+            if (++start > max.getBlockX()) {
+                return;
+            }
+        }
+        int end = max.getBlockX();
+        while (end > start && !containsRaw(Vector3.at(end, y, z))) {
+            end--;
+        }
+        consumer.accept(start, end);
+    }
+
     private boolean containsRaw(Vector3 pt) {
         if (lastTriangle != null && lastTriangle.above(pt)) {
             return false;
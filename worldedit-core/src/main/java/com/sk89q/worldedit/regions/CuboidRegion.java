@@ -325,6 +325,15 @@ public boolean contains(BlockVector3 position) {
         return position.containedWithin(min, max);
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+        if (y >= min.getBlockY() && y <= max.getBlockY() && z >= min.getBlockZ() && z <= max.getBlockZ()) {
+            consumer.accept(min.getBlockX(), max.getBlockX());
+        }
+    }
+
     @Override
     public Iterator<BlockVector3> iterator() {
         return new Iterator<BlockVector3>() {
@@ -27,11 +27,9 @@
 import com.sk89q.worldedit.math.Vector2;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.math.geom.Polygons;
-import com.sk89q.worldedit.regions.iterator.FlatRegion3DIterator;
 import com.sk89q.worldedit.regions.iterator.FlatRegionIterator;
 import com.sk89q.worldedit.world.World;
 
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -290,6 +288,24 @@ public boolean contains(BlockVector3 position) {
         return position.toBlockVector2().subtract(center).toVector2().divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        if (y < minY || y > maxY) {
+            return;
+        }
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+        if (z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+
+        double dz = (z - center.getBlockZ()) / radius.getZ();
+        double halfWidth = radius.getX() * Math.sqrt(Math.max(0, 1 - dz * dz));
+        int centerX = center.getBlockX();
+        Regions.refineSpan(this, min.getBlockX(), max.getBlockX(), centerX,
+                (int) Math.ceil(centerX - halfWidth), (int) Math.floor(centerX + halfWidth), y, z, consumer);
+    }
+
 
     /**
      * Sets the height of the cylinder to fit the specified Y.
@@ -314,11 +330,6 @@ public boolean setY(int y) {
         return false;
     }
 
-    @Override
-    public Iterator<BlockVector3> iterator() {
-        return new FlatRegion3DIterator(this);
-    }
-
     @Override
     public Iterable<BlockVector2> asFlatRegion() {
         return () -> new FlatRegionIterator(CylinderRegion.this);
@@ -204,6 +204,22 @@ public boolean contains(BlockVector3 position) {
         return position.subtract(center).toVector3().divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+
+        double dy = (y - center.getBlockY()) / radius.getY();
+        double dz = (z - center.getBlockZ()) / radius.getZ();
+        double halfWidth = radius.getX() * Math.sqrt(Math.max(0, 1 - dy * dy - dz * dz));
+        int centerX = center.getBlockX();
+        Regions.refineSpan(this, min.getBlockX(), max.getBlockX(), centerX,
+                (int) Math.ceil(centerX - halfWidth), (int) Math.floor(centerX + halfWidth), y, z, consumer);
+    }
+
     /**
      * Returns string representation in the format
      * "(centerX, centerY, centerZ) - (radiusX, radiusY, radiusZ)".
@@ -92,6 +92,10 @@ public boolean contains(BlockVector3 position) {
         return false;
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+    }
+
     @Override
     public Set<BlockVector2> getChunks() {
         return Collections.emptySet();
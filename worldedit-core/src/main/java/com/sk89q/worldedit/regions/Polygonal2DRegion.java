@@ -21,11 +21,13 @@
 
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.iterator.FlatRegion3DIterator;
 import com.sk89q.worldedit.regions.iterator.FlatRegionIterator;
 import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +43,8 @@ public class Polygonal2DRegion extends AbstractRegion implements FlatRegion {
     private int minY;
     private int maxY;
     private boolean hasY = false;
+    @Nullable
+    private SpanRow lastRow;
 
     /**
      * Construct the region
@@ -100,6 +104,8 @@ public List<BlockVector2> getPoints() {
      * called after points have been changed.
      */
     protected void recalculate() {
+        lastRow = null;
+
         if (points.isEmpty()) {
             min = BlockVector2.ZERO;
             minY = 0;
@@ -280,6 +286,89 @@ public boolean contains(BlockVector3 position) {
         return contains(points, minY, maxY, position);
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        if (y < minY || y > maxY) {
+            return;
+        }
+
+        // Every Y level has the same spans, so keep the last row around for the next level
+        SpanRow row = lastRow;
+        if (row == null || row.z != z) {
+            row = new SpanRow(z, computeSpans(z));
+            lastRow = row;
+        }
+        int[] spans = row.spans;
+        for (int i = 0; i < spans.length; i += 2) {
+            consumer.accept(spans[i], spans[i + 1]);
+        }
+    }
+
+    private int[] computeSpans(int z) {
+        if (points.size() < 3 || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return new int[0];
+        }
+        int minX = min.getBlockX();
+        int maxX = max.getBlockX();
+
+        // Whether a position is inside can only change next to the X of a
+        // vertex or next to where an edge crosses the row, so only those
+        // positions and one position in each gap between them are tested
+        IntArrayList breaks = new IntArrayList();
+        breaks.add(minX);
+        breaks.add(maxX);
+        BlockVector2 previous = points.get(points.size() - 1);
+        for (BlockVector2 point : points) {
+            int x = point.getBlockX();
+            breaks.add(x - 1);
+            breaks.add(x);
+            breaks.add(x + 1);
+            int z1 = previous.getBlockZ();
+            int z2 = point.getBlockZ();
+            if (z1 != z2 && Math.min(z1, z2) <= z && z <= Math.max(z1, z2)) {
+                double crossing = previous.getBlockX() + (double) (z - z1) * (x - previous.getBlockX()) / (z2 - z1);
+                int floor = (int) Math.floor(crossing);
+                breaks.add(floor - 1);
+                breaks.add(floor);
+                breaks.add(floor + 1);
+            }
+            previous = point;
+        }
+        int[] xs = breaks.toIntArray();
+        Arrays.sort(xs);
+
+        IntArrayList spans = new IntArrayList();
+        boolean inside = false;
+        int last = minX - 1;
+        for (int x : xs) {
+            if (x <= last || x < minX || x > maxX) {
+                continue;
+            }
+            if (x > last + 1) {
+                inside = mark(spans, inside, last + 1, containsAt(last + 1, z));
+            }
+            inside = mark(spans, inside, x, containsAt(x, z));
+            last = x;
+        }
+        if (inside) {
+            spans.add(maxX);
+        }
+        return spans.toIntArray();
+    }
+
+    private boolean containsAt(int x, int z) {
+        return contains(points, minY, maxY, BlockVector3.at(x, minY, z));
+    }
+
+    private static boolean mark(IntArrayList spans, boolean inside, int x, boolean contained) {
+        if (contained && !inside) {
+            spans.add(x);
+        } else if (!contained && inside) {
+            spans.add(x - 1);
+        }
+        return contained;
+    }
+
     /**
      * Checks to see if a point is inside a region.
      *
@@ -379,11 +468,6 @@ public boolean expandY(int y) {
         return false;
     }
 
-    @Override
-    public Iterator<BlockVector3> iterator() {
-        return new FlatRegion3DIterator(this);
-    }
-
     @Override
     public Iterable<BlockVector2> asFlatRegion() {
         return () -> new FlatRegionIterator(Polygonal2DRegion.this);
@@ -416,6 +500,16 @@ public Polygonal2DRegion clone() {
         return clone;
     }
 
+    private static final class SpanRow {
+        private final int z;
+        private final int[] spans;
+
+        private SpanRow(int z, int[] spans) {
+            this.z = z;
+            this.spans = spans;
+        }
+    }
+
     @Override
     public List<BlockVector2> polygonize(int maxPoints) {
         if (maxPoints >= 0 && maxPoints < points.size()) {
@@ -117,6 +117,30 @@ public interface Region extends Iterable<BlockVector3>, Cloneable {
      */
     boolean contains(BlockVector3 position);
 
+    /**
+     * Pass each run of positions in the given row that this region contains
+     * to a consumer, in order of increasing X.
+     *
+     * <p>Runs do not overlap or touch, and only cover positions within the
+     * bounding box of the region. The positions passed are exactly those for
+     * which {@link #contains(BlockVector3)} returns true.</p>
+     *
+     * <p>The default implementation tests each position in the row in turn.
+     * Regions that can work out the runs directly should override it.</p>
+     *
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param consumer the consumer of runs
+     */
+    default void forEachSpan(int y, int z, SpanConsumer consumer) {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+        Regions.scanSpans(this, min.getBlockX(), max.getBlockX(), y, z, consumer);
+    }
+
     /**
      * Get a list of chunks.
      *
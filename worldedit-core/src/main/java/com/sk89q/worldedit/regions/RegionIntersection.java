@@ -25,6 +25,8 @@
 import com.google.common.collect.Iterators;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -131,6 +133,41 @@ public boolean contains(BlockVector3 position) {
         return false;
     }
 
+    @Override
+    public void forEachSpan(int y, int z, SpanConsumer consumer) {
+        if (regions.size() == 1) {
+            regions.get(0).forEachSpan(y, z, consumer);
+            return;
+        }
+
+        // Each span is packed with its start in the high bits so that sorting orders by start
+        LongArrayList spans = new LongArrayList();
+        for (Region region : regions) {
+            region.forEachSpan(y, z, (minX, maxX) -> spans.add(((long) minX << 32) | (maxX & 0xFFFFFFFFL)));
+        }
+        if (spans.isEmpty()) {
+            return;
+        }
+        LongArrays.quickSort(spans.elements(), 0, spans.size());
+
+        long first = spans.getLong(0);
+        int start = (int) (first >> 32);
+        int end = (int) first;
+        for (int i = 1; i < spans.size(); i++) {
+            long span = spans.getLong(i);
+            int minX = (int) (span >> 32);
+            int maxX = (int) span;
+            if (minX <= end || minX - 1 == end) {
+                end = Math.max(end, maxX);
+            } else {
+                consumer.accept(start, end);
+                start = minX;
+                end = maxX;
+            }
+        }
+        consumer.accept(start, end);
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     public Iterator<BlockVector3> iterator() {
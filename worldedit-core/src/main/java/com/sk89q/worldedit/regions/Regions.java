@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit.regions;
 
+import com.sk89q.worldedit.math.BlockVector3;
+
 /**
  * Utility methods relating to {@link Region}s.
  */
@@ -89,4 +91,82 @@ public static FlatRegion asFlatRegion(Region region) {
         }
     }
 
+    /**
+     * Pass each run of positions in part of a row that the given region
+     * contains to a consumer, testing every position.
+     *
+     * @param region the region
+     * @param minX the first X coordinate to test
+     * @param maxX the last X coordinate to test
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param consumer the consumer of runs
+     */
+    static void scanSpans(Region region, int minX, int maxX, int y, int z, SpanConsumer consumer) {
+        boolean inside = false;
+        int start = 0;
+        for (int x = minX; x <= maxX; x++) {
+            boolean contained = region.contains(BlockVector3.at(x, y, z));
+            if (contained && !inside) {
+                start = x;
+            } else if (!contained && inside) {
+                consumer.accept(start, x - 1);
+            }
+            inside = contained;
+        }
+        if (inside) {
+            consumer.accept(start, maxX);
+        }
+    }
+
+    /**
+     * Pass the run of positions in part of a row that the given region
+     * contains to a consumer, where the region is known to contain at most
+     * one run in the row.
+     *
+     * <p>The ends of the run are found by correcting an estimate with
+     * {@link Region#contains(BlockVector3)}, so the estimate only has to be
+     * close for this to be fast.</p>
+     *
+     * @param region the region
+     * @param minX the first X coordinate to consider
+     * @param maxX the last X coordinate to consider
+     * @param seed an X coordinate that is in the run, if there is one
+     * @param estimatedMin the estimated start of the run
+     * @param estimatedMax the estimated end of the run
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param consumer the consumer of runs
+     */
+    static void refineSpan(Region region, int minX, int maxX, int seed, int estimatedMin, int estimatedMax,
+                           int y, int z, SpanConsumer consumer) {
+        if (seed < minX || seed > maxX || !region.contains(BlockVector3.at(seed, y, z))) {
+            return;
+        }
+
+        int start = Math.min(Math.max(estimatedMin, minX), seed);
+        if (region.contains(BlockVector3.at(start, y, z))) {
+            while (start > minX && region.contains(BlockVector3.at(start - 1, y, z))) {
+                start--;
+            }
+        } else {
+            do {
+                start++;
+            } while (!region.contains(BlockVector3.at(start, y, z)));
+        }
+
+        int end = Math.max(Math.min(estimatedMax, maxX), seed);
+        if (region.contains(BlockVector3.at(end, y, z))) {
+            while (end < maxX && region.contains(BlockVector3.at(end + 1, y, z))) {
+                end++;
+            }
+        } else {
+            do {
+                end--;
+            } while (!region.contains(BlockVector3.at(end, y, z)));
+        }
+
+        consumer.accept(start, end);
+    }
+
 }
@@ -17,6 +17,7 @@
  * along with this program. If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.sk89q.worldedit.regions.iterator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -24,19 +25,27 @@
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanConsumer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class FlatRegionIterator implements Iterator<BlockVector2>  {
 
-    private Region region;
-    private int y;
-    private int minX;
+    private final Region region;
+    private final int y;
+    private final int maxZ;
+    private final IntArrayList spans = new IntArrayList();
+    private final SpanConsumer collector = (minX, maxX) -> {
+        spans.add(minX);
+        spans.add(maxX);
+    };
+    private int z;
+    private int spanIndex;
     private int nextX;
-    private int nextZ;
-    private int maxX;
-    private int maxZ;
+    private int spanEnd;
+    private boolean hasNext;
 
     public FlatRegionIterator(Region region) {
         checkNotNull(region);
@@ -47,53 +56,52 @@ public FlatRegionIterator(Region region) {
         BlockVector3 max = region.getMaximumPoint();
 
         this.y = min.getBlockY();
-
-        this.minX = min.getBlockX();
-
-        this.nextX = minX;
-        this.nextZ = min.getBlockZ();
-
-        this.maxX = max.getBlockX();
+        this.z = min.getBlockZ();
         this.maxZ = max.getBlockZ();
 
-        forward();
+        hasNext = z <= maxZ;
+        if (hasNext) {
+            region.forEachSpan(y, z, collector);
+            findSpan();
+        }
     }
 
-    @Override
-    public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
+    private void findSpan() {
+        while (spanIndex >= spans.size()) {
+            if (z == maxZ) {
+                hasNext = false;
+                return;
+            }
+            z++;
+            spans.clear();
+            spanIndex = 0;
+            region.forEachSpan(y, z, collector);
+        }
+        nextX = spans.getInt(spanIndex);
+        spanEnd = spans.getInt(spanIndex + 1);
     }
 
-    private void forward() {
-        while (hasNext() && !region.contains(BlockVector3.at(nextX, y, nextZ))) {
-            forwardOne();
-        }
+    @Override
+    public boolean hasNext() {
+        return hasNext;
     }
 
     @Override
     public BlockVector2 next() {
-        if (!hasNext()) {
+        if (!hasNext) {
             throw new NoSuchElementException();
         }
 
-        BlockVector2 answer = BlockVector2.at(nextX, nextZ);
-
-        forwardOne();
-        forward();
-
-        return answer;
-    }
+        BlockVector2 answer = BlockVector2.at(nextX, z);
 
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
+        if (nextX < spanEnd) {
+            nextX++;
+        } else {
+            spanIndex += 2;
+            findSpan();
         }
-        nextX = minX;
 
-        if (++nextZ <= maxZ) {
-            return;
-        }
-        nextX = Integer.MIN_VALUE;
+        return answer;
     }
 
 }
@@ -17,82 +17,106 @@
  * along with this program. If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.sk89q.worldedit.regions.iterator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanConsumer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * Iterates over the positions in a region, one row at a time, using
+ * {@link Region#forEachSpan(int, int, SpanConsumer)}.
+ *
+ * <p>Positions are returned in order of increasing X, then Y, then Z.</p>
+ */
 public class RegionIterator implements Iterator<BlockVector3> {
 
     private final Region region;
-    private final int maxX;
+    private final int minY;
     private final int maxY;
     private final int maxZ;
-    private final BlockVector3 min;
+    private final IntArrayList spans = new IntArrayList();
+    private final SpanConsumer collector = (minX, maxX) -> {
+        spans.add(minX);
+        spans.add(maxX);
+    };
+    private int y;
+    private int z;
+    private int spanIndex;
     private int nextX;
-    private int nextY;
-    private int nextZ;
+    private int spanEnd;
+    private boolean hasNext;
 
     public RegionIterator(Region region) {
         checkNotNull(region);
 
         this.region = region;
 
+        BlockVector3 min = region.getMinimumPoint();
         BlockVector3 max = region.getMaximumPoint();
-        this.maxX = max.getBlockX();
+        this.minY = min.getBlockY();
         this.maxY = max.getBlockY();
         this.maxZ = max.getBlockZ();
+        this.y = minY;
+        this.z = min.getBlockZ();
 
-        this.min = region.getMinimumPoint();
-        this.nextX = min.getBlockX();
-        this.nextY = min.getBlockY();
-        this.nextZ = min.getBlockZ();
+        hasNext = y <= maxY && z <= maxZ;
+        if (hasNext) {
+            region.forEachSpan(y, z, collector);
+            findSpan();
+        }
+    }
 
-        forward();
+    /**
+     * Move to the next span, reading further rows as needed.
+     */
+    private void findSpan() {
+        while (spanIndex >= spans.size()) {
+            if (y < maxY) {
+                y++;
+            } else if (z < maxZ) {
+                y = minY;
+                z++;
+            } else {
+                hasNext = false;
+                return;
+            }
+            spans.clear();
+            spanIndex = 0;
+            region.forEachSpan(y, z, collector);
+        }
+        nextX = spans.getInt(spanIndex);
+        spanEnd = spans.getInt(spanIndex + 1);
     }
 
     @Override
     public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
-    }
-
-    private void forward() {
-        while (hasNext() && !region.contains(BlockVector3.at(nextX, nextY, nextZ))) {
-            forwardOne();
-        }
+        return hasNext;
     }
 
     @Override
     public BlockVector3 next() {
-        if (!hasNext()) throw new java.util.NoSuchElementException();
-
-        BlockVector3 answer = BlockVector3.at(nextX, nextY, nextZ);
-
-        forwardOne();
-        forward();
-
-        return answer;
-    }
-
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
+        if (!hasNext) {
+            throw new NoSuchElementException();
         }
-        nextX = min.getBlockX();
 
-        if (++nextY <= maxY) {
-            return;
-        }
-        nextY = min.getBlockY();
+        BlockVector3 answer = BlockVector3.at(nextX, y, z);
 
-        if (++nextZ <= maxZ) {
-            return;
+        if (nextX < spanEnd) {
+            nextX++;
+        } else {
+            spanIndex += 2;
+            findSpan();
         }
-        nextX = Integer.MIN_VALUE;
+
+        return answer;
     }
 
     @Override
@@ -0,0 +1,293 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.google.common.base.Throwables;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.internal.expression.BoundExpression;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanConsumer;
+import com.sk89q.worldedit.util.concurrency.WorkerPool;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Evaluates an expression for every block of a region on several threads.
+ *
+ * <p>The bounding box of the region is split into 16x16x16 sections aligned
+ * to chunks. Every worker compiles its own copy of the expression, with its
+ * own slots and environment, so only
+ * {@linkplain Expression#isParallelizable() parallelizable} expressions may
+ * be used. The results of each section are returned in chunk order, to be
+ * applied to the extent on the calling thread.</p>
+ *
+ * <p>Sections are evaluated on the {@linkplain WorldEdit#getWorkerPool()
+ * worker pool}, which leaves one core free for the server, rather than on
+ * the common pool shared with the rest of the server.</p>
+ */
+public class ParallelExpressionEvaluator {
+
+    /**
+     * Regions with fewer blocks than this are not worth splitting up.
+     */
+    private static final int MIN_PARALLEL_AREA = 16 * 16 * 16 * 8;
+
+    /**
+     * Evaluates the expression for a single block.
+     */
+    @FunctionalInterface
+    public interface BlockEvaluator {
+
+        /**
+         * Evaluate the expression for a block, adding any results for the
+         * block to the output of its section.
+         *
+         * @param expression this thread's copy of the expression
+         * @param environment the environment of the copy
+         * @param x the X coordinate
+         * @param y the Y coordinate
+         * @param z the Z coordinate
+         * @param index the index of the block within its section
+         * @param output the output of the section
+         * @throws EvaluationException if evaluation fails
+         */
+        void evaluate(BoundExpression expression, WorldEditExpressionEnvironment environment,
+                      int x, int y, int z, int index, IntArrayList output) throws EvaluationException;
+
+    }
+
+    /**
+     * The results for one section of the region.
+     */
+    public static final class Section {
+
+        private final BlockVector3 origin;
+        private final IntArrayList output;
+
+        private Section(BlockVector3 origin, IntArrayList output) {
+            this.origin = origin;
+            this.output = output;
+        }
+
+        /**
+         * Get the minimum corner of the section.
+         *
+         * @return the origin
+         */
+        public BlockVector3 getOrigin() {
+            return origin;
+        }
+
+        /**
+         * Get the block at an index within this section.
+         *
+         * @param index the index passed to the {@link BlockEvaluator}
+         * @return the position
+         */
+        public BlockVector3 getPosition(int index) {
+            return origin.add(index & 15, index >> 8, (index >> 4) & 15);
+        }
+
+        /**
+         * Get the values added by the {@link BlockEvaluator}.
+         *
+         * @return the output
+         */
+        public IntArrayList getOutput() {
+            return output;
+        }
+    }
+
+    /**
+     * The copy of the expression of one worker, and the runs of the row it
+     * is evaluating.
+     */
+    private static final class Copy {
+        private final BoundExpression expression;
+        private final WorldEditExpressionEnvironment environment;
+        private final IntArrayList spans = new IntArrayList();
+
+        private Copy(BoundExpression expression, WorldEditExpressionEnvironment environment) {
+            this.expression = expression;
+            this.environment = environment;
+        }
+    }
+
+    private final Region region;
+    private final String expressionString;
+    private final String[] variableNames;
+    private final Supplier<WorldEditExpressionEnvironment> environmentFactory;
+    private final int timeout;
+
+    /**
+     * Create a new instance.
+     *
+     * @param region the region to evaluate
+     * @param expressionString the expression
+     * @param variableNames the variable names to compile the expression with
+     * @param environmentFactory creates a new environment for each copy
+     * @param timeout the timeout of each evaluation in milliseconds
+     */
+    public ParallelExpressionEvaluator(Region region, String expressionString, String[] variableNames,
+                                       Supplier<WorldEditExpressionEnvironment> environmentFactory, int timeout) {
+        this.region = region;
+        this.expressionString = expressionString;
+        this.variableNames = variableNames.clone();
+        this.environmentFactory = environmentFactory;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Check whether it is worth evaluating an expression over a region in
+     * parallel.
+     *
+     * @param expression the compiled expression
+     * @param region the region
+     * @return true if the expression should be evaluated in parallel
+     */
+    public static boolean shouldEvaluateInParallel(Expression expression, Region region) {
+        return expression.isParallelizable()
+            && Runtime.getRuntime().availableProcessors() > 1
+            && region.getArea() >= MIN_PARALLEL_AREA;
+    }
+
+    private Copy createCopy() {
+        Expression expression;
+        try {
+            expression = Expression.compile(expressionString, variableNames);
+        } catch (ExpressionException e) {
+            // the expression has been compiled once already
+            throw new IllegalStateException(e);
+        }
+        expression.optimize();
+        WorldEditExpressionEnvironment environment = environmentFactory.get();
+        expression.setEnvironment(environment);
+        return new Copy(expression.bind(timeout), environment);
+    }
+
+    /**
+     * Evaluate the expression for every block in the region.
+     *
+     * @param evaluator the evaluator to call for every block
+     * @return the results of each section, in chunk order
+     * @throws EvaluationException if evaluation failed for a block
+     */
+    public List<Section> evaluate(BlockEvaluator evaluator) throws EvaluationException {
+        checkArgument(region.getArea() > 0, "region is empty");
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+
+        List<BlockVector3> origins = new ArrayList<>();
+        for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+            for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                for (int cy = min.getY() >> 4; cy <= max.getY() >> 4; cy++) {
+                    origins.add(BlockVector3.at(cx << 4, cy << 4, cz << 4));
+                }
+            }
+        }
+
+        // each worker compiles one copy, then takes sections until there are none left
+        IntArrayList[] outputs = new IntArrayList[origins.size()];
+        AtomicInteger nextSection = new AtomicInteger();
+        ExecutorService executor = WorldEdit.getInstance().getWorkerPool().getExecutor();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(WorkerPool.THREADS, outputs.length); i++) {
+            tasks.add(executor.submit(() -> evaluateSections(origins, outputs, nextSection, evaluator)));
+        }
+
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            nextSection.set(outputs.length);
+            tasks.forEach(task -> task.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new EvaluationException(-1, "Interrupted while evaluating");
+        } catch (ExecutionException e) {
+            nextSection.set(outputs.length);
+            tasks.forEach(task -> task.cancel(false));
+            Throwables.throwIfInstanceOf(e.getCause(), EvaluationException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+
+        List<Section> sections = new ArrayList<>(outputs.length);
+        for (int i = 0; i < outputs.length; i++) {
+            sections.add(new Section(origins.get(i), outputs[i]));
+        }
+        return sections;
+    }
+
+    private Void evaluateSections(List<BlockVector3> origins, IntArrayList[] outputs, AtomicInteger nextSection,
+                                  BlockEvaluator evaluator) throws EvaluationException {
+        Copy copy = createCopy();
+        for (int i = nextSection.getAndIncrement(); i < outputs.length; i = nextSection.getAndIncrement()) {
+            outputs[i] = evaluateSection(origins.get(i), copy, evaluator);
+        }
+        return null;
+    }
+
+    private IntArrayList evaluateSection(BlockVector3 origin, Copy copy, BlockEvaluator evaluator)
+            throws EvaluationException {
+        BlockVector3 min = region.getMinimumPoint().getMaximum(origin);
+        BlockVector3 max = region.getMaximumPoint().getMinimum(origin.add(15, 15, 15));
+        int minX = min.getX();
+        int maxX = max.getX();
+        IntArrayList spans = copy.spans;
+        SpanConsumer clipToSection = (spanMinX, spanMaxX) -> {
+            if (spanMaxX >= minX && spanMinX <= maxX) {
+                spans.add(Math.max(spanMinX, minX));
+                spans.add(Math.min(spanMaxX, maxX));
+            }
+        };
+
+        IntArrayList output = new IntArrayList();
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                spans.clear();
+                region.forEachSpan(y, z, clipToSection);
+                int rowIndex = ((z - origin.getZ()) << 4) | ((y - origin.getY()) << 8);
+                for (int i = 0; i < spans.size(); i += 2) {
+                    for (int x = spans.getInt(i); x <= spans.getInt(i + 1); x++) {
+                        evaluator.evaluate(copy.expression, copy.environment, x, y, z,
+                            rowIndex | (x - origin.getX()), output);
+                    }
+                }
+            }
+        }
+        output.trim();
+        return output;
+    }
+
+}
@@ -36,7 +36,7 @@
 import com.sk89q.worldedit.event.platform.ConfigurationLoadEvent;
 import com.sk89q.worldedit.extension.platform.Locatable;
 import com.sk89q.worldedit.session.request.Request;
-import com.sk89q.worldedit.session.storage.JsonFileSessionStore;
+import com.sk89q.worldedit.session.storage.BinarySessionStore;
 import com.sk89q.worldedit.session.storage.SessionStore;
 import com.sk89q.worldedit.session.storage.VoidStore;
 import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
@@ -48,36 +48,49 @@
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Session manager for WorldEdit.
  *
  * <p>Get a reference to one from {@link WorldEdit}.</p>
  *
- * <p>While this class is thread-safe, the returned session may not be.</p>
+ * <p>While this class is thread-safe, the returned session may not be.
+ * Lookups only lock the entry of the session they find, so that it can't
+ * expire while it is being looked up, and saving changed sessions does not
+ * block them.</p>
  */
 public class SessionManager {
 
     public static int EXPIRATION_GRACE = 10 * 60 * 1000;
     private static final int FLUSH_PERIOD = 1000 * 30;
+    private static final int UNLOAD_TIMEOUT = 1000 * 10;
+    // a single thread keeps saves, closes and migrations in the order they are queued,
+    // and an unbounded queue never rejects them
     private static final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(
-            EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, 5, "WorldEdit Session Saver - %s"));
+            EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, Integer.MAX_VALUE, "WorldEdit Session Saver - %s"));
     private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
     private static boolean warnedInvalidTool;
 
     private final Timer timer = new Timer("WorldEdit Session Manager");
     private final WorldEdit worldEdit;
-    private final Map<UUID, SessionHolder> sessions = new HashMap<>();
-    private SessionStore store = new VoidStore();
+    private final ConcurrentMap<UUID, SessionHolder> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SessionHolder> sessionsByName = new ConcurrentHashMap<>();
+    private final Map<File, BinarySessionStore> stores = new HashMap<>();
+    private volatile SessionStore store = new VoidStore();
 
     /**
      * Create a new session manager.
@@ -98,7 +111,7 @@ public SessionManager(WorldEdit worldEdit) {
      * @param owner the owner
      * @return true if a session exists
      */
-    public synchronized boolean contains(SessionOwner owner) {
+    public boolean contains(SessionOwner owner) {
         checkNotNull(owner);
         return sessions.containsKey(getKey(owner));
     }
@@ -110,15 +123,20 @@ public synchronized boolean contains(SessionOwner owner) {
      * @return the session, if found, otherwise {@code null}
      */
     @Nullable
-    public synchronized LocalSession findByName(String name) {
+    public LocalSession findByName(String name) {
         checkNotNull(name);
-        for (SessionHolder holder : sessions.values()) {
-            String test = holder.key.getName();
-            if (name.equals(test)) {
-                return holder.session;
-            }
+        SessionHolder holder = sessionsByName.get(name);
+        if (holder != null && name.equals(holder.key.getName())) {
+            return holder.session;
         }
 
+        // the owner may have been renamed since the session was indexed
+        for (SessionHolder stored : sessions.values()) {
+            if (name.equals(stored.key.getName()) && sessions.get(getKey(stored.key)) == stored) {
+                index(stored);
+                return stored.session;
+            }
+        }
         return null;
     }
 
@@ -130,9 +148,13 @@ public synchronized LocalSession findByName(String name) {
      * @return the session for the owner, if it exists
      */
     @Nullable
-    public synchronized LocalSession getIfPresent(SessionOwner owner) {
+    public LocalSession getIfPresent(SessionOwner owner) {
         checkNotNull(owner);
-        SessionHolder stored = sessions.get(getKey(owner));
+        long now = System.currentTimeMillis();
+        SessionHolder stored = sessions.computeIfPresent(getKey(owner), (key, holder) -> {
+            holder.lastActive = now;
+            return holder;
+        });
         if (stored != null) {
             return stored.session;
         } else {
@@ -146,7 +168,7 @@ public synchronized LocalSession getIfPresent(SessionOwner owner) {
      * @param owner the owner
      * @return a session
      */
-    public synchronized LocalSession get(SessionOwner owner) {
+    public LocalSession get(SessionOwner owner) {
         checkNotNull(owner);
 
         LocalSession session = getIfPresent(owner);
@@ -155,35 +177,7 @@ public synchronized LocalSession get(SessionOwner owner) {
 
         // No session exists yet -- create one
         if (session == null) {
-            try {
-                session = store.load(getKey(sessionKey));
-                session.postLoad();
-            } catch (IOException e) {
-                log.warn("Failed to load saved session", e);
-                session = new LocalSession();
-            }
-            Request.request().setSession(session);
-
-            session.setConfiguration(config);
-            session.setBlockChangeLimit(config.defaultChangeLimit);
-            session.setTimeout(config.calculationTimeout);
-            try {
-                if (owner.hasPermission("worldedit.selection.pos")) {
-                    setDefaultWand(session.getWandItem(), config.wandItem, session, new SelectionWand());
-                }
-                if (owner.hasPermission("worldedit.navigation.jumpto.tool") || owner.hasPermission("worldedit.navigation.thru.tool")) {
-                    setDefaultWand(session.getNavWandItem(), config.navigationWand, session, new NavigationWand());
-                }
-            } catch (InvalidToolBindException e) {
-                if (!warnedInvalidTool) {
-                    warnedInvalidTool = true;
-                    log.warn("Invalid wand tool set in config. Tool will not be assigned: " + e.getItemType());
-                }
-            }
-
-            // Remember the session regardless of if it's currently active or not.
-            // And have the SessionTracker FLUSH inactive sessions.
-            sessions.put(getKey(owner), new SessionHolder(sessionKey, session));
+            session = create(owner, sessionKey, config);
         }
 
         if (shouldBoundLimit(owner, "worldedit.limit.unrestricted", session.getBlockChangeLimit(), config.maxChangeLimit)) {
@@ -208,6 +202,55 @@ public synchronized LocalSession get(SessionOwner owner) {
         return session;
     }
 
+    /**
+     * Load or create the session for an owner and register it, unless
+     * another thread registered one first.
+     *
+     * @param owner the owner
+     * @param sessionKey the session key of the owner
+     * @param config the configuration
+     * @return the registered session
+     */
+    private LocalSession create(SessionOwner owner, SessionKey sessionKey, LocalConfiguration config) {
+        LocalSession session;
+        try {
+            session = store.load(getKey(sessionKey));
+            session.postLoad();
+        } catch (IOException e) {
+            log.warn("Failed to load saved session", e);
+            session = new LocalSession();
+        }
+
+        session.setConfiguration(config);
+        session.setBlockChangeLimit(config.defaultChangeLimit);
+        session.setTimeout(config.calculationTimeout);
+        try {
+            if (owner.hasPermission("worldedit.selection.pos")) {
+                setDefaultWand(session.getWandItem(), config.wandItem, session, new SelectionWand());
+            }
+            if (owner.hasPermission("worldedit.navigation.jumpto.tool") || owner.hasPermission("worldedit.navigation.thru.tool")) {
+                setDefaultWand(session.getNavWandItem(), config.navigationWand, session, new NavigationWand());
+            }
+        } catch (InvalidToolBindException e) {
+            if (!warnedInvalidTool) {
+                warnedInvalidTool = true;
+                log.warn("Invalid wand tool set in config. Tool will not be assigned: " + e.getItemType());
+            }
+        }
+
+        // Remember the session regardless of if it's currently active or not.
+        // And have the SessionTracker FLUSH inactive sessions.
+        SessionHolder holder = new SessionHolder(sessionKey, session);
+        SessionHolder existing = sessions.putIfAbsent(getKey(sessionKey), holder);
+        if (existing != null) {
+            holder = existing;
+        } else {
+            index(holder);
+        }
+        Request.request().setSession(holder.session);
+        return holder.session;
+    }
+
     private boolean shouldBoundLimit(SessionOwner owner, String permission, int currentLimit, int maxLimit) {
         if (maxLimit > -1) { // if max is finite
             return (currentLimit < 0 || currentLimit > maxLimit) // make sure current is finite and less than max
@@ -242,30 +285,41 @@ private ListenableFuture<?> commit(final Map<SessionKey, LocalSession> sessions)
             return Futures.immediateFuture(sessions);
         }
 
+        final SessionStore store = this.store;
         return executorService.submit((Callable<Object>) () -> {
-            Exception exception = null;
-
+            Map<UUID, LocalSession> persistent = new HashMap<>();
             for (Map.Entry<SessionKey, LocalSession> entry : sessions.entrySet()) {
-                SessionKey key = entry.getKey();
-
-                if (key.isPersistent()) {
-                    try {
-                        store.save(getKey(key), entry.getValue());
-                    } catch (IOException e) {
-                        log.warn("Failed to write session for UUID " + getKey(key), e);
-                        exception = e;
-                    }
+                if (entry.getKey().isPersistent()) {
+                    persistent.put(getKey(entry.getKey()), entry.getValue());
                 }
             }
 
-            if (exception != null) {
-                throw exception;
+            try {
+                store.saveAll(persistent);
+            } catch (IOException e) {
+                log.warn("Failed to write sessions", e);
+                throw e;
             }
 
             return sessions;
         });
     }
 
+    /**
+     * Close a session store once the saves queued before now are done.
+     *
+     * @param store the store
+     * @return a future that completes when the store is closed
+     */
+    private ListenableFuture<?> close(final SessionStore store) {
+        return executorService.submit((Callable<Object>) () -> {
+            if (store instanceof Closeable) {
+                ((Closeable) store).close();
+            }
+            return store;
+        });
+    }
+
     /**
      * Get the key to use in the map for an owner.
      *
@@ -290,50 +344,93 @@ protected UUID getKey(SessionKey key) {
     /**
      * Remove the session for the given owner if one exists.
      *
+     * <p>The history of the removed session is cleared, which deletes any
+     * history it had moved to disk.</p>
+     *
      * @param owner the owner
      */
-    public synchronized void remove(SessionOwner owner) {
+    public void remove(SessionOwner owner) {
         checkNotNull(owner);
-        sessions.remove(getKey(owner));
+        SessionHolder holder = sessions.remove(getKey(owner));
+        if (holder != null) {
+            unregister(holder);
+        }
+    }
+
+    /**
+     * Index a session by the current name of its owner.
+     *
+     * @param holder the session holder
+     */
+    private void index(SessionHolder holder) {
+        String name = holder.key.getName();
+        synchronized (holder) {
+            String previous = holder.indexedName;
+            if (previous != null && !previous.equals(name)) {
+                sessionsByName.remove(previous, holder);
+            }
+            if (name != null) {
+                sessionsByName.put(name, holder);
+            }
+            holder.indexedName = name;
+        }
+    }
+
+    private void unregister(SessionHolder holder) {
+        synchronized (holder) {
+            String name = holder.indexedName;
+            if (name != null) {
+                sessionsByName.remove(name, holder);
+            }
+            holder.indexedName = null;
+        }
+        holder.session.clearHistory();
     }
 
     /**
      * Called to unload this session manager.
      */
-    public synchronized void unload() {
+    public void unload() {
         clear();
         timer.cancel();
+        try {
+            close(store).get(UNLOAD_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Failed to finish saving sessions", e);
+        }
     }
 
     /**
-     * Remove all sessions.
+     * Remove all sessions, clearing their history as in
+     * {@link #remove(SessionOwner)}.
      */
-    public synchronized void clear() {
+    public void clear() {
         saveChangedSessions();
-        sessions.clear();
+        for (SessionHolder holder : sessions.values()) {
+            if (sessions.remove(getKey(holder.key), holder)) {
+                unregister(holder);
+            }
+        }
     }
 
-    private synchronized void saveChangedSessions() {
+    private void saveChangedSessions() {
         long now = System.currentTimeMillis();
-        Iterator<SessionHolder> it = sessions.values().iterator();
         Map<SessionKey, LocalSession> saveQueue = new HashMap<>();
 
-        while (it.hasNext()) {
-            SessionHolder stored = it.next();
+        for (SessionHolder stored : sessions.values()) {
             if (stored.key.isActive()) {
                 stored.lastActive = now;
 
                 if (stored.session.compareAndResetDirty()) {
                     saveQueue.put(stored.key, stored.session);
                 }
-            } else {
-                if (now - stored.lastActive > EXPIRATION_GRACE) {
-                    if (stored.session.compareAndResetDirty()) {
-                        saveQueue.put(stored.key, stored.session);
-                    }
-
-                    it.remove();
+            } else if (expire(stored, now)) {
+                if (stored.session.compareAndResetDirty()) {
+                    saveQueue.put(stored.key, stored.session);
                 }
+                unregister(stored);
             }
         }
 
@@ -342,11 +439,58 @@ private synchronized void saveChangedSessions() {
         }
     }
 
+    /**
+     * Remove a session if it has been inactive for longer than
+     * {@link #EXPIRATION_GRACE}. The check is made while holding the lock
+     * on its entry, so that it can't be looked up at the same time.
+     *
+     * @param stored the session holder
+     * @param now the current time
+     * @return true if the session was removed
+     */
+    private boolean expire(SessionHolder stored, long now) {
+        boolean[] removed = new boolean[1];
+        sessions.computeIfPresent(getKey(stored.key), (key, holder) -> {
+            if (holder == stored && !holder.key.isActive() && now - holder.lastActive > EXPIRATION_GRACE) {
+                removed[0] = true;
+                return null;
+            }
+            return holder;
+        });
+        return removed[0];
+    }
+
     @Subscribe
     public void onConfigurationLoad(ConfigurationLoadEvent event) {
         LocalConfiguration config = event.getConfiguration();
-        File dir = new File(config.getWorkingDirectory(), "sessions");
-        store = new JsonFileSessionStore(dir);
+        File dir = new File(config.getWorkingDirectory(), "sessions").getAbsoluteFile();
+        BinarySessionStore next;
+        synchronized (stores) {
+            // one store per file, so that a reload never has the file open twice
+            next = stores.computeIfAbsent(dir, BinarySessionStore::new);
+        }
+        SessionStore previous = store;
+        store = next;
+        if (previous != next) {
+            close(previous);
+            migrate(next);
+        }
+    }
+
+    /**
+     * Move sessions saved as JSON files into a store, once the saves queued
+     * before now are done.
+     *
+     * @param store the store
+     */
+    private void migrate(final BinarySessionStore store) {
+        executorService.submit(() -> {
+            try {
+                store.migrate();
+            } catch (IOException e) {
+                log.warn("Failed to migrate sessions from JSON files", e);
+            }
+        });
     }
 
     /**
@@ -355,7 +499,9 @@ public void onConfigurationLoad(ConfigurationLoadEvent event) {
     private static final class SessionHolder {
         private final SessionKey key;
         private final LocalSession session;
-        private long lastActive = System.currentTimeMillis();
+        private volatile long lastActive = System.currentTimeMillis();
+        @Nullable
+        private String indexedName;
 
         private SessionHolder(SessionKey key, LocalSession session) {
             this.key = key;
@@ -370,9 +516,7 @@ private SessionHolder(SessionKey key, LocalSession session) {
     private class SessionTracker extends TimerTask {
         @Override
         public void run() {
-            synchronized (SessionManager.this) {
-                saveChangedSessions();
-            }
+            saveChangedSessions();
         }
     }
 
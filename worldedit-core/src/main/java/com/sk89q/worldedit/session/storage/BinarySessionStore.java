@@ -0,0 +1,471 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.session.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.util.gson.GsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores sessions as records appended to a single file in a directory.
+ *
+ * <p>Only the location of each session's latest record is kept in memory,
+ * and sessions are read from the file when they are loaded. A batch of
+ * sessions is written with a single sync, and the file is rewritten
+ * without superseded records once most of it is stale.</p>
+ *
+ * <p>Sessions saved as JSON files by {@link JsonFileSessionStore} in the
+ * same directory are loaded from those files until {@link #migrate()} moves
+ * them into the file.</p>
+ */
+public class BinarySessionStore implements SessionStore, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySessionStore.class);
+    private static final String FILE_NAME = "sessions.dat";
+    private static final String JSON_SUFFIX = ".json";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    private static final int MAGIC = 0x57455353; // "WESS"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private final Gson gson = GsonUtil.createBuilder().create();
+    private final File dir;
+    private final Path path;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Map<UUID, Record> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long liveBytes;
+
+    /**
+     * Create a new session store.
+     *
+     * @param dir the directory
+     */
+    public BinarySessionStore(File dir) {
+        checkNotNull(dir);
+
+        if (!dir.isDirectory()) {
+            if (!dir.mkdirs()) {
+                log.warn("Failed to create directory '" + dir.getPath() + "' for sessions");
+            }
+        }
+
+        this.dir = dir;
+        this.path = new File(dir, FILE_NAME).toPath();
+    }
+
+    /**
+     * The location of a session's latest record.
+     */
+    private static final class Record {
+        private final long position;
+        private final int length;
+        private final int checksum;
+
+        private Record(long position, int length, int checksum) {
+            this.position = position;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        private long size() {
+            return RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Get the open file, opening it if needed, and take the read lock, which
+     * the caller must release.
+     *
+     * @return the file channel
+     * @throws IOException thrown if the file can't be opened
+     */
+    private FileChannel acquire() throws IOException {
+        lock.readLock().lock();
+        if (channel == null) {
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                if (channel == null) {
+                    open();
+                }
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return channel;
+    }
+
+    private void open() throws IOException {
+        FileChannel opened = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = readIndex(opened);
+            if (end < opened.size()) {
+                log.warn("Discarding {} bytes of incomplete session data at the end of {}", opened.size() - end, path);
+                opened.truncate(end);
+            }
+        } catch (IOException e) {
+            opened.close();
+            index.clear();
+            liveBytes = 0;
+            throw e;
+        }
+        channel = opened;
+    }
+
+    private long readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FILE_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            writeFully(channel, header, 0);
+            channel.force(true);
+            return FILE_HEADER_SIZE;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.limit(FILE_HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(path + " is not a session store of a supported version");
+        }
+
+        long position = FILE_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(16);
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            UUID id = new UUID(header.getLong(0), header.getLong(8));
+            index(id, new Record(position + RECORD_HEADER_SIZE, length, header.getInt(20)));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private void index(UUID id, Record record) {
+        Record previous = index.put(id, record);
+        liveBytes += record.size() - (previous != null ? previous.size() : 0);
+    }
+
+    /**
+     * Move sessions saved as JSON files into this store. The files are
+     * renamed with a {@code .migrated} suffix, so that they are kept but no
+     * longer loaded.
+     *
+     * <p>This reads every JSON file in the directory, so it should not be
+     * called from the main thread.</p>
+     *
+     * @throws IOException thrown on write error
+     */
+    public void migrate() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(JSON_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                open();
+            }
+            migrate(files);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void migrate(File[] files) throws IOException {
+
+        JsonFileSessionStore jsonStore = new JsonFileSessionStore(dir);
+        Map<UUID, byte[]> sessions = new LinkedHashMap<>();
+        List<File> migrated = new ArrayList<>();
+        for (File file : files) {
+            UUID id;
+            try {
+                id = UUID.fromString(file.getName().substring(0, file.getName().length() - JSON_SUFFIX.length()));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (!index.containsKey(id)) {
+                try {
+                    sessions.put(id, encode(jsonStore.load(id)));
+                } catch (IOException e) {
+                    log.warn("Failed to migrate session from " + file.getPath(), e);
+                    continue;
+                }
+            }
+            migrated.add(file);
+        }
+
+        append(channel, sessions);
+        for (File file : migrated) {
+            if (!file.renameTo(new File(dir, file.getName() + MIGRATED_SUFFIX))) {
+                log.warn("Failed to rename migrated session file {}", file.getPath());
+            }
+        }
+        log.info("Migrated {} sessions from JSON files into {}", sessions.size(), path);
+    }
+
+    @Override
+    public LocalSession load(UUID id) throws IOException {
+        checkNotNull(id);
+        FileChannel channel = acquire();
+        try {
+            Record record = index.get(id);
+            if (record == null) {
+                return loadJson(id);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(record.length);
+            readFully(channel, buffer, record.position);
+            if (checksum(buffer.array()) != record.checksum) {
+                log.warn("Loaded a corrupted session for {} from {}, creating new session", id, path);
+                return new LocalSession();
+            }
+
+            LocalSession session = gson.fromJson(new String(buffer.array(), StandardCharsets.UTF_8), LocalSession.class);
+            return session != null ? session : new LocalSession();
+        } catch (JsonParseException e) {
+            throw new IOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load a session from a JSON file that has not been migrated yet.
+     *
+     * @param id the session ID
+     * @return the session, or a new session if there is no file
+     * @throws IOException thrown on read error
+     */
+    private LocalSession loadJson(UUID id) throws IOException {
+        if (!new File(dir, id + JSON_SUFFIX).exists()) {
+            return new LocalSession();
+        }
+        return new JsonFileSessionStore(dir).load(id);
+    }
+
+    @Override
+    public void save(UUID id, LocalSession session) throws IOException {
+        saveAll(Collections.singletonMap(id, session));
+    }
+
+    @Override
+    public void saveAll(Map<UUID, LocalSession> sessions) throws IOException {
+        checkNotNull(sessions);
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<UUID, LocalSession> entry : sessions.entrySet()) {
+            encoded.put(checkNotNull(entry.getKey()), encode(checkNotNull(entry.getValue())));
+        }
+
+        boolean compact;
+        FileChannel channel = acquire();
+        try {
+            compact = append(channel, encoded);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (compact) {
+            compact();
+        }
+    }
+
+    private byte[] encode(LocalSession session) {
+        return gson.toJson(session).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Append records to the end of the file and sync it once.
+     *
+     * @param channel the file channel
+     * @param sessions encoded sessions
+     * @return true if the file should be compacted
+     * @throws IOException thrown on write error
+     */
+    private boolean append(FileChannel channel, Map<UUID, byte[]> sessions) throws IOException {
+        if (sessions.isEmpty()) {
+            return false;
+        }
+
+        int size = 0;
+        for (byte[] data : sessions.values()) {
+            size += RECORD_HEADER_SIZE + data.length;
+        }
+        ByteBuffer batch = ByteBuffer.allocate(size);
+        int[] checksums = new int[sessions.size()];
+        int i = 0;
+        for (Map.Entry<UUID, byte[]> entry : sessions.entrySet()) {
+            byte[] data = entry.getValue();
+            checksums[i] = checksum(data);
+            batch.putLong(entry.getKey().getMostSignificantBits())
+                .putLong(entry.getKey().getLeastSignificantBits())
+                .putInt(data.length)
+                .putInt(checksums[i++])
+                .put(data);
+        }
+        batch.flip();
+
+        synchronized (appendLock) {
+            long position = channel.size();
+            writeFully(channel, batch, position);
+            channel.force(false);
+
+            i = 0;
+            for (Map.Entry<UUID, byte[]> entry : sessions.entrySet()) {
+                int length = entry.getValue().length;
+                index(entry.getKey(), new Record(position + RECORD_HEADER_SIZE, length, checksums[i++]));
+                position += RECORD_HEADER_SIZE + length;
+            }
+            return position > COMPACTION_THRESHOLD && liveBytes * 2 < position;
+        }
+    }
+
+    /**
+     * Rewrite the file with only the latest record of each session.
+     */
+    private void compact() {
+        lock.writeLock().lock();
+        try {
+            if (channel == null || liveBytes * 2 >= channel.size()) {
+                return;
+            }
+
+            Path temp = path.resolveSibling(FILE_NAME + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                long position = writeFully(out, header, 0);
+                for (Map.Entry<UUID, Record> entry : index.entrySet()) {
+                    Record record = entry.getValue();
+                    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+                    buffer.putLong(entry.getKey().getMostSignificantBits())
+                        .putLong(entry.getKey().getLeastSignificantBits())
+                        .putInt(record.length)
+                        .putInt(record.checksum);
+                    readFully(channel, buffer, record.position);
+                    position = writeFully(out, buffer, position);
+                }
+                out.force(true);
+            }
+
+            // the index is rebuilt from the new file when it's next used
+            closeChannel();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to compact " + path, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        FileChannel channel = this.channel;
+        this.channel = null;
+        index.clear();
+        liveBytes = 0;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Close the file. It is opened again if the store is used afterwards.
+     *
+     * @throws IOException thrown on close error
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeChannel();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+}
@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.LocalSession;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -54,4 +55,32 @@ public interface SessionStore {
      */
     void save(UUID id, LocalSession session) throws IOException;
 
+    /**
+     * Save the given sessions, identified by their UUIDs.
+     *
+     * <p>Implementations may write the sessions together. By default, every
+     * session is saved with {@link #save(UUID, LocalSession)} even if some
+     * fail.</p>
+     *
+     * @param sessions a map of sessions to save
+     * @throws IOException thrown on write error of any session
+     */
+    default void saveAll(Map<UUID, LocalSession> sessions) throws IOException {
+        IOException exception = null;
+        for (Map.Entry<UUID, LocalSession> entry : sessions.entrySet()) {
+            try {
+                save(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
 }
@@ -118,7 +118,10 @@ public void load() {
         scriptTimeout = getInt("scripting-timeout", scriptTimeout);
         calculationTimeout = getInt("calculation-timeout", calculationTimeout);
         maxCalculationTimeout = getInt("max-calculation-timeout", maxCalculationTimeout);
+        operationTickBudget = Math.max(1, getInt("operation-tick-budget", operationTickBudget));
+        parallelExpressions = getBool("parallel-expressions", parallelExpressions);
         saveDir = getString("schematic-save-dir", saveDir);
+        schematicCacheSize = Math.max(0, getInt("schematic-cache-size", schematicCacheSize));
         scriptsDir = getString("craftscript-dir", scriptsDir);
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
         butcherMaxRadius = getInt("butcher-max-radius", butcherMaxRadius);
@@ -128,6 +131,7 @@ public void load() {
         setDefaultLocaleName(getString("default-locale", defaultLocaleName));
 
         LocalSession.MAX_HISTORY_SIZE = Math.max(15, getInt("history-size", 15));
+        historyMemoryBudget = Math.max(-1, getInt("history-memory-budget", historyMemoryBudget));
 
         String snapshotsDir = getString("snapshots-dir", "");
         boolean experimentalSnapshots = getBool("snapshots-experimental", false);
@@ -30,8 +30,11 @@
 import javax.annotation.Nullable;
 
 /**
- * This class uses an inefficient method to figure out what block a player
- * is looking towards.
+ * This class figures out what block a player is looking towards.
+ *
+ * <p>The line of sight is followed with a voxel traversal (Amanatides and
+ * Woo), which visits every block the line passes through exactly once, in
+ * order, so that thin blocks are never skipped.</p>
  *
  * <p>Originally written by toi. It was ported to WorldEdit and trimmed down by
  * sk89q. Thanks to Raphfrk for optimization of toi's original class.</p>
@@ -41,11 +44,12 @@ public class TargetBlock {
     private final World world;
 
     private int maxDistance;
-    private double checkDistance, curDistance;
+    private double curDistance;
+    private int stepX, stepY, stepZ;
+    private double deltaX, deltaY, deltaZ;
+    private double nextX, nextY, nextZ;
     private BlockVector3 targetPos = BlockVector3.ZERO;
-    private Vector3 targetPosDouble = Vector3.ZERO;
     private BlockVector3 prevPos = BlockVector3.ZERO;
-    private Vector3 offset = Vector3.ZERO;
 
     // the mask which dictates when to stop a trace - defaults to stopping at non-air blocks
     private Mask stopMask;
@@ -58,23 +62,23 @@ public class TargetBlock {
      * @param player player to work with
      */
     public TargetBlock(Player player) {
-        this.world = player.getWorld();
-        this.setValues(player.getLocation().toVector(), player.getLocation().getYaw(), player.getLocation().getPitch(),
-                300, 1.65, 0.2);
-        this.stopMask = new ExistingBlockMask(world);
-        this.solidMask = new SolidBlockMask(world);
+        this(player, 300, 0.2);
     }
 
     /**
      * Constructor requiring a player, max distance and a checking distance
      *
+     * <p>Every block along the line of sight is checked, so the checking
+     * distance is no longer used.</p>
+     *
      * @param player Player to work with
      * @param maxDistance how far it checks for blocks
      * @param checkDistance how often to check for blocks, the smaller the more precise
      */
     public TargetBlock(Player player, int maxDistance, double checkDistance) {
         this.world = player.getWorld();
-        this.setValues(player.getLocation().toVector(), player.getLocation().getYaw(), player.getLocation().getPitch(), maxDistance, 1.65, checkDistance);
+        this.setValues(player.getLocation().toVector(), player.getLocation().getYaw(), player.getLocation().getPitch(),
+                maxDistance, 1.65);
         this.stopMask = new ExistingBlockMask(world);
         this.solidMask = new SolidBlockMask(world);
     }
@@ -115,24 +119,50 @@ public void setSolidMask(@Nullable Mask solidMask) {
      * @param yRotation the Y rotation
      * @param maxDistance how far it checks for blocks
      * @param viewHeight where the view is positioned in y-axis
-     * @param checkDistance how often to check for blocks, the smaller the more precise
      */
-    private void setValues(Vector3 loc, double xRotation, double yRotation, int maxDistance, double viewHeight, double checkDistance) {
+    private void setValues(Vector3 loc, double xRotation, double yRotation, int maxDistance, double viewHeight) {
         this.maxDistance = maxDistance;
-        this.checkDistance = checkDistance;
         this.curDistance = 0;
         xRotation = (xRotation + 90) % 360;
         yRotation *= -1;
 
-        double h = (checkDistance * Math.cos(Math.toRadians(yRotation)));
+        double h = Math.cos(Math.toRadians(yRotation));
+        double dirX = h * Math.cos(Math.toRadians(xRotation));
+        double dirY = Math.sin(Math.toRadians(yRotation));
+        double dirZ = h * Math.sin(Math.toRadians(xRotation));
 
-        offset = Vector3.at((h * Math.cos(Math.toRadians(xRotation))),
-                            (checkDistance * Math.sin(Math.toRadians(yRotation))),
-                            (h * Math.sin(Math.toRadians(xRotation))));
-
-        targetPosDouble = loc.add(0, viewHeight, 0);
-        targetPos = targetPosDouble.toBlockPoint();
+        Vector3 origin = loc.add(0, viewHeight, 0);
+        targetPos = origin.toBlockPoint();
         prevPos = targetPos;
+
+        stepX = (int) Math.signum(dirX);
+        stepY = (int) Math.signum(dirY);
+        stepZ = (int) Math.signum(dirZ);
+        deltaX = Math.abs(1 / dirX);
+        deltaY = Math.abs(1 / dirY);
+        deltaZ = Math.abs(1 / dirZ);
+        nextX = distanceToBoundary(origin.getX(), targetPos.getBlockX(), dirX);
+        nextY = distanceToBoundary(origin.getY(), targetPos.getBlockY(), dirY);
+        nextZ = distanceToBoundary(origin.getZ(), targetPos.getBlockZ(), dirZ);
+    }
+
+    /**
+     * Get the distance along the line of sight to the first block boundary
+     * on one axis.
+     *
+     * @param origin the coordinate of the view on the axis
+     * @param block the coordinate of the block containing the view
+     * @param direction the component of the direction on the axis
+     * @return the distance, or infinity if the boundary is never crossed
+     */
+    private static double distanceToBoundary(double origin, int block, double direction) {
+        if (direction > 0) {
+            return (block + 1 - origin) / direction;
+        } else if (direction < 0) {
+            return (origin - block) / -direction;
+        } else {
+            return Double.POSITIVE_INFINITY;
+        }
     }
 
     /**
@@ -192,17 +222,23 @@ public Location getSolidTargetBlock() {
      */
     public Location getNextBlock() {
         prevPos = targetPos;
-        do {
-            curDistance += checkDistance;
-
-            targetPosDouble = offset.add(targetPosDouble.getX(),
-                                         targetPosDouble.getY(),
-                                         targetPosDouble.getZ());
-            targetPos = targetPosDouble.toBlockPoint();
-        } while (curDistance <= maxDistance
-                && targetPos.getBlockX() == prevPos.getBlockX()
-                && targetPos.getBlockY() == prevPos.getBlockY()
-                && targetPos.getBlockZ() == prevPos.getBlockZ());
+        int x = targetPos.getBlockX();
+        int y = targetPos.getBlockY();
+        int z = targetPos.getBlockZ();
+        if (nextX < nextY && nextX < nextZ) {
+            curDistance = nextX;
+            nextX += deltaX;
+            x += stepX;
+        } else if (nextY < nextZ) {
+            curDistance = nextY;
+            nextY += deltaY;
+            y += stepY;
+        } else {
+            curDistance = nextZ;
+            nextZ += deltaZ;
+            z += stepZ;
+        }
+        targetPos = BlockVector3.at(x, y, z);
 
         if (curDistance > maxDistance) {
             return null;
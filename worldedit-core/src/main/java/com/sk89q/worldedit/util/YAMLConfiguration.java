@@ -109,12 +109,16 @@ public void load() {
 
         calculationTimeout = config.getInt("calculation.timeout", calculationTimeout);
         maxCalculationTimeout = config.getInt("calculation.max-timeout", maxCalculationTimeout);
+        operationTickBudget = Math.max(1, config.getInt("calculation.tick-budget", operationTickBudget));
+        parallelExpressions = config.getBoolean("calculation.parallel", parallelExpressions);
 
         saveDir = config.getString("saving.dir", saveDir);
+        schematicCacheSize = Math.max(0, config.getInt("saving.cache-size", schematicCacheSize));
 
         allowSymlinks = config.getBoolean("files.allow-symbolic-links", false);
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, config.getInt("history.size", 15));
         SessionManager.EXPIRATION_GRACE = config.getInt("history.expiration", 10) * 60 * 1000;
+        historyMemoryBudget = Math.max(-1, config.getInt("history.memory-budget", historyMemoryBudget));
 
         showHelpInfo = config.getBoolean("show-help-on-first-use", true);
         serverSideCUI = config.getBoolean("server-side-cui", true);
@@ -0,0 +1,181 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.sk89q.worldedit.math.BitMath.mask;
+
+/**
+ * A space-efficient set of block positions, which only supports adding and
+ * testing positions.
+ *
+ * <p>Positions are stored as one bit each, in bitsets covering
+ * 16x16x16 sections. Positions too far out to be keyed by section are kept
+ * in a regular set.</p>
+ */
+public class BlockPositionSet {
+
+    /*
+     * Section key stores 22 bits x + z, 20 bits y.
+     * Inner index stores 4 bits each of x, z, y.
+     * Order (lowest to highest) is x-z-y.
+     */
+
+    private static final long BITS_22 = mask(22);
+    private static final long BITS_20 = mask(20);
+    private static final int MIN_HORIZONTAL = -(1 << 25);
+    private static final int MAX_HORIZONTAL = (1 << 25) - 1;
+    private static final int MIN_VERTICAL = -(1 << 23);
+    private static final int MAX_VERTICAL = (1 << 23) - 1;
+    private static final int WORDS_PER_SECTION = 16 * 16 * 16 / 64;
+
+    private final Long2ObjectMap<long[]> sections = new Long2ObjectOpenHashMap<>();
+    private final Set<BlockVector3> outOfRange = new HashSet<>();
+    private long lastKey;
+    private long[] lastSection;
+    private int size;
+
+    private static boolean isInRange(int x, int y, int z) {
+        return MIN_HORIZONTAL <= x && x <= MAX_HORIZONTAL
+            && MIN_HORIZONTAL <= z && z <= MAX_HORIZONTAL
+            && MIN_VERTICAL <= y && y <= MAX_VERTICAL;
+    }
+
+    private static long toSectionKey(int x, int y, int z) {
+        return ((x >> 4) & BITS_22)
+            | (((z >> 4) & BITS_22) << 22)
+            | (((y >> 4) & BITS_20) << (22 + 22));
+    }
+
+    private static int toInnerIndex(int x, int y, int z) {
+        return (x & 15) | ((z & 15) << 4) | ((y & 15) << 8);
+    }
+
+    private long[] getSection(long key, boolean create) {
+        if (lastSection != null && lastKey == key) {
+            return lastSection;
+        }
+        long[] section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new long[WORDS_PER_SECTION];
+            sections.put(key, section);
+        }
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not already in the set
+     */
+    public boolean add(int x, int y, int z) {
+        if (!isInRange(x, y, z)) {
+            if (outOfRange.add(BlockVector3.at(x, y, z))) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+        long[] section = getSection(toSectionKey(x, y, z), true);
+        int index = toInnerIndex(x, y, z);
+        long bit = 1L << index;
+        long word = section[index >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        section[index >>> 6] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param position the position
+     * @return true if the position was not already in the set
+     */
+    public boolean add(BlockVector3 position) {
+        return add(position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Check whether a position is in the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean contains(int x, int y, int z) {
+        if (!isInRange(x, y, z)) {
+            return outOfRange.contains(BlockVector3.at(x, y, z));
+        }
+        long[] section = getSection(toSectionKey(x, y, z), false);
+        if (section == null) {
+            return false;
+        }
+        int index = toInnerIndex(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Check whether a position is in the set.
+     *
+     * @param position the position
+     * @return true if the position is in the set
+     */
+    public boolean contains(BlockVector3 position) {
+        return contains(position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove every position from the set.
+     */
+    public void clear() {
+        sections.clear();
+        outOfRange.clear();
+        lastSection = null;
+        size = 0;
+    }
+
+}
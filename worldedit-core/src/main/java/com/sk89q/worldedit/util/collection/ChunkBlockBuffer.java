@@ -0,0 +1,388 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * A buffer of blocks to be set, kept in buckets by chunk so that it can be
+ * written out a chunk at a time without sorting the blocks.
+ *
+ * <p>Within a chunk, blocks are kept per 16x16x16 section. A section holds
+ * block state IDs in a sorted array of positions until it fills up, and then
+ * in a dense array covering the whole section. Blocks with NBT data, or
+ * without an internal ID, are kept as objects on the side.</p>
+ *
+ * <p>Chunks are flushed in the order of region files and then chunks, and
+ * the blocks of each chunk from the top down.</p>
+ */
+public class ChunkBlockBuffer {
+
+    /**
+     * Something that receives the blocks of a chunk when it is flushed.
+     */
+    @FunctionalInterface
+    public interface BlockConsumer {
+
+        /**
+         * Accept a block.
+         *
+         * @param position the position
+         * @param block the block
+         * @throws WorldEditException thrown on an error
+         */
+        void accept(BlockVector3 position, BaseBlock block) throws WorldEditException;
+
+    }
+
+    private static final int UNSET = -1;
+    private static final int SPECIAL = -2;
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+    private static final int DENSE_THRESHOLD = 1024;
+
+    private final Long2ObjectMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+    private long lastKey;
+    @Nullable
+    private Chunk lastChunk;
+    private int size;
+
+    private static long toChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int toIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    private static int toStateId(BaseBlock block) {
+        if (block.hasNbtData()) {
+            return SPECIAL;
+        }
+        int id = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+        return BlockStateIdAccess.isValidInternalId(id) && id >= 0 ? id : SPECIAL;
+    }
+
+    @Nullable
+    private Chunk getChunk(int chunkX, int chunkZ, boolean create) {
+        long key = toChunkKey(chunkX, chunkZ);
+        if (lastChunk != null && lastKey == key) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            if (!create) {
+                return null;
+            }
+            chunk = new Chunk(chunkX, chunkZ);
+            chunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Add a block to the buffer, replacing any block already buffered at
+     * the same position.
+     *
+     * @param position the position
+     * @param block the block
+     */
+    public void put(BlockVector3 position, BaseBlock block) {
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        Section section = getChunk(x >> 4, z >> 4, true).getSection(y >> 4, true);
+        if (section.put(toIndex(x, y, z), toStateId(block), block)) {
+            size++;
+        }
+    }
+
+    /**
+     * Get the block buffered at a position.
+     *
+     * @param position the position
+     * @return the block, or null if there is none
+     */
+    @Nullable
+    public BaseBlock get(BlockVector3 position) {
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        Chunk chunk = getChunk(x >> 4, z >> 4, false);
+        if (chunk == null) {
+            return null;
+        }
+        Section section = chunk.getSection(y >> 4, false);
+        return section == null ? null : section.get(toIndex(x, y, z));
+    }
+
+    /**
+     * Get the number of buffered blocks.
+     *
+     * @return the number of blocks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get whether the buffer is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every block from the buffer.
+     */
+    public void clear() {
+        chunks.clear();
+        lastChunk = null;
+        size = 0;
+    }
+
+    /**
+     * Get the keys of the buffered chunks, in the order they should be
+     * flushed.
+     *
+     * @return the chunk keys
+     */
+    public long[] getChunkOrder() {
+        long[] keys = chunks.keySet().toLongArray();
+        LongArrays.quickSort(keys, (a, b) -> {
+            int ax = (int) (a >> 32);
+            int az = (int) a;
+            int bx = (int) (b >> 32);
+            int bz = (int) b;
+            // same order as RegionOptimizedChunkComparator
+            int result = Integer.compare(az >> 5, bz >> 5);
+            if (result == 0) {
+                result = Integer.compare(ax >> 5, bx >> 5);
+            }
+            if (result == 0) {
+                result = Integer.compare(az, bz);
+            }
+            if (result == 0) {
+                result = Integer.compare(ax, bx);
+            }
+            return result;
+        });
+        return keys;
+    }
+
+    /**
+     * Pass the blocks of one chunk to a consumer, from the top down, and
+     * remove them from the buffer.
+     *
+     * @param chunkKey the chunk key, from {@link #getChunkOrder()}
+     * @param consumer the consumer
+     * @return the number of blocks flushed, which is 0 if the chunk has
+     *     already been flushed
+     * @throws WorldEditException thrown by the consumer
+     */
+    public int flushChunk(long chunkKey, BlockConsumer consumer) throws WorldEditException {
+        Chunk chunk = chunks.get(chunkKey);
+        if (chunk == null) {
+            return 0;
+        }
+
+        int flushed = 0;
+        int[] sectionYs = chunk.sections.keySet().toIntArray();
+        IntArrays.quickSort(sectionYs, (a, b) -> Integer.compare(b, a));
+        for (int sectionY : sectionYs) {
+            Section section = chunk.sections.get(sectionY);
+            flushed += section.flush(chunk.chunkX << 4, sectionY << 4, chunk.chunkZ << 4, consumer);
+        }
+        chunks.remove(chunkKey);
+        if (chunk == lastChunk) {
+            lastChunk = null;
+        }
+        size -= flushed;
+        return flushed;
+    }
+
+    private static final class Chunk {
+
+        private final int chunkX;
+        private final int chunkZ;
+        private final Int2ObjectMap<Section> sections = new Int2ObjectOpenHashMap<>(4, 0.75f);
+        private int lastSectionY;
+        @Nullable
+        private Section lastSection;
+
+        private Chunk(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        @Nullable
+        private Section getSection(int sectionY, boolean create) {
+            if (lastSection != null && lastSectionY == sectionY) {
+                return lastSection;
+            }
+            Section section = sections.get(sectionY);
+            if (section == null) {
+                if (!create) {
+                    return null;
+                }
+                section = new Section();
+                sections.put(sectionY, section);
+            }
+            lastSectionY = sectionY;
+            lastSection = section;
+            return section;
+        }
+
+    }
+
+    private static final class Section {
+
+        // while sparse, sorted indexes and their states
+        @Nullable
+        private short[] indexes = new short[16];
+        private int[] states = new int[16];
+        private int count;
+        // whether states covers every index of the section
+        private boolean dense;
+        @Nullable
+        private Int2ObjectMap<BaseBlock> special;
+
+        private int find(int index) {
+            return Arrays.binarySearch(indexes, 0, count, (short) index);
+        }
+
+        /**
+         * Set the block at an index.
+         *
+         * @return true if there was no block at the index before
+         */
+        private boolean put(int index, int stateId, BaseBlock block) {
+            if (stateId == SPECIAL) {
+                if (special == null) {
+                    special = new Int2ObjectOpenHashMap<>(4, 0.75f);
+                }
+                special.put(index, block);
+            } else if (special != null) {
+                special.remove(index);
+            }
+
+            if (dense) {
+                boolean added = states[index] == UNSET;
+                states[index] = stateId;
+                if (added) {
+                    count++;
+                }
+                return added;
+            }
+
+            int slot = find(index);
+            if (slot >= 0) {
+                states[slot] = stateId;
+                return false;
+            }
+            if (count == DENSE_THRESHOLD) {
+                toDense();
+                return put(index, stateId, block);
+            }
+            slot = -slot - 1;
+            if (count == indexes.length) {
+                indexes = Arrays.copyOf(indexes, count * 2);
+                states = Arrays.copyOf(states, count * 2);
+            }
+            System.arraycopy(indexes, slot, indexes, slot + 1, count - slot);
+            System.arraycopy(states, slot, states, slot + 1, count - slot);
+            indexes[slot] = (short) index;
+            states[slot] = stateId;
+            count++;
+            return true;
+        }
+
+        private void toDense() {
+            int[] denseStates = new int[SECTION_VOLUME];
+            Arrays.fill(denseStates, UNSET);
+            for (int i = 0; i < count; i++) {
+                denseStates[indexes[i]] = states[i];
+            }
+            states = denseStates;
+            indexes = null;
+            dense = true;
+        }
+
+        @Nullable
+        private BaseBlock get(int index) {
+            int stateId;
+            if (dense) {
+                stateId = states[index];
+            } else {
+                int slot = find(index);
+                stateId = slot >= 0 ? states[slot] : UNSET;
+            }
+            return toBlock(index, stateId);
+        }
+
+        @Nullable
+        private BaseBlock toBlock(int index, int stateId) {
+            if (stateId == UNSET) {
+                return null;
+            }
+            if (stateId == SPECIAL) {
+                return special.get(index);
+            }
+            BlockState state = BlockStateIdAccess.getBlockStateById(stateId);
+            if (state == null) {
+                throw new IllegalStateException("No state for ID " + stateId);
+            }
+            return state.toBaseBlock();
+        }
+
+        private int flush(int baseX, int baseY, int baseZ, BlockConsumer consumer) throws WorldEditException {
+            int limit = dense ? SECTION_VOLUME : count;
+            for (int i = limit - 1; i >= 0; i--) {
+                int stateId = states[i];
+                if (stateId == UNSET) {
+                    continue;
+                }
+                int index = dense ? i : indexes[i];
+                BlockVector3 position = BlockVector3.at(
+                        baseX + (index & 15), baseY + (index >> 8), baseZ + ((index >> 4) & 15));
+                consumer.accept(position, toBlock(index, stateId));
+            }
+            return count;
+        }
+
+    }
+
+}
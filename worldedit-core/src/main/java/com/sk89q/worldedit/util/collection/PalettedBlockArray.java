@@ -0,0 +1,241 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A fixed-size, three-dimensional array of blocks.
+ *
+ * <p>Like a chunk section, each position stores an index into a small palette
+ * of {@link BlockState}s, and the indexes are bit-packed into a {@code long[]}
+ * that widens as the palette grows. Only blocks carrying NBT data are kept as
+ * full {@link BaseBlock}s, in a separate map.</p>
+ */
+public class PalettedBlockArray {
+
+    /**
+     * Palette index of positions that have never been set.
+     */
+    private static final int UNSET = 0;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final long volume;
+    private final List<BlockState> palette = new ArrayList<>();
+    private final Reference2IntMap<BlockState> paletteIndexes = new Reference2IntOpenHashMap<>();
+    private final Long2ObjectMap<BaseBlock> nbtBlocks = new Long2ObjectOpenHashMap<>(4, 0.75f);
+    private int bitsPerEntry;
+    private int entriesPerLong;
+    private long entryMask;
+    private long[] data;
+
+    /**
+     * Create a new array with every position unset.
+     *
+     * @param sizeX the size on the X axis
+     * @param sizeY the size on the Y axis
+     * @param sizeZ the size on the Z axis
+     */
+    public PalettedBlockArray(int sizeX, int sizeY, int sizeZ) {
+        checkArgument(sizeX > 0 && sizeY > 0 && sizeZ > 0,
+            "Dimensions must be positive, got %sx%sx%s", sizeX, sizeY, sizeZ);
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.volume = (long) sizeX * sizeY * sizeZ;
+        this.paletteIndexes.defaultReturnValue(-1);
+        this.palette.add(null);
+        this.data = allocate(1);
+    }
+
+    private long index(int x, int y, int z) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            throw new IndexOutOfBoundsException("Position (" + x + ", " + y + ", " + z + ") out of bounds");
+        }
+        return ((long) y * sizeZ + z) * sizeX + x;
+    }
+
+    private long[] allocate(int bits) {
+        int perLong = Long.SIZE / bits;
+        long length = (volume + perLong - 1) / perLong;
+        checkState(length <= Integer.MAX_VALUE - 8, "Too many blocks to store: %s", volume);
+        bitsPerEntry = bits;
+        entriesPerLong = perLong;
+        entryMask = (1L << bits) - 1;
+        return new long[(int) length];
+    }
+
+    private int getEntry(long index) {
+        int shift = (int) (index % entriesPerLong) * bitsPerEntry;
+        return (int) ((data[(int) (index / entriesPerLong)] >>> shift) & entryMask);
+    }
+
+    private void setEntry(long index, int entry) {
+        int word = (int) (index / entriesPerLong);
+        int shift = (int) (index % entriesPerLong) * bitsPerEntry;
+        data[word] = (data[word] & ~(entryMask << shift)) | ((long) entry << shift);
+    }
+
+    private int paletteIndexOf(BlockState state) {
+        int entry = paletteIndexes.getInt(state);
+        if (entry != -1) {
+            return entry;
+        }
+        entry = palette.size();
+        if (entry > entryMask) {
+            grow();
+        }
+        palette.add(state);
+        paletteIndexes.put(state, entry);
+        return entry;
+    }
+
+    /**
+     * Widen every entry by one bit, re-packing the existing data.
+     */
+    private void grow() {
+        long[] oldData = data;
+        int oldBits = bitsPerEntry;
+        int oldPerLong = entriesPerLong;
+        long oldMask = entryMask;
+        data = allocate(oldBits + 1);
+        for (long i = 0; i < volume; i++) {
+            int shift = (int) (i % oldPerLong) * oldBits;
+            int entry = (int) ((oldData[(int) (i / oldPerLong)] >>> shift) & oldMask);
+            if (entry != UNSET) {
+                setEntry(i, entry);
+            }
+        }
+    }
+
+    /**
+     * Get the block state at the given position.
+     *
+     * @param x the x offset into the array
+     * @param y the y offset into the array
+     * @param z the z offset into the array
+     * @return the state, or {@code null} if the position was never set
+     */
+    @Nullable
+    public BlockState getBlock(int x, int y, int z) {
+        return palette.get(getEntry(index(x, y, z)));
+    }
+
+    /**
+     * Get the full block, including NBT data, at the given position.
+     *
+     * @param x the x offset into the array
+     * @param y the y offset into the array
+     * @param z the z offset into the array
+     * @return the block, or {@code null} if the position was never set
+     */
+    @Nullable
+    public BaseBlock getFullBlock(int x, int y, int z) {
+        long index = index(x, y, z);
+        if (!nbtBlocks.isEmpty()) {
+            BaseBlock block = nbtBlocks.get(index);
+            if (block != null) {
+                return block;
+            }
+        }
+        BlockState state = palette.get(getEntry(index));
+        return state == null ? null : state.toBaseBlock();
+    }
+
+    /**
+     * Set the block at the given position.
+     *
+     * @param x the x offset into the array
+     * @param y the y offset into the array
+     * @param z the z offset into the array
+     * @param block the block
+     */
+    public void setBlock(int x, int y, int z, BlockStateHolder<?> block) {
+        long index = index(x, y, z);
+        BaseBlock baseBlock = block.toBaseBlock();
+        if (baseBlock.hasNbtData()) {
+            nbtBlocks.put(index, baseBlock);
+        } else if (!nbtBlocks.isEmpty()) {
+            nbtBlocks.remove(index);
+        }
+        setEntry(index, paletteIndexOf(block.toImmutableState()));
+    }
+
+    /**
+     * Get the size of the array on the X axis.
+     *
+     * @return the size
+     */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    /**
+     * Get the size of the array on the Y axis.
+     *
+     * @return the size
+     */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Get the size of the array on the Z axis.
+     *
+     * @return the size
+     */
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    /**
+     * Get the number of distinct states that have been stored.
+     *
+     * @return the palette size
+     */
+    public int getPaletteSize() {
+        return palette.size() - 1;
+    }
+
+    /**
+     * Get the number of bits currently used per position.
+     *
+     * @return the bits per entry
+     */
+    public int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+}
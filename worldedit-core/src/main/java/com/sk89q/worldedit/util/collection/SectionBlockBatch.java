@@ -0,0 +1,257 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A batch of blocks to be set in a single 16x16x16 chunk section.
+ *
+ * <p>Blocks are kept in the order they were first added, as block state IDs
+ * where possible. Blocks with NBT data, or without an internal ID, are kept
+ * as objects. Adding a block at a position that is already in the batch
+ * replaces it in place.</p>
+ *
+ * <p>A batch is meant to be filled, written out, and then
+ * {@linkplain #reset(int, int, int) reset} for the next section, so it
+ * allocates nothing after construction.</p>
+ */
+public class SectionBlockBatch {
+
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final short[] indexes = new short[SECTION_VOLUME];
+    private final int[] stateIds = new int[SECTION_VOLUME];
+    private final BaseBlock[] blocks = new BaseBlock[SECTION_VOLUME];
+    // slot + 1 of each index, or 0 if the index is not in the batch
+    private final short[] slots = new short[SECTION_VOLUME];
+    private int sectionX;
+    private int sectionY;
+    private int sectionZ;
+    private int size;
+
+    private static int toIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    /**
+     * Empty the batch and move it to another section.
+     *
+     * @param sectionX the X coordinate of the section
+     * @param sectionY the Y coordinate of the section
+     * @param sectionZ the Z coordinate of the section
+     */
+    public void reset(int sectionX, int sectionY, int sectionZ) {
+        clear();
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+    }
+
+    /**
+     * Remove every block from the batch.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[indexes[i]] = 0;
+            blocks[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get whether a position lies in the section of this batch.
+     *
+     * @param position the position
+     * @return true if the position is in the section
+     */
+    public boolean isInSection(BlockVector3 position) {
+        return position.getBlockX() >> 4 == sectionX
+            && position.getBlockY() >> 4 == sectionY
+            && position.getBlockZ() >> 4 == sectionZ;
+    }
+
+    /**
+     * Add a block to the batch, replacing any block already in the batch at
+     * the same position.
+     *
+     * @param position the position, which must be in the section
+     * @param block the block
+     */
+    public void put(BlockVector3 position, BlockStateHolder<?> block) {
+        checkArgument(isInSection(position), "position is not in the section");
+        int index = toIndex(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+        int slot = slots[index] - 1;
+        if (slot < 0) {
+            slot = size++;
+            slots[index] = (short) (slot + 1);
+            indexes[slot] = (short) index;
+        }
+
+        BaseBlock special = null;
+        int stateId = BlockStateIdAccess.invalidId();
+        if (block instanceof BaseBlock && ((BaseBlock) block).hasNbtData()) {
+            special = (BaseBlock) block;
+        } else {
+            stateId = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+            if (!BlockStateIdAccess.isValidInternalId(stateId) || stateId < 0) {
+                stateId = BlockStateIdAccess.invalidId();
+                special = block.toBaseBlock();
+            }
+        }
+        stateIds[slot] = stateId;
+        blocks[slot] = special;
+    }
+
+    /**
+     * Get the block in the batch at a position.
+     *
+     * @param position the position
+     * @return the block, or null if the batch has no block there
+     */
+    @Nullable
+    public BaseBlock get(BlockVector3 position) {
+        if (size == 0 || !isInSection(position)) {
+            return null;
+        }
+        int slot = slots[toIndex(position.getBlockX(), position.getBlockY(), position.getBlockZ())] - 1;
+        return slot < 0 ? null : getBlock(slot);
+    }
+
+    /**
+     * Get the number of blocks in the batch.
+     *
+     * @return the number of blocks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get whether the batch is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSectionX() {
+        return sectionX;
+    }
+
+    public int getSectionY() {
+        return sectionY;
+    }
+
+    public int getSectionZ() {
+        return sectionZ;
+    }
+
+    /**
+     * Get the X coordinate of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the X coordinate
+     */
+    public int getX(int slot) {
+        return (sectionX << 4) | (indexes[slot] & 15);
+    }
+
+    /**
+     * Get the Y coordinate of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the Y coordinate
+     */
+    public int getY(int slot) {
+        return (sectionY << 4) | (indexes[slot] >> 8);
+    }
+
+    /**
+     * Get the Z coordinate of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the Z coordinate
+     */
+    public int getZ(int slot) {
+        return (sectionZ << 4) | ((indexes[slot] >> 4) & 15);
+    }
+
+    /**
+     * Get the position of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the position
+     */
+    public BlockVector3 getPosition(int slot) {
+        return BlockVector3.at(getX(slot), getY(slot), getZ(slot));
+    }
+
+    /**
+     * Get the internal block state ID of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the ID, or {@link BlockStateIdAccess#invalidId()} if the block
+     *     has NBT data or no internal ID
+     */
+    public int getStateId(int slot) {
+        return stateIds[slot];
+    }
+
+    /**
+     * Get the block state of a block in the batch.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the block state
+     */
+    public BlockState getState(int slot) {
+        BaseBlock special = blocks[slot];
+        if (special != null) {
+            return special.toImmutableState();
+        }
+        BlockState state = BlockStateIdAccess.getBlockStateById(stateIds[slot]);
+        if (state == null) {
+            throw new IllegalStateException("No state for ID " + stateIds[slot]);
+        }
+        return state;
+    }
+
+    /**
+     * Get a block in the batch, with any NBT data.
+     *
+     * @param slot the slot, from 0 to {@link #size()}
+     * @return the block
+     */
+    public BaseBlock getBlock(int slot) {
+        BaseBlock special = blocks[slot];
+        return special != null ? special : getState(slot).toBaseBlock();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util.concurrency;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A pool of threads for work that is spread over several cores, such as
+ * evaluating expressions or decoding snapshot chunks. Internal, not for
+ * API use.
+ *
+ * <p>The pool has a thread for every core but one, which is left for the
+ * server thread. Threads are started as work is submitted, and stop after
+ * a minute without work. The pool is shut down when the platform unloads,
+ * and started again if work is submitted after that.</p>
+ */
+public final class WorkerPool {
+
+    /**
+     * The number of threads in the pool. There is always at least one,
+     * even on a single core.
+     */
+    public static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private final String threadFormat;
+    @Nullable
+    private ExecutorService executor;
+
+    /**
+     * Create a new pool.
+     *
+     * @param threadFormat thread name formatter
+     */
+    public WorkerPool(String threadFormat) {
+        this.threadFormat = threadFormat;
+    }
+
+    /**
+     * Get the executor of the pool, starting it if it has been shut down.
+     *
+     * @return the executor
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = EvenMoreExecutors.newBoundedCachedThreadPool(THREADS, THREADS, Integer.MAX_VALUE, threadFormat);
+        }
+        return executor;
+    }
+
+    /**
+     * Shut the pool down, cancelling any work that has not started.
+     */
+    public void unload() {
+        ExecutorService unloaded;
+        synchronized (this) {
+            unloaded = executor;
+            executor = null;
+        }
+        if (unloaded != null) {
+            unloaded.shutdownNow();
+        }
+    }
+
+}
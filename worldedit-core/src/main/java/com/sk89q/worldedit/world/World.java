@@ -36,12 +36,14 @@
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
 import com.sk89q.worldedit.util.TreeGenerator;
+import com.sk89q.worldedit.util.collection.SectionBlockBatch;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.weather.WeatherType;
 
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -140,6 +142,28 @@ default <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position,
      */
     <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects) throws WorldEditException;
 
+    /**
+     * Set every block of a batch in one chunk section, as if by
+     * {@link #setBlock(BlockVector3, BlockStateHolder, SideEffectSet)}.
+     *
+     * <p>Implementations may look up the chunk once for the whole batch, and
+     * defer lighting and neighbour notification until every block has been
+     * set.</p>
+     *
+     * @param batch the blocks to set
+     * @param sideEffects which side effects to perform
+     * @return the number of blocks that were set (may not be accurate)
+     */
+    default int setBlocks(SectionBlockBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.getPosition(i), batch.getBlock(i), sideEffects)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     /**
      * Notifies the simulation that the block at the given location has
      * been changed and it must be re-lighted (and issue other events).
@@ -231,6 +255,28 @@ default boolean notifyAndLightBlock(BlockVector3 position, BlockState previousTy
      */
     void checkLoadedChunk(BlockVector3 position);
 
+    /**
+     * Start loading the given chunks in the background, so that later
+     * changes to them don't have to wait for them to load.
+     *
+     * <p>This is only a hint, and implementations that can't load chunks
+     * in the background may load some or none of them. Implementations may
+     * keep the chunks loaded until {@link #releasePreloadedChunks()} is
+     * called.</p>
+     *
+     * @param chunks a list of chunk coordinates to load
+     */
+    default void preloadChunks(Collection<BlockVector2> chunks) {
+    }
+
+    /**
+     * Allow the chunks loaded by {@link #preloadChunks(Collection)} to
+     * unload again, once the changes to them have been applied. Chunks that
+     * are still loading are not kept loaded either.
+     */
+    default void releasePreloadedChunks() {
+    }
+
     /**
      * Fix the given chunks after fast mode was used.
      *
@@ -0,0 +1,104 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.snapshot.experimental;
+
+import com.google.common.base.Throwables;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.concurrency.WorkerPool;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.chunk.Chunk;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and decodes chunks of a snapshot on worker threads, ahead of the
+ * thread that applies them.
+ *
+ * <p>Chunks are returned in the order their positions were given. Only a
+ * few chunks per worker are loaded ahead of the consumer, so memory use does
+ * not grow with the size of the restore. Chunks are loaded on the
+ * {@linkplain WorldEdit#getWorkerPool() worker pool}.</p>
+ */
+final class ChunkLoadPipeline implements AutoCloseable {
+
+    private static final int CHUNKS_AHEAD = WorkerPool.THREADS * 4;
+
+    private final ExecutorService executor = WorldEdit.getInstance().getWorkerPool().getExecutor();
+    private final Snapshot snapshot;
+    private final Iterator<BlockVector2> positions;
+    private final Deque<Future<Chunk>> pending = new ArrayDeque<>();
+
+    /**
+     * Start loading chunks.
+     *
+     * @param snapshot the snapshot to read chunks from
+     * @param positions the positions of the chunks, in the order to return them
+     */
+    ChunkLoadPipeline(Snapshot snapshot, Iterator<BlockVector2> positions) {
+        this.snapshot = snapshot;
+        this.positions = positions;
+        fill();
+    }
+
+    private void fill() {
+        while (pending.size() < CHUNKS_AHEAD && positions.hasNext()) {
+            BlockVector2 position = positions.next();
+            // This will need to be changed if we start officially supporting 3d snapshots.
+            pending.addLast(executor.submit(() -> snapshot.getChunk(position.toBlockVector3())));
+        }
+    }
+
+    /**
+     * Wait for the next chunk.
+     *
+     * @return the chunk
+     * @throws DataException if the chunk is missing or could not be decoded
+     * @throws IOException if the chunk could not be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Chunk next() throws DataException, IOException, InterruptedException {
+        Future<Chunk> future = pending.removeFirst();
+        fill();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), DataException.class);
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        // Interrupting could close channels the snapshot shares between reads
+        pending.forEach(future -> future.cancel(false));
+        pending.clear();
+    }
+
+}
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.RegionOptimizedChunkComparator;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.DataException;
@@ -133,30 +134,40 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<>();
         errorChunks = new ArrayList<>();
 
+        // Apply chunks in the order the edit session flushes them, while
+        // the chunks after them are loaded on other threads
+        List<Map.Entry<BlockVector2, ArrayList<BlockVector3>>> chunks = new ArrayList<>(neededChunks.entrySet());
+        chunks.sort(Map.Entry.comparingByKey(RegionOptimizedChunkComparator.CHUNK_INSTANCE));
+
         // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
-            Chunk chunk;
-
-            try {
-                // This will need to be changed if we start officially supporting 3d snapshots.
-                chunk = snapshot.getChunk(chunkPos.toBlockVector3());
-                // Good, the chunk could be at least loaded
-
-                // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
-                    try {
-                        editSession.setBlock(pos, chunk.getBlock(pos));
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
+        try (ChunkLoadPipeline pipeline = new ChunkLoadPipeline(snapshot,
+                chunks.stream().map(Map.Entry::getKey).iterator())) {
+            for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : chunks) {
+                BlockVector2 chunkPos = entry.getKey();
+                Chunk chunk;
+
+                try {
+                    chunk = pipeline.next();
+                    // Good, the chunk could be at least loaded
+
+                    // Now just copy blocks!
+                    for (BlockVector3 pos : entry.getValue()) {
+                        try {
+                            editSession.setBlock(pos, chunk.getBlock(pos));
+                        } catch (DataException e) {
+                            // this is a workaround: just ignore for now
+                        }
                     }
+                } catch (MissingChunkException me) {
+                    missingChunks.add(chunkPos);
+                } catch (IOException | DataException me) {
+                    errorChunks.add(chunkPos);
+                    lastErrorMessage = me.getMessage();
                 }
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (IOException | DataException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lastErrorMessage = "Interrupted while loading chunks";
         }
     }
 
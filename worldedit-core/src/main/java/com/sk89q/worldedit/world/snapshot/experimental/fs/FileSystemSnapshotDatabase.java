@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.snapshot.experimental.fs;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.net.UrlEscapers;
 import com.sk89q.worldedit.util.function.IOFunction;
 import com.sk89q.worldedit.util.function.IORunnable;
@@ -41,14 +42,19 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Implements a snapshot database based on a filesystem.
@@ -90,6 +96,7 @@ public static FileSystemSnapshotDatabase maybeCreate(
 
     private final Path root;
     private final ArchiveNioSupport archiveNioSupport;
+    private final Map<String, SnapshotCatalog> catalogs = new ConcurrentHashMap<>();
 
     public FileSystemSnapshotDatabase(Path root, ArchiveNioSupport archiveNioSupport) {
         checkArgument(Files.isDirectory(root), "Database root is not a directory");
@@ -213,33 +220,113 @@ public Stream<Snapshot> getSnapshots(String worldName) throws IOException {
            minus the extensions. Due to extension detection methods, this won't work properly
            with some files, e.g. world.qux.zip/world.qux is invalid, but world.qux.zip/world isn't.
          */
-        return SafeFiles.noLeakFileList(root)
-            .flatMap(IOFunction.unchecked(entry -> {
-                String worldEntry = getWorldEntry(worldName, entry);
-                if (worldEntry != null) {
-                    return Stream.of(worldEntry);
-                }
-                String fileName = SafeFiles.canonicalFileName(entry);
-                if (fileName.equals(worldName)
-                    && Files.isDirectory(entry)
-                    && !Files.exists(entry.resolve("level.dat"))) {
-                    // world dir with timestamp entries
-                    return listTimestampedEntries(worldName, entry)
-                        .map(id -> worldName + "/" + id);
-                }
-                return getTimestampedEntries(worldName, entry);
-            }))
-            .map(IOFunction.unchecked(id ->
-                getSnapshot(id)
-                    .orElseThrow(() ->
-                        new AssertionError("Could not find discovered snapshot: " + id)
-                    )
-            ));
+        return getCatalogedSnapshots(worldName).stream().map(this::createLazySnapshot);
     }
 
-    private Stream<String> listTimestampedEntries(String worldName, Path directory) throws IOException {
-        return SafeFiles.noLeakFileList(directory)
-            .flatMap(IOFunction.unchecked(entry -> getTimestampedEntries(worldName, entry)));
+    @Override
+    public Stream<Snapshot> getSnapshotsNewestFirst(String worldName) throws IOException {
+        return Lists.reverse(getCatalogedSnapshots(worldName)).stream().map(this::createLazySnapshot);
+    }
+
+    @Override
+    public Stream<Snapshot> getSnapshotsOldestFirst(String worldName) throws IOException {
+        return getSnapshots(worldName);
+    }
+
+    @Override
+    public Stream<Snapshot> getSnapshotsBefore(String worldName, ZonedDateTime date) throws IOException {
+        List<SnapshotInfo> snapshots = getCatalogedSnapshots(worldName);
+        int end = countWhile(snapshots, info -> info.getDateTime().isBefore(date));
+        return snapshots.subList(0, end).stream().map(this::createLazySnapshot);
+    }
+
+    @Override
+    public Stream<Snapshot> getSnapshotsAfter(String worldName, ZonedDateTime date) throws IOException {
+        List<SnapshotInfo> snapshots = getCatalogedSnapshots(worldName);
+        int start = countWhile(snapshots, info -> !info.getDateTime().isAfter(date));
+        return Lists.reverse(snapshots.subList(start, snapshots.size())).stream()
+            .map(this::createLazySnapshot);
+    }
+
+    /**
+     * Binary search for the length of the prefix of {@code snapshots} that
+     * matches {@code predicate}, which must hold for every snapshot older
+     * than one it holds for.
+     */
+    private static int countWhile(List<SnapshotInfo> snapshots, Predicate<SnapshotInfo> predicate) {
+        int low = 0;
+        int high = snapshots.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (predicate.test(snapshots.get(mid))) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<SnapshotInfo> getCatalogedSnapshots(String worldName) throws IOException {
+        return catalogs.computeIfAbsent(worldName,
+            name -> new SnapshotCatalog(root, entry -> scanRootEntry(name, entry))
+        ).getSnapshots();
+    }
+
+    private Snapshot createLazySnapshot(SnapshotInfo info) {
+        String id = info.getName().getSchemeSpecificPart();
+        return new LazySnapshot(info, () -> getSnapshot(id)
+            .orElseThrow(() -> new IOException("Snapshot is no longer available: " + id)));
+    }
+
+    private SnapshotCatalog.Node scanRootEntry(String worldName, Path entry) throws IOException {
+        String worldEntry = getWorldEntry(worldName, entry);
+        if (worldEntry != null) {
+            return SnapshotCatalog.of(getSnapshotInfos(Stream.of(worldEntry)));
+        }
+        String fileName = SafeFiles.canonicalFileName(entry);
+        if (fileName.equals(worldName)
+            && Files.isDirectory(entry)
+            && !Files.exists(entry.resolve("level.dat"))) {
+            // world dir with timestamp entries
+            return SnapshotCatalog.directory(entry,
+                child -> scanTimestampedEntry(worldName, worldName + "/", child));
+        }
+        return scanTimestampedEntry(worldName, "", entry);
+    }
+
+    private SnapshotCatalog.Node scanTimestampedEntry(String worldName, String prefix,
+                                                      Path entry) throws IOException {
+        if (Files.isDirectory(entry)
+            && FileNameDateTimeParser.getInstance().detectDateTime(entry) != null) {
+            // track the worlds inside, which may still be being copied
+            String fileName = SafeFiles.canonicalFileName(entry);
+            return SnapshotCatalog.directory(entry, child -> {
+                String worldEntry = getWorldEntry(worldName, child);
+                return SnapshotCatalog.of(worldEntry == null
+                    ? ImmutableList.of()
+                    : getSnapshotInfos(Stream.of(prefix + fileName + "/" + worldEntry)));
+            });
+        }
+        return SnapshotCatalog.of(getSnapshotInfos(
+            getTimestampedEntries(worldName, entry).map(id -> prefix + id)
+        ));
+    }
+
+    private List<SnapshotInfo> getSnapshotInfos(Stream<String> ids) throws IOException {
+        List<String> idList;
+        try (Stream<String> stream = ids) {
+            idList = stream.collect(toList());
+        }
+        List<SnapshotInfo> infos = new ArrayList<>(idList.size());
+        for (String id : idList) {
+            try (Snapshot snapshot = getSnapshot(id).orElseThrow(() ->
+                new AssertionError("Could not find discovered snapshot: " + id)
+            )) {
+                infos.add(snapshot.getInfo());
+            }
+        }
+        return infos;
     }
 
     private Stream<String> getTimestampedEntries(String worldName, Path entry) throws IOException {
@@ -29,12 +29,12 @@
 import com.sk89q.worldedit.world.storage.ChunkStoreHelper;
 import com.sk89q.worldedit.world.storage.LegacyChunkStore;
 import com.sk89q.worldedit.world.storage.McRegionChunkStore;
-import com.sk89q.worldedit.world.storage.McRegionReader;
+import com.sk89q.worldedit.world.storage.McRegionFile;
+import com.sk89q.worldedit.world.storage.McRegionFileCache;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
@@ -96,6 +96,7 @@ private static Object getRegionFolder(Path folder) throws IOException {
     private final Path folder;
     private final AtomicReference<Object> regionFolder = new AtomicReference<>();
     private final @Nullable Closer closeCallback;
+    private final McRegionFileCache regionFiles = new McRegionFileCache(McRegionFileCache.DEFAULT_SIZE);
 
     public FolderSnapshot(SnapshotInfo info, Path folder, @Nullable Closer closeCallback) {
         this.info = info;
@@ -141,24 +142,24 @@ public CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOEx
                 new GZIPInputStream(Files.newInputStream(chunkFile))
             );
         }
-        Path regionFile = regFolder.get().resolve(McRegionChunkStore.getFilename(pos));
-        if (!Files.exists(regionFile)) {
-            // Try mcr as well
-            regionFile = regionFile.resolveSibling(
-                regionFile.getFileName().toString().replace(".mca", ".mcr")
-            );
-            if (!Files.exists(regionFile)) {
-                throw new MissingChunkException();
+        String fileName = McRegionChunkStore.getFilename(pos);
+        McRegionFile regionFile = regionFiles.get(fileName, () -> {
+            Path file = regFolder.get().resolve(fileName);
+            if (!Files.exists(file)) {
+                // Try mcr as well
+                file = file.resolveSibling(fileName.replace(".mca", ".mcr"));
+                if (!Files.exists(file)) {
+                    throw new MissingChunkException();
+                }
             }
-        }
-        try (InputStream stream = Files.newInputStream(regionFile)) {
-            McRegionReader regionReader = new McRegionReader(stream);
-            return ChunkStoreHelper.readCompoundTag(() -> regionReader.getChunkInputStream(pos));
-        }
+            return McRegionFile.open(file);
+        });
+        return ChunkStoreHelper.readCompoundTag(() -> regionFile.getChunkInputStream(pos));
     }
 
     @Override
     public void close() throws IOException {
+        regionFiles.clear();
         if (closeCallback != null) {
             closeCallback.close();
         }
@@ -0,0 +1,90 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.snapshot.experimental.fs;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.chunk.Chunk;
+import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
+import com.sk89q.worldedit.world.snapshot.experimental.SnapshotInfo;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * A snapshot listed from a {@link SnapshotCatalog}, which is only opened once
+ * its chunks are read.
+ */
+final class LazySnapshot implements Snapshot {
+
+    /**
+     * Opens the snapshot.
+     */
+    @FunctionalInterface
+    interface Opener {
+
+        Snapshot open() throws IOException;
+
+    }
+
+    private final SnapshotInfo info;
+    private final Opener opener;
+    @Nullable
+    private Snapshot snapshot;
+
+    LazySnapshot(SnapshotInfo info, Opener opener) {
+        this.info = info;
+        this.opener = opener;
+    }
+
+    private synchronized Snapshot getSnapshot() throws IOException {
+        if (snapshot == null) {
+            snapshot = opener.open();
+        }
+        return snapshot;
+    }
+
+    @Override
+    public SnapshotInfo getInfo() {
+        return info;
+    }
+
+    @Override
+    public CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOException {
+        return getSnapshot().getChunkTag(position);
+    }
+
+    @Override
+    public Chunk getChunk(BlockVector3 position) throws DataException, IOException {
+        return getSnapshot().getChunk(position);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (snapshot != null) {
+            Snapshot opened = snapshot;
+            snapshot = null;
+            opened.close();
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.snapshot.experimental.fs;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.util.io.file.SafeFiles;
+import com.sk89q.worldedit.world.snapshot.experimental.SnapshotInfo;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The snapshots of one world in a {@link FileSystemSnapshotDatabase}, kept
+ * between queries and sorted from oldest to newest.
+ *
+ * <p>The catalog is a tree of the directories that may contain snapshots.
+ * Each entry of a directory is remembered with the modification time it had
+ * when it was scanned. A refresh only lists a directory again if its own
+ * modification time changed, and only scans an entry again if its
+ * modification time changed, so unchanged backups are never re-opened.</p>
+ *
+ * <p>The entries of a directory whose modification time is unchanged are
+ * not looked at again, apart from those tracked as directories themselves,
+ * so that refreshing a large, unchanged backup folder costs a single call
+ * to the file system. A backup that is rewritten in place, without being
+ * renamed or replaced, is therefore only scanned again once its directory
+ * changes.</p>
+ */
+final class SnapshotCatalog {
+
+    /**
+     * Modification times this close to the time of a scan are not trusted,
+     * as the file system may not have had the resolution to record a change
+     * made right after it.
+     */
+    private static final long RACY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * Scans one entry of a directory.
+     */
+    @FunctionalInterface
+    interface Scanner {
+
+        Node scan(Path entry) throws IOException;
+
+    }
+
+    /**
+     * What was found at an entry of a directory.
+     */
+    abstract static class Node {
+
+        private Node() {
+        }
+
+        /**
+         * Update this node from the file system.
+         *
+         * @return true if its snapshots may have changed
+         */
+        abstract boolean refresh() throws IOException;
+
+        abstract void collect(List<SnapshotInfo> snapshots);
+
+    }
+
+    /**
+     * Create a node holding a fixed list of snapshots, which is scanned again
+     * if its entry is modified.
+     *
+     * @param snapshots the snapshots found at the entry
+     * @return the node
+     */
+    static Node of(List<SnapshotInfo> snapshots) {
+        return new Leaf(ImmutableList.copyOf(snapshots));
+    }
+
+    /**
+     * Create a node for a directory, whose entries are tracked individually.
+     *
+     * @param directory the directory
+     * @param scanner the scanner for its entries
+     * @return the node
+     */
+    static Node directory(Path directory, Scanner scanner) {
+        return new Directory(directory, scanner);
+    }
+
+    private final Directory root;
+    @Nullable
+    private List<SnapshotInfo> sorted;
+
+    SnapshotCatalog(Path root, Scanner scanner) {
+        this.root = new Directory(root, scanner);
+    }
+
+    /**
+     * Bring the catalog up to date and get its snapshots.
+     *
+     * @return the snapshots, oldest first
+     */
+    synchronized List<SnapshotInfo> getSnapshots() throws IOException {
+        if (root.refresh() || sorted == null) {
+            List<SnapshotInfo> snapshots = new ArrayList<>();
+            root.collect(snapshots);
+            Collections.sort(snapshots);
+            sorted = ImmutableList.copyOf(snapshots);
+        }
+        return sorted;
+    }
+
+    @Nullable
+    private static FileTime getLastModifiedTime(Path path) throws IOException {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static FileTime trusted(FileTime modified, long scanStart) {
+        return scanStart - modified.toMillis() < RACY_MILLIS ? null : modified;
+    }
+
+    private static final class Leaf extends Node {
+
+        private final List<SnapshotInfo> snapshots;
+
+        private Leaf(List<SnapshotInfo> snapshots) {
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        boolean refresh() {
+            return false;
+        }
+
+        @Override
+        void collect(List<SnapshotInfo> snapshots) {
+            snapshots.addAll(this.snapshots);
+        }
+
+    }
+
+    private static final class Entry {
+
+        @Nullable
+        private final FileTime modified;
+        private final Node node;
+
+        private Entry(@Nullable FileTime modified, Node node) {
+            this.modified = modified;
+            this.node = node;
+        }
+
+    }
+
+    private static final class Directory extends Node {
+
+        private final Path path;
+        private final Scanner scanner;
+        @Nullable
+        private FileTime modified;
+        private Map<Path, Entry> entries = new HashMap<>();
+
+        private Directory(Path path, Scanner scanner) {
+            this.path = path;
+            this.scanner = scanner;
+        }
+
+        @Override
+        boolean refresh() throws IOException {
+            long scanStart = System.currentTimeMillis();
+            FileTime current = getLastModifiedTime(path);
+            if (current == null) {
+                boolean changed = !entries.isEmpty();
+                modified = null;
+                entries = new HashMap<>();
+                return changed;
+            }
+            List<Path> paths;
+            boolean listed = !current.equals(modified);
+            if (!listed) {
+                paths = new ArrayList<>(entries.keySet());
+            } else {
+                try (Stream<Path> stream = SafeFiles.noLeakFileList(path)) {
+                    paths = stream.collect(toList());
+                }
+                modified = trusted(current, scanStart);
+            }
+
+            boolean changed = paths.size() != entries.size();
+            Map<Path, Entry> refreshed = new HashMap<>();
+            for (Path entryPath : paths) {
+                Entry entry = entries.get(entryPath);
+                if (!listed && entry != null && entry.modified != null) {
+                    // the directory is unchanged, so the entry has not been added, removed or replaced
+                    if (entry.node.refresh()) {
+                        changed = true;
+                    }
+                    refreshed.put(entryPath, entry);
+                    continue;
+                }
+                FileTime entryModified = getLastModifiedTime(entryPath);
+                if (entryModified == null) {
+                    changed = true;
+                    continue;
+                }
+                if (entry == null || !entryModified.equals(entry.modified)) {
+                    Node node = scanner.scan(entryPath);
+                    if (entry != null && entry.node instanceof Directory && node instanceof Directory) {
+                        // keep what is known about the directory's own entries
+                        node = entry.node;
+                    }
+                    node.refresh();
+                    entry = new Entry(trusted(entryModified, scanStart), node);
+                    changed = true;
+                } else if (entry.node.refresh()) {
+                    changed = true;
+                }
+                refreshed.put(entryPath, entry);
+            }
+            entries = refreshed;
+            return changed;
+        }
+
+        @Override
+        void collect(List<SnapshotInfo> snapshots) {
+            for (Entry entry : entries.values()) {
+                entry.node.collect(snapshots);
+            }
+        }
+
+    }
+
+}
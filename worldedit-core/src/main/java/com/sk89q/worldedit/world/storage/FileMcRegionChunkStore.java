@@ -26,6 +26,7 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.util.regex.Pattern;
 
 public class FileMcRegionChunkStore extends McRegionChunkStore {
@@ -42,10 +43,16 @@ public FileMcRegionChunkStore(File path) {
         this.path = path;
     }
 
-    @Override
-    protected InputStream getInputStream(String name, String world) throws IOException, DataException {
+    /**
+     * Find a region file in the region folder, allowing either extension.
+     *
+     * @param name the name of the region file
+     * @return the file
+     * @throws IOException
+     * @throws DataException
+     */
+    private File findFile(String name) throws IOException, DataException {
         Pattern ext = Pattern.compile(".*\\.mc[ra]$"); // allow either file extension, both work the same
-        File file = null;
         File[] files = new File(path, "region").listFiles();
 
         if (files == null) {
@@ -56,19 +63,33 @@ protected InputStream getInputStream(String name, String world) throws IOExcepti
             String tempName = f.getName().replaceFirst("mcr$", "mca"); // matcher only does one at a time
             if (ext.matcher(f.getName()).matches() && name.equalsIgnoreCase(tempName)) {
                 // get full original path now
-                file = new File(path + File.separator + "region" + File.separator + f.getName());
-                break;
+                return new File(path + File.separator + "region" + File.separator + f.getName());
             }
         }
 
+        throw new MissingChunkException();
+    }
+
+    @Override
+    protected InputStream getInputStream(String name, String world) throws IOException, DataException {
+        File file = findFile(name);
         try {
-            if (file == null) throw new FileNotFoundException();
             return new FileInputStream(file);
         } catch (FileNotFoundException e) {
             throw new MissingChunkException();
         }
     }
 
+    @Override
+    protected McRegionFile openRegionFile(String name, String worldName) throws IOException, DataException {
+        File file = findFile(name);
+        try {
+            return McRegionFile.open(file.toPath());
+        } catch (NoSuchFileException e) {
+            throw new MissingChunkException();
+        }
+    }
+
     @Override
     public boolean isValid() {
         return new File(path, "region").isDirectory() ||
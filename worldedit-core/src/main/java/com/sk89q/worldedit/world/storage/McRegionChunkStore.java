@@ -29,8 +29,17 @@
 
 public abstract class McRegionChunkStore extends ChunkStore {
 
+    /**
+     * @deprecated region files are kept by {@link #getRegionFile(BlockVector2, String)}
+     */
+    @Deprecated
     protected String curFilename = null;
+    /**
+     * @deprecated region files are kept by {@link #getRegionFile(BlockVector2, String)}
+     */
+    @Deprecated
     protected McRegionReader cachedReader = null;
+    private final McRegionFileCache regionFiles = new McRegionFileCache(McRegionFileCache.DEFAULT_SIZE);
 
     /**
      * Get the filename of a region file.
@@ -45,6 +54,18 @@ public static String getFilename(BlockVector2 position) {
         return "r." + (x >> 5) + "." + (z >> 5) + ".mca";
     }
 
+    /**
+     * Get a reader for the region file containing a chunk.
+     *
+     * @param pos chunk position
+     * @param worldname the world name
+     * @return a reader
+     * @throws DataException
+     * @throws IOException
+     * @deprecated use {@link #getRegionFile(BlockVector2, String)}, which
+     *     reads each region file only once
+     */
+    @Deprecated
     protected McRegionReader getReader(BlockVector2 pos, String worldname) throws DataException, IOException {
         String filename = getFilename(pos);
         if (curFilename != null) {
@@ -63,12 +84,42 @@ protected McRegionReader getReader(BlockVector2 pos, String worldname) throws Da
         return cachedReader;
     }
 
+    /**
+     * Get the region file containing a chunk, which is kept for later chunks.
+     *
+     * @param pos chunk position
+     * @param worldname the world name
+     * @return the region file
+     * @throws DataException
+     * @throws IOException
+     */
+    protected McRegionFile getRegionFile(BlockVector2 pos, String worldname) throws DataException, IOException {
+        String filename = getFilename(pos);
+        return regionFiles.get(worldname + "/" + filename, () -> openRegionFile(filename, worldname));
+    }
+
+    /**
+     * Open a region file. By default, the whole file is read from
+     * {@link #getInputStream(String, String)}.
+     *
+     * @param name the name of the region file
+     * @param worldName the world name
+     * @return the region file
+     * @throws IOException
+     * @throws DataException
+     */
+    protected McRegionFile openRegionFile(String name, String worldName) throws IOException, DataException {
+        try (InputStream stream = getInputStream(name, worldName)) {
+            return McRegionFile.read(stream);
+        }
+    }
+
     @Override
     public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataException, IOException {
         return ChunkStoreHelper.readCompoundTag(() -> {
-            McRegionReader reader = getReader(position, world.getName());
+            McRegionFile regionFile = getRegionFile(position, world.getName());
 
-            return reader.getChunkInputStream(position);
+            return regionFile.getChunkInputStream(position);
         });
     }
 
@@ -84,6 +135,7 @@ public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataEx
 
     @Override
     public void close() throws IOException {
+        regionFiles.clear();
         if (cachedReader != null) {
             cachedReader.close();
         }
@@ -0,0 +1,214 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.google.common.io.ByteStreams;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.io.ByteBufferInputStream;
+import com.sk89q.worldedit.world.DataException;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A MCRegion file whose chunks can be read in any order, from any thread.
+ *
+ * <p>Unlike {@link McRegionReader}, the offset header is only parsed once,
+ * and reading a chunk never has to go through the chunks before it. Files
+ * on the default file system are kept on disk, and each chunk is read into
+ * memory when it is asked for, so no file handle or mapping is held between
+ * reads. Anything else, such as a file in a ZIP, is read into memory in
+ * full.</p>
+ *
+ * <p>See {@link McRegionReader} for a description of the format.</p>
+ */
+public final class McRegionFile {
+
+    private static final int VERSION_GZIP = 1;
+    private static final int VERSION_DEFLATE = 2;
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / 4;
+
+    @Nullable
+    private final Path path;
+    @Nullable
+    private final ByteBuffer data;
+    private final int[] offsets = new int[SECTOR_INTS];
+
+    private McRegionFile(@Nullable Path path, @Nullable ByteBuffer data, ByteBuffer header) {
+        this.path = path;
+        this.data = data;
+        // Empty region files are left behind by the game, and have no chunks
+        if (header.limit() >= SECTOR_BYTES) {
+            header.duplicate().asIntBuffer().get(offsets);
+        }
+    }
+
+    /**
+     * Open a region file.
+     *
+     * @param path the path to the file
+     * @return the region file
+     * @throws IOException thrown on I/O error
+     */
+    public static McRegionFile open(Path path) throws IOException {
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate((int) Math.min(SECTOR_BYTES, channel.size()));
+                readFully(channel, header, 0);
+                return new McRegionFile(path, null, header);
+            }
+        }
+        try (InputStream stream = Files.newInputStream(path)) {
+            return read(stream);
+        }
+    }
+
+    /**
+     * Read a region file from a stream, which is read to the end but not
+     * closed.
+     *
+     * @param stream the stream
+     * @return the region file
+     * @throws IOException thrown on I/O error
+     */
+    public static McRegionFile read(InputStream stream) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(ByteStreams.toByteArray(stream));
+        return new McRegionFile(null, data, data);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Get the sectors of a chunk, or as much of them as the file contains.
+     *
+     * @param start the offset of the first sector
+     * @param numSectors the number of sectors
+     * @return a buffer positioned at the chunk, or null if the file ends before the chunk header
+     * @throws IOException thrown on I/O error
+     */
+    @Nullable
+    private ByteBuffer readSectors(long start, int numSectors) throws IOException {
+        // Also read past the sectors by the length field, so that a chunk that
+        // fills them is not cut short, and an invalid length can be reported
+        long wanted = (long) numSectors * SECTOR_BYTES + Integer.BYTES;
+        if (data != null) {
+            if (start + McRegionReader.CHUNK_HEADER_SIZE > data.limit()) {
+                return null;
+            }
+            ByteBuffer chunk = data.duplicate();
+            chunk.position((int) start);
+            chunk.limit((int) Math.min(data.limit(), start + wanted));
+            return chunk;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (start + McRegionReader.CHUNK_HEADER_SIZE > size) {
+                return null;
+            }
+            ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(size - start, wanted));
+            readFully(channel, chunk, start);
+            return chunk;
+        }
+    }
+
+    /**
+     * Returns whether the file contains a chunk.
+     *
+     * @param x the X coordinate within the region
+     * @param z the Z coordinate within the region
+     * @return true if the chunk is present
+     */
+    public boolean hasChunk(int x, int z) {
+        return offsets[(x & 31) + (z & 31) * 32] != 0;
+    }
+
+    /**
+     * Gets the uncompressed data input stream for a chunk.
+     *
+     * @param position chunk position
+     * @return an input stream
+     * @throws IOException thrown on I/O error
+     * @throws DataException thrown if the chunk is missing or invalid
+     */
+    public InputStream getChunkInputStream(BlockVector2 position) throws IOException, DataException {
+        int x = position.getBlockX() & 31;
+        int z = position.getBlockZ() & 31;
+
+        int offset = offsets[x + z * 32];
+
+        // The chunk hasn't been generated
+        if (offset == 0) {
+            throw new DataException("The chunk at " + x + "," + z + " is not generated");
+        }
+
+        long start = (long) (offset >>> 8) * SECTOR_BYTES;
+        int numSectors = offset & 0xFF;
+
+        ByteBuffer chunk = readSectors(start, numSectors);
+        if (chunk == null) {
+            throw new DataException("MCRegion file does not contain "
+                    + x + "," + z + " in full");
+        }
+
+        int length = chunk.getInt();
+
+        if (length > SECTOR_BYTES * numSectors) {
+            throw new DataException("MCRegion chunk at "
+                    + x + "," + z + " has an invalid length of " + length);
+        }
+        if (length < 1 || length > chunk.remaining()) {
+            throw new DataException("MCRegion file does not contain "
+                    + x + "," + z + " in full");
+        }
+
+        byte version = chunk.get();
+        chunk.limit(chunk.position() + length - 1);
+        InputStream stream = new ByteBufferInputStream(chunk);
+
+        if (version == VERSION_GZIP) {
+            return new GZIPInputStream(stream);
+        } else if (version == VERSION_DEFLATE) {
+            return new InflaterInputStream(stream);
+        } else {
+            throw new DataException("MCRegion chunk at "
+                    + x + "," + z + " has an unsupported version of " + version);
+        }
+    }
+
+}
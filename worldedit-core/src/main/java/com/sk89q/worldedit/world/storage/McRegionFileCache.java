@@ -0,0 +1,139 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.world.DataException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps the most recently used {@link McRegionFile}s of a chunk store or
+ * snapshot, so that reading many chunks of a region only loads it once.
+ *
+ * <p>This class is thread-safe. Different files are loaded concurrently,
+ * while threads asking for the same file wait for the one loading it.</p>
+ */
+public class McRegionFileCache {
+
+    /**
+     * The default number of files kept, which is enough for any area up to
+     * 65 chunks across.
+     */
+    public static final int DEFAULT_SIZE = 9;
+
+    /**
+     * Loads a region file that is not in the cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        McRegionFile load() throws IOException, DataException;
+
+    }
+
+    private final ConcurrentMap<String, CachedFile> files = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final int maxSize;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize the maximum number of files to keep
+     */
+    public McRegionFileCache(int maxSize) {
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get a region file, loading it if it is not in the cache.
+     *
+     * <p>Failures are not cached, so a file that could not be loaded is
+     * tried again next time.</p>
+     *
+     * @param name a name that identifies the file
+     * @param loader the loader to use if the file is not cached
+     * @return the region file
+     * @throws IOException thrown by the loader
+     * @throws DataException thrown by the loader
+     */
+    public McRegionFile get(String name, Loader loader) throws IOException, DataException {
+        CachedFile cached = files.computeIfAbsent(name, k -> new CachedFile());
+        cached.lastUsed = clock.incrementAndGet();
+        McRegionFile file;
+        try {
+            file = cached.load(loader);
+        } catch (IOException | DataException | RuntimeException e) {
+            files.remove(name, cached);
+            throw e;
+        }
+        trim();
+        return file;
+    }
+
+    /**
+     * Remove the least recently used files until the cache is small enough.
+     */
+    private void trim() {
+        while (files.size() > maxSize) {
+            Map.Entry<String, CachedFile> eldest = null;
+            for (Map.Entry<String, CachedFile> entry : files.entrySet()) {
+                if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            files.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Remove every file from the cache.
+     */
+    public void clear() {
+        files.clear();
+    }
+
+    private static final class CachedFile {
+
+        private volatile long lastUsed;
+        @Nullable
+        private McRegionFile file;
+
+        private synchronized McRegionFile load(Loader loader) throws IOException, DataException {
+            if (file == null) {
+                file = loader.load();
+            }
+            return file;
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command;
+
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.io.file.ArchiveNioSupports;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
+import com.sk89q.worldedit.world.snapshot.experimental.fs.FileSystemSnapshotDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("The snapshot commands")
+class SnapshotCommandsTest {
+
+    private static final String WORLD = "world";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH_mm_ss");
+    private static final ZonedDateTime OLD = Instant.parse("2018-01-01T12:00:00.00Z").atZone(ZoneId.systemDefault());
+    private static final ZonedDateTime MIDDLE = OLD.plusDays(1);
+    private static final ZonedDateTime NEW = OLD.plusDays(2);
+
+    @TempDir
+    static Path root;
+    private static Platform platform;
+    private static SnapshotCommands commands;
+
+    @BeforeAll
+    static void setupFakePlatform() throws IOException {
+        for (ZonedDateTime time : new ZonedDateTime[] { OLD, MIDDLE, NEW }) {
+            Path world = Files.createDirectories(root.resolve(time.format(FORMATTER)).resolve(WORLD));
+            Files.createFile(world.resolve("level.dat"));
+        }
+        platform = FakePlatform.register();
+        LocalConfiguration config = WorldEdit.getInstance().getConfiguration();
+        config.snapshotsConfigured = true;
+        config.snapshotDatabase = new FileSystemSnapshotDatabase(root, ArchiveNioSupports.combined());
+        commands = new SnapshotCommands(WorldEdit.getInstance());
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    private static World world() {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn(WORLD);
+        return world;
+    }
+
+    private static ZonedDateTime selected(LocalSession session) {
+        ArgumentCaptor<Snapshot> snapshot = ArgumentCaptor.forClass(Snapshot.class);
+        verify(session).setSnapshotExperimental(snapshot.capture());
+        return snapshot.getValue().getInfo().getDateTime();
+    }
+
+    @Test
+    @DisplayName("choose the newest snapshot strictly before a date")
+    void before() throws IOException {
+        LocalSession session = mock(LocalSession.class);
+        commands.before(mock(Actor.class), world(), session, NEW);
+        assertEquals(MIDDLE, selected(session));
+
+        session = mock(LocalSession.class);
+        commands.before(mock(Actor.class), world(), session, NEW.plusSeconds(1));
+        assertEquals(NEW, selected(session));
+    }
+
+    @Test
+    @DisplayName("choose the oldest snapshot strictly after a date")
+    void after() throws IOException {
+        LocalSession session = mock(LocalSession.class);
+        commands.after(mock(Actor.class), world(), session, OLD);
+        assertEquals(MIDDLE, selected(session));
+
+        session = mock(LocalSession.class);
+        commands.after(mock(Actor.class), world(), session, OLD.minusSeconds(1));
+        assertEquals(OLD, selected(session));
+    }
+
+    @Test
+    @DisplayName("report when there is no snapshot on that side of a date")
+    void none() throws IOException {
+        LocalSession session = mock(LocalSession.class);
+        when(session.getTimeZone()).thenReturn(ZoneId.systemDefault());
+        Actor actor = mock(Actor.class);
+        commands.before(actor, world(), session, OLD);
+        commands.after(actor, world(), session, NEW);
+        verify(session, never()).setSnapshotExperimental(any());
+        verify(actor, times(2)).printError(any(Component.class));
+    }
+
+}
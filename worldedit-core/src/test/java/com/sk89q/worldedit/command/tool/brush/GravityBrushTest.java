@@ -0,0 +1,163 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command.tool.brush;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.LocatedBlock;
+import com.sk89q.worldedit.util.collection.LocatedBlockList;
+import com.sk89q.worldedit.util.test.FakeEditSession;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A gravity brush")
+class GravityBrushTest {
+
+    private static Platform platform;
+    private static List<String> blockTypes;
+    private static BaseBlock air;
+    private static BaseBlock stone;
+    private static BaseBlock chest;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        blockTypes = FakePlatform.registerBlockTypes();
+        air = checkNotNull(BlockTypes.AIR).getDefaultState().toBaseBlock();
+        stone = checkNotNull(BlockTypes.STONE).getDefaultState().toBaseBlock();
+        chest = checkNotNull(BlockTypes.CHEST).getDefaultState().toBaseBlock(
+            new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("minecraft:chest"))));
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregisterBlockTypes(blockTypes);
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * Scattered blocks, some with NBT data, over a flat floor.
+     */
+    private static Map<BlockVector3, BaseBlock> terrain(Random random) {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        for (int x = -10; x <= 10; x++) {
+            for (int z = -10; z <= 10; z++) {
+                blocks.put(BlockVector3.at(x, 0, z), stone);
+                for (int y = 1; y < 32; y++) {
+                    if (random.nextInt(5) == 0) {
+                        blocks.put(BlockVector3.at(x, y, z), random.nextInt(10) == 0 ? chest : stone);
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * The brush as it was before columns were read in one call, reading
+     * every block on its own.
+     */
+    private static void buildBlockByBlock(EditSession editSession, BlockVector3 position, double size,
+                                          @Nullable Integer heightOffset) throws MaxChangedBlocksException {
+        double sizeOffset = heightOffset != null ? heightOffset : size;
+        double yMax = Math.min(position.getY() + sizeOffset, editSession.getWorld().getMaxY());
+        double yMin = Math.max(position.getY() - sizeOffset, editSession.getWorld().getMinY());
+        LocatedBlockList column = new LocatedBlockList();
+        Set<BlockVector3> removedBlocks = new LinkedHashSet<>();
+        for (double x = position.getX() - size; x <= position.getX() + size; x++) {
+            for (double z = position.getZ() - size; z <= position.getZ() + size; z++) {
+                BlockVector3 lowestAir = null;
+                for (double y = yMin; y <= yMax; y++) {
+                    BlockVector3 pt = BlockVector3.at(x, y, z);
+                    BaseBlock block = editSession.getFullBlock(pt);
+                    if (block.getBlockType().getMaterial().isAir()) {
+                        if (lowestAir == null) {
+                            lowestAir = pt;
+                        }
+                        continue;
+                    }
+                    if (lowestAir == null) {
+                        continue;
+                    }
+                    BlockVector3 newPos = lowestAir;
+                    lowestAir = lowestAir.add(0, 1, 0);
+                    removedBlocks.remove(newPos);
+                    column.add(newPos, block);
+                    removedBlocks.add(pt);
+                }
+                for (LocatedBlock block : column) {
+                    editSession.setBlock(block.getLocation(), block.getBlock());
+                }
+                for (BlockVector3 removedBlock : removedBlocks) {
+                    editSession.setBlock(removedBlock, BlockTypes.AIR.getDefaultState());
+                }
+                column.clear();
+                removedBlocks.clear();
+            }
+        }
+    }
+
+    private static void assertSameAsBlockByBlock(BlockVector3 position, double size, @Nullable Integer heightOffset)
+            throws MaxChangedBlocksException {
+        Map<BlockVector3, BaseBlock> expected = terrain(new Random(23));
+        Map<BlockVector3, BaseBlock> actual = new HashMap<>(expected);
+        buildBlockByBlock(FakeEditSession.create(expected, air, 0, 40), position, size, heightOffset);
+        new GravityBrush(heightOffset).build(FakeEditSession.create(actual, air, 0, 40), position, null, size);
+        assertEquals(expected, actual, "position=" + position + " size=" + size + " offset=" + heightOffset);
+    }
+
+    @Test
+    @DisplayName("moves the same blocks as a block by block scan")
+    void matchesBlockByBlock() throws MaxChangedBlocksException {
+        assertSameAsBlockByBlock(BlockVector3.at(0, 16, 0), 5, null);
+        assertSameAsBlockByBlock(BlockVector3.at(2, 16, -3), 3.5, null);
+        assertSameAsBlockByBlock(BlockVector3.at(0, 16, 0), 4, 8);
+    }
+
+    @Test
+    @DisplayName("stays within the world's height")
+    void clampsToWorld() throws MaxChangedBlocksException {
+        assertSameAsBlockByBlock(BlockVector3.at(0, 38, 0), 6, null);
+        assertSameAsBlockByBlock(BlockVector3.at(0, 2, 0), 6, null);
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extension.factory.parser;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.input.DisallowedUsageException;
+import com.sk89q.worldedit.extension.input.InputParseException;
+import com.sk89q.worldedit.extension.input.ParserContext;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.FuzzyBlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("The default block parser")
+@Execution(ExecutionMode.SAME_THREAD)
+class DefaultBlockParserTest {
+
+    private static final String BLOCK_ID = "test:parser_block";
+
+    private static Platform platform;
+    private static List<String> blockTypes;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        blockTypes = FakePlatform.registerBlockTypes();
+        BlockType.REGISTRY.register(BLOCK_ID, new BlockType(BLOCK_ID));
+        blockTypes.add(BLOCK_ID);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregisterBlockTypes(blockTypes);
+        FakePlatform.unregister(platform);
+    }
+
+    private static ParserContext createContext(boolean wildcard, boolean legacy, boolean actor) {
+        ParserContext context = new ParserContext();
+        context.setRestricted(false);
+        context.setPreferringWildcard(wildcard);
+        context.setTryLegacy(legacy);
+        context.setActor(actor ? mock(Actor.class) : null);
+        return context;
+    }
+
+    @Test
+    @DisplayName("keys parsed blocks by the input and the context fields that parsing reads")
+    void cacheKey() {
+        DefaultBlockParser.CacheKey key = new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, false));
+        assertEquals(key, new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, false)));
+        assertEquals(key.hashCode(), new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, false)).hashCode());
+
+        assertNotEquals(key, new DefaultBlockParser.CacheKey(BLOCK_ID + "[]", createContext(false, false, false)));
+        assertNotEquals(key, new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(true, false, false)));
+        assertNotEquals(key, new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, true, false)));
+        assertNotEquals(key, new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, true)));
+
+        // another actor parses the same way
+        assertEquals(new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, true)),
+            new DefaultBlockParser.CacheKey(BLOCK_ID, createContext(false, false, true)));
+    }
+
+    @Test
+    @DisplayName("does not return a block cached without wildcards for an input with them")
+    void separatesWildcards() throws InputParseException {
+        DefaultBlockParser parser = new DefaultBlockParser(WorldEdit.getInstance());
+        BaseBlock exact = parser.parseFromInput(BLOCK_ID, createContext(false, false, false));
+        BaseBlock fuzzy = parser.parseFromInput(BLOCK_ID, createContext(true, false, false));
+        assertFalse(exact.toImmutableState() instanceof FuzzyBlockState);
+        assertTrue(fuzzy.toImmutableState() instanceof FuzzyBlockState);
+
+        assertEquals(exact, parser.parseFromInput(BLOCK_ID, createContext(false, false, false)));
+        assertTrue(parser.parseFromInput(BLOCK_ID, createContext(true, false, false)).toImmutableState()
+            instanceof FuzzyBlockState);
+    }
+
+    @Test
+    @DisplayName("returns blocks that can't be changed")
+    void returnsImmutableBlocks() throws InputParseException {
+        DefaultBlockParser parser = new DefaultBlockParser(WorldEdit.getInstance());
+        parser.parseFromInput(BLOCK_ID, createContext(false, false, false));
+        BaseBlock cached = parser.parseFromInput(BLOCK_ID, createContext(false, false, false));
+        assertFalse(cached.hasNbtData());
+        assertThrows(UnsupportedOperationException.class, () -> cached.setNbtData(null));
+    }
+
+    @Test
+    @DisplayName("still checks restricted actors when the block is cached")
+    void checksRestrictionsOnHit() throws InputParseException {
+        DefaultBlockParser parser = new DefaultBlockParser(WorldEdit.getInstance());
+        ParserContext unrestricted = createContext(false, false, true);
+        parser.parseFromInput(BLOCK_ID, unrestricted);
+
+        ParserContext restricted = createContext(false, false, true);
+        restricted.setRestricted(true);
+        Set<String> disallowed = WorldEdit.getInstance().getConfiguration().disallowedBlocks;
+        disallowed.add(BLOCK_ID);
+        try {
+            assertThrows(DisallowedUsageException.class, () -> parser.parseFromInput(BLOCK_ID, restricted));
+            // the unrestricted context is not affected
+            parser.parseFromInput(BLOCK_ID, unrestricted);
+        } finally {
+            disallowed.remove(BLOCK_ID);
+        }
+        parser.parseFromInput(BLOCK_ID, restricted);
+
+        parser.parseFromInput(BLOCK_ID, createContext(false, false, false));
+        ParserContext noActor = createContext(false, false, false);
+        noActor.setRestricted(true);
+        assertThrows(InputParseException.class, () -> parser.parseFromInput(BLOCK_ID, noActor));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("A last column extent cache")
+class LastColumnExtentCacheTest {
+
+    /**
+     * An extent that makes up a different block for every position, and
+     * counts the blocks read from it.
+     */
+    private static final class CountingExtent extends NullExtent {
+        private final Map<BlockVector3, BlockState> blocks = new HashMap<>();
+        private int reads;
+
+        @Override
+        public BlockState getBlock(BlockVector3 position) {
+            reads++;
+            return blocks.computeIfAbsent(position, p -> mock(BlockState.class));
+        }
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            blocks.put(position, block.toImmutableState());
+            return true;
+        }
+    }
+
+    @Test
+    @DisplayName("returns the blocks of its extent")
+    void returnsSameBlocks() {
+        CountingExtent extent = new CountingExtent();
+        LastColumnExtentCache cache = new LastColumnExtentCache(extent, 0, 40);
+        for (int x = 0; x < 3; x++) {
+            for (int y = 45; y >= -5; y--) {
+                BlockVector3 position = BlockVector3.at(x, y, 7);
+                BlockState cached = cache.getBlock(position);
+                assertSame(extent.getBlock(position), cached);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("reads a column sixteen blocks at a time")
+    void readsBySection() {
+        CountingExtent extent = new CountingExtent();
+        LastColumnExtentCache cache = new LastColumnExtentCache(extent, 0, 63);
+        for (int y = 63; y >= 40; y--) {
+            cache.getBlock(BlockVector3.at(1, y, 1));
+        }
+        assertEquals(32, extent.reads);
+        cache.getBlock(BlockVector3.at(2, 63, 1));
+        assertEquals(48, extent.reads);
+    }
+
+    @Test
+    @DisplayName("returns blocks set through it")
+    void updatesOnSet() throws WorldEditException {
+        CountingExtent extent = new CountingExtent();
+        LastColumnExtentCache cache = new LastColumnExtentCache(extent, 0, 15);
+        BlockVector3 position = BlockVector3.at(0, 3, 0);
+        cache.getBlock(position);
+        BlockState replacement = mock(BlockState.class);
+        when(replacement.toImmutableState()).thenReturn(replacement);
+        cache.setBlock(position, replacement);
+        assertSame(replacement, cache.getBlock(position));
+    }
+
+}
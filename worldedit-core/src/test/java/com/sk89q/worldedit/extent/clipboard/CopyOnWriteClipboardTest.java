@@ -0,0 +1,144 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.entity.EntityType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A copy-on-write clipboard")
+class CopyOnWriteClipboardTest {
+
+    private static final BiomeType BIOME = new BiomeType("test:biome");
+    private static final EntityType ENTITY = new EntityType("test:entity");
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:copy_on_write_", 3);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    private static Clipboard createShared() throws WorldEditException {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(
+            new CuboidRegion(BlockVector3.at(-2, 0, -2), BlockVector3.at(2, 3, 2)));
+        for (BlockVector3 position : clipboard.getRegion()) {
+            clipboard.setBlock(position, states[Math.floorMod(position.getX() + position.getZ(), 2)]);
+        }
+        return clipboard;
+    }
+
+    @Test
+    @DisplayName("reads from the shared clipboard until it is changed")
+    void readsShared() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+        assertFalse(clipboard.isCopied());
+        for (BlockVector3 position : shared.getRegion()) {
+            assertSame(shared.getBlock(position), clipboard.getBlock(position));
+        }
+        assertEquals(shared.getRegion(), clipboard.getRegion());
+        assertFalse(clipboard.isCopied());
+    }
+
+    @Test
+    @DisplayName("keeps its changes to itself")
+    void isolatesChanges() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard first = new CopyOnWriteClipboard(shared);
+        CopyOnWriteClipboard second = new CopyOnWriteClipboard(shared);
+
+        BlockVector3 changed = BlockVector3.at(1, 2, -1);
+        assertTrue(first.setBlock(changed, states[2]));
+        assertTrue(first.isCopied());
+        assertFalse(second.isCopied());
+        for (BlockVector3 position : shared.getRegion()) {
+            BlockState expected = states[Math.floorMod(position.getX() + position.getZ(), 2)];
+            assertEquals(position.equals(changed) ? states[2] : expected, first.getBlock(position));
+            assertEquals(expected, second.getBlock(position));
+            assertEquals(expected, shared.getBlock(position));
+        }
+
+        assertTrue(second.setBiome(BlockVector2.at(0, 0), BIOME));
+        assertTrue(second.isCopied());
+        assertEquals(BIOME, second.getBiome(BlockVector2.at(0, 0)));
+        assertFalse(shared.hasBiomes());
+        assertFalse(first.hasBiomes());
+    }
+
+    @Test
+    @DisplayName("moves its origin without copying or moving the shared origin")
+    void keepsOwnOrigin() throws WorldEditException {
+        Clipboard shared = createShared();
+        BlockVector3 sharedOrigin = shared.getOrigin();
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+        clipboard.setOrigin(BlockVector3.at(10, 20, 30));
+
+        assertEquals(BlockVector3.at(10, 20, 30), clipboard.getOrigin());
+        assertEquals(sharedOrigin, shared.getOrigin());
+        assertEquals(sharedOrigin, new CopyOnWriteClipboard(shared).getOrigin());
+        assertFalse(clipboard.isCopied());
+    }
+
+    @Test
+    @DisplayName("removes entities from its own copy only")
+    void detachesEntities() throws WorldEditException {
+        Clipboard shared = createShared();
+        shared.createEntity(new Location(shared, Vector3.at(0.5, 1, 0.5)), new BaseEntity(ENTITY));
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+
+        Entity entity = clipboard.getEntities().get(0);
+        assertEquals(ENTITY, entity.getState().getType());
+        assertFalse(clipboard.isCopied());
+
+        assertTrue(entity.remove());
+        assertTrue(clipboard.isCopied());
+        assertTrue(clipboard.getEntities().isEmpty());
+        assertEquals(1, shared.getEntities().size());
+        assertEquals(1, new CopyOnWriteClipboard(shared).getEntities(shared.getRegion()).size());
+    }
+
+}
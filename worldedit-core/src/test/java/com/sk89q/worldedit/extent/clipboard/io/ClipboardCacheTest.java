@@ -0,0 +1,182 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.CopyOnWriteClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("A clipboard cache")
+class ClipboardCacheTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:clipboard_cache_", 2);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * Create a format that reads every file as a small clipboard, and
+     * counts the reads.
+     */
+    private static ClipboardFormat createFormat(AtomicInteger reads) throws IOException {
+        ClipboardReader reader = mock(ClipboardReader.class);
+        when(reader.read()).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            BlockArrayClipboard clipboard = new BlockArrayClipboard(
+                new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(1, 1, 1)));
+            for (BlockVector3 position : clipboard.getRegion()) {
+                clipboard.setBlock(position, states[0]);
+            }
+            return clipboard;
+        });
+        ClipboardFormat format = mock(ClipboardFormat.class);
+        when(format.getReader(any())).thenReturn(reader);
+        return format;
+    }
+
+    private static File createFile(Path dir, String content) throws IOException {
+        File file = dir.resolve("test.schem").toFile();
+        Files.write(file.toPath(), content.getBytes());
+        return file;
+    }
+
+    @Test
+    @DisplayName("reads a file again only once it has changed")
+    void reloadsChangedFiles(@TempDir Path dir) throws IOException {
+        ClipboardCache cache = new ClipboardCache(WorldEdit.getInstance());
+        AtomicInteger reads = new AtomicInteger();
+        ClipboardFormat format = createFormat(reads);
+        File file = createFile(dir, "first");
+        long modified = file.lastModified();
+
+        Clipboard first = cache.load(file, format);
+        Clipboard second = cache.load(file, format);
+        assertEquals(1, reads.get());
+        assertNotSame(first, second);
+        assertTrue(first instanceof CopyOnWriteClipboard);
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(8, cache.getBlockCount());
+
+        assertTrue(file.setLastModified(modified + 2000));
+        cache.load(file, format);
+        assertEquals(2, reads.get());
+
+        // same modification time, but a different size
+        Files.write(file.toPath(), "second".getBytes());
+        assertTrue(file.setLastModified(modified + 2000));
+        cache.load(file, format);
+        assertEquals(3, reads.get());
+
+        // only the latest version is kept
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("keeps a clipboard for each format of a file")
+    void keysByFormat(@TempDir Path dir) throws IOException {
+        ClipboardCache cache = new ClipboardCache(WorldEdit.getInstance());
+        AtomicInteger firstReads = new AtomicInteger();
+        AtomicInteger secondReads = new AtomicInteger();
+        ClipboardFormat firstFormat = createFormat(firstReads);
+        ClipboardFormat secondFormat = createFormat(secondReads);
+        File file = createFile(dir, "content");
+
+        cache.load(file, firstFormat);
+        cache.load(file, secondFormat);
+        cache.load(file, firstFormat);
+        assertEquals(1, firstReads.get());
+        assertEquals(1, secondReads.get());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("does not hand out deleted or invalidated files")
+    void forgetsRemovedFiles(@TempDir Path dir) throws IOException {
+        ClipboardCache cache = new ClipboardCache(WorldEdit.getInstance());
+        AtomicInteger reads = new AtomicInteger();
+        ClipboardFormat format = createFormat(reads);
+        File file = createFile(dir, "content");
+
+        cache.load(file, format);
+        cache.invalidate(file);
+        assertEquals(0, cache.getSize());
+        cache.load(file, format);
+        assertEquals(2, reads.get());
+
+        Files.delete(file.toPath());
+        assertThrows(IOException.class, () -> cache.load(file, format));
+        cache.invalidate(file);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("hands out clipboards that can be changed without affecting each other")
+    void isolatesClipboards(@TempDir Path dir) throws IOException, WorldEditException {
+        ClipboardCache cache = new ClipboardCache(WorldEdit.getInstance());
+        ClipboardFormat format = createFormat(new AtomicInteger());
+        File file = createFile(dir, "content");
+        BlockState changed = states[1];
+
+        Clipboard first = cache.load(file, format);
+        first.setBlock(BlockVector3.ZERO, changed);
+        first.setOrigin(BlockVector3.at(5, 5, 5));
+
+        Clipboard second = cache.load(file, format);
+        assertEquals(states[0], second.getBlock(BlockVector3.ZERO));
+        assertEquals(BlockVector3.ZERO, second.getOrigin());
+        assertEquals(changed, first.getBlock(BlockVector3.ZERO));
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.ByteArrayTag;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.ShortTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A Sponge schematic")
+class SpongeSchematicTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+
+        states = new BlockState[300];
+        for (int i = 0; i < states.length; i++) {
+            String id = "schematic_test:block_" + i;
+            BlockType type = BlockType.REGISTRY.get(id);
+            if (type == null) {
+                type = BlockType.REGISTRY.register(id, new BlockType(id));
+            }
+            states[i] = type.getDefaultState();
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    private static Clipboard createClipboard(BlockVector3 size, int stateCount, Random random) throws WorldEditException {
+        BlockVector3 min = BlockVector3.at(-7, 3, 12);
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(
+            new CuboidRegion(min, min.add(size).subtract(BlockVector3.ONE)));
+        clipboard.setOrigin(min.add(2, 1, 3));
+        for (BlockVector3 position : clipboard.getRegion()) {
+            BlockState state = states[random.nextInt(stateCount)];
+            if (random.nextInt(100) == 0) {
+                clipboard.setBlock(position, state.toBaseBlock(new CompoundTag(ImmutableMap.<String, Tag>of(
+                    "id", new StringTag("schematic_test:chest"),
+                    "Marker", new StringTag(position.toString())))));
+            } else {
+                clipboard.setBlock(position, state);
+            }
+        }
+        return clipboard;
+    }
+
+    private static byte[] write(Clipboard clipboard) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ClipboardWriter writer = new SpongeSchematicWriter(new NBTOutputStream(new GZIPOutputStream(bytes)))) {
+            writer.write(clipboard);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Clipboard read(byte[] bytes) throws IOException {
+        try (ClipboardReader reader = new SpongeSchematicReader(
+                new NBTInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes))))) {
+            return reader.read();
+        }
+    }
+
+    private static void assertSameBlocks(Clipboard expected, Clipboard actual) {
+        assertEquals(expected.getRegion().getMinimumPoint(), actual.getRegion().getMinimumPoint());
+        assertEquals(expected.getRegion().getMaximumPoint(), actual.getRegion().getMaximumPoint());
+        assertEquals(expected.getOrigin(), actual.getOrigin());
+        for (BlockVector3 position : expected.getRegion()) {
+            BaseBlock expectedBlock = expected.getFullBlock(position);
+            BaseBlock actualBlock = actual.getFullBlock(position);
+            assertEquals(expectedBlock.toImmutableState(), actualBlock.toImmutableState(), position.toString());
+            if (expectedBlock.hasNbtData()) {
+                assertEquals(expectedBlock.getNbtData().getString("Marker"), actualBlock.getNbtData().getString("Marker"));
+            } else {
+                assertFalse(actualBlock.hasNbtData());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("reads back what it writes")
+    void roundTrip() throws IOException, WorldEditException {
+        Clipboard clipboard = createClipboard(BlockVector3.at(21, 9, 17), states.length, new Random(3));
+        byte[] bytes = write(clipboard);
+        assertSameBlocks(clipboard, read(bytes));
+
+        try (ClipboardReader reader = new SpongeSchematicReader(
+                new NBTInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes))))) {
+            assertEquals(OptionalInt.of(0), reader.getDataVersion());
+        }
+    }
+
+    @Test
+    @DisplayName("reads files with the block data before the palette")
+    void readsBlockDataFirst() throws IOException, WorldEditException {
+        Map<String, Tag> palette = new LinkedHashMap<>();
+        palette.put(states[0].getAsString(), new IntTag(0));
+        palette.put(states[200].getAsString(), new IntTag(200));
+
+        // block 200 takes two bytes as a varint
+        Map<String, Tag> schematic = new LinkedHashMap<>();
+        schematic.put("BlockData", new ByteArrayTag(new byte[] { 0, (byte) 0xC8, 0x01, 0, (byte) 0xC8, 0x01 }));
+        schematic.put("BlockEntities", new ListTag(CompoundTag.class, Collections.emptyList()));
+        schematic.put("Palette", new CompoundTag(palette));
+        schematic.put("Width", new ShortTag((short) 2));
+        schematic.put("Height", new ShortTag((short) 1));
+        schematic.put("Length", new ShortTag((short) 2));
+        schematic.put("Version", new IntTag(1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NBTOutputStream out = new NBTOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeNamedTag("Schematic", new CompoundTag(schematic));
+        }
+
+        Clipboard clipboard = read(bytes.toByteArray());
+        assertEquals(states[0], clipboard.getBlock(BlockVector3.at(0, 0, 0)));
+        assertEquals(states[200], clipboard.getBlock(BlockVector3.at(1, 0, 0)));
+        assertEquals(states[0], clipboard.getBlock(BlockVector3.at(0, 0, 1)));
+        assertEquals(states[200], clipboard.getBlock(BlockVector3.at(1, 0, 1)));
+    }
+
+    private static long resetPeakMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long peakMemory() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private interface Step {
+        Object run() throws IOException;
+    }
+
+    private static final class Measurement {
+        private final Object result;
+        private final long peak;
+
+        private Measurement(Object result, long peak) {
+            this.result = result;
+            this.peak = peak;
+        }
+    }
+
+    private static Measurement measure(String name, Step step) throws IOException {
+        long before = resetPeakMemory();
+        long start = System.nanoTime();
+        Object result = step.run();
+        long nanos = System.nanoTime() - start;
+        long peak = peakMemory() - before;
+        System.out.printf("%s: %d ms, peak %,d bytes above baseline%n", name, nanos / 1_000_000, peak);
+        return new Measurement(result, peak);
+    }
+
+    private static long benchmarkTagTree(byte[] bytes) throws IOException {
+        // The tag tree path held the whole tree before decoding or writing a single block,
+        // so reading or writing the tree alone is a lower bound on its cost.
+        Measurement read = measure("tag tree read", () -> {
+            try (NBTInputStream in = new NBTInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+                return in.readNamedTag().getTag();
+            }
+        });
+        Measurement write = measure("tag tree write", () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (NBTOutputStream nbt = new NBTOutputStream(new GZIPOutputStream(out))) {
+                nbt.writeNamedTag("Schematic", (CompoundTag) read.result);
+            }
+            return out;
+        });
+        return Math.max(read.peak, write.peak);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("reads and writes without building a tag tree (benchmark)")
+    void streamingBenchmark() throws IOException, WorldEditException {
+        Clipboard clipboard = createClipboard(BlockVector3.at(256, 256, 256), states.length, new Random(1));
+        byte[] bytes = write(clipboard);
+        long tagTree = benchmarkTagTree(bytes);
+
+        Measurement read = measure("streaming read into clipboard", () -> read(bytes));
+        Measurement write = measure("streaming write from clipboard", () -> write((Clipboard) read.result));
+        assertSameBlocks(clipboard, (Clipboard) read.result);
+        assertTrue(Math.max(read.peak, write.peak) < tagTree,
+            "streaming should peak below the tag tree, which holds the whole schematic at once");
+    }
+
+}
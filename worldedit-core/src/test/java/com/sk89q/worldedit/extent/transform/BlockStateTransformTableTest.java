@@ -0,0 +1,181 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.transform;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.registry.state.DirectionalProperty;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.IntegerProperty;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A block state transform table")
+class BlockStateTransformTableTest {
+
+    private static Platform platform;
+    private static final Map<String, Map<String, ? extends Property<?>>> PROPERTIES = ImmutableMap.of(
+        "test:stairs", ImmutableMap.of(
+            "facing", new DirectionalProperty("facing", ImmutableList.of(
+                Direction.NORTH, Direction.SOUTH, Direction.EAST, Direction.WEST)),
+            "shape", new EnumProperty("shape", ImmutableList.of(
+                "straight", "inner_left", "inner_right", "outer_left", "outer_right"))
+        ),
+        "test:log", ImmutableMap.of(
+            "axis", new EnumProperty("axis", ImmutableList.of("x", "y", "z"))
+        ),
+        "test:sign", ImmutableMap.of(
+            "rotation", new IntegerProperty("rotation",
+                IntStream.range(0, 16).boxed().collect(Collectors.toList()))
+        )
+    );
+    private static final List<Transform> TRANSFORMS = ImmutableList.of(
+        new AffineTransform().rotateY(90),
+        new AffineTransform().rotateY(180),
+        new AffineTransform().rotateY(-90),
+        new AffineTransform().scale(-1, 1, 1),
+        new AffineTransform().rotateY(90).scale(1, 1, -1)
+    );
+    private static List<BlockState> states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register(PROPERTIES);
+
+        states = new ArrayList<>();
+        for (String id : PROPERTIES.keySet()) {
+            states.addAll(new BlockType(id).getAllStates());
+        }
+        for (BlockState state : states) {
+            BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    @Test
+    @DisplayName("transforms states like the uncached transform")
+    void matchesUncachedTransform() {
+        for (Transform transform : TRANSFORMS) {
+            for (int pass = 0; pass < 2; pass++) {
+                for (BlockState state : states) {
+                    BlockState expected = BlockTransformExtent.transformProperties(state, transform);
+                    assertSame(expected, BlockTransformExtent.transform(state, transform),
+                        () -> state + " with " + transform);
+                    BaseBlock block = state.toBaseBlock();
+                    assertEquals(expected.toBaseBlock(), BlockTransformExtent.transform(block, transform));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("shares tables between equal transforms")
+    void sharesTables() {
+        assertSame(BlockStateTransformTable.get(new AffineTransform().rotateY(90)),
+            BlockStateTransformTable.get(new AffineTransform().rotateY(90)));
+    }
+
+    /**
+     * Paste the clipboard rotated into nothing, and return the best time of
+     * a few runs.
+     */
+    private static long timePaste(BlockArrayClipboard clipboard, Extent source, Transform transform) throws WorldEditException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            ForwardExtentCopy copy = new ForwardExtentCopy(source, clipboard.getRegion(),
+                clipboard.getOrigin(), new NullExtent(), BlockVector3.ZERO);
+            copy.setTransform(transform);
+            long start = System.nanoTime();
+            Operations.complete(copy);
+            best = Math.min(best, System.nanoTime() - start);
+            assertEquals(clipboard.getRegion().getArea(), copy.getAffected());
+        }
+        return best;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("pastes a rotated 5M block clipboard faster than uncached transforms (benchmark)")
+    void rotatedPasteBenchmark() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(255, 79, 255));
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        int i = 0;
+        for (BlockVector3 position : region) {
+            clipboard.setBlock(position, states.get(i++ % states.size()));
+        }
+        Transform transform = new AffineTransform().rotateY(90);
+
+        Extent uncachedSource = new AbstractDelegateExtent(clipboard) {
+            @Override
+            public BlockState getBlock(BlockVector3 position) {
+                return BlockTransformExtent.transformProperties(super.getBlock(position), transform);
+            }
+
+            @Override
+            public BaseBlock getFullBlock(BlockVector3 position) {
+                return BlockTransformExtent.transformProperties(super.getFullBlock(position), transform);
+            }
+        };
+        long uncached = timePaste(clipboard, uncachedSource, transform);
+        long cached = timePaste(clipboard, new BlockTransformExtent(clipboard, transform), transform);
+
+        System.out.printf("rotated paste of %,d blocks: cached %d ms, uncached %d ms%n",
+            region.getArea(), cached / 1_000_000, uncached / 1_000_000);
+        assertTrue(cached < uncached, "cached transforms should paste faster");
+    }
+
+}
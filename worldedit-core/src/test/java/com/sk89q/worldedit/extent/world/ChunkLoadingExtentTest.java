@@ -0,0 +1,93 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("A chunk loading extent")
+class ChunkLoadingExtentTest {
+
+    private static final BiomeType BIOME = new BiomeType("test:biome");
+
+    @Test
+    @DisplayName("checks each chunk only once")
+    void checksChunksOnce() {
+        World world = mock(World.class);
+        ChunkLoadingExtent extent = new ChunkLoadingExtent(new NullExtent(), world);
+        for (int x = -16; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                extent.setBiome(BlockVector2.at(x, z), BIOME);
+            }
+        }
+        verify(world, times(2)).checkLoadedChunk(any(BlockVector3.class));
+    }
+
+    @Test
+    @DisplayName("checks chunks again after a commit")
+    void checksAgainAfterCommit() {
+        World world = mock(World.class);
+        ChunkLoadingExtent extent = new ChunkLoadingExtent(new NullExtent(), world);
+        extent.setBiome(BlockVector2.at(0, 0), BIOME);
+        extent.setBiome(BlockVector2.at(1, 0), BIOME);
+        extent.commit();
+        extent.setBiome(BlockVector2.at(0, 0), BIOME);
+        verify(world, times(2)).checkLoadedChunk(BlockVector3.at(0, 0, 0));
+        verify(world, times(1)).checkLoadedChunk(BlockVector3.at(1, 0, 0));
+    }
+
+    @Test
+    @DisplayName("only preloads chunks that haven't been checked")
+    void preloadsUncheckedChunks() {
+        World world = mock(World.class);
+        ChunkLoadingExtent extent = new ChunkLoadingExtent(new NullExtent(), world);
+        extent.setBiome(BlockVector2.at(0, 0), BIOME);
+        extent.preload(ImmutableList.of(BlockVector2.at(0, 0), BlockVector2.at(1, 0)));
+        verify(world).preloadChunks(ImmutableList.of(BlockVector2.at(1, 0)));
+
+        extent.preload(ImmutableList.of(BlockVector2.at(0, 0)));
+        verify(world, never()).preloadChunks(ImmutableList.of(BlockVector2.at(0, 0)));
+    }
+
+    @Test
+    @DisplayName("does nothing while disabled")
+    void disabled() {
+        World world = mock(World.class);
+        ChunkLoadingExtent extent = new ChunkLoadingExtent(new NullExtent(), world, false);
+        extent.setBiome(BlockVector2.at(0, 0), BIOME);
+        extent.preload(ImmutableList.of(BlockVector2.at(1, 0)));
+        verify(world, never()).checkLoadedChunk(any(BlockVector3.class));
+        verify(world, never()).preloadChunks(any());
+    }
+
+}
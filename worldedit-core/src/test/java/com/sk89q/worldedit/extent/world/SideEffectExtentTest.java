@@ -0,0 +1,175 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.util.collection.SectionBlockBatch;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("A side effect extent")
+class SideEffectExtentTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:side_effect_", 3);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * Create a world of {@code states[0]}, which stores the blocks that are
+     * set in the given map.
+     */
+    private static World createWorld(Map<BlockVector3, BaseBlock> blocks) throws WorldEditException {
+        World world = mock(World.class);
+        BaseBlock air = states[0].toBaseBlock();
+        doAnswer(invocation -> blocks.getOrDefault(invocation.<BlockVector3>getArgument(0), air).toImmutableState())
+            .when(world).getBlock(any());
+        doAnswer(invocation -> blocks.getOrDefault(invocation.<BlockVector3>getArgument(0), air))
+            .when(world).getFullBlock(any());
+        doAnswer(invocation -> {
+            int x = invocation.getArgument(0);
+            int z = invocation.getArgument(1);
+            int minY = invocation.getArgument(2);
+            int maxY = invocation.getArgument(3);
+            BlockState[] column = invocation.getArgument(4);
+            for (int y = minY; y <= maxY; y++) {
+                column[y - minY] = blocks.getOrDefault(BlockVector3.at(x, y, z), air).toImmutableState();
+            }
+            return null;
+        }).when(world).getBlockColumn(anyInt(), anyInt(), anyInt(), anyInt(), any());
+        doAnswer(invocation -> {
+            SectionBlockBatch batch = invocation.getArgument(0);
+            int changed = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                BaseBlock block = batch.getBlock(i);
+                BaseBlock previous = blocks.put(batch.getPosition(i), block);
+                if (block.hasNbtData() || !block.equals(previous == null ? air : previous)) {
+                    changed++;
+                }
+            }
+            return changed;
+        }).when(world).setBlocks(any(), any());
+        return world;
+    }
+
+    @Test
+    @DisplayName("counts the blocks that change once they are set")
+    void countsChanges() throws WorldEditException {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        blocks.put(BlockVector3.at(1, 2, 3), states[1].toBaseBlock());
+        World world = createWorld(blocks);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(SideEffectSet.none());
+
+        // the world is not read to tell whether a block changes
+        assertTrue(extent.setBlock(BlockVector3.at(0, 0, 0), states[0]));
+        assertTrue(extent.setBlock(BlockVector3.at(1, 2, 3), states[1]));
+        assertTrue(extent.setBlock(BlockVector3.at(4, 5, 6), states[2]));
+        verify(world, never()).getBlock(any());
+        assertEquals(0, extent.getChangedBlockCount());
+
+        extent.commit();
+        assertEquals(1, extent.getChangedBlockCount());
+
+        CompoundTag nbt = new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test")));
+        extent.setBlock(BlockVector3.at(1, 2, 3), states[1].toBaseBlock(nbt));
+        extent.commit();
+        assertEquals(2, extent.getChangedBlockCount());
+    }
+
+    @Test
+    @DisplayName("sets the pending block at a position before the world is changed there")
+    void flushesPendingBlocks() throws WorldEditException {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        World world = createWorld(blocks);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(SideEffectSet.none());
+
+        extent.setBlock(BlockVector3.at(1, 2, 3), states[1]);
+        extent.flushPending(BlockVector3.at(4, 5, 6));
+        verify(world, never()).setBlocks(any(), any());
+
+        extent.flushPending(BlockVector3.at(1, 2, 3));
+        assertEquals(states[1], blocks.get(BlockVector3.at(1, 2, 3)).toImmutableState());
+    }
+
+    @Test
+    @DisplayName("shows pending blocks before they reach the world")
+    void readsPendingBlocks() throws WorldEditException {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        World world = createWorld(blocks);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(SideEffectSet.none());
+
+        BaseBlock block = states[2].toBaseBlock();
+        extent.setBlock(BlockVector3.at(5, 20, 5), block);
+        extent.setBlock(BlockVector3.at(6, 21, 5), states[1]);
+        verify(world, never()).setBlocks(any(), any());
+
+        assertSame(states[2], extent.getBlock(BlockVector3.at(5, 20, 5)));
+        assertSame(block, extent.getFullBlock(BlockVector3.at(5, 20, 5)));
+
+        BlockState[] column = new BlockState[40];
+        extent.getBlockColumn(5, 5, 0, 39, column);
+        for (int y = 0; y < column.length; y++) {
+            assertEquals(y == 20 ? states[2] : states[0], column[y], "y = " + y);
+        }
+
+        extent.commit();
+        assertEquals(block, blocks.get(BlockVector3.at(5, 20, 5)));
+        assertEquals(states[1], blocks.get(BlockVector3.at(6, 21, 5)).toImmutableState());
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.registry.state.DirectionalProperty;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.FuzzyBlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A block state mask")
+class BlockStateIdFilterTest {
+
+    private static Platform platform;
+    private static final Map<String, Map<String, ? extends Property<?>>> PROPERTIES = ImmutableMap.of(
+        "test:stairs", ImmutableMap.of(
+            "facing", new DirectionalProperty("facing", ImmutableList.of(
+                Direction.NORTH, Direction.SOUTH, Direction.EAST, Direction.WEST)),
+            "shape", new EnumProperty("shape", ImmutableList.of("straight", "inner_left", "outer_left"))
+        ),
+        "test:log", ImmutableMap.of(
+            "axis", new EnumProperty("axis", ImmutableList.of("x", "y", "z"))
+        ),
+        "test:unregistered", ImmutableMap.of(
+            "facing", new DirectionalProperty("facing", ImmutableList.of(Direction.NORTH, Direction.SOUTH))
+        )
+    );
+    private static BlockType stairs;
+    private static BlockType log;
+    private static BlockType stone;
+    private static BlockType unregistered;
+    private static List<BlockState> states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register(PROPERTIES);
+
+        stairs = new BlockType("test:stairs");
+        log = new BlockType("test:log");
+        stone = new BlockType("test:stone");
+        unregistered = new BlockType("test:unregistered");
+        states = new ArrayList<>();
+        for (BlockType type : ImmutableList.of(stairs, log, stone)) {
+            for (BlockState state : type.getAllStates()) {
+                BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+                states.add(state);
+            }
+        }
+        // these states keep an invalid ID, so masks check them directly
+        states.addAll(unregistered.getAllStates());
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * An extent with a row of every test state along the X axis.
+     */
+    private static final class StateRowExtent extends NullExtent {
+        @Override
+        public BlockState getBlock(BlockVector3 position) {
+            return states.get(position.getX());
+        }
+    }
+
+    private static void assertMatches(Mask mask, Predicate<BlockState> expected) {
+        for (int i = 0; i < states.size(); i++) {
+            BlockState state = states.get(i);
+            assertEquals(expected.test(state), mask.test(BlockVector3.at(i, 0, 0)), state.toString());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Property<V> property(BlockType type, String name) {
+        return (Property<V>) type.getPropertyMap().get(name);
+    }
+
+    @Test
+    @DisplayName("compiled from a block list matches like a fuzzy comparison")
+    void blockMask() {
+        BaseBlock northStairs = FuzzyBlockState.builder().type(stairs)
+            .withProperty(property(stairs, "facing"), Direction.NORTH)
+            .build().toBaseBlock();
+        BaseBlock yLog = log.getDefaultState().with(property(log, "axis"), "y").toBaseBlock();
+        BaseBlock southUnregistered = unregistered.getDefaultState()
+            .with(property(unregistered, "facing"), Direction.SOUTH).toBaseBlock();
+        List<BaseBlock> blocks = ImmutableList.of(northStairs, yLog, southUnregistered);
+
+        BlockMask mask = new BlockMask(new StateRowExtent(), blocks);
+        assertMatches(mask, state -> blocks.stream().anyMatch(block -> block.equalsFuzzy(state)));
+
+        mask.add(stone.getDefaultState().toBaseBlock());
+        assertMatches(mask, state -> state.getBlockType() == stone
+            || blocks.stream().anyMatch(block -> block.equalsFuzzy(state)));
+    }
+
+    @Test
+    @DisplayName("compiled from a block list follows changes made through getBlocks()")
+    void blockMaskChangedThroughGetBlocks() {
+        BaseBlock yLog = log.getDefaultState().with(property(log, "axis"), "y").toBaseBlock();
+        BlockMask mask = new BlockMask(new StateRowExtent(), yLog);
+        assertMatches(mask, yLog::equalsFuzzy);
+
+        mask.getBlocks().add(stone.getDefaultState().toBaseBlock());
+        assertMatches(mask, state -> state.getBlockType() == stone || yLog.equalsFuzzy(state));
+
+        mask.getBlocks().removeIf(block -> block.getBlockType() == log);
+        assertMatches(mask, state -> state.getBlockType() == stone);
+
+        mask.getBlocks().clear();
+        assertMatches(mask, state -> false);
+    }
+
+    @Test
+    @DisplayName("compiled from block types matches every state of those types")
+    void blockTypeMask() {
+        BlockTypeMask mask = new BlockTypeMask(new StateRowExtent(), log, unregistered);
+        assertMatches(mask, state -> state.getBlockType() == log || state.getBlockType() == unregistered);
+
+        mask.getBlocks().remove(log);
+        assertMatches(mask, state -> state.getBlockType() == unregistered);
+    }
+
+    @Test
+    @DisplayName("compiled from state values matches states of any type")
+    void blockStateMask() {
+        BlockStateMask mask = new BlockStateMask(new StateRowExtent(), ImmutableMap.of("facing", "north"), true);
+        assertMatches(mask, state -> state.getBlockType().getPropertyMap().containsKey("facing")
+            && state.getState(property(state.getBlockType(), "facing")) == Direction.NORTH);
+    }
+
+    @Test
+    @DisplayName("does not consult the criteria for states of other types")
+    void skipsOtherTypes() {
+        Set<BlockState> consulted = new HashSet<>();
+        BlockStateIdFilter filter = new BlockStateIdFilter(() -> ImmutableList.of(log), state -> {
+            synchronized (consulted) {
+                consulted.add(state);
+            }
+            return true;
+        });
+
+        for (BlockState state : stairs.getAllStates()) {
+            assertFalse(filter.test(state), state.toString());
+        }
+        assertFalse(filter.test(stone.getDefaultState()));
+        assertTrue(filter.test(log.getDefaultState()));
+        assertEquals(new HashSet<>(log.getAllStates()), consulted);
+
+        // without a valid ID, the criteria are all there is to go on
+        assertTrue(filter.test(unregistered.getDefaultState()));
+        assertTrue(consulted.contains(unregistered.getDefaultState()));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("tests long block lists in constant time (benchmark)")
+    void blockMaskBenchmark() {
+        List<BaseBlock> blocks = new ArrayList<>();
+        for (BlockState state : states) {
+            if (state.getBlockType() == stairs && blocks.size() < 40) {
+                blocks.add(state.toBaseBlock());
+            }
+        }
+        BlockMask mask = new BlockMask(new StateRowExtent(), blocks);
+        int tests = 5_000_000;
+        int size = states.size();
+
+        long start = System.nanoTime();
+        int linear = 0;
+        for (int i = 0; i < tests; i++) {
+            BlockState state = states.get(i % size);
+            for (BaseBlock block : blocks) {
+                if (block.equalsFuzzy(state)) {
+                    linear++;
+                    break;
+                }
+            }
+        }
+        long linearNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int compiled = 0;
+        for (int i = 0; i < tests; i++) {
+            if (mask.test(BlockVector3.at(i % size, 0, 0))) {
+                compiled++;
+            }
+        }
+        long compiledNanos = System.nanoTime() - start;
+        assertEquals(linear, compiled);
+
+        System.out.printf("%d entries: linear scan %d ms, compiled %d ms%n",
+            blocks.size(), linearNanos / 1_000_000, compiledNanos / 1_000_000);
+        assertTrue(compiledNanos < linearNanos, "the compiled mask should be faster than a linear scan");
+    }
+
+}
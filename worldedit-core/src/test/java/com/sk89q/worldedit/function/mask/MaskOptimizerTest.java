@@ -0,0 +1,65 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.noise.RandomNoise;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("The mask optimizer")
+class MaskOptimizerTest {
+
+    private static final Mask REGION = new RegionMask(
+        new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(15, 15, 15)));
+    private static final Mask HEIGHT = new BoundedHeightMask(0, 64);
+
+    @Test
+    @DisplayName("removes double negation")
+    void removesDoubleNegation() {
+        assertSame(REGION, Masks.optimize(Masks.negate(Masks.negate(REGION))));
+    }
+
+    @Test
+    @DisplayName("drops constant masks from intersections")
+    void simplifiesIntersections() {
+        assertSame(REGION, Masks.optimize(new MaskIntersection(Masks.alwaysTrue(), REGION)));
+        assertSame(Masks.alwaysFalse(),
+            Masks.optimize(new MaskIntersection(REGION, Masks.negate(Masks.alwaysTrue()))));
+        assertSame(Masks.alwaysTrue(), Masks.optimize(new MaskUnion(REGION, Masks.alwaysTrue())));
+    }
+
+    @Test
+    @DisplayName("flattens nested intersections and tests cheap masks first")
+    void flattensAndOrders() {
+        Mask noise = new NoiseFilter(new RandomNoise(), 0.5);
+        Mask optimized = Masks.optimize(new MaskIntersection(noise, new MaskIntersection(HEIGHT, REGION)));
+        assertEquals(MaskIntersection.class, optimized.getClass());
+        assertEquals(ImmutableList.of(HEIGHT, REGION, noise),
+            ImmutableList.copyOf(((MaskIntersection) optimized).getMasks()));
+    }
+
+}
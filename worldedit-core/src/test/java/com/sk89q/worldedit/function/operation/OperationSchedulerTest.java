@@ -0,0 +1,223 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.task.Task;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("An operation scheduler")
+@Execution(ExecutionMode.SAME_THREAD)
+class OperationSchedulerTest {
+
+    private Platform platform;
+    private OperationScheduler scheduler;
+    private List<String> slices;
+    private Runnable tick;
+
+    @BeforeEach
+    void setUp() {
+        platform = FakePlatform.register();
+        platform.getConfiguration().operationTickBudget = 1;
+        scheduler = new OperationScheduler(WorldEdit.getInstance());
+        slices = new ArrayList<>();
+        tick = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.unload();
+        FakePlatform.unregister(platform);
+    }
+
+    private void useScheduler() {
+        when(platform.schedule(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            tick = invocation.getArgument(2);
+            return 1;
+        });
+    }
+
+    @Test
+    @DisplayName("runs operations straight away without a platform scheduler")
+    void runsImmediatelyWithoutScheduler() {
+        SlicedOperation operation = new SlicedOperation("a", 3);
+        Task<Void> task = scheduler.submit(operation, "a", null);
+
+        assertTrue(task.isDone());
+        assertEquals(Arrays.asList("a", "a", "a"), slices);
+    }
+
+    @Test
+    @DisplayName("runs one slice of an operation per tick")
+    void runsOneSlicePerTick() {
+        useScheduler();
+        Task<Void> task = scheduler.submit(new SlicedOperation("a", 3), "a", null);
+        assertNotNull(tick);
+        assertTrue(slices.isEmpty());
+
+        tick.run();
+        assertEquals(Collections.singletonList("a"), slices);
+        assertEquals(Task.State.RUNNING, task.getState());
+
+        tick.run();
+        tick.run();
+        assertEquals(Arrays.asList("a", "a", "a"), slices);
+        assertEquals(Task.State.SUCCEEDED, task.getState());
+    }
+
+    @Test
+    @DisplayName("takes turns between operations")
+    void takesTurns() {
+        useScheduler();
+        Task<Void> first = scheduler.submit(new SlicedOperation("a", 2), "a", null);
+        Task<Void> second = scheduler.submit(new SlicedOperation("b", 2), "b", null);
+
+        for (int i = 0; i < 4; i++) {
+            tick.run();
+        }
+
+        assertEquals(Arrays.asList("a", "b", "a", "b"), slices);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    @DisplayName("cancels the operation when its task is cancelled")
+    void cancelsOperation() {
+        useScheduler();
+        SlicedOperation operation = new SlicedOperation("a", 3);
+        Task<Void> task = scheduler.submit(operation, "a", null);
+        tick.run();
+
+        assertTrue(task.cancel(false));
+        tick.run();
+
+        assertTrue(operation.cancelled);
+        assertEquals(Collections.singletonList("a"), slices);
+        assertEquals(Task.State.CANCELLED, task.getState());
+    }
+
+    @Test
+    @DisplayName("cancels its tick task and pending operations on unload")
+    void cancelsOnUnload() {
+        useScheduler();
+        SlicedOperation running = new SlicedOperation("a", 3);
+        SlicedOperation pending = new SlicedOperation("b", 3);
+        Task<Void> runningTask = scheduler.submit(running, "a", null);
+        tick.run();
+        Task<Void> pendingTask = scheduler.submit(pending, "b", null);
+
+        scheduler.unload();
+
+        verify(platform).cancelTask(1);
+        assertTrue(runningTask.isCancelled());
+        assertTrue(pendingTask.isCancelled());
+        assertTrue(running.cancelled);
+        assertTrue(pending.cancelled);
+        assertEquals(Collections.singletonList("a"), slices);
+    }
+
+    @Test
+    @DisplayName("reports a failing operation through its task")
+    void reportsFailure() {
+        useScheduler();
+        Task<Void> task = scheduler.submit(new Operation() {
+            @Override
+            public Operation resume(RunContext run) {
+                throw new IllegalStateException("expected");
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public Iterable<Component> getStatusMessages() {
+                return Collections.emptyList();
+            }
+        }, "failing", null);
+        tick.run();
+
+        assertTrue(task.isDone());
+        assertFalse(task.isCancelled());
+        assertEquals(Task.State.FAILED, task.getState());
+    }
+
+    /**
+     * Uses up the run context it is given, and finishes after a number of
+     * slices. Slices are capped, so that an unlimited context does not spin
+     * forever.
+     */
+    private class SlicedOperation implements Operation {
+
+        private final String name;
+        private int remaining;
+        private boolean cancelled;
+
+        private SlicedOperation(String name, int count) {
+            this.name = name;
+            this.remaining = count;
+        }
+
+        @Override
+        public Operation resume(RunContext run) {
+            slices.add(name);
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20);
+            while (run.shouldContinue() && System.nanoTime() < end) {
+                Thread.yield();
+            }
+            return --remaining > 0 ? this : null;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public Iterable<Component> getStatusMessages() {
+            return Collections.emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.collection.BlockPositionSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A timed run context")
+class TimedRunContextTest {
+
+    @Test
+    @DisplayName("continues while the budget lasts")
+    void continuesWithinBudget() {
+        TimedRunContext context = new TimedRunContext(1, TimeUnit.HOURS);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(context.shouldContinue());
+        }
+        assertFalse(context.isExpired());
+    }
+
+    @Test
+    @DisplayName("stops within a few calls once the budget is used up")
+    void stopsOnceExpired() {
+        TimedRunContext context = new TimedRunContext(0, TimeUnit.NANOSECONDS);
+        int calls = 0;
+        while (context.shouldContinue()) {
+            calls++;
+            assertTrue(calls < 64, "context did not expire");
+        }
+        assertTrue(context.isExpired());
+        assertFalse(context.shouldContinue());
+    }
+
+    @Test
+    @DisplayName("lets a visitor resume where it stopped")
+    void visitorResumesAcrossSlices() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(-5, 0, -5), BlockVector3.at(5, 10, 5));
+        BlockPositionSet applied = new BlockPositionSet();
+        RegionVisitor visitor = new RegionVisitor(region, position -> {
+            assertTrue(applied.add(position), "visited twice: " + position);
+            return true;
+        });
+
+        Operation current = visitor;
+        int slices = 0;
+        while (current != null) {
+            current = current.resume(new TimedRunContext(0, TimeUnit.NANOSECONDS));
+            slices++;
+        }
+
+        assertTrue(slices > 1, "visitor was not split into slices");
+        assertEquals(region.getArea(), applied.size());
+        assertEquals(region.getArea(), visitor.getAffected());
+    }
+
+}
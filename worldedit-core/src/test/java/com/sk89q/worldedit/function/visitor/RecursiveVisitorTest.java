@@ -0,0 +1,113 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.collection.BlockPositionSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A recursive visitor")
+class RecursiveVisitorTest {
+
+    private static int flood(CuboidRegion region, BlockVector3 start) throws WorldEditException {
+        BlockPositionSet applied = new BlockPositionSet();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), position -> {
+            assertTrue(region.contains(position));
+            assertTrue(applied.add(position), "visited twice: " + position);
+            return true;
+        });
+        visitor.visit(start);
+        Operations.complete(visitor);
+        assertEquals(applied.size(), visitor.getAffected());
+        return visitor.getAffected();
+    }
+
+    @Test
+    @DisplayName("visits every connected block exactly once")
+    void visitsEveryBlockOnce() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(-20, -70, -33), BlockVector3.at(17, 40, 5));
+        assertEquals(region.getArea(), flood(region, BlockVector3.at(0, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("visits blocks beyond the packable range")
+    void visitsFarBlocks() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(0, 2040, 0), BlockVector3.at(3, 2060, 3));
+        assertEquals(region.getArea(), flood(region, BlockVector3.at(1, 2050, 1)));
+    }
+
+    @Test
+    @DisplayName("keeps far-out positions in a position set")
+    void positionSetHandlesFarPositions() {
+        BlockPositionSet set = new BlockPositionSet();
+        assertTrue(set.add(Integer.MAX_VALUE, Integer.MIN_VALUE, 0));
+        assertTrue(set.add(-1, -1, -1));
+        assertFalse(set.add(-1, -1, -1));
+        assertTrue(set.contains(Integer.MAX_VALUE, Integer.MIN_VALUE, 0));
+        assertFalse(set.contains(15, -1, -1));
+        assertEquals(2, set.size());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("floods tens of millions of blocks in bounded memory (benchmark)")
+    void floodBenchmark() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(511, 255, 255));
+        long[] peak = new long[1];
+        long before = usedMemory();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), position -> {
+            // a few samples of the memory that is live while the flood is under way
+            if ((position.getX() & 127) == 0 && position.getY() == 128 && position.getZ() == 128) {
+                peak[0] = Math.max(peak[0], usedMemory());
+            }
+            return true;
+        });
+        visitor.visit(BlockVector3.at(256, 128, 128));
+        long start = System.nanoTime();
+        Operations.complete(visitor);
+        long nanos = System.nanoTime() - start;
+        assertEquals(region.getArea(), visitor.getAffected());
+
+        long live = peak[0] - before;
+        System.out.printf("flooded %,d blocks in %d ms, at most %,d bytes live%n",
+            visitor.getAffected(), nanos / 1_000_000, live);
+        assertTrue(peak[0] > 0, "the flood should have been sampled");
+        assertTrue(live < region.getArea(), "the flood should take less than a byte per block");
+    }
+
+}
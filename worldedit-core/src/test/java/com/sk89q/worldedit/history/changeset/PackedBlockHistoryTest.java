@@ -0,0 +1,223 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A packed block history")
+class PackedBlockHistoryTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:block_", 16);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * An extent that records blocks into a map.
+     */
+    private static final class MapExtent extends NullExtent {
+        private final Map<BlockVector3, BaseBlock> blocks;
+
+        private MapExtent(Map<BlockVector3, BaseBlock> blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            blocks.put(position, block.toBaseBlock());
+            return true;
+        }
+    }
+
+    private static Map<BlockVector3, BaseBlock> record(ChangeSet changeSet, Map<BlockVector3, BaseBlock> world,
+                                                      int changes, Random random) {
+        CompoundTag nbt = new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test")));
+        for (int i = 0; i < changes; i++) {
+            BlockVector3 position = BlockVector3.at(random.nextInt(40) - 20, random.nextInt(16), random.nextInt(40));
+            BaseBlock previous = world.getOrDefault(position, states[0].toBaseBlock());
+            BlockState state = states[random.nextInt(states.length)];
+            BaseBlock current = random.nextInt(50) == 0 ? state.toBaseBlock(nbt) : state.toBaseBlock();
+            changeSet.add(new BlockChange(position, previous, current));
+            world.put(position, current);
+        }
+        return world;
+    }
+
+    private static void apply(ChangeSetExecutor executor) throws WorldEditException {
+        Operations.complete(executor);
+    }
+
+    @Test
+    @DisplayName("restores the original blocks on undo and the edited blocks on redo")
+    void undoesAndRedoes() throws WorldEditException {
+        PackedBlockHistory history = new PackedBlockHistory();
+        Map<BlockVector3, BaseBlock> edited = record(history, new HashMap<>(), 20_000, new Random(7));
+
+        Map<BlockVector3, BaseBlock> world = new HashMap<>(edited);
+        UndoContext context = new UndoContext();
+        context.setExtent(new MapExtent(world));
+        apply(ChangeSetExecutor.createUndo(history, context));
+        for (BaseBlock block : world.values()) {
+            assertEquals(states[0].toBaseBlock(), block);
+        }
+
+        apply(ChangeSetExecutor.createRedo(history, context));
+        assertEquals(edited, world);
+        assertEquals(edited.size(), history.size());
+    }
+
+    @Test
+    @DisplayName("keeps positions at the edges of the packed range, and beyond it")
+    void roundTripsExtremePositions() throws WorldEditException {
+        int minXz = -(1 << 25);
+        int maxXz = (1 << 25) - 1;
+        List<BlockVector3> positions = new ArrayList<>();
+        for (int xz : new int[] { minXz, -1, 0, maxXz }) {
+            for (int y : new int[] { -2048, -64, -1, 0, 319, 2047 }) {
+                positions.add(BlockVector3.at(xz, y, maxXz));
+                positions.add(BlockVector3.at(minXz, y, xz));
+            }
+        }
+        // too large to pack
+        positions.add(BlockVector3.at(maxXz + 1, 0, 0));
+        positions.add(BlockVector3.at(0, 2048, 0));
+        positions.add(BlockVector3.at(0, -2049, minXz - 1));
+
+        PackedBlockHistory history = new PackedBlockHistory();
+        Map<BlockVector3, BaseBlock> edited = new HashMap<>();
+        for (int i = 0; i < positions.size(); i++) {
+            BaseBlock current = states[1 + i % (states.length - 1)].toBaseBlock();
+            history.add(new BlockChange(positions.get(i), states[0].toBaseBlock(), current));
+            edited.put(positions.get(i), current);
+        }
+
+        Map<BlockVector3, BaseBlock> world = new HashMap<>();
+        UndoContext context = new UndoContext();
+        context.setExtent(new MapExtent(world));
+        apply(ChangeSetExecutor.createRedo(history, context));
+        assertEquals(edited, world);
+
+        apply(ChangeSetExecutor.createUndo(history, context));
+        assertEquals(edited.keySet(), world.keySet());
+        for (BaseBlock block : world.values()) {
+            assertEquals(states[0].toBaseBlock(), block);
+        }
+
+        Iterator<?> iterator = history.forwardIterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            Object change = iterator.next();
+            if (change instanceof PackedBlockHistory.BlockEntry) {
+                assertTrue(edited.containsKey(((PackedBlockHistory.BlockEntry) change).getPosition()));
+            }
+            count++;
+        }
+        assertEquals(positions.size(), count);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Record changes in a new change set, and undo them a few times.
+     *
+     * @return the bytes used per change
+     */
+    private static double benchmark(String name, Supplier<ChangeSet> factory) throws WorldEditException {
+        int changes = 2_000_000;
+        Random random = new Random(1);
+        long before = usedMemory();
+        ChangeSet changeSet = factory.get();
+        for (int i = 0; i < changes; i++) {
+            BlockVector3 position = BlockVector3.at(i & 255, (i >> 16) & 255, (i >> 8) & 255);
+            changeSet.add(new BlockChange(position,
+                states[random.nextInt(states.length)], states[random.nextInt(states.length)]));
+        }
+        double bytesPerChange = (double) (usedMemory() - before) / changes;
+        assertEquals(changes, changeSet.size());
+
+        UndoContext context = new UndoContext();
+        context.setExtent(new NullExtent());
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            apply(ChangeSetExecutor.createUndo(changeSet, context));
+        }
+        long nanos = (System.nanoTime() - start) / 5;
+
+        System.out.printf("%s: %.1f bytes/change, undo %.1f M changes/s%n",
+            name, bytesPerChange, changes / (nanos / 1000.0));
+        return bytesPerChange;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("uses less memory than BlockOptimizedHistory (benchmark)")
+    void memoryAndThroughputBenchmark() throws WorldEditException {
+        double optimized = benchmark("BlockOptimizedHistory", BlockOptimizedHistory::new);
+        double packed = benchmark("PackedBlockHistory", PackedBlockHistory::new);
+        assertTrue(packed < optimized, "the packed history should take less memory");
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A tiered history")
+class TieredHistoryTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:tiered_", 16);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * An extent that records blocks into a map.
+     */
+    private static final class MapExtent extends NullExtent {
+        private final Map<BlockVector3, BaseBlock> blocks;
+
+        private MapExtent(Map<BlockVector3, BaseBlock> blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            blocks.put(position, block.toBaseBlock());
+            return true;
+        }
+    }
+
+    private static void record(ChangeSet changeSet, Map<BlockVector3, BaseBlock> world, int changes, Random random) {
+        CompoundTag nbt = new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test")));
+        for (int i = 0; i < changes; i++) {
+            BlockVector3 position = BlockVector3.at(random.nextInt(40) - 20, random.nextInt(16), random.nextInt(40));
+            BaseBlock previous = world.getOrDefault(position, states[0].toBaseBlock());
+            BlockState state = states[random.nextInt(states.length)];
+            BaseBlock current = random.nextInt(50) == 0 ? state.toBaseBlock(nbt) : state.toBaseBlock();
+            changeSet.add(new BlockChange(position, previous, current));
+            world.put(position, current);
+        }
+    }
+
+    private static void assertUndoesAndRedoes(ChangeSet history, Map<BlockVector3, BaseBlock> edited)
+            throws WorldEditException {
+        Map<BlockVector3, BaseBlock> world = new HashMap<>(edited);
+        UndoContext context = new UndoContext();
+        context.setExtent(new MapExtent(world));
+        Operations.complete(ChangeSetExecutor.createUndo(history, context));
+        for (BaseBlock block : world.values()) {
+            assertEquals(states[0].toBaseBlock(), block);
+        }
+
+        Operations.complete(ChangeSetExecutor.createRedo(history, context));
+        assertEquals(edited, world);
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("undoes and redoes changes that were spilled to disk")
+    void undoesAndRedoesSpilled(@TempDir Path dir) throws WorldEditException, IOException {
+        TieredHistory history = new TieredHistory(new PackedBlockHistory());
+        Map<BlockVector3, BaseBlock> edited = new HashMap<>();
+        record(history, edited, 20_000, new Random(11));
+        int size = history.size();
+
+        history.spill(dir);
+        assertTrue(history.isSpilled());
+        assertEquals(size, history.size());
+        assertEquals(0, history.estimateMemoryUsage());
+
+        assertUndoesAndRedoes(history, edited);
+        // the file can be read again
+        assertUndoesAndRedoes(history, edited);
+        history.discard();
+    }
+
+    @Test
+    @DisplayName("keeps changes added after spilling")
+    void appendsAfterSpill(@TempDir Path dir) throws WorldEditException, IOException {
+        TieredHistory history = new TieredHistory(new PackedBlockHistory());
+        Map<BlockVector3, BaseBlock> edited = new HashMap<>();
+        Random random = new Random(13);
+        record(history, edited, 5_000, random);
+        history.spill(dir);
+        int spilled = history.size();
+        record(history, edited, 5_000, random);
+
+        assertTrue(history.size() > spilled);
+        assertTrue(history.estimateMemoryUsage() > 0);
+        assertUndoesAndRedoes(history, edited);
+        history.discard();
+    }
+
+    @Test
+    @DisplayName("deletes its file when discarded")
+    void deletesOnDiscard(@TempDir Path dir) throws IOException {
+        TieredHistory history = new TieredHistory(new PackedBlockHistory());
+        record(history, new HashMap<>(), 1_000, new Random(17));
+        history.spill(dir);
+        assertEquals(1, countFiles(dir));
+
+        // an iterator closes the file once it has been read to the end
+        history.backwardIterator().forEachRemaining(change -> {
+        });
+        history.discard();
+        assertFalse(history.isSpilled());
+        assertEquals(0, countFiles(dir));
+    }
+
+    @Test
+    @DisplayName("keeps no file when spilled after it was discarded")
+    void spillsNothingOnceDiscarded(@TempDir Path dir) throws IOException {
+        TieredHistory history = new TieredHistory(new PackedBlockHistory());
+        record(history, new HashMap<>(), 1_000, new Random(19));
+        history.discard();
+        history.spill(dir);
+        assertFalse(history.isSpilled());
+        assertEquals(0, countFiles(dir));
+    }
+
+}
@@ -32,6 +32,7 @@
 import static java.lang.Math.atan2;
 import static java.lang.Math.sin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -264,6 +265,41 @@ public void testAssign() throws ExpressionException {
         assertEquals(5, foo.getSlots().getSlotValue("c").orElse(-1), 0);
     }
 
+    @Test
+    public void testBound() throws ExpressionException {
+        BoundExpression bound = compile("x = x * 2; y = x + z; x + y", "x", "y", "z").bind(1_000);
+        assertEquals(16, bound.evaluate(3D, 0D, 4D), 0);
+        assertEquals(6, bound.getVariable(0).getValue(), 0);
+        assertEquals(10, bound.getVariable(1).getValue(), 0);
+        assertEquals(-3, bound.evaluate(-1D, 5D, 1D), 0);
+        assertEquals(-1, bound.getVariable(1).getValue(), 0);
+    }
+
+    @Test
+    public void testParallelizable() throws ExpressionException {
+        assertTrue(compile("x * y + perlin(1, x, y, z, 1, 1, 1)", "x", "y", "z").isParallelizable());
+        assertFalse(compile("megabuf(x, 1)", "x").isParallelizable());
+        assertFalse(compile("query(0, 0, 0, x, y)", "x", "y").isParallelizable());
+
+        Expression expression = compile("y = x; ++z", "x", "y", "z", "type");
+        assertTrue(expression.usesVariable("y"));
+        assertTrue(expression.usesVariable("z"));
+        assertFalse(expression.usesVariable("type"));
+    }
+
+    @Test
+    public void testCopy() throws ExpressionException {
+        Expression expression = compile("a = a + x; megabuf(0, megabuf(0) + 1); a + megabuf(0)", "x", "a");
+        Expression copy = expression.copy();
+        assertEquals(4, expression.evaluate(3D, 0D), 0);
+        assertEquals(6, expression.evaluate(4D, 0D), 0);
+        assertEquals(11, copy.evaluate(10D, 0D), 0);
+        assertEquals(4, expression.getSlots().getSlotValue("a").orElse(-1), 0);
+        assertEquals(10, copy.getSlots().getSlotValue("a").orElse(-1), 0);
+        assertFalse(copy.isParallelizable());
+        assertTrue(copy.usesVariable("x"));
+    }
+
     @Test
     public void testIf() throws ExpressionException {
         checkTestCase("y=0; if (1) x=4; else y=5; x*10+y;", 40);
@@ -0,0 +1,161 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.test.FakeEditSession;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("A height map")
+class HeightMapTest {
+
+    private static Platform platform;
+    private static List<String> blockTypes;
+    private static BaseBlock air;
+    private static BaseBlock stone;
+    private static BaseBlock grass;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        blockTypes = FakePlatform.registerBlockTypes();
+        air = checkNotNull(BlockTypes.AIR).getDefaultState().toBaseBlock();
+        stone = checkNotNull(BlockTypes.STONE).getDefaultState().toBaseBlock();
+        grass = checkNotNull(BlockTypes.GRASS).getDefaultState().toBaseBlock();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregisterBlockTypes(blockTypes);
+        FakePlatform.unregister(platform);
+    }
+
+    /**
+     * Ground of random height with grass on top, and the odd floating block.
+     */
+    private static Map<BlockVector3, BaseBlock> terrain(Random random) {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int height = random.nextInt(60);
+                for (int y = 0; y <= height; y++) {
+                    blocks.put(BlockVector3.at(x, y, z), stone);
+                }
+                if (random.nextBoolean()) {
+                    blocks.put(BlockVector3.at(x, height + 1, z), grass);
+                }
+                if (random.nextInt(4) == 0) {
+                    blocks.put(BlockVector3.at(x, height + 2 + random.nextInt(10), z), stone);
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * The highest movement blocker, found one block at a time.
+     */
+    private static int scanHighest(EditSession session, int x, int z, int minY, int maxY) {
+        for (int y = maxY; y >= minY; --y) {
+            if (session.getBlock(BlockVector3.at(x, y, z)).getBlockType().getMaterial().isMovementBlocker()) {
+                return y;
+            }
+        }
+        return minY;
+    }
+
+    @Test
+    @DisplayName("finds the same highest block as a block by block scan")
+    void highestBlockMatchesScan() {
+        EditSession session = FakeEditSession.create(terrain(new Random(3)), air, 0, 63);
+        int[][] ranges = {{0, 63}, {3, 50}, {17, 17}, {16, 31}, {0, 15}, {40, 63}, {20, 10}};
+        for (int[] range : ranges) {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    assertEquals(scanHighest(session, x, z, range[0], range[1]),
+                        session.getHighestTerrainBlock(x, z, range[0], range[1], null),
+                        "x=" + x + " z=" + z + " range=" + range[0] + ".." + range[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("stops reading once it finds a solid block")
+    void stopsAtFirstHit() {
+        Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        for (int y = 0; y <= 40; y++) {
+            blocks.put(BlockVector3.at(0, y, 0), stone);
+        }
+        EditSession session = FakeEditSession.create(blocks, air, 0, 63);
+
+        assertEquals(40, session.getHighestTerrainBlock(0, 0, 0, 63, null));
+        verify(session).getBlockColumn(eq(0), eq(0), eq(48), eq(63), any());
+        verify(session).getBlockColumn(eq(0), eq(0), eq(32), eq(47), any());
+        verify(session, never()).getBlockColumn(anyInt(), anyInt(), eq(16), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("stores the same heights as a block by block scan")
+    void heightMapMatchesScan() throws MaxChangedBlocksException {
+        EditSession session = FakeEditSession.create(terrain(new Random(5)), air, 0, 63);
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(0, 5, 0), BlockVector3.at(15, 50, 15));
+        HeightMap heightMap = new HeightMap(session, region, null);
+
+        int[][] captured = new int[1][];
+        heightMap.applyFilter(new HeightMapFilter(1, 1, new float[] {1}) {
+            @Override
+            public int[] filter(int[] inData, int width, int height) {
+                captured[0] = inData.clone();
+                return inData;
+            }
+        }, 1);
+
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                assertEquals(scanHighest(session, x, z, 5, 50), captured[0][z * 16 + x], "x=" + x + " z=" + z);
+            }
+        }
+    }
+
+}
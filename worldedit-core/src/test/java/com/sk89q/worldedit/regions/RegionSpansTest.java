@@ -0,0 +1,179 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.iterator.RegionIterator;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Region spans")
+class RegionSpansTest {
+
+    private static Polygonal2DRegion polygon() {
+        return new Polygonal2DRegion(null, ImmutableList.of(
+                BlockVector2.at(-20, -20), BlockVector2.at(30, -20), BlockVector2.at(30, 10),
+                BlockVector2.at(5, 0), BlockVector2.at(12, 25), BlockVector2.at(-7, 31),
+                BlockVector2.at(-7, 12), BlockVector2.at(-20, 3)
+        ), 10, 14);
+    }
+
+    private static ConvexPolyhedralRegion polyhedron() {
+        ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+        region.addVertex(BlockVector3.at(0, 0, 0));
+        region.addVertex(BlockVector3.at(17, 3, -4));
+        region.addVertex(BlockVector3.at(5, 20, 9));
+        region.addVertex(BlockVector3.at(-6, 8, 15));
+        region.addVertex(BlockVector3.at(3, -9, 6));
+        return region;
+    }
+
+    private static List<Region> regions() {
+        return ImmutableList.of(
+                new CuboidRegion(BlockVector3.at(-3, 4, 8), BlockVector3.at(9, 6, -2)),
+                new CylinderRegion(null, BlockVector3.at(1, 0, -4), Vector2.at(7, 11), 2, 5),
+                new CylinderRegion(null, BlockVector3.at(0, 0, 0), Vector2.at(0, 0), 0, 0),
+                new EllipsoidRegion(null, BlockVector3.at(3, 20, 1), Vector3.at(9, 4, 6)),
+                new EllipsoidRegion(null, BlockVector3.at(-1, 7, 2), Vector3.at(2.5, 13, 0)),
+                polygon(),
+                polyhedron(),
+                new RegionIntersection(
+                        new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(4, 4, 4)),
+                        new CuboidRegion(BlockVector3.at(5, 2, 2), BlockVector3.at(8, 6, 6)),
+                        new CuboidRegion(BlockVector3.at(2, 1, 1), BlockVector3.at(3, 2, 9)),
+                        new CuboidRegion(BlockVector3.at(20, 3, 3), BlockVector3.at(21, 3, 3))
+                )
+        );
+    }
+
+    /**
+     * List the positions of a region by testing its whole bounding box.
+     */
+    private static List<BlockVector3> scan(Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        List<BlockVector3> positions = new ArrayList<>();
+        for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+            for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    BlockVector3 position = BlockVector3.at(x, y, z);
+                    if (region.contains(position)) {
+                        positions.add(position);
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static List<BlockVector3> iterate(Iterator<BlockVector3> iterator) {
+        List<BlockVector3> positions = new ArrayList<>();
+        iterator.forEachRemaining(positions::add);
+        return positions;
+    }
+
+    @Test
+    @DisplayName("cover exactly the contained positions")
+    void matchContains() {
+        for (Region region : regions()) {
+            List<BlockVector3> expected = scan(region);
+            assertEquals(expected, iterate(new RegionIterator(region)), region.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("are ordered, separate and inside the bounding box")
+    void areWellFormed() {
+        for (Region region : regions()) {
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            for (int z = min.getBlockZ() - 1; z <= max.getBlockZ() + 1; z++) {
+                for (int y = min.getBlockY() - 1; y <= max.getBlockY() + 1; y++) {
+                    int[] last = { Integer.MIN_VALUE };
+                    region.forEachSpan(y, z, (minX, maxX) -> {
+                        assertTrue(minX <= maxX, region.toString());
+                        assertTrue(last[0] == Integer.MIN_VALUE || minX > last[0] + 1, region.toString());
+                        assertTrue(minX >= min.getBlockX() && maxX <= max.getBlockX(), region.toString());
+                        last[0] = maxX;
+                    });
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("follow changes to a polygon")
+    void followPolygonChanges() {
+        Polygonal2DRegion region = polygon();
+        iterate(new RegionIterator(region));
+        region.addPoint(BlockVector2.at(-40, -5));
+        assertEquals(scan(region), iterate(new RegionIterator(region)));
+    }
+
+    private static long count(Iterator<BlockVector3> iterator) {
+        long count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static void benchmark(Region region) {
+        long start = System.nanoTime();
+        long scanned = scan(region).size();
+        long scanNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        long visited = count(new RegionIterator(region));
+        long spanNanos = System.nanoTime() - start;
+        assertEquals(scanned, visited);
+
+        System.out.printf("%s: %,d blocks, bounding box scan %d ms, spans %d ms%n",
+                region.getClass().getSimpleName(), visited, scanNanos / 1_000_000, spanNanos / 1_000_000);
+        assertTrue(spanNanos < scanNanos, "spans should be faster than a bounding box scan");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("visit large regions faster than a bounding box scan (benchmark)")
+    void spanBenchmark() {
+        benchmark(new CylinderRegion(null, BlockVector3.ZERO, Vector2.at(300, 300), 0, 63));
+        benchmark(new EllipsoidRegion(null, BlockVector3.at(0, 128, 0), Vector3.at(150, 100, 150)));
+        benchmark(new Polygonal2DRegion(null, ImmutableList.of(
+                BlockVector2.at(0, 0), BlockVector2.at(600, 50), BlockVector2.at(100, 100),
+                BlockVector2.at(550, 600), BlockVector2.at(-50, 400)
+        ), 0, 63));
+    }
+
+}
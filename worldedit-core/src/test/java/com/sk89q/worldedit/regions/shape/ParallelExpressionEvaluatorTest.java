@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.internal.expression.BoundExpression;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A parallel expression evaluator")
+class ParallelExpressionEvaluatorTest {
+
+    private static final String[] VARIABLES = { "x", "y", "z" };
+    private static final String EXPRESSION = "x = x * 2 + sin(z); sin(x / 3) + cos(z / 5) * y / 10 > 0.2";
+    private static final int TIMEOUT = 10_000;
+
+    private static Platform platform;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    private static WorldEditExpressionEnvironment createEnvironment() {
+        return new WorldEditExpressionEnvironment(new NullExtent(), Vector3.ONE, Vector3.ZERO);
+    }
+
+    /**
+     * Evaluate the expression for every block in order, on this thread.
+     *
+     * @return the value of x after evaluation, for every block the expression is true for
+     */
+    private static Map<BlockVector3, Double> evaluateSerially(Region region) throws ExpressionException {
+        Expression expression = Expression.compile(EXPRESSION, VARIABLES);
+        expression.optimize();
+        expression.setEnvironment(createEnvironment());
+        BoundExpression bound = expression.bind(TIMEOUT);
+        Map<BlockVector3, Double> results = new HashMap<>();
+        for (BlockVector3 position : region) {
+            if (bound.evaluate(position.getX(), position.getY(), position.getZ()) > 0) {
+                results.put(position, bound.getVariable(0).getValue());
+            }
+        }
+        return results;
+    }
+
+    private static Map<BlockVector3, Double> evaluateInParallel(Region region) throws ExpressionException {
+        List<ParallelExpressionEvaluator.Section> sections = new ParallelExpressionEvaluator(
+            region, EXPRESSION, VARIABLES, ParallelExpressionEvaluatorTest::createEnvironment, TIMEOUT)
+            .evaluate((bound, environment, x, y, z, index, output) -> {
+                if (bound.evaluate(x, y, z) > 0) {
+                    output.add(index);
+                    output.add((int) Math.round(bound.getVariable(0).getValue() * 1000));
+                }
+            });
+
+        Map<BlockVector3, Double> results = new HashMap<>();
+        List<BlockVector3> origins = new ArrayList<>();
+        for (ParallelExpressionEvaluator.Section section : sections) {
+            origins.add(section.getOrigin());
+            IntArrayList output = section.getOutput();
+            for (int i = 0; i < output.size(); i += 2) {
+                BlockVector3 position = section.getPosition(output.getInt(i));
+                assertTrue(region.contains(position), "outside the region: " + position);
+                assertTrue(results.put(position, output.getInt(i + 1) / 1000.0) == null, "twice: " + position);
+            }
+        }
+
+        List<BlockVector3> sorted = new ArrayList<>(origins);
+        sorted.sort((a, b) -> a.getX() != b.getX() ? Integer.compare(a.getX(), b.getX())
+            : a.getZ() != b.getZ() ? Integer.compare(a.getZ(), b.getZ())
+            : Integer.compare(a.getY(), b.getY()));
+        assertEquals(sorted, origins, "sections are not in chunk order");
+        return results;
+    }
+
+    private static void assertSameResults(Region region) throws ExpressionException {
+        Map<BlockVector3, Double> serial = evaluateSerially(region);
+        Map<BlockVector3, Double> parallel = evaluateInParallel(region);
+        assertEquals(serial.keySet(), parallel.keySet());
+        for (Map.Entry<BlockVector3, Double> entry : serial.entrySet()) {
+            assertEquals(entry.getValue(), parallel.get(entry.getKey()), 0.001, "x at " + entry.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("finds the same blocks as serial evaluation in a cuboid")
+    void cuboid() throws ExpressionException {
+        assertSameResults(new CuboidRegion(BlockVector3.at(-37, -5, -20), BlockVector3.at(29, 40, 33)));
+    }
+
+    @Test
+    @DisplayName("finds the same blocks as serial evaluation in an ellipsoid")
+    void ellipsoid() throws ExpressionException {
+        assertSameResults(new EllipsoidRegion(null, BlockVector3.at(-3, 64, 11), Vector3.at(30, 18, 25)));
+    }
+
+}
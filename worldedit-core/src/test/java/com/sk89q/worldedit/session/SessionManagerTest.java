@@ -0,0 +1,235 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.session;
+
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A session manager")
+class SessionManagerTest {
+
+    private static Platform platform;
+
+    private SessionManager manager;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    @BeforeEach
+    void createManager() {
+        manager = new SessionManager(WorldEdit.getInstance());
+    }
+
+    @AfterEach
+    void unloadManager() {
+        manager.unload();
+    }
+
+    /**
+     * An owner that is its own session key, without any permissions.
+     */
+    private static final class TestOwner implements SessionOwner, SessionKey {
+        private final UUID uniqueId = UUID.randomUUID();
+        private volatile String name;
+
+        private TestOwner(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public SessionKey getSessionKey() {
+            return this;
+        }
+
+        @Override
+        public UUID getUniqueId() {
+            return uniqueId;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return false;
+        }
+
+        @Override
+        public String[] getGroups() {
+            return new String[0];
+        }
+
+        @Override
+        public void checkPermission(String permission) {
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return false;
+        }
+    }
+
+    @Test
+    @DisplayName("finds sessions by name until they are removed")
+    void findsByName() {
+        TestOwner owner = new TestOwner("alice");
+        assertNull(manager.findByName("alice"));
+
+        LocalSession session = manager.get(owner);
+        assertSame(session, manager.findByName("alice"));
+        assertSame(session, manager.getIfPresent(owner));
+        assertTrue(manager.contains(owner));
+
+        manager.remove(owner);
+        assertNull(manager.findByName("alice"));
+        assertFalse(manager.contains(owner));
+    }
+
+    @Test
+    @DisplayName("finds sessions by the current name of their owner")
+    void findsByNewName() {
+        TestOwner owner = new TestOwner("bob");
+        LocalSession session = manager.get(owner);
+
+        owner.name = "robert";
+        assertNull(manager.findByName("bob"));
+        assertSame(session, manager.findByName("robert"));
+
+        owner.name = "bob";
+        assertSame(session, manager.findByName("bob"));
+        assertNull(manager.findByName("robert"));
+
+        manager.remove(owner);
+        assertNull(manager.findByName("bob"));
+    }
+
+    @Test
+    @DisplayName("creates one session per owner when called from many threads")
+    void createsOneSessionConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                TestOwner owner = new TestOwner("player" + round);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<LocalSession>> results = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return manager.get(owner);
+                    }));
+                }
+                start.countDown();
+                LocalSession expected = manager.findByName(owner.getName());
+                for (Future<LocalSession> result : results) {
+                    LocalSession session = result.get();
+                    if (expected == null) {
+                        expected = session;
+                    }
+                    assertSame(expected, session);
+                }
+                assertSame(expected, manager.findByName(owner.getName()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("serves lookups from many threads at once (benchmark)")
+    void contentionBenchmark() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        TestOwner[] owners = new TestOwner[500];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new TestOwner("player" + i);
+            manager.get(owners[i]);
+        }
+
+        long duration = TimeUnit.SECONDS.toNanos(3);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                results.add(executor.submit(() -> {
+                    long operations = 0;
+                    long end = System.nanoTime() + duration;
+                    int i = seed;
+                    while (System.nanoTime() < end) {
+                        TestOwner owner = owners[i++ % owners.length];
+                        assertNotNull(manager.get(owner));
+                        assertNotNull(manager.findByName(owner.getName()));
+                        operations += 2;
+                    }
+                    return operations;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                long operations = result.get();
+                assertTrue(operations > 0, "every thread should have completed lookups");
+                total += operations;
+            }
+            System.out.printf("%d threads: %,d lookups/s%n", threads, total / TimeUnit.NANOSECONDS.toSeconds(duration));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.session.storage;
+
+import com.google.common.base.Strings;
+import com.sk89q.worldedit.LocalSession;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A binary session store")
+class BinarySessionStoreTest {
+
+    private static LocalSession session(String script) {
+        LocalSession session = new LocalSession();
+        session.setLastScript(script);
+        return session;
+    }
+
+    @Test
+    @DisplayName("loads the latest saved session after reopening")
+    void savesAndLoads(@TempDir Path dir) throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            Map<UUID, LocalSession> batch = new HashMap<>();
+            batch.put(first, session("first"));
+            batch.put(second, session("second"));
+            store.saveAll(batch);
+            store.save(first, session("updated"));
+            assertEquals("updated", store.load(first).getLastScript());
+        }
+
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            assertEquals("updated", store.load(first).getLastScript());
+            assertEquals("second", store.load(second).getLastScript());
+            assertNull(store.load(UUID.randomUUID()).getLastScript());
+        }
+    }
+
+    @Test
+    @DisplayName("ignores a partly written record at the end of the file")
+    void ignoresTornWrite(@TempDir Path dir) throws IOException {
+        UUID id = UUID.randomUUID();
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            store.save(id, session("kept"));
+            store.save(id, session("torn"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("sessions.dat").toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            assertEquals("kept", store.load(id).getLastScript());
+        }
+    }
+
+    @Test
+    @DisplayName("moves sessions out of JSON files and keeps the files")
+    void migratesJsonFiles(@TempDir Path dir) throws IOException {
+        UUID id = UUID.randomUUID();
+        new JsonFileSessionStore(dir.toFile()).save(id, session("from json"));
+        Path json = dir.resolve(id + ".json");
+        assertTrue(Files.exists(json));
+
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            // not migrated yet, so loaded from the JSON file
+            assertEquals("from json", store.load(id).getLastScript());
+            store.migrate();
+            assertEquals("from json", store.load(id).getLastScript());
+        }
+        assertFalse(Files.exists(json));
+        assertTrue(Files.exists(dir.resolve(id + ".json.migrated")));
+
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            assertEquals("from json", store.load(id).getLastScript());
+        }
+    }
+
+    @Test
+    @DisplayName("keeps newer sessions when migrating JSON files")
+    void migrationKeepsNewerSessions(@TempDir Path dir) throws IOException {
+        UUID id = UUID.randomUUID();
+        new JsonFileSessionStore(dir.toFile()).save(id, session("from json"));
+
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            store.save(id, session("newer"));
+            store.migrate();
+            assertEquals("newer", store.load(id).getLastScript());
+        }
+        assertTrue(Files.exists(dir.resolve(id + ".json.migrated")));
+    }
+
+    @Test
+    @DisplayName("keeps the latest sessions when compacting")
+    void compacts(@TempDir Path dir) throws IOException {
+        UUID[] ids = new UUID[10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        String padding = Strings.repeat("x", 1000);
+        try (BinarySessionStore store = new BinarySessionStore(dir.toFile())) {
+            for (int round = 0; round < 2_000; round++) {
+                store.save(ids[round % ids.length], session(padding + round));
+            }
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(padding + (1_990 + i), store.load(ids[i]).getLastScript());
+            }
+        }
+        assertTrue(Files.size(dir.resolve("sessions.dat")) < 1024 * 1024);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("saves a mass logout faster than JSON files (benchmark)")
+    void massLogoutBenchmark(@TempDir Path dir) throws IOException {
+        Map<UUID, LocalSession> sessions = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            sessions.put(UUID.randomUUID(), session("script" + i));
+        }
+
+        JsonFileSessionStore jsonStore = new JsonFileSessionStore(dir.resolve("json").toFile());
+        long start = System.nanoTime();
+        jsonStore.saveAll(sessions);
+        long jsonNanos = System.nanoTime() - start;
+
+        try (BinarySessionStore binaryStore = new BinarySessionStore(dir.resolve("binary").toFile())) {
+            start = System.nanoTime();
+            binaryStore.saveAll(sessions);
+            long binaryNanos = System.nanoTime() - start;
+
+            System.out.printf("%d sessions: JSON files %d ms, binary store %d ms%n",
+                sessions.size(), jsonNanos / 1_000_000, binaryNanos / 1_000_000);
+            assertTrue(binaryNanos < jsonNanos, "the binary store should save faster than JSON files");
+        }
+
+        try (BinarySessionStore binaryStore = new BinarySessionStore(dir.resolve("binary").toFile())) {
+            for (Map.Entry<UUID, LocalSession> entry : sessions.entrySet()) {
+                assertEquals(entry.getValue().getLastScript(), binaryStore.load(entry.getKey()).getLastScript());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util;
+
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Mask2D;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("A target block trace")
+class TargetBlockTest {
+
+    private static final double VIEW_HEIGHT = 1.65;
+
+    private static Player player(World world, Vector3 position, float yaw, float pitch) {
+        Player player = mock(Player.class);
+        when(player.getWorld()).thenReturn(world);
+        when(player.getLocation()).thenReturn(new Location(world, position, yaw, pitch));
+        return player;
+    }
+
+    private static Vector3 direction(float yaw, float pitch) {
+        double xRotation = Math.toRadians((yaw + 90) % 360);
+        double yRotation = Math.toRadians(-pitch);
+        double h = Math.cos(yRotation);
+        return Vector3.at(h * Math.cos(xRotation), Math.sin(yRotation), h * Math.sin(xRotation));
+    }
+
+    @Test
+    @DisplayName("visits every block along the line of sight once, in order")
+    void visitsEveryBlock() {
+        World world = mock(World.class);
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            Vector3 position = Vector3.at(random.nextDouble() * 64 - 32, random.nextDouble() * 64, random.nextDouble() * 64 - 32);
+            float yaw = random.nextFloat() * 360 - 180;
+            float pitch = random.nextFloat() * 180 - 90;
+            int range = 40;
+            TargetBlock trace = new TargetBlock(player(world, position, yaw, pitch), range, 0.2);
+
+            Set<BlockVector3> visited = new HashSet<>();
+            BlockVector3 previous = position.add(0, VIEW_HEIGHT, 0).toBlockPoint();
+            visited.add(previous);
+            Location next;
+            while ((next = trace.getNextBlock()) != null) {
+                BlockVector3 current = next.toVector().toBlockPoint();
+                assertEquals(1, current.subtract(previous).abs().getBlockX()
+                    + current.subtract(previous).abs().getBlockY()
+                    + current.subtract(previous).abs().getBlockZ(), "not a neighbor of the previous block");
+                assertTrue(visited.add(current), "visited twice: " + current);
+                previous = current;
+            }
+
+            Vector3 eye = position.add(0, VIEW_HEIGHT, 0);
+            Vector3 direction = direction(yaw, pitch);
+            for (double t = 0; t < range - 0.01; t += 0.01) {
+                BlockVector3 sample = eye.add(direction.multiply(t)).toBlockPoint();
+                assertTrue(visited.contains(sample), "skipped " + sample);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("stops at the first block matching the stop mask")
+    void stopsAtMaskedBlock() {
+        World world = mock(World.class);
+        BlockVector3 target = BlockVector3.at(10, 11, 0);
+        TargetBlock trace = new TargetBlock(player(world, Vector3.at(0.5, 0, 0.5), -90, -45), 50, 0.2);
+        trace.setStopMask(new Mask() {
+            @Override
+            public boolean test(BlockVector3 vector) {
+                return vector.equals(target);
+            }
+
+            @Nullable
+            @Override
+            public Mask2D toMask2D() {
+                return null;
+            }
+        });
+        Location hit = trace.getTargetBlock();
+        assertNotNull(hit);
+        assertEquals(target, hit.toVector().toBlockPoint());
+    }
+
+    @Test
+    @DisplayName("returns nothing past its range")
+    void limitedByRange() {
+        World world = mock(World.class);
+        TargetBlock trace = new TargetBlock(player(world, Vector3.ZERO, 0, 0), 5, 0.2);
+        trace.setStopMask(new Mask() {
+            @Override
+            public boolean test(BlockVector3 vector) {
+                return false;
+            }
+
+            @Nullable
+            @Override
+            public Mask2D toMask2D() {
+                return null;
+            }
+        });
+        assertNull(trace.getTargetBlock());
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A chunk block buffer")
+class ChunkBlockBufferTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:block_", 64);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    private static long chunkOf(BlockVector3 position) {
+        return ((long) (position.getX() >> 4) << 32) | ((position.getZ() >> 4) & 0xFFFFFFFFL);
+    }
+
+    @Test
+    @DisplayName("returns and flushes the last block put at each position")
+    void putGetAndFlush() throws WorldEditException {
+        Random random = new Random(5);
+        CompoundTag nbt = new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test")));
+        ChunkBlockBuffer buffer = new ChunkBlockBuffer();
+        Map<BlockVector3, BaseBlock> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // dense near the origin, so that some sections switch to the dense layout
+            int spread = i % 2 == 0 ? 20 : 200;
+            BlockVector3 position = BlockVector3.at(
+                random.nextInt(spread) - spread / 2, random.nextInt(spread) - spread / 2, random.nextInt(spread) - spread / 2);
+            BlockState state = states[random.nextInt(states.length)];
+            BaseBlock block = random.nextInt(40) == 0 ? state.toBaseBlock(nbt) : state.toBaseBlock();
+            buffer.put(position, block);
+            expected.put(position, block);
+        }
+        assertEquals(expected.size(), buffer.size());
+        for (Map.Entry<BlockVector3, BaseBlock> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), buffer.get(entry.getKey()));
+        }
+        assertNull(buffer.get(BlockVector3.at(1000, 0, 0)));
+
+        Map<BlockVector3, BaseBlock> flushed = new HashMap<>();
+        Set<Long> finishedChunks = new HashSet<>();
+        for (long chunkKey : buffer.getChunkOrder()) {
+            List<BlockVector3> chunkBlocks = new ArrayList<>();
+            buffer.flushChunk(chunkKey, (position, block) -> {
+                assertEquals(chunkKey, chunkOf(position));
+                assertFalse(finishedChunks.contains(chunkKey));
+                assertNull(flushed.put(position, block));
+                chunkBlocks.add(position);
+            });
+            finishedChunks.add(chunkKey);
+            for (int i = 1; i < chunkBlocks.size(); i++) {
+                assertTrue(chunkBlocks.get(i - 1).getY() >= chunkBlocks.get(i).getY(), "chunk is flushed from the top down");
+            }
+        }
+        assertEquals(expected, flushed);
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static long resetPeakMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long peakMemory() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static BlockVector3 positionOf(int i) {
+        // a 512 wide, 256 high slab, filled layer by layer
+        return BlockVector3.at(i & 511, (i >> 18) & 255, (i >> 9) & 511);
+    }
+
+    private static long benchmarkBlockMap(int count) {
+        long before = resetPeakMemory();
+        long start = System.nanoTime();
+        BlockMap<BaseBlock> blocks = BlockMap.createForBaseBlock();
+        for (int i = 0; i < count; i++) {
+            blocks.put(positionOf(i), states[i & 63].toBaseBlock());
+        }
+        long filled = System.nanoTime();
+        List<BlockVector3> positions = new ArrayList<>(blocks.keySet());
+        RegionOptimizedVectorSorter.sort(positions);
+        long sum = 0;
+        for (BlockVector3 position : positions) {
+            sum += blocks.get(position).hashCode();
+        }
+        blocks.clear();
+        long done = System.nanoTime();
+        long peak = peakMemory() - before;
+        assertEquals(count, positions.size());
+        System.out.printf("BlockMap, %,d blocks: put %d ms, flush %d ms, peak %,d bytes (%d)%n",
+            count, (filled - start) / 1_000_000, (done - filled) / 1_000_000, peak, sum & 1);
+        return peak;
+    }
+
+    private static long benchmarkChunkBlockBuffer(int count) throws WorldEditException {
+        long before = resetPeakMemory();
+        long start = System.nanoTime();
+        ChunkBlockBuffer blocks = new ChunkBlockBuffer();
+        for (int i = 0; i < count; i++) {
+            blocks.put(positionOf(i), states[i & 63].toBaseBlock());
+        }
+        long filled = System.nanoTime();
+        long[] sum = new long[1];
+        int[] flushed = new int[1];
+        for (long chunkKey : blocks.getChunkOrder()) {
+            blocks.flushChunk(chunkKey, (position, block) -> {
+                sum[0] += block.hashCode();
+                flushed[0]++;
+            });
+        }
+        long done = System.nanoTime();
+        long peak = peakMemory() - before;
+        assertEquals(count, flushed[0]);
+        System.out.printf("ChunkBlockBuffer, %,d blocks: put %d ms, flush %d ms, peak %,d bytes (%d)%n",
+            count, (filled - start) / 1_000_000, (done - filled) / 1_000_000, peak, sum[0] & 1);
+        return peak;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("flushes without sorting or copying the positions (benchmark)")
+    void flushBenchmark() throws WorldEditException {
+        for (int count : new int[] { 1_000_000, 10_000_000 }) {
+            long blockMap = benchmarkBlockMap(count);
+            long buffer = benchmarkChunkBlockBuffer(count);
+            assertTrue(buffer < blockMap, "the buffer should peak below a BlockMap of the same blocks");
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A paletted block array")
+class PalettedBlockArrayTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:block_", 300);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    @Test
+    @DisplayName("returns null for unset positions")
+    void returnsNullWhenUnset() {
+        PalettedBlockArray array = new PalettedBlockArray(4, 4, 4);
+        assertNull(array.getBlock(1, 2, 3));
+        assertNull(array.getFullBlock(1, 2, 3));
+    }
+
+    @Test
+    @DisplayName("throws for positions out of bounds")
+    void throwsOutOfBounds() {
+        PalettedBlockArray array = new PalettedBlockArray(4, 4, 4);
+        assertThrows(IndexOutOfBoundsException.class, () -> array.getBlock(4, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.setBlock(0, -1, 0, states[0]));
+    }
+
+    @Test
+    @DisplayName("keeps every block when the palette grows")
+    void keepsBlocksAcrossGrowth() {
+        PalettedBlockArray array = new PalettedBlockArray(17, 9, 13);
+        Random random = new Random(42);
+        BlockState[][][] expected = new BlockState[17][9][13];
+        for (int x = 0; x < 17; x++) {
+            for (int y = 0; y < 9; y++) {
+                for (int z = 0; z < 13; z++) {
+                    BlockState state = states[random.nextInt(states.length)];
+                    expected[x][y][z] = state;
+                    array.setBlock(x, y, z, state);
+                }
+            }
+        }
+        assertEquals(9, array.getBitsPerEntry());
+        for (int x = 0; x < 17; x++) {
+            for (int y = 0; y < 9; y++) {
+                for (int z = 0; z < 13; z++) {
+                    assertSame(expected[x][y][z], array.getBlock(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("stores NBT out of line and drops it when overwritten")
+    void storesNbtOutOfLine() {
+        PalettedBlockArray array = new PalettedBlockArray(2, 2, 2);
+        BaseBlock withNbt = states[1].toBaseBlock(new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test"))));
+        array.setBlock(1, 1, 1, withNbt);
+        assertSame(withNbt, array.getFullBlock(1, 1, 1));
+        assertSame(states[1], array.getBlock(1, 1, 1));
+
+        array.setBlock(1, 1, 1, states[2]);
+        assertEquals(states[2].toBaseBlock(), array.getFullBlock(1, 1, 1));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("uses less memory than a BaseBlock array (benchmark)")
+    void memoryBenchmark() {
+        int sizeX = 256;
+        int sizeY = 128;
+        int sizeZ = 256;
+        int distinctStates = 12;
+
+        long before = usedMemory();
+        BaseBlock[][][] legacy = new BaseBlock[sizeX][sizeY][sizeZ];
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    legacy[x][y][z] = states[(x ^ y ^ z) % distinctStates].toBaseBlock();
+                }
+            }
+        }
+        long legacyBytes = usedMemory() - before;
+        assertSame(states[0].toBaseBlock(), legacy[0][0][0]);
+        legacy = null;
+
+        before = usedMemory();
+        PalettedBlockArray paletted = new PalettedBlockArray(sizeX, sizeY, sizeZ);
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    paletted.setBlock(x, y, z, states[(x ^ y ^ z) % distinctStates]);
+                }
+            }
+        }
+        long palettedBytes = usedMemory() - before;
+        assertSame(states[0], paletted.getBlock(0, 0, 0));
+
+        System.out.printf("%d blocks: BaseBlock[][][] %,d bytes, paletted (%d bits) %,d bytes%n",
+            sizeX * sizeY * sizeZ, legacyBytes, paletted.getBitsPerEntry(), palettedBytes);
+        // 4 bits per block against a reference per block
+        assertEquals(4, paletted.getBitsPerEntry());
+        assertTrue(palettedBytes * 4 < legacyBytes, "the paletted array should be at least four times smaller");
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util.collection;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.test.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A section block batch")
+class SectionBlockBatchTest {
+
+    private static Platform platform;
+    private static BlockState[] states;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        platform = FakePlatform.register();
+        states = FakePlatform.createStates("test:block_", 8);
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() {
+        FakePlatform.unregister(platform);
+    }
+
+    @Test
+    @DisplayName("keeps the last block put at each position, in first-put order")
+    void putAndGet() {
+        Random random = new Random(3);
+        CompoundTag nbt = new CompoundTag(ImmutableMap.<String, Tag>of("id", new StringTag("test")));
+        SectionBlockBatch batch = new SectionBlockBatch();
+        batch.reset(-2, -1, 3);
+        Map<BlockVector3, BaseBlock> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            BlockVector3 position = BlockVector3.at(
+                -32 + random.nextInt(16), -16 + random.nextInt(16), 48 + random.nextInt(16));
+            BlockState state = states[random.nextInt(states.length)];
+            BaseBlock block = random.nextInt(20) == 0 ? state.toBaseBlock(nbt) : state.toBaseBlock();
+            batch.put(position, block);
+            expected.put(position, block);
+        }
+
+        assertEquals(expected.size(), batch.size());
+        int slot = 0;
+        for (Map.Entry<BlockVector3, BaseBlock> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), batch.getPosition(slot));
+            assertEquals(entry.getValue(), batch.getBlock(slot));
+            assertEquals(entry.getValue(), batch.get(entry.getKey()));
+            slot++;
+        }
+        assertFalse(batch.isInSection(BlockVector3.at(-16, -16, 48)));
+        assertNull(batch.get(BlockVector3.at(-16, -16, 48)));
+    }
+
+    @Test
+    @DisplayName("is empty after being reset")
+    void reset() {
+        SectionBlockBatch batch = new SectionBlockBatch();
+        batch.reset(0, 0, 0);
+        batch.put(BlockVector3.at(1, 2, 3), states[1]);
+        batch.reset(1, 0, 0);
+        assertTrue(batch.isEmpty());
+        assertNull(batch.get(BlockVector3.at(1, 2, 3)));
+        batch.put(BlockVector3.at(17, 2, 3), states[2]);
+        assertEquals(states[2], batch.getState(0));
+        assertEquals(BlockStateIdAccess.getBlockStateId(states[2]), batch.getStateId(0));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.test;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked {@link EditSession} that reads and writes blocks in a map, for
+ * tests of code that takes an edit session.
+ *
+ * <p>Blocks are read with {@link EditSession#getBlock(BlockVector3)},
+ * {@link EditSession#getFullBlock(BlockVector3)} and
+ * {@link EditSession#getBlockColumn(int, int, int, int, BlockState[])}, and
+ * set with {@link EditSession#setBlock(BlockVector3, BlockStateHolder)}.
+ * {@link EditSession#getHighestTerrainBlock(int, int, int, int, Mask)} runs
+ * the real method. Other methods do nothing.</p>
+ */
+public final class FakeEditSession {
+
+    private FakeEditSession() {
+    }
+
+    /**
+     * Create an edit session over the given blocks.
+     *
+     * @param blocks the blocks, which are changed by the session
+     * @param fill the block at positions missing from {@code blocks}
+     * @param minY the minimum Y of the session's world
+     * @param maxY the maximum Y of the session's world
+     * @return the edit session
+     */
+    public static EditSession create(Map<BlockVector3, BaseBlock> blocks, BaseBlock fill, int minY, int maxY) {
+        EditSession session = mock(EditSession.class);
+        World world = mock(World.class);
+        when(world.getMinY()).thenReturn(minY);
+        when(world.getMaxY()).thenReturn(maxY);
+        when(session.getWorld()).thenReturn(world);
+
+        when(session.getFullBlock(any(BlockVector3.class))).thenAnswer(invocation ->
+            blocks.getOrDefault(invocation.<BlockVector3>getArgument(0), fill));
+        when(session.getBlock(any(BlockVector3.class))).thenAnswer(invocation ->
+            blocks.getOrDefault(invocation.<BlockVector3>getArgument(0), fill).toImmutableState());
+        doAnswer(invocation -> {
+            int x = invocation.getArgument(0);
+            int z = invocation.getArgument(1);
+            int columnMinY = invocation.getArgument(2);
+            int columnMaxY = invocation.getArgument(3);
+            BlockState[] column = invocation.getArgument(4);
+            for (int y = columnMinY; y <= columnMaxY; y++) {
+                column[y - columnMinY] = blocks.getOrDefault(BlockVector3.at(x, y, z), fill).toImmutableState();
+            }
+            return null;
+        }).when(session).getBlockColumn(anyInt(), anyInt(), anyInt(), anyInt(), any());
+        try {
+            doAnswer(invocation -> {
+                BlockStateHolder<?> block = invocation.getArgument(1);
+                blocks.put(invocation.getArgument(0), block.toBaseBlock());
+                return true;
+            }).when(session).setBlock(any(BlockVector3.class), any(BaseBlock.class));
+            doAnswer(invocation -> {
+                BlockStateHolder<?> block = invocation.getArgument(1);
+                blocks.put(invocation.getArgument(0), block.toBaseBlock());
+                return true;
+            }).when(session).setBlock(any(BlockVector3.class), any(BlockState.class));
+        } catch (MaxChangedBlocksException e) {
+            throw new AssertionError(e);
+        }
+        doCallRealMethod().when(session).getHighestTerrainBlock(anyInt(), anyInt(), anyInt(), anyInt(), any());
+        return session;
+    }
+
+}
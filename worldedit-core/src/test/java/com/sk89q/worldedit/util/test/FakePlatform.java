@@ -0,0 +1,188 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.test;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extension.platform.Preference;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.registry.Registry;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledBlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledRegistries;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked {@link Platform} for tests that need block types, block states or
+ * a configuration.
+ *
+ * <p>The platform offers configuration, world editing and game hooks, with
+ * the bundled registries and a default {@link LocalConfiguration}. It has no
+ * scheduler, so {@link Platform#schedule(long, long, Runnable)} fails and
+ * scheduled work runs straight away.</p>
+ */
+public final class FakePlatform {
+
+    private FakePlatform() {
+    }
+
+    /**
+     * Register a platform that uses the bundled block registry.
+     *
+     * @return the registered platform
+     */
+    public static Platform register() {
+        return register(new BundledBlockRegistry());
+    }
+
+    /**
+     * Register a platform that uses the bundled block registry, but reports
+     * the given properties for block types.
+     *
+     * @param properties block properties, by block type ID
+     * @return the registered platform
+     */
+    public static Platform register(Map<String, Map<String, ? extends Property<?>>> properties) {
+        return register(new BundledBlockRegistry() {
+            @Override
+            public Map<String, ? extends Property<?>> getProperties(BlockType blockType) {
+                return properties.getOrDefault(blockType.getId(), Collections.emptyMap());
+            }
+        });
+    }
+
+    /**
+     * Register a platform that uses the given block registry.
+     *
+     * @param blockRegistry the block registry
+     * @return the registered platform
+     */
+    public static Platform register(BlockRegistry blockRegistry) {
+        Platform platform = mock(Platform.class);
+        when(platform.getRegistries()).thenReturn(new BundledRegistries() {
+            @Override
+            public BlockRegistry getBlockRegistry() {
+                return blockRegistry;
+            }
+        });
+        when(platform.getConfiguration()).thenReturn(new LocalConfiguration() {
+            @Override
+            public void load() {
+            }
+        });
+        when(platform.getCapabilities()).thenReturn(ImmutableMap.of(
+            Capability.CONFIGURATION, Preference.PREFERRED,
+            Capability.WORLD_EDITING, Preference.PREFERRED,
+            Capability.GAME_HOOKS, Preference.PREFERRED
+        ));
+        when(platform.schedule(anyLong(), anyLong(), any())).thenReturn(-1);
+        WorldEdit.getInstance().getPlatformManager().register(platform);
+        return platform;
+    }
+
+    /**
+     * Create the default states of new block types, named
+     * {@code prefix + index}, and give them WorldEdit-assigned internal IDs.
+     *
+     * @param prefix the prefix of the block type IDs
+     * @param count the number of states
+     * @return the states
+     */
+    public static BlockState[] createStates(String prefix, int count) {
+        BlockState[] states = new BlockState[count];
+        for (int i = 0; i < count; i++) {
+            states[i] = new BlockType(prefix + i).getDefaultState();
+            BlockStateIdAccess.register(states[i], BlockStateIdAccess.invalidId());
+        }
+        return states;
+    }
+
+    /**
+     * Register a block type for every constant in {@link BlockTypes} that is
+     * not registered yet, so that code using those constants can run.
+     *
+     * <p>The constants are read once, when {@code BlockTypes} is first used,
+     * so this must be called before then to take effect.</p>
+     *
+     * @return the IDs of the registered types, to pass to
+     *     {@link #unregisterBlockTypes(Collection)}
+     */
+    public static List<String> registerBlockTypes() {
+        List<String> registered = new ArrayList<>();
+        // reading the fields does not initialize the class
+        for (Field field : BlockTypes.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != BlockType.class) {
+                continue;
+            }
+            String id = "minecraft:" + field.getName().toLowerCase(Locale.ROOT);
+            if (BlockType.REGISTRY.get(id) == null) {
+                BlockType.REGISTRY.register(id, new BlockType(id));
+                registered.add(id);
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Remove block types from the registry.
+     *
+     * @param ids the IDs of the types
+     */
+    public static void unregisterBlockTypes(Collection<String> ids) {
+        try {
+            Field map = Registry.class.getDeclaredField("map");
+            map.setAccessible(true);
+            ((Map<?, ?>) map.get(BlockType.REGISTRY)).keySet().removeAll(ids);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to unregister block types", e);
+        }
+    }
+
+    /**
+     * Unregister the platform and forget any internal IDs given out.
+     *
+     * @param platform the platform
+     */
+    public static void unregister(Platform platform) {
+        BlockStateIdAccess.clear();
+        WorldEdit.getInstance().getPlatformManager().unregister(platform);
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.snapshot.experimental;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.concurrency.WorkerPool;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.chunk.Chunk;
+import com.sk89q.worldedit.world.storage.MissingChunkException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("A chunk load pipeline")
+@Execution(ExecutionMode.SAME_THREAD)
+class ChunkLoadPipelineTest {
+
+    private static List<BlockVector2> positions(int count) {
+        return IntStream.range(0, count).mapToObj(x -> BlockVector2.at(x, 0)).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("returns chunks in the order of their positions")
+    void keepsOrder() throws Exception {
+        Map<BlockVector3, Chunk> chunks = new ConcurrentHashMap<>();
+        Snapshot snapshot = mock(Snapshot.class);
+        doAnswer(invocation -> {
+            BlockVector3 position = invocation.getArgument(0);
+            // earlier chunks take longer, so they finish last
+            Thread.sleep(Math.max(0, 20 - position.getX()));
+            return chunks.computeIfAbsent(position, p -> mock(Chunk.class));
+        }).when(snapshot).getChunk(any());
+
+        List<BlockVector2> positions = positions(100);
+        try (ChunkLoadPipeline pipeline = new ChunkLoadPipeline(snapshot, positions.iterator())) {
+            for (BlockVector2 position : positions) {
+                Chunk chunk = pipeline.next();
+                assertSame(chunks.get(position.toBlockVector3()), chunk, "at " + position);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("throws the error of a chunk when that chunk is reached")
+    void propagatesErrors() throws Exception {
+        Snapshot snapshot = mock(Snapshot.class);
+        doAnswer(invocation -> {
+            BlockVector3 position = invocation.getArgument(0);
+            switch (position.getX()) {
+                case 2:
+                    throw new MissingChunkException();
+                case 4:
+                    throw new IOException("test");
+                case 6:
+                    throw new IllegalStateException("test");
+                default:
+                    return mock(Chunk.class);
+            }
+        }).when(snapshot).getChunk(any());
+
+        try (ChunkLoadPipeline pipeline = new ChunkLoadPipeline(snapshot, positions(8).iterator())) {
+            pipeline.next();
+            pipeline.next();
+            assertThrows(MissingChunkException.class, pipeline::next);
+            pipeline.next();
+            assertThrows(IOException.class, pipeline::next);
+            pipeline.next();
+            assertThrows(IllegalStateException.class, pipeline::next);
+            pipeline.next();
+        }
+    }
+
+    @Test
+    @DisplayName("reads only a few chunks ahead, and none after it is closed")
+    void cancelsOnClose() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        Snapshot snapshot = mock(Snapshot.class);
+        doAnswer(invocation -> {
+            started.incrementAndGet();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return mock(Chunk.class);
+        }).when(snapshot).getChunk(any());
+
+        AtomicInteger taken = new AtomicInteger();
+        Iterator<BlockVector2> source = positions(10_000).iterator();
+        Iterator<BlockVector2> counted = new Iterator<BlockVector2>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public BlockVector2 next() {
+                taken.incrementAndGet();
+                return source.next();
+            }
+        };
+
+        int workers = WorkerPool.THREADS;
+        try {
+            ChunkLoadPipeline pipeline = new ChunkLoadPipeline(snapshot, counted);
+            assertTrue(taken.get() <= workers * 4, "read " + taken.get() + " chunks ahead");
+            pipeline.close();
+        } finally {
+            release.countDown();
+        }
+        // give the workers time to run anything that was not cancelled
+        Thread.sleep(200);
+
+        // only loads that had already started when it was closed may run
+        assertTrue(started.get() <= workers, started.get() + " loads started");
+    }
+
+}
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.world.snapshot.experimental.fs;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
 import com.sk89q.jnbt.CompoundTag;
@@ -29,6 +30,7 @@
 import com.sk89q.worldedit.util.io.file.TrueVfsArchiveNioSupport;
 import com.sk89q.worldedit.util.io.file.ZipArchiveNioSupport;
 import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
 import com.sk89q.worldedit.world.storage.ChunkStoreHelper;
 import com.sk89q.worldedit.world.storage.McRegionReader;
 import org.junit.jupiter.api.AfterAll;
@@ -52,7 +54,9 @@
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
@@ -157,6 +161,83 @@ void rootIsAbsoluteDir() throws IOException {
         }
     }
 
+    @DisplayName("lists snapshots added or removed after an earlier listing")
+    @Test
+    void refreshesListing() throws IOException {
+        Path root = newTempDb();
+        try {
+            FileSystemSnapshotDatabase db = new FileSystemSnapshotDatabase(root,
+                ArchiveNioSupports.combined());
+            Path worldDir = root.resolve(WORLD_ALPHA);
+            Files.createDirectories(worldDir);
+            Path first = EntryMaker.TIMESTAMPED_DIR.createEntry(worldDir, TIME_TWO);
+            EntryMaker.WORLD_DIR.createEntry(first, WORLD_ALPHA);
+            assertEquals(1, countSnapshots(db));
+
+            Path second = EntryMaker.TIMESTAMPED_DIR.createEntry(worldDir, TIME_ONE);
+            EntryMaker.WORLD_DIR.createEntry(second, WORLD_ALPHA);
+            assertEquals(2, countSnapshots(db));
+            try (Stream<Snapshot> snapshots = db.getSnapshotsNewestFirst(WORLD_ALPHA)) {
+                assertEquals(TIME_ONE, snapshots.findFirst()
+                    .orElseThrow(AssertionError::new).getInfo().getDateTime());
+            }
+
+            deleteTree(first);
+            assertEquals(1, countSnapshots(db));
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @DisplayName("finds the snapshots strictly before or after a date")
+    @Test
+    void selectsBeforeAndAfter() throws IOException {
+        Path root = newTempDb();
+        try {
+            FileSystemSnapshotDatabase db = new FileSystemSnapshotDatabase(root,
+                ArchiveNioSupports.combined());
+            ZonedDateTime oldest = TIME_TWO.minusSeconds(1);
+            for (ZonedDateTime time : ImmutableList.of(TIME_ONE, oldest, TIME_TWO)) {
+                EntryMaker.WORLD_DIR.createEntry(EntryMaker.TIMESTAMPED_DIR.createEntry(root, time), WORLD_ALPHA);
+            }
+
+            assertEquals(ImmutableList.of(), before(db, oldest));
+            assertEquals(ImmutableList.of(oldest), before(db, TIME_TWO));
+            assertEquals(ImmutableList.of(oldest, TIME_TWO), before(db, TIME_TWO.plusSeconds(1)));
+            assertEquals(ImmutableList.of(oldest, TIME_TWO), before(db, TIME_ONE));
+            assertEquals(ImmutableList.of(oldest, TIME_TWO, TIME_ONE), before(db, TIME_ONE.plusSeconds(1)));
+
+            assertEquals(ImmutableList.of(), after(db, TIME_ONE));
+            assertEquals(ImmutableList.of(TIME_ONE), after(db, TIME_TWO));
+            assertEquals(ImmutableList.of(TIME_ONE, TIME_TWO), after(db, TIME_TWO.minusSeconds(1)));
+            assertEquals(ImmutableList.of(TIME_ONE, TIME_TWO, oldest), after(db, oldest.minusSeconds(1)));
+
+            assertEquals(ImmutableList.of(), dates(db.getSnapshotsBefore(WORLD_BETA, TIME_ONE)));
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    private static List<ZonedDateTime> before(FileSystemSnapshotDatabase db, ZonedDateTime date) throws IOException {
+        return dates(db.getSnapshotsBefore(WORLD_ALPHA, date));
+    }
+
+    private static List<ZonedDateTime> after(FileSystemSnapshotDatabase db, ZonedDateTime date) throws IOException {
+        return dates(db.getSnapshotsAfter(WORLD_ALPHA, date));
+    }
+
+    private static List<ZonedDateTime> dates(Stream<Snapshot> snapshots) {
+        try (Stream<Snapshot> stream = snapshots) {
+            return stream.map(snapshot -> snapshot.getInfo().getDateTime()).collect(Collectors.toList());
+        }
+    }
+
+    private static long countSnapshots(FileSystemSnapshotDatabase db) throws IOException {
+        try (Stream<Snapshot> snapshots = db.getSnapshots(WORLD_ALPHA)) {
+            return snapshots.count();
+        }
+    }
+
     @DisplayName("with a specific NIO support:")
     @TestFactory
     Stream<DynamicNode> withSpecificNioSupport() {
@@ -0,0 +1,97 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.snapshot.experimental.fs;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A snapshot catalog")
+class SnapshotCatalogTest {
+
+    private static final long HOUR_AGO = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+
+    private static void setModified(Path path, long millis) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(millis));
+    }
+
+    @Test
+    @DisplayName("does not look at the entries of an unchanged directory")
+    void skipsUnchangedDirectory(@TempDir Path root) throws IOException {
+        Path first = Files.createFile(root.resolve("first"));
+        Path second = Files.createFile(root.resolve("second"));
+        setModified(first, HOUR_AGO);
+        setModified(second, HOUR_AGO);
+        setModified(root, HOUR_AGO);
+
+        List<Path> scanned = new ArrayList<>();
+        SnapshotCatalog catalog = new SnapshotCatalog(root, entry -> {
+            scanned.add(entry.getFileName());
+            return SnapshotCatalog.of(ImmutableList.of());
+        });
+        catalog.getSnapshots();
+        assertEquals(2, scanned.size());
+
+        // changing an entry without changing the directory goes unnoticed
+        setModified(first, HOUR_AGO + 1000);
+        setModified(root, HOUR_AGO);
+        catalog.getSnapshots();
+        assertEquals(2, scanned.size());
+
+        // until the directory changes
+        setModified(root, HOUR_AGO + 1000);
+        catalog.getSnapshots();
+        assertEquals(ImmutableList.of(first.getFileName()), scanned.subList(2, scanned.size()));
+    }
+
+    @Test
+    @DisplayName("still refreshes subdirectories of an unchanged directory")
+    void refreshesSubdirectories(@TempDir Path root) throws IOException {
+        Path world = Files.createDirectory(root.resolve("world"));
+        setModified(Files.createFile(world.resolve("first")), HOUR_AGO);
+        setModified(world, HOUR_AGO);
+        setModified(root, HOUR_AGO);
+
+        List<Path> scanned = new ArrayList<>();
+        SnapshotCatalog catalog = new SnapshotCatalog(root, entry -> SnapshotCatalog.directory(entry, child -> {
+            scanned.add(child.getFileName());
+            return SnapshotCatalog.of(ImmutableList.of());
+        }));
+        catalog.getSnapshots();
+        assertEquals(1, scanned.size());
+
+        Files.createFile(world.resolve("second"));
+        setModified(root, HOUR_AGO);
+        catalog.getSnapshots();
+        assertEquals(2, scanned.size());
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.world.DataException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A region file cache")
+class McRegionFileCacheTest {
+
+    private static McRegionFile emptyFile() throws IOException {
+        return McRegionFile.read(new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("keeps the most recently used files")
+    void evictsLeastRecentlyUsed() throws IOException, DataException {
+        McRegionFileCache cache = new McRegionFileCache(2);
+        McRegionFile a = cache.get("a", McRegionFileCacheTest::emptyFile);
+        McRegionFile b = cache.get("b", McRegionFileCacheTest::emptyFile);
+        assertSame(a, cache.get("a", McRegionFileCacheTest::emptyFile));
+        cache.get("c", McRegionFileCacheTest::emptyFile);
+
+        assertSame(a, cache.get("a", McRegionFileCacheTest::emptyFile));
+        assertNotSame(b, cache.get("b", McRegionFileCacheTest::emptyFile));
+    }
+
+    @Test
+    @DisplayName("tries failed files again")
+    void doesNotCacheFailures() throws IOException, DataException {
+        McRegionFileCache cache = new McRegionFileCache(2);
+        AtomicInteger loads = new AtomicInteger();
+        McRegionFileCache.Loader failing = () -> {
+            loads.incrementAndGet();
+            throw new MissingChunkException();
+        };
+        assertThrows(MissingChunkException.class, () -> cache.get("a", failing));
+        assertThrows(MissingChunkException.class, () -> cache.get("a", failing));
+        assertEquals(2, loads.get());
+
+        McRegionFile file = cache.get("a", McRegionFileCacheTest::emptyFile);
+        assertSame(file, cache.get("a", failing));
+    }
+
+    @Test
+    @DisplayName("loads different files at the same time")
+    void loadsConcurrently() throws Exception {
+        McRegionFileCache cache = new McRegionFileCache(2);
+        CountDownLatch otherLoaded = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<McRegionFile> slow = executor.submit(() -> cache.get("a", () -> {
+                // only finishes if "b" can be loaded while this load runs
+                try {
+                    assertTrue(otherLoaded.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return emptyFile();
+            }));
+            cache.get("b", McRegionFileCacheTest::emptyFile);
+            otherLoaded.countDown();
+            McRegionFile a = slow.get(10, TimeUnit.SECONDS);
+            assertSame(a, cache.get("a", McRegionFileCacheTest::emptyFile));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
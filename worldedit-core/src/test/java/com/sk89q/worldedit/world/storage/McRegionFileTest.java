@@ -0,0 +1,179 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.world.DataException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A MCRegion file")
+class McRegionFileTest {
+
+    private static final int SECTOR_BYTES = 4096;
+
+    private static byte[] chunkData;
+
+    @BeforeAll
+    static void setUpStatic() throws IOException, DataException {
+        byte[] region;
+        try (InputStream in = Resources.getResource("world_region.mca.gzip").openStream();
+             GZIPInputStream gzIn = new GZIPInputStream(in)) {
+            region = ByteStreams.toByteArray(gzIn);
+        }
+        McRegionFile file = McRegionFile.read(new ByteArrayInputStream(region));
+        for (int i = 0; i < 32 * 32 && chunkData == null; i++) {
+            if (file.hasChunk(i & 31, i >> 5)) {
+                try (InputStream in = file.getChunkInputStream(BlockVector2.at(i & 31, i >> 5))) {
+                    chunkData = ByteStreams.toByteArray(in);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a region file with every chunk present, each holding the test
+     * chunk's data followed by its own index.
+     */
+    private static byte[] buildRegion() throws IOException {
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        int[] offsets = new int[32 * 32];
+        int sector = 1;
+        for (int i = 0; i < offsets.length; i++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+                out.write(chunkData);
+                out.writeInt(i);
+            }
+            int length = compressed.size() + 1;
+            int sectors = (length + 4 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+            DataOutputStream out = new DataOutputStream(chunks);
+            out.writeInt(length);
+            out.writeByte(2);
+            compressed.writeTo(out);
+            for (int pad = length + 4; pad < sectors * SECTOR_BYTES; pad++) {
+                out.writeByte(0);
+            }
+            offsets[i] = sector << 8 | sectors;
+            sector += sectors;
+        }
+
+        ByteArrayOutputStream region = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(region);
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        chunks.writeTo(out);
+        return region.toByteArray();
+    }
+
+    private static byte[] expectedChunk(int index) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(expected);
+        out.write(chunkData);
+        out.writeInt(index);
+        return expected.toByteArray();
+    }
+
+    private static byte[] readChunk(McRegionFile file, int index) throws IOException, DataException {
+        try (InputStream in = file.getChunkInputStream(BlockVector2.at(index & 31, index >> 5))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    @Test
+    @DisplayName("reads chunks in any order from a file or a stream")
+    void readsChunksInAnyOrder(@TempDir Path dir) throws IOException, DataException {
+        byte[] region = buildRegion();
+        Path path = dir.resolve("r.0.0.mca");
+        Files.write(path, region);
+
+        McRegionFile opened = McRegionFile.open(path);
+        McRegionFile read = McRegionFile.read(new ByteArrayInputStream(region));
+        for (int i = 32 * 32 - 1; i >= 0; i -= 7) {
+            assertArrayEquals(expectedChunk(i), readChunk(opened, i));
+            assertArrayEquals(expectedChunk(i), readChunk(read, i));
+        }
+    }
+
+    @Test
+    @DisplayName("treats an empty file as having no chunks")
+    void readsEmptyFile() throws IOException {
+        McRegionFile file = McRegionFile.read(new ByteArrayInputStream(new byte[0]));
+        assertFalse(file.hasChunk(0, 0));
+        assertThrows(DataException.class, () -> file.getChunkInputStream(BlockVector2.ZERO));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "worldedit.benchmark", matches = "true")
+    @DisplayName("reads a whole region faster than McRegionReader (benchmark)")
+    void readBenchmark(@TempDir Path dir) throws IOException, DataException {
+        Path path = dir.resolve("r.0.0.mca");
+        Files.write(path, buildRegion());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 32 * 32; i++) {
+            try (InputStream stream = Files.newInputStream(path)) {
+                McRegionReader reader = new McRegionReader(stream);
+                try (InputStream in = reader.getChunkInputStream(BlockVector2.at(i & 31, i >> 5))) {
+                    ByteStreams.exhaust(in);
+                }
+            }
+        }
+        long readerNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        McRegionFileCache cache = new McRegionFileCache(McRegionFileCache.DEFAULT_SIZE);
+        for (int i = 0; i < 32 * 32; i++) {
+            McRegionFile file = cache.get(path.toString(), () -> McRegionFile.open(path));
+            try (InputStream in = file.getChunkInputStream(BlockVector2.at(i & 31, i >> 5))) {
+                ByteStreams.exhaust(in);
+            }
+        }
+        long fileNanos = System.nanoTime() - start;
+        cache.clear();
+
+        System.out.printf("1024 chunks: McRegionReader %d ms, McRegionFile %d ms%n",
+                readerNanos / 1_000_000, fileNanos / 1_000_000);
+        assertTrue(fileNanos < readerNanos, "the cached region file should be faster than reopening the region");
+    }
+
+}